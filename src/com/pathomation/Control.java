@@ -1,16 +1,13 @@
 package com.pathomation;
 
-import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import javax.net.ssl.HttpsURLConnection;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.json.JSONArray;
@@ -106,7 +103,7 @@ public class Control {
 		}
 
 		try {
-			String jsonString = PMA.httpGet(url, "application/json");
+			String jsonString = Core.httpGet(pmaCoreSessionID, url, "application/json");
 			JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
 			return jsonResponse;
 		} catch (Exception e) {
@@ -138,7 +135,7 @@ public class Control {
 			url += "&sessionTitle=" + PMA.pmaQ(sessionTitle);
 		}
 		try {
-			String jsonString = PMA.httpGet(url, "application/json");
+			String jsonString = Core.httpGet(pmaCoreSessionID, url, "application/json");
 			JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
 			return jsonResponse;
 		} catch (Exception e) {
@@ -285,7 +282,7 @@ public class Control {
 		String url = PMA.join(pmaControlURL, "api/Sessions/" + pmaControlTrainingSessionID + "/Participants?sessionID="
 				+ PMA.pmaQ(pmaCoreSessionID));
 		try {
-			String jsonString = PMA.httpGet(url, "application/json");
+			String jsonString = Core.httpGet(pmaCoreSessionID, url, "application/json");
 			JSONArray sessionParticipants = PMA.getJSONArrayResponse(jsonString);
 			Map<String, JSONObject> participants = new HashMap<>();
 			for (int i = 0; i < sessionParticipants.length(); i++) {
@@ -417,30 +414,16 @@ public class Control {
 		try {
 			String url = PMA.join(pmaControlURL, "api/Sessions/") + pmaControlTrainingSessionID.toString()
 					+ "/AddParticipant?SessionID=" + pmaCoreSessionID;
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("POST");
-			con.setRequestProperty("Content-Type", "application/json");
-			con.setUseCaches(true);
-			con.setDoOutput(true);
 			// default interaction mode = Locked
 			String data = "{ \"UserName\": \"" + participantUsername + "\", \"Role\": \"" + pmaControlRole + "\" }";
 			// + ", \"InteractionMode\": \"" +
 			// String.valueOf(pmacontrolInteractionMode.ordinal() + 1) + "\" }";
-			OutputStream os = con.getOutputStream();
-			os.write(data.getBytes("UTF-8"));
-			os.close();
 			if (PMA.debug) {
 				System.out.println("Posting to " + url);
 				System.out.println("with payload " + data);
 			}
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
-			PMA.clearURLCache();
+			String jsonString = Core.transport(pmaCoreSessionID).postString(url, "application/json", data, null);
+			Core.invalidateURLCache(pmaCoreSessionID, PMA.join(pmaControlURL, "api/"));
 			return jsonString;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -473,29 +456,15 @@ public class Control {
 		try {
 			String url = PMA.join(pmaControlURL, "api/Projects/") + pmaControlProjectID + "/AddParticipant?SessionID="
 					+ pmaCoreSessionID;
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("POST");
-			con.setRequestProperty("Content-Type", "application/json");
-			con.setUseCaches(true);
-			con.setDoOutput(true);
 			// default interaction mode = Locked
 			String data = "{ \"UserName\": \"" + participantUsername + "\", \"Role\": \"" + pmaControlRole
 					+ "\", \"InteractionMode\": \"" + pmaControlInteractionMode + "\" }";
-			OutputStream os = con.getOutputStream();
-			os.write(data.getBytes("UTF-8"));
-			os.close();
 			if (PMA.debug) {
 				System.out.println("Posting to " + url);
 				System.out.println("with payload " + data);
 			}
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
-			PMA.clearURLCache();
+			String jsonString = Core.transport(pmaCoreSessionID).postString(url, "application/json", data, null);
+			Core.invalidateURLCache(pmaCoreSessionID, PMA.join(pmaControlURL, "api/"));
 			return jsonString;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -632,31 +601,17 @@ public class Control {
 		try {
 			String url = PMA.join(pmaControlURL, "api/Sessions/") + pmaControlTrainingSessionID
 					+ "/InteractionMode?SessionID=" + pmaCoreSessionID;
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("POST");
-			con.setRequestProperty("Content-Type", "application/json");
-			con.setUseCaches(true);
-			con.setDoOutput(true);
 			String data = "{ \"UserName\": \"" + participantUsername + "\", " + " \"CaseCollectionId\": \""
 					+ pmaControlCaseCollectionID + "\", " + "\"InteractionMode\": \"" + pmaControlInteractionMode
 					+ "\" }"; // default interaction mode = Locked
 			// + ", \"InteractionMode\": \"" +
 			// String.valueOf(pmacontrolInteractionMode.ordinal() + 1) + "\" }";
-			OutputStream os = con.getOutputStream();
-			os.write(data.getBytes("UTF-8"));
-			os.close();
 			if (PMA.debug) {
 				System.out.println("Posting to " + url);
 				System.out.println("with payload " + data);
 			}
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
-			PMA.clearURLCache();
+			String jsonString = Core.transport(pmaCoreSessionID).postString(url, "application/json", data, null);
+			Core.invalidateURLCache(pmaCoreSessionID, PMA.join(pmaControlURL, "api/"));
 			return jsonString;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -850,7 +805,7 @@ public class Control {
 		}
 
 		try {
-			String jsonString = PMA.httpGet(url, "application/json");
+			String jsonString = Core.httpGet(pmaCoreSessionID, url, "application/json");
 			JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
 			return jsonResponse;
 		} catch (Exception e) {
@@ -1064,7 +1019,7 @@ public class Control {
 		}
 
 		try {
-			String jsonString = PMA.httpGet(url, "application/json");
+			String jsonString = Core.httpGet(pmaCoreSessionID, url, "application/json");
 			JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
 			return jsonResponse;
 		} catch (Exception e) {
@@ -1299,32 +1254,18 @@ public class Control {
 		try {
 			String url = PMA.join(pmaControlURL, "api/Sessions/") + pmaControlTrainingSessionID
 					+ "/InteractionModeCaseCollections?SessionID=" + pmaCoreSessionID;
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("POST");
-			con.setRequestProperty("Content-Type", "application/json");
-			con.setUseCaches(true);
-			con.setDoOutput(true);
 			String data = "{ \"UserName\": \"" + participantUsername + "\", " + " \"CaseCollectionIds\": ["
 					+ StringUtils.join(ArrayUtils.toObject(pmaControlCaseCollectionIDs), ", ") + "], "
 					+ "\"InteractionMode\": \"" + pmaControlInteractionMode + "\" }"; // default interaction mode =
 																						// Locked
 			// + ", \"InteractionMode\": \"" +
 			// String.valueOf(pmacontrolInteractionMode.ordinal() + 1) + "\" }";
-			OutputStream os = con.getOutputStream();
-			os.write(data.getBytes("UTF-8"));
-			os.close();
 			if (PMA.debug) {
 				System.out.println("Posting to " + url);
 				System.out.println("with payload " + data);
 			}
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
-			PMA.clearURLCache();
+			String jsonString = Core.transport(pmaCoreSessionID).postString(url, "application/json", data, null);
+			Core.invalidateURLCache(pmaCoreSessionID, PMA.join(pmaControlURL, "api/"));
 			return jsonString;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -1355,17 +1296,6 @@ public class Control {
 			throws Exception {
 		try {
 			String url = PMA.join(pmaControlURL, "api/Sessions/InteractionMode?sessionID=") + pmaCoreSessionID;
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("POST");
-			con.setRequestProperty("Content-Type", "application/json");
-			con.setUseCaches(true);
-			con.setDoOutput(true);
 			String jsonContentForTrainingSessions = "";
 			for (Map<String, Object> trainingSession : trainingSessions) {
 				jsonContentForTrainingSessions += "{\"SessionId\":\"" + trainingSession.get("Id")
@@ -1376,15 +1306,12 @@ public class Control {
 			String data = "{\"UserName\":\"" + participantUsername + "\", " + "\"Sessions\":["
 					+ jsonContentForTrainingSessions + "]," + "\"InteractionMode\":\"" + pmaControlInteractionMode
 					+ "\"}"; // default interaction mode = // Locked
-			OutputStream os = con.getOutputStream();
-			os.write(data.getBytes("UTF-8"));
-			os.close();
 			if (PMA.debug) {
 				System.out.println("Posting to " + url);
 				System.out.println("with payload " + data);
 			}
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
-			PMA.clearURLCache();
+			String jsonString = Core.transport(pmaCoreSessionID).postString(url, "application/json", data, null);
+			Core.invalidateURLCache(pmaCoreSessionID, PMA.join(pmaControlURL, "api/"));
 			return jsonString;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -6,11 +6,18 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -22,25 +29,23 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.http.*;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.methods.HttpPut;
-import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.entity.mime.FormBodyPart;
-import org.apache.http.entity.mime.HttpMultipartMode;
-import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.entity.mime.content.FileBody;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.protocol.HttpContext;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
@@ -58,40 +63,36 @@ import static java.lang.System.out;
  */
 public class Core {
 	/**
-	 * So afterwards we can look up what username actually belongs to a sessions
+	 * The clients (connection, caches, metrics) of the registered sessions
 	 */
-	private static Map<String, Object> pmaSessions = new HashMap<String, Object>();
+	private static Map<String, PmaCoreClient> pmaClients = new ConcurrentHashMap<>();
 
 	/**
-	 * So afterwards we can determine the PMA.core URL to connect to for a given
-	 * SessionID
+	 * Session used when no sessionID is passed along, null to use the oldest
+	 * registered session
 	 */
+	private static volatile String pmaDefaultSessionID = null;
 
-	private static Map<String, String> pmaUsernames = new HashMap<>();
 	/**
-	 * A caching mechanism for slide information; obsolete and should be improved
-	 * through httpGet()
+	 * Client of the PMA.core.lite session, created when PMA.core.lite is first
+	 * used
 	 */
+	private static volatile PmaCoreClient pmaCoreLiteClient = null;
 
-	private static Map<String, Object> pmaSlideInfos = new HashMap<String, Object>();
 	private static final String pmaCoreLiteURL = "http://localhost:54001/";
 	private static final String pmaCoreLiteSessionID = "SDK.Java";
 	private static Boolean pmaUseCacheWhenRetrievingTiles = true;
 
 	/**
-	 * Keep track of how much data was downloaded
+	 * Object Mapper for Jackson library
 	 */
-	@SuppressWarnings("serial")
-	private static Map<String, Integer> pmaAmountOfDataDownloaded = new HashMap<String, Integer>() {
-		{
-			put(pmaCoreLiteSessionID, 0);
-		}
-	};
+	private static ObjectMapper objectMapper = new ObjectMapper();
 
 	/**
-	 * Object Mapper for Jackson library
+	 * Reader for the properties of a slide without a typed field in SlideInfo
 	 */
-	private static ObjectMapper objectMapper = new ObjectMapper();
+	private static ObjectReader slideInfoValueReader = objectMapper.readerFor(Object.class)
+			.with(DeserializationFeature.USE_LONG_FOR_INTS);
 
 	/**
 	 * Readable bytes for upload and download methods. To integrate into the progress bar.
@@ -99,24 +100,67 @@ public class Core {
 	private static BlockingQueue<Long> bytes = new LinkedBlockingQueue<>();
 
 	/**
-	 * @return the pmaSessions
+	 * Runs the asynchronous tile and region requests, with a bounded number of
+	 * requests in flight per session
+	 */
+	private static RequestDispatcher requestDispatcher = new RequestDispatcher(HttpTransport.DEFAULT_MAX_PER_ROUTE);
+
+	/**
+	 * Number of slides requested per GetImagesInfo call by getSlidesInfo()
+	 */
+	private static volatile int slidesInfoBatchSize = 100;
+
+	/**
+	 * Client-side cache of encoded tiles, disabled (null) by default
+	 */
+	private static volatile TileCache tileCache = null;
+
+	/**
+	 * @return a read-only snapshot of the pmaSessions (session's ID to PMA.core
+	 *         URL), built from the registered clients. It doesn't follow later
+	 *         connections and disconnections, and modifying it throws an
+	 *         UnsupportedOperationException
 	 */
 	public static Map<String, Object> getPmaSessions() {
-		return pmaSessions;
+		Map<String, Object> sessions = new LinkedHashMap<>();
+		for (PmaCoreClient client : clients()) {
+			sessions.put(client.getSessionId(), client.getUrl());
+		}
+		return Collections.unmodifiableMap(sessions);
 	}
 
 	/**
-	 * @return the pmaUsernames
+	 * @return a read-only snapshot of the pmaUsernames (session's ID to
+	 *         username), built from the registered clients. Modifying it throws
+	 *         an UnsupportedOperationException
 	 */
 	public static Map<String, String> getPmaUsernames() {
-		return pmaUsernames;
+		Map<String, String> usernames = new LinkedHashMap<>();
+		for (PmaCoreClient client : clients()) {
+			if (client.getUsername() != null) {
+				usernames.put(client.getSessionId(), client.getUsername());
+			}
+		}
+		return Collections.unmodifiableMap(usernames);
 	}
 
 	/**
-	 * @return the pmaSlideInfos
+	 * @return a read-only snapshot of the pmaSlideInfos (session's ID to the
+	 *         slides cached by its client), built from the clients' slide
+	 *         information caches. Modifying it throws an
+	 *         UnsupportedOperationException, use the clients' caches (see
+	 *         PmaCoreClient.getSlideInfoCache()) to change them
 	 */
 	public static Map<String, Object> getPmaSlideInfos() {
-		return pmaSlideInfos;
+		Map<String, Object> slideInfos = new LinkedHashMap<>();
+		for (PmaCoreClient client : clients()) {
+			slideInfos.put(client.getSessionId(), Collections.unmodifiableMap(client.getSlideInfoCache().asMap()));
+		}
+		PmaCoreClient lite = pmaCoreLiteClient;
+		if (lite != null) {
+			slideInfos.put(pmaCoreLiteSessionID, Collections.unmodifiableMap(lite.getSlideInfoCache().asMap()));
+		}
+		return Collections.unmodifiableMap(slideInfos);
 	}
 
 	/**
@@ -134,10 +178,265 @@ public class Core {
 	}
 
 	/**
-	 * @return the pmaAmountOfDataDownloaded
+	 * @return a read-only snapshot of the pmaAmountOfDataDownloaded (session's ID
+	 *         to the number of bytes downloaded), built from the clients' counters.
+	 *         Modifying it throws an UnsupportedOperationException
 	 */
 	public static Map<String, Integer> getPmaAmountOfDataDownloaded() {
-		return pmaAmountOfDataDownloaded;
+		Map<String, Integer> amounts = new LinkedHashMap<>();
+		for (PmaCoreClient client : clients()) {
+			amounts.put(client.getSessionId(), (int) client.getAmountOfDataDownloaded());
+		}
+		PmaCoreClient lite = pmaCoreLiteClient;
+		if (lite != null) {
+			amounts.put(pmaCoreLiteSessionID, (int) lite.getAmountOfDataDownloaded());
+		}
+		return Collections.unmodifiableMap(amounts);
+	}
+
+	/**
+	 * @return the clients of the registered sessions, oldest first
+	 */
+	public static List<PmaCoreClient> getClients() {
+		return clients();
+	}
+
+	private static List<PmaCoreClient> clients() {
+		List<PmaCoreClient> clients = new ArrayList<>(pmaClients.values());
+		clients.sort(Comparator.comparingLong(PmaCoreClient::getOrder));
+		return clients;
+	}
+
+	/**
+	 * This method is used to get the client of a session
+	 *
+	 * @param varargs Array of optional arguments
+	 *                <p>
+	 *                sessionID : First optional argument(String), default
+	 *                value(null), session's ID
+	 *                </p>
+	 * @return Client of the session, null if the session isn't registered
+	 */
+	public static PmaCoreClient getClient(String... varargs) {
+		String sessionID = varargs.length > 0 ? varargs[0] : null;
+		sessionID = sessionId(sessionID);
+		return client(sessionID);
+	}
+
+	/**
+	 * This method is used to determine whether a session is the one of PMA.start
+	 * 
+	 * @param sessionID session's ID
+	 * @return True if the session is the PMA.start (PMA.core.lite) one
+	 */
+	static boolean isLiteSession(String sessionID) {
+		return pmaCoreLiteSessionID.equals(sessionID);
+	}
+
+	/**
+	 * This method is used to choose the session used when no sessionID is passed
+	 * along. Without it, the oldest registered session is used
+	 *
+	 * @param sessionID session's ID, null to go back to the oldest registered
+	 *                  session
+	 */
+	public static void setDefaultSession(String sessionID) {
+		if (sessionID != null && !pmaClients.containsKey(sessionID) && !sessionID.equals(pmaCoreLiteSessionID)) {
+			if (PMA.logger != null) {
+				PMA.logger.severe("setDefaultSession() : Invalid sessionID:" + sessionID);
+			}
+			throw new IllegalArgumentException("Invalid sessionID:" + sessionID);
+		}
+		pmaDefaultSessionID = sessionID;
+	}
+
+	/**
+	 * This method is used to register a session, so that the other methods can
+	 * determine the PMA.core instance it belongs to
+	 *
+	 * @param sessionID              session's ID
+	 * @param url                    URL of the PMA.core instance
+	 * @param username               username, can be null
+	 * @param amountOfDataDownloaded amount of data downloaded to establish the
+	 *                               session
+	 * @return Client of the session
+	 */
+	static PmaCoreClient registerSession(String sessionID, String url, String username, int amountOfDataDownloaded) {
+		PmaCoreClient client = new PmaCoreClient(url, sessionID, username, requestDispatcher);
+		client.getDataDownloaded().add(amountOfDataDownloaded);
+		PmaCoreClient previous = pmaClients.put(sessionID, client);
+		if (previous != null) {
+			// same session registered again, keep its settings
+			client.copySettings(previous);
+		}
+		return client;
+	}
+
+	/**
+	 * This method is used to unregister the session of a client that disconnects
+	 *
+	 * @param client Client of the session
+	 * @return True if the session was registered with this client
+	 */
+	static boolean unregister(PmaCoreClient client) {
+		String sessionID = client.getSessionId();
+		if (!pmaClients.remove(sessionID, client)) {
+			return false;
+		}
+		if (sessionID.equals(pmaDefaultSessionID)) {
+			pmaDefaultSessionID = null;
+		}
+		return true;
+	}
+
+	/**
+	 * This method is used to get the client of a session
+	 *
+	 * @param sessionID session's ID
+	 * @return Client of the session, null if the session isn't registered
+	 */
+	private static PmaCoreClient client(String sessionID) {
+		if (sessionID == null) {
+			return null;
+		}
+		PmaCoreClient client = pmaClients.get(sessionID);
+		if (client == null && sessionID.equals(pmaCoreLiteSessionID)) {
+			synchronized (Core.class) {
+				if (pmaCoreLiteClient == null) {
+					pmaCoreLiteClient = new PmaCoreClient(pmaCoreLiteURL, pmaCoreLiteSessionID, null, requestDispatcher);
+				}
+				client = pmaCoreLiteClient;
+			}
+		}
+		return client;
+	}
+
+	/**
+	 * This method is used to get the client a static method delegates to
+	 *
+	 * @param sessionID session's ID
+	 * @return Client of the session, null (after logging it) if the session isn't
+	 *         registered
+	 */
+	private static PmaCoreClient sessionClient(String sessionID) {
+		PmaCoreClient client = client(sessionID);
+		if (client == null && PMA.logger != null) {
+			PMA.logger.severe("Invalid sessionID:" + sessionID);
+		}
+		return client;
+	}
+
+	/**
+	 * This method is used to get the client a static method delegates to, failing
+	 * if there is none
+	 *
+	 * @param sessionID session's ID
+	 * @return Client of the session
+	 * @throws Exception if the session isn't registered
+	 */
+	private static PmaCoreClient requireClient(String sessionID) throws Exception {
+		PmaCoreClient client = sessionClient(sessionID);
+		if (client == null) {
+			throw new Exception("Invalid sessionID:" + sessionID);
+		}
+		return client;
+	}
+
+	/**
+	 * This method is used to run a request asynchronously, within the limit of
+	 * requests in flight of a session's client
+	 *
+	 * @param sessionID session's ID
+	 * @param task      Request to run
+	 * @return Future completed with the result of the request, or exceptionally if
+	 *         the session isn't registered
+	 */
+	private static <T> CompletableFuture<T> dispatch(String sessionID, Callable<T> task) {
+		PmaCoreClient client = sessionClient(sessionID);
+		if (client == null) {
+			CompletableFuture<T> failed = new CompletableFuture<>();
+			failed.completeExceptionally(new Exception("Invalid sessionID:" + sessionID));
+			return failed;
+		}
+		return client.submit(task);
+	}
+
+	/**
+	 * This method gets the HTTP transport to use for a session
+	 *
+	 * @param sessionID session's ID
+	 * @return HTTP transport of the session's client, the default transport if the
+	 *         session isn't registered
+	 */
+	static HttpTransport transport(String sessionID) {
+		PmaCoreClient client = client(sessionID);
+		return client == null ? HttpTransport.getDefault() : client.getTransport();
+	}
+
+	/**
+	 * This method is used to retrieve a URL on behalf of a session, through the
+	 * HTTP transport and response cache of the session's client
+	 *
+	 * @param sessionID session's ID
+	 * @param url       URL to retrieve
+	 * @param accept    Accept header, null for none
+	 * @return Body of the response, null if it can't be retrieved
+	 */
+	static String httpGet(String sessionID, String url, String accept) {
+		PmaCoreClient client = client(sessionID);
+		return client == null ? PMA.httpGet(url, accept) : client.httpGet(url, accept);
+	}
+
+	/**
+	 * This method is used to drop the cached responses of a session's client for
+	 * the URLs starting with a prefix (e.g. after a write operation on a server)
+	 *
+	 * @param sessionID session's ID
+	 * @param prefix    URL prefix
+	 */
+	static void invalidateURLCache(String sessionID, String prefix) {
+		PmaCoreClient client = client(sessionID);
+		if (client == null) {
+			PMA.invalidateURLCache(prefix);
+		} else {
+			client.getResponseCache().invalidatePrefix(prefix);
+		}
+	}
+
+	/**
+	 * This method gets the slide information cache of a session
+	 *
+	 * @param sessionID session's ID
+	 * @return Slide information cache of the session's client (a throwaway cache
+	 *         if the session isn't registered)
+	 */
+	private static SlideInfoCache slideInfos(String sessionID) {
+		PmaCoreClient client = client(sessionID);
+		return client == null ? new SlideInfoCache() : client.getSlideInfoCache();
+	}
+
+	/**
+	 * This method gets the tile cache to use for a session
+	 *
+	 * @param sessionID session's ID
+	 * @return Tile cache of the session's client, null if tiles aren't cached
+	 */
+	private static TileCache tileCache(String sessionID) {
+		PmaCoreClient client = client(sessionID);
+		return client == null ? tileCache : client.getTileCache();
+	}
+
+	/**
+	 * This method keeps track of the amount of data downloaded for a session
+	 *
+	 * @param sessionID session's ID
+	 * @param amount    amount of data downloaded
+	 */
+	private static void addDataDownloaded(String sessionID, long amount) {
+		PmaCoreClient client = client(sessionID);
+		if (client != null) {
+			client.getDataDownloaded().add(amount);
+		}
 	}
 
 	/**
@@ -148,6 +447,141 @@ public class Core {
 		return bytes;
 	}
 
+	/**
+	 * @return the client-side tile cache, null if tiles aren't cached
+	 */
+	public static TileCache getTileCache() {
+		return tileCache;
+	}
+
+	/**
+	 * This method is used to plug a client-side tile cache into getTile(),
+	 * getTiles() and the other tile retrieval methods. Tiles are cached by the
+	 * fingerprint of their slide. Fingerprints are checked with the server again
+	 * once they're older than the client's fingerprint TTL (see
+	 * PmaCoreClient.setFingerprintTtl()), so tiles of a slide that changed on the
+	 * server are served for at most that long
+	 *
+	 * @param cache Tile cache to use, null to disable caching
+	 */
+	public static void setTileCache(TileCache cache) {
+		tileCache = cache;
+		for (PmaCoreClient client : pmaClients.values()) {
+			client.getFingerprints().clear();
+		}
+	}
+
+	/**
+	 * This method is used to drop the cached tiles of a slide (e.g. after it was
+	 * replaced on the server)
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments
+	 *                 <p>
+	 *                 sessionID : First optional argument(String), default
+	 *                 value(null), session's ID
+	 *                 </p>
+	 */
+	public static void invalidateTileCache(String slideRef, String... varargs) {
+		String sessionID = varargs.length > 0 ? varargs[0] : null;
+		sessionID = sessionId(sessionID);
+		PmaCoreClient client = client(sessionID);
+		if (client != null) {
+			client.invalidateTileCache(slideRef);
+		}
+	}
+
+	/**
+	 * @return the maximum number of asynchronous requests in flight per session
+	 */
+	public static int getMaxConcurrentRequests() {
+		return requestDispatcher.getMaxInFlight();
+	}
+
+	/**
+	 * This method is used to set the maximum number of asynchronous requests
+	 * (getTileAsync(), getRegionAsync()) in flight per session. Requests above
+	 * this limit are queued until a running one completes. Keep in mind that the
+	 * HTTP transport limits the number of connections per host as well (see
+	 * HttpTransport.setMaxPerHost())
+	 *
+	 * @param maxConcurrentRequests Maximum number of requests in flight per
+	 *                              session
+	 */
+	public static void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		requestDispatcher.setMaxInFlight(maxConcurrentRequests);
+	}
+
+	/**
+	 * @param sessionID session's ID
+	 * @return the maximum number of asynchronous requests in flight for a session
+	 */
+	public static int getMaxConcurrentRequests(String sessionID) {
+		PmaCoreClient client = client(sessionId(sessionID));
+		return client == null ? requestDispatcher.getMaxInFlight() : client.getMaxConcurrentRequests();
+	}
+
+	/**
+	 * This method is used to set the maximum number of asynchronous requests in
+	 * flight for a single session, overriding setMaxConcurrentRequests(int)
+	 *
+	 * @param sessionID             session's ID
+	 * @param maxConcurrentRequests Maximum number of requests in flight for this
+	 *                              session, 0 to fall back to the default
+	 */
+	public static void setMaxConcurrentRequests(String sessionID, int maxConcurrentRequests) {
+		PmaCoreClient client = client(sessionId(sessionID));
+		if (client == null) {
+			if (PMA.logger != null) {
+				PMA.logger.severe("setMaxConcurrentRequests() : Invalid sessionID");
+			}
+			throw new IllegalArgumentException("Invalid sessionID");
+		}
+		client.setMaxConcurrentRequests(maxConcurrentRequests);
+	}
+
+	/**
+	 * @return the number of slides requested per GetImagesInfo call
+	 */
+	public static int getSlidesInfoBatchSize() {
+		return slidesInfoBatchSize;
+	}
+
+	/**
+	 * This method is used to set the number of slides requested per GetImagesInfo
+	 * call by getSlidesInfo() and fetchSlidesInfo(). Larger lists are split into
+	 * chunks of this size, which are sent concurrently (up to the session's
+	 * maximum number of concurrent requests)
+	 *
+	 * @param batchSize Number of slides per call
+	 */
+	public static void setSlidesInfoBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			if (PMA.logger != null) {
+				PMA.logger.severe("setSlidesInfoBatchSize() : Invalid argument");
+			}
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		}
+		slidesInfoBatchSize = batchSize;
+	}
+
+	/**
+	 * This method is used to get the number of asynchronous requests currently in
+	 * flight for a session
+	 *
+	 * @param varargs Array of optional arguments
+	 *                <p>
+	 *                sessionID : First optional argument(String), default
+	 *                value(null), session's ID
+	 *                </p>
+	 * @return Number of requests in flight
+	 */
+	public static int getConcurrentRequests(String... varargs) {
+		String sessionID = varargs.length > 0 ? varargs[0] : null;
+		PmaCoreClient client = client(sessionId(sessionID));
+		return client == null ? 0 : client.getConcurrentRequests();
+	}
+
 	/**
 	 * This method is used to determine whether the Java SDK runs in debugging mode
 	 * or not. When in debugging mode (flag = true), extra output is produced when
@@ -174,7 +608,7 @@ public class Core {
 	 * @return The same sessionID if explicited, otherwise it recovers a session's
 	 *         ID
 	 */
-	private static String sessionId(String sessionID) {
+	static String sessionId(String sessionID) {
 		// setting the default value when argument's value is omitted
 		if (sessionID == null) {
 			// if the sessionID isn't specified, maybe we can still recover it somehow
@@ -192,21 +626,27 @@ public class Core {
 	 * @return PMA.core active session
 	 */
 	private static String firstSessionId() {
-		// do we have any stored sessions from earlier login events?
-		if (pmaSessions.size() > 0) {
-			// yes we do! This means that when there's a PMA.core active session AND
-			// PMA.core.lite version running,
-			// the PMA.core active will be selected and returned
-			return pmaSessions.keySet().toArray()[0].toString();
+		// an explicitly chosen session comes first
+		String sessionID = pmaDefaultSessionID;
+		if (sessionID != null && (pmaClients.containsKey(sessionID) || sessionID.equals(pmaCoreLiteSessionID))) {
+			return sessionID;
+		}
+		// do we have any stored sessions from earlier login events? If so, the oldest
+		// one is selected (and not whichever the hash map happens to return first),
+		// so that the same session is used for as long as it's registered. This means
+		// that when there's a PMA.core active session AND PMA.core.lite version
+		// running, the PMA.core active will be selected and returned
+		PmaCoreClient oldest = null;
+		for (PmaCoreClient client : pmaClients.values()) {
+			if (oldest == null || client.getOrder() < oldest.getOrder()) {
+				oldest = client;
+			}
+		}
+		if (oldest != null) {
+			return oldest.getSessionId();
 		} else {
 			// ok, we don't have stored sessions; not a problem per se...
 			if (pmaIsLite()) {
-				if (!pmaSlideInfos.containsKey(pmaCoreLiteSessionID)) {
-					pmaSlideInfos.put(pmaCoreLiteSessionID, new HashMap<String, Object>());
-				}
-				if (!pmaAmountOfDataDownloaded.containsKey(pmaCoreLiteSessionID)) {
-					pmaAmountOfDataDownloaded.put(pmaCoreLiteSessionID, 0);
-				}
 				return pmaCoreLiteSessionID;
 			} else {
 				// no stored PMA.core sessions found NOR PMA.core.lite
@@ -238,12 +678,9 @@ public class Core {
 		} else {
 			// assume sessionID is a valid session; otherwise the following will generate an
 			// error
-			if (pmaSessions.containsKey(sessionID)) {
-				String url = pmaSessions.get(sessionID).toString();
-				if (!url.endsWith("/")) {
-					url = url + "/";
-				}
-				return url;
+			PmaCoreClient client = pmaClients.get(sessionID);
+			if (client != null) {
+				return client.getUrl();
 			} else {
 				if (PMA.logger != null) {
 					PMA.logger.severe("Invalid sessionID:" + sessionID);
@@ -262,12 +699,7 @@ public class Core {
 	 */
 	public static String urlReader(String url) {
 		try {
-			URL urlResource = new URL(url);
-			URLConnection con = urlResource.openConnection();
-			InputStream in = con.getInputStream();
-			String encoding = con.getContentEncoding();
-			encoding = encoding == null ? "UTF-8" : encoding;
-			return IOUtils.toString(in, encoding);
+			return new String(HttpTransport.getDefault().getBytes(url), StandardCharsets.UTF_8);
 		} catch (Exception e) {
 			return null;
 		}
@@ -325,16 +757,7 @@ public class Core {
 		String url = PMA.join(pmaControlURL, "api/Sessions?sessionID=" + pmaQ(pmaCoreSessionID));
 		System.out.println(url);
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			con.setRequestProperty("Accept", "application/json");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(pmaCoreSessionID).getString(url, "application/json");
 			JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
 			return jsonResponse;
 		} catch (Exception e) {
@@ -385,16 +808,7 @@ public class Core {
 		String url = PMA.join(pmaControlURL, "api/CaseCollections?sessionID=" + pmaQ(pmaCoreSessionID));
 		System.out.println(url);
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			con.setRequestProperty("Accept", "application/json");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(pmaCoreSessionID).getString(url, "application/json");
 			JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
 			return jsonResponse;
 		} catch (Exception e) {
@@ -416,16 +830,7 @@ public class Core {
 		String url = PMA.join(pmaControlURL, "api/Projects?sessionID=" + pmaQ(pmaCoreSessionID));
 		System.out.println(url);
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			con.setRequestProperty("Accept", "application/json");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(pmaCoreSessionID).getString(url, "application/json");
 			JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
 			return jsonResponse;
 		} catch (Exception e) {
@@ -607,15 +1012,7 @@ public class Core {
 			System.out.println(url);
 		}
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = HttpTransport.getDefault().getString(url, null);
 			if (PMA.isJSONObject(jsonString)) {
 				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
 				if (jsonResponse.has("Code")) {
@@ -664,16 +1061,7 @@ public class Core {
 		// _pma_api_url() takes session information into account
 		String url = PMA.join(pmaControlURL, "api/version");
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			con.setRequestProperty("Accept", "application/json");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = HttpTransport.getDefault().getString(url, "application/json");
 			JSONObject jsonResponse = PMA.getJSONResponse(jsonString);
 			return jsonResponse;
 		} catch (Exception e) {
@@ -726,15 +1114,7 @@ public class Core {
 			System.out.println(url);
 		}
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = HttpTransport.getDefault().getString(url, null);
 			if (PMA.isJSONObject(jsonString)) {
 				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
 				if (jsonResponse.has("Code")) {
@@ -851,15 +1231,7 @@ public class Core {
 
 		String jsonString = null;
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			jsonString = HttpTransport.getDefault().getString(url, null);
 		} catch (Exception e) {
 			e.printStackTrace();
 			if (PMA.logger != null) {
@@ -971,15 +1343,7 @@ public class Core {
 			url = url.concat("&password=").concat(PMA.pmaQ(pmaCorePassword));
 		}
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = HttpTransport.getDefault().getString(url, null);
 			String sessionID = null;
 			if (PMA.isJSONObject(jsonString)) {
 				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
@@ -987,12 +1351,7 @@ public class Core {
 					return null;
 				} else {
 					sessionID = jsonResponse.getString("SessionId");
-					pmaUsernames.put(sessionID, pmaCoreUsername);
-					pmaSessions.put(sessionID, pmaCoreURL);
-					if (!pmaSlideInfos.containsKey(sessionID)) {
-						pmaSlideInfos.put(sessionID, new HashMap<String, Object>());
-					}
-					pmaAmountOfDataDownloaded.put(sessionID, jsonResponse.length());
+					registerSession(sessionID, pmaCoreURL, pmaCoreUsername, jsonResponse.length());
 					return sessionID;
 				}
 			} else {
@@ -1026,20 +1385,8 @@ public class Core {
 		String sessionID = varargs.length > 0 ? varargs[0] : null;
 		// Disconnect from a PMA.core instance; return True if session exists; return
 		// False if session didn't exist (anymore)
-		if (pmaSessions.size() > 0 && pmaSessions.containsKey(sessionID)) {
-			sessionID = sessionId(sessionID);
-			String url = apiUrl(sessionID, false) + "DeAuthenticate?sessionID=" + PMA.pmaQ((sessionID));
-			String contents = PMA.httpGet(url, "application/json");
-			pmaAmountOfDataDownloaded.put(sessionID, pmaAmountOfDataDownloaded.get(sessionID) + contents.length());
-			// yes we do! This means that when there's a PMA.core active session AND
-			// PMA.core.lite version running,
-			// the PMA.core active will be selected and returned
-			pmaSessions.remove(sessionID);
-			pmaSlideInfos.remove(sessionID);
-			return true;
-		} else {
-			return false;
-		}
+		PmaCoreClient client = sessionID == null ? null : pmaClients.get(sessionID);
+		return client != null && client.disconnect();
 	}
 
 	/**
@@ -1061,16 +1408,7 @@ public class Core {
 		sessionID = sessionId(sessionID);
 		String url = apiUrl(sessionID, false) + "Ping?sessionID=" + PMA.pmaQ(sessionID);
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			con.setRequestProperty("Accept", "application/json");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(sessionID).getString(url, "application/json");
 			return jsonString.equals("true") ? true : false;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -1097,43 +1435,8 @@ public class Core {
 		// setting the default value when argument's value is omitted
 		String sessionID = varargs.length > 0 ? varargs[0] : null;
 		// Return a list of root-directories available to sessionID
-		sessionID = sessionId(sessionID);
-		try {
-			String url = apiUrl(sessionID, false) + "GetRootDirectories?sessionID=" + PMA.pmaQ(sessionID);
-			String jsonString = PMA.httpGet(url, "application/json");
-			List<String> rootDirs;
-			if (PMA.isJSONArray(jsonString)) {
-				JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
-				rootDirs = new ArrayList<>();
-				for (int i = 0; i < jsonResponse.length(); i++) {
-					rootDirs.add(jsonResponse.optString(i));
-				}
-				// return dirs;
-			} else {
-				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
-				if (jsonResponse.has("Code")) {
-					if (PMA.logger != null) {
-						PMA.logger.severe("getrootdirectories() failed with error " + jsonResponse.get("Message"));
-					}
-					// throw new Exception("getrootdirectories() failed with error " +
-					// jsonResponse.get("Message"));
-				}
-				return null;
-			}
-			return rootDirs;
-		} catch (Exception e) {
-			e.printStackTrace();
-			if (PMA.logger != null) {
-				StringWriter sw = new StringWriter();
-				e.printStackTrace(new PrintWriter(sw));
-				PMA.logger.severe(sw.toString());
-			}
-			return null;
-		}
+		PmaCoreClient client = sessionClient(sessionId(sessionID));
+		return client == null ? null : client.getRootDirectories();
 	}
 
 	/**
@@ -1196,76 +1499,46 @@ public class Core {
 		// Return a list of sub-directories available to sessionID in the startDir
 		// directory
 		sessionID = sessionId(sessionID);
-		String url = apiUrl(sessionID, false) + "GetDirectories?sessionID=" + PMA.pmaQ(sessionID) + "&path="
-				+ PMA.pmaQ(startDir);
-		if (PMA.debug) {
-			System.out.println(url);
+		if (recursive) {
+			return crawl(startDir, sessionID, booleanOrInteger.equals("integer") ? integerRecursive : -1, false);
 		}
-		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
-			List<String> dirs;
-			if (PMA.isJSONObject(jsonString)) {
-				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
-				if (jsonResponse.has("Code")) {
-					if (PMA.logger != null) {
-						PMA.logger.severe("get_directories to " + startDir + " resulted in: "
-								+ jsonResponse.get("Message") + " (keep in mind that startDir is case sensitive!)");
-					}
-					throw new Exception("get_directories to " + startDir + " resulted in: "
-							+ jsonResponse.get("Message") + " (keep in mind that startDir is case sensitive!)");
-				} else if (jsonResponse.has("d")) {
-					JSONArray array = jsonResponse.getJSONArray("d");
-					dirs = new ArrayList<>();
-					for (int i = 0; i < array.length(); i++) {
-						dirs.add(array.optString(i));
-					}
-					// return dirs;
-				} else {
-					return null;
-				}
-			} else {
-				JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
-				dirs = new ArrayList<>();
-				for (int i = 0; i < jsonResponse.length(); i++) {
-					dirs.add(jsonResponse.optString(i));
-				}
-				// return dirs;
-			}
+		PmaCoreClient client = sessionClient(sessionID);
+		return client == null ? null : client.getDirectories(startDir);
+	}
 
-			// we test if call is recursive, and if yes to which depth
-			if (recursive) {
-				for (String dir : getDirectories(startDir, sessionID)) {
-					if (booleanOrInteger.equals("boolean")) {
-						dirs.addAll(getDirectories(dir, sessionID, recursive));
-					}
-					if (booleanOrInteger.equals("integer")) {
-						dirs.addAll(getDirectories(dir, sessionID, integerRecursive - 1));
-					}
-				}
-			}
-			return dirs;
+	/**
+	 * This method is used to list the sub-directories of a single directory
+	 * 
+	 * @param startDir  Directory to list
+	 * @param sessionID session's ID
+	 * @return Sub-directories, null if the server's response can't be understood
+	 * @throws Exception if the server returns an error (e.g. unknown directory)
+	 */
+	static List<String> listDirectories(String startDir, String sessionID) throws Exception {
+		return requireClient(sessionID).listDirectories(startDir);
+	}
 
-		} catch (Exception e) {
-			e.printStackTrace();
-			if (PMA.logger != null) {
-				StringWriter sw = new StringWriter();
-				e.printStackTrace(new PrintWriter(sw));
-				PMA.logger.severe(sw.toString());
-			}
+	/**
+	 * This method is used to run the recursive variants of getDirectories() and
+	 * getSlides(). Directories are listed in parallel, but the results keep the
+	 * order of a serial walk
+	 * 
+	 * @param startDir  Start directory
+	 * @param sessionID session's ID
+	 * @param depth     Recursion depth, -1 for no limit
+	 * @param slides    True to get the slides, false to get the directories
+	 * @return Directories or slides found, null if the start directory can't be
+	 *         listed
+	 */
+	private static List<String> crawl(String startDir, String sessionID, int depth, boolean slides) {
+		SlideCrawler crawler = new SlideCrawler(sessionID, SlideCrawler.DEFAULT_PARALLELISM, depth);
+		crawler.setIncludeDirectories(!slides);
+		crawler.setIncludeSlides(slides);
+		SlideCrawler.Result result = crawler.crawl(startDir);
+		if (result.getErrors().containsKey(startDir)) {
 			return null;
 		}
+		return new ArrayList<>(slides ? result.getSlides() : result.getDirectories());
 	}
 
 	/**
@@ -1398,75 +1671,85 @@ public class Core {
 
 		// Return a list of slides available to sessionID in the startDir directory
 		sessionID = sessionId(sessionID);
-		if (startDir.startsWith("/")) {
-			startDir = startDir.substring(1);
+		if (recursive) {
+			return crawl(startDir, sessionID, booleanOrInteger.equals("integer") ? integerRecursive : -1, true);
 		}
-		String url = apiUrl(sessionID, false) + "GetFiles?sessionID=" + PMA.pmaQ(sessionID) + "&path="
-				+ PMA.pmaQ(startDir);
-		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
-			List<String> slides;
-			if (PMA.isJSONObject(jsonString)) {
-				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
-				if (jsonResponse.has("Code")) {
-					if (PMA.logger != null) {
-						PMA.logger.severe("get_slides from " + startDir + " resulted in: " + jsonResponse.get("Message")
-								+ " (keep in mind that startDir is case sensitive!)");
-					}
-					throw new Exception("get_slides from " + startDir + " resulted in: " + jsonResponse.get("Message")
-							+ " (keep in mind that startDir is case sensitive!)");
-				} else if (jsonResponse.has("d")) {
-					JSONArray array = jsonResponse.getJSONArray("d");
-					slides = new ArrayList<>();
-					for (int i = 0; i < array.length(); i++) {
-						slides.add(array.optString(i));
-					}
-					// return slides;
-				} else {
-					return null;
-				}
-			} else {
-				JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
-				slides = new ArrayList<>();
-				for (int i = 0; i < jsonResponse.length(); i++) {
-					slides.add(jsonResponse.optString(i));
+		PmaCoreClient client = sessionClient(sessionID);
+		return client == null ? null : client.getSlides(startDir);
+	}
+
+	/**
+	 * This method is used to enumerate the slides available to sessionID in the
+	 * start directory lazily. Unlike getSlides(), slides become available as soon
+	 * as their directory is listed, and the enumeration can be stopped at any
+	 * time by closing the iterator
+	 * 
+	 * @param startDir Start directory
+	 * @param varargs  Array of optional arguments
+	 *                 <p>
+	 *                 sessionID : First optional argument(String), default
+	 *                 value(null), session's ID
+	 *                 </p>
+	 *                 <p>
+	 *                 recursivity : Second optional argument(Boolean or Integer),
+	 *                 default value(Boolean, true), same as for getSlides()
+	 *                 </p>
+	 * @return Iterator over the slides, to be closed when no longer needed
+	 */
+	public static SlideIterator iterateSlides(String startDir, Object... varargs) {
+		String sessionID = null;
+		int depth = SlideCrawler.UNLIMITED_DEPTH;
+		if (varargs.length > 0) {
+			if (!(varargs[0] instanceof String) && varargs[0] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("iterateSlides() : Invalid argument");
 				}
-				// return slides;
+				throw new IllegalArgumentException("...");
 			}
-
-			// we test if call is recursive, and if yes to which depth
-			if (recursive) {
-				for (String dir : getDirectories(startDir, sessionID)) {
-					if (booleanOrInteger.equals("boolean")) {
-						slides.addAll(getSlides(dir, sessionID, recursive));
-					}
-					if (booleanOrInteger.equals("integer")) {
-						slides.addAll(getSlides(dir, sessionID, integerRecursive - 1));
-					}
+			sessionID = (String) varargs[0];
+		}
+		if (varargs.length > 1) {
+			if ((!(varargs[1] instanceof Integer) && !(varargs[1] instanceof Boolean)) && (varargs[1] != null)) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("iterateSlides() : Invalid argument");
 				}
+				throw new IllegalArgumentException("...");
 			}
-			return slides;
-		} catch (Exception e) {
-			e.printStackTrace();
-			if (PMA.logger != null) {
-				StringWriter sw = new StringWriter();
-				e.printStackTrace(new PrintWriter(sw));
-				PMA.logger.severe(sw.toString());
+			if (varargs[1] instanceof Boolean) {
+				depth = (Boolean) varargs[1] ? SlideCrawler.UNLIMITED_DEPTH : 0;
+			}
+			if (varargs[1] instanceof Integer) {
+				depth = Math.max((Integer) varargs[1], 0);
 			}
-			return null;
 		}
+		sessionID = sessionId(sessionID);
+		SlideCrawler crawler = new SlideCrawler(sessionID, SlideCrawler.DEFAULT_PARALLELISM, depth);
+		return new SlideIterator(crawler, startDir, SlideIterator.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * This method is used to enumerate the slides available to sessionID in the
+	 * start directory as a lazy stream (see iterateSlides()). Closing the stream
+	 * (e.g. with try-with-resources) stops the enumeration
+	 * 
+	 * @param startDir Start directory
+	 * @param varargs  Array of optional arguments, same as for iterateSlides()
+	 * @return Stream of slides
+	 */
+	public static Stream<SlidePath> streamSlides(String startDir, Object... varargs) {
+		return iterateSlides(startDir, varargs).stream();
+	}
+
+	/**
+	 * This method is used to list the slides of a single directory
+	 * 
+	 * @param startDir  Directory to list
+	 * @param sessionID session's ID
+	 * @return Slides, null if the server's response can't be understood
+	 * @throws Exception if the server returns an error (e.g. unknown directory)
+	 */
+	static List<String> listSlides(String startDir, String sessionID) throws Exception {
+		return requireClient(sessionID).listSlides(startDir);
 	}
 
 	/**
@@ -1508,53 +1791,7 @@ public class Core {
 		// setting the default value when arguments' value is omitted
 		String sessionID = varargs.length > 0 ? varargs[0] : null;
 		// Get the UID for a specific slide
-		sessionID = sessionId(sessionID);
-		if (sessionID.equals(pmaCoreLiteSessionID)) {
-			if (isLite()) {
-				if (PMA.logger != null) {
-					PMA.logger.severe(
-							"PMA.core.lite found running, but doesn't support UID generation. For advanced anonymization, please upgrade to PMA.core.");
-				}
-				throw new Exception(
-						"PMA.core.lite found running, but doesn't support UID generation. For advanced anonymization, please upgrade to PMA.core.");
-
-			} else {
-				if (PMA.logger != null) {
-					PMA.logger.severe(
-							"PMA.core.lite not found, and besides; it doesn't support UID generation. For advanced anonymization, please upgrade to PMA.core.");
-				}
-				throw new Exception(
-						"PMA.core.lite not found, and besides; it doesn't support UID generation. For advanced anonymization, please upgrade to PMA.core.");
-			}
-		}
-		String url = apiUrl(sessionID, false) + "GetUID?sessionID=" + PMA.pmaQ(sessionID) + "&path="
-				+ PMA.pmaQ(slideRef);
-		try {
-			String jsonString = PMA.httpGet(url, "application/json");
-			pmaAmountOfDataDownloaded.put(sessionID, pmaAmountOfDataDownloaded.get(sessionID) + jsonString.length());
-			if (PMA.isJSONObject(jsonString)) {
-				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-				if (jsonResponse.has("Code")) {
-					if (PMA.logger != null) {
-						PMA.logger.severe("getUid() on  " + slideRef + " resulted in: " + jsonResponse.get("Message"));
-					}
-					// throw new Exception("getUid() on " + slideRef + " resulted in: " +
-					// jsonResponse.get("Message"));
-				}
-				return null;
-			} else {
-				return jsonString;
-			}
-		} catch (Exception e) {
-			// this happens when NO instance of PMA.core is detected
-			e.printStackTrace();
-			if (PMA.logger != null) {
-				StringWriter sw = new StringWriter();
-				e.printStackTrace(new PrintWriter(sw));
-				PMA.logger.severe(sw.toString());
-			}
-			return null;
-		}
+		return requireClient(sessionId(sessionID)).getUid(slideRef);
 	}
 
 	/**
@@ -1572,49 +1809,8 @@ public class Core {
 		// setting the default value when arguments' value is omitted
 		String sessionID = varargs.length > 0 ? varargs[0] : null;
 		// Get the fingerprint for a specific slide
-		sessionID = sessionId(sessionID);
-		String fingerprint;
-		String url = apiUrl(sessionID, false) + "GetFingerprint?sessionID=" + PMA.pmaQ(sessionID) + "&pathOrUid="
-				+ PMA.pmaQ(slideRef);
-		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
-			if (PMA.isJSONObject(jsonString)) {
-				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
-				if (jsonResponse.has("Code")) {
-					if (PMA.logger != null) {
-						PMA.logger.severe("get_fingerprint on " + slideRef + " resulted in: "
-								+ jsonResponse.get("Message") + " (keep in mind that slideRef is case sensitive!)");
-					}
-					throw new Exception("get_fingerprint on " + slideRef + " resulted in: "
-							+ jsonResponse.get("Message") + " (keep in mind that slideRef is case sensitive!)");
-				} else {
-					return jsonResponse.getString("d");
-				}
-			} else {
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonString.length());
-				fingerprint = jsonString.replace("\"", "");
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-			if (PMA.logger != null) {
-				StringWriter sw = new StringWriter();
-				e.printStackTrace(new PrintWriter(sw));
-				PMA.logger.severe(sw.toString());
-			}
-			return null;
-		}
-		return fingerprint;
+		PmaCoreClient client = sessionClient(sessionId(sessionID));
+		return client == null ? null : client.getFingerPrint(slideRef);
 	}
 
 	/**
@@ -1638,12 +1834,14 @@ public class Core {
 			retval.put("sessionID", pmaCoreLiteSessionID);
 			retval.put("username", null);
 			retval.put("url", pmaCoreLiteURL);
-			retval.put("amountOfDataDownloaded", pmaAmountOfDataDownloaded.get(pmaCoreLiteSessionID).toString());
+			retval.put("amountOfDataDownloaded", String.valueOf(client(pmaCoreLiteSessionID).getAmountOfDataDownloaded()));
 		} else if (sessionID != null) {
 			retval = new HashMap<>();
 			retval.put("sessionID", sessionID);
-			retval.put("username", pmaUsernames.get(sessionID));
-			retval.put("amountOfDataDownloaded", pmaAmountOfDataDownloaded.get(sessionID).toString());
+			PmaCoreClient client = client(sessionID);
+			retval.put("username", client == null ? null : client.getUsername());
+			retval.put("amountOfDataDownloaded",
+					client == null ? null : String.valueOf(client.getAmountOfDataDownloaded()));
 			try {
 				retval.put("url", pmaUrl(sessionID));
 			} catch (Exception e) {
@@ -1669,24 +1867,20 @@ public class Core {
 	 * @return A list of two items (duplicated) relative to the tile size
 	 *         information for a session's ID
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<Integer> getTileSize(String... varargs) {
 		// setting the default value when arguments' value is omitted
 		String sessionID = varargs.length > 0 ? varargs[0] : null;
 		sessionID = sessionId(sessionID);
-		Map<String, Object> info;
-		if (((Map<String, Object>) pmaSlideInfos.get(sessionID)).size() < 1) {
+		// any slide will do, so take a cached one if there is one
+		SlideInfo info = slideInfos(sessionID).any();
+		if (info == null) {
 			String dir = getFirstNonEmptyDirectory(sessionID);
 			List<String> slides = getSlides(dir, sessionID);
-			info = getSlideInfo(slides.get(0), sessionID);
-		} else {
-			int getLength = ((Map<String, Object>) pmaSlideInfos.get(sessionID)).values().toArray().length;
-			info = (Map<String, Object>) ((Map<String, Object>) pmaSlideInfos.get(sessionID)).values()
-					.toArray()[new Random().nextInt(getLength)];
+			info = getTypedSlideInfo(slides.get(0), sessionID);
 		}
 		List<Integer> result = new ArrayList<>();
-		result.add(Integer.parseInt(info.get("TileSize").toString()));
-		result.add(Integer.parseInt(info.get("TileSize").toString()));
+		result.add(info.getTileSize());
+		result.add(info.getTileSize());
 		return result;
 	}
 
@@ -1704,78 +1898,28 @@ public class Core {
 	public static Map<String, Object> getSlideInfo(String slideRef, String... varargs) {
 		// setting the default value when arguments' value is omitted
 		String sessionID = varargs.length > 0 ? varargs[0] : null;
-		// Return raw image information in the form of nested maps
-		sessionID = sessionId(sessionID);
-		if (slideRef.startsWith("/")) {
-			slideRef = slideRef.substring(1);
-		}
-		if (!((Map<String, Object>) pmaSlideInfos.get(sessionID)).containsKey(slideRef)) {
-			try {
-				String url = apiUrl(sessionID, false) + "GetImageInfo?SessionID=" + PMA.pmaQ(sessionID) + "&pathOrUid="
-						+ PMA.pmaQ(slideRef);
-				if (PMA.debug) {
-					System.out.println(url);
-				}
-				URL urlResource = new URL(url);
-				HttpURLConnection con;
-				if (url.startsWith("https")) {
-					con = (HttpsURLConnection) urlResource.openConnection();
-				} else {
-					con = (HttpURLConnection) urlResource.openConnection();
-				}
-				con.setRequestMethod("GET");
-				String jsonString = PMA.getJSONAsStringBuffer(con).toString();
-				if (PMA.isJSONObject(jsonString)) {
-					JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
-					if (jsonResponse.has("Code")) {
-						if (PMA.logger != null) {
-							PMA.logger.severe("ImageInfo to " + slideRef + " resulted in: "
-									+ jsonResponse.get("Message") + " (keep in mind that slideRef is case sensitive!)");
-						}
-						throw new Exception("ImageInfo to " + slideRef + " resulted in: " + jsonResponse.get("Message")
-								+ " (keep in mind that slideRef is case sensitive!)");
-					} else if (jsonResponse.has("d")) {
-						// we convert the Json object to a Map<String, Object>
-						Map<String, Object> jsonMap = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {
-						}).with(DeserializationFeature.USE_LONG_FOR_INTS).readValue(jsonResponse.get("d").toString());
-						// we store the map created for both the slide name & the UID
-						((Map<String, Object>) pmaSlideInfos.get(sessionID))
-								.put(jsonResponse.getJSONObject("d").optString("Filename"), jsonMap);
-						// ((Map<String, Object>) pmaSlideInfos.get(sessionID))
-						// .put(jsonResponse.getJSONObject("d").optString("UID"), jsonMap);
-					} else {
-						// we convert the Json object to a Map<String, Object>
-						Map<String, Object> jsonMap = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {
-						}).with(DeserializationFeature.USE_LONG_FOR_INTS).readValue(jsonResponse.toString());
-						// we store the map created for both the slide name & the UID
-						((Map<String, Object>) pmaSlideInfos.get(sessionID)).put(jsonResponse.getString("Filename"),
-								jsonMap);
-						if (!sessionID.equals(pmaCoreLiteSessionID)) {
-							((Map<String, Object>) pmaSlideInfos.get(sessionID)).put(jsonResponse.getString("UID"),
-									jsonMap);
-						}
-					}
-				} else {
-					// JSONArray jsonResponse = getJSONArrayResponse(jsonString);
-					// pmaAmountOfDataDownloaded.put(sessionID,
-					// pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
-					// ((Map<String, Object>) pmaSlideInfos.get(sessionID)).put(slideRef,
-					// jsonResponse);
-					return null;
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
-				if (PMA.logger != null) {
-					StringWriter sw = new StringWriter();
-					e.printStackTrace(new PrintWriter(sw));
-					PMA.logger.severe(sw.toString());
-				}
-				return null;
-			}
-		}
-		return (Map<String, Object>) ((Map<String, Object>) pmaSlideInfos.get(sessionID)).get(slideRef);
+		SlideInfo info = getTypedSlideInfo(slideRef, sessionID);
+		return info == null ? null : info.toMap();
+	}
+
+	/**
+	 * This method is used to get information about a slide. Unlike getSlideInfo(),
+	 * the information is returned as a (cached, immutable) typed object, so
+	 * looking up the dimensions, tile size etc. doesn't require any conversion
+	 * 
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments
+	 *                 <p>
+	 *                 sessionID : First optional argument(String), default
+	 *                 value(null), session's ID
+	 *                 </p>
+	 * @return Information about the slide, null if it can't be retrieved
+	 */
+	public static SlideInfo getTypedSlideInfo(String slideRef, String... varargs) {
+		// setting the default value when arguments' value is omitted
+		String sessionID = varargs.length > 0 ? varargs[0] : null;
+		PmaCoreClient client = sessionClient(sessionId(sessionID));
+		return client == null ? null : client.getTypedSlideInfo(slideRef);
 	}
 
 	/**
@@ -1792,114 +1936,333 @@ public class Core {
 	public static Map<String, Map<String, Object>> getSlidesInfo(List<String> slideRefs, String... varargs) {
 		// setting the default value when arguments' value is omitted
 		String sessionID = varargs.length > 0 ? varargs[0] : null;
-		// Return raw image information in the form of nested maps
-		sessionID = sessionId(sessionID);
-		List<String> slideRefsNew = new ArrayList<>();
-		for (String slideRef : slideRefs) {
-			if (slideRef.startsWith("/")) {
-				slideRef = slideRef.substring(1);
-			}
-			if (!((Map<String, Object>) pmaSlideInfos.get(sessionID)).containsKey(slideRef)) {
-				slideRefsNew.add(slideRef);
-			}
-		}
-		if (slideRefsNew.size() > 0) {
-			try {
-				String url = apiUrl(sessionID, false) + "GetImagesInfo";
-				URL urlResource = new URL(url);
-				HttpURLConnection con;
-				if (url.startsWith("https")) {
-					con = (HttpsURLConnection) urlResource.openConnection();
-				} else {
-					con = (HttpURLConnection) urlResource.openConnection();
-				}
-				con.setRequestMethod("POST");
-				con.setRequestProperty("Content-Type", "application/json");
-				con.setUseCaches(true);
-				con.setDoOutput(true);
-				// we convert the list of slide to a string of this fashion :
-				// ["slide1","slide2"....]
-				String slideRefsNewForJson = slideRefsNew.stream().map(n -> ("\"" + n + "\""))
-						.collect(Collectors.joining(",", "[", "]"));
-				String input = "{ \"sessionID\": \"" + sessionID + "\", \"pathOrUids\": " + slideRefsNewForJson + "}";
-				OutputStream os = con.getOutputStream();
-				os.write(input.getBytes("UTF-8"));
-				os.close();
-				String jsonString = PMA.getJSONAsStringBuffer(con).toString();
-				if (PMA.isJSONObject(jsonString)) {
-					JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
-					if (jsonResponse.has("Code")) {
-						if (PMA.logger != null) {
-							PMA.logger.severe("ImageInfos to " + slideRefs.toString() + " resulted in: "
-									+ jsonResponse.get("Message") + " (keep in mind that slideRef is case sensitive!)");
-						}
-						throw new Exception("ImageInfos to " + slideRefs.toString() + " resulted in: "
-								+ jsonResponse.get("Message") + " (keep in mind that slideRef is case sensitive!)");
-					} else if (jsonResponse.has("d")) {
-						JSONArray jsonArrayResponse = jsonResponse.getJSONArray("d");
-						for (int i = 0; i < jsonArrayResponse.length(); i++) {
-							// we convert the Json object to a Map<String, Object>
-							Map<String, Object> jsonMap = objectMapper
-									.readerFor(new TypeReference<Map<String, Object>>() {
-									}).with(DeserializationFeature.USE_LONG_FOR_INTS)
-									.readValue(jsonArrayResponse.getJSONObject(i).toString());
-							// we store the map created for both the slide name & the UID
-							((Map<String, Object>) pmaSlideInfos.get(sessionID))
-									.put(jsonArrayResponse.getJSONObject(i).getString("Filename"), jsonMap);
-							// ((Map<String, Object>) pmaSlideInfos.get(sessionID))
-							// .put(jsonArrayResponse.getJSONObject(i).getString("UID"), jsonMap);
-						}
-					} else {
-						return null;
-					}
-				} else {
-					JSONArray jsonArrayResponse = PMA.getJSONArrayResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonArrayResponse.length());
-					for (int i = 0; i < jsonArrayResponse.length(); i++) {
-						// we convert the Json object to a Map<String, Object>
-						Map<String, Object> jsonMap = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {
-						}).with(DeserializationFeature.USE_LONG_FOR_INTS)
-								.readValue(jsonArrayResponse.getJSONObject(i).toString());
-						// we store the map created for both the slide name & the UID
-						((Map<String, Object>) pmaSlideInfos.get(sessionID))
-								.put(jsonArrayResponse.getJSONObject(i).getString("Filename"), jsonMap);
-						if (!sessionID.equals(pmaCoreLiteSessionID)) {
-							((Map<String, Object>) pmaSlideInfos.get(sessionID))
-									.put(jsonArrayResponse.getJSONObject(i).getString("UID"), jsonMap);
-						}
-					}
-				}
-				Map<String, Map<String, Object>> results = new HashMap<String, Map<String, Object>>();
-				for (String slide : slideRefs) {
-					results.put(slide,
-							(Map<String, Object>) ((Map<String, Object>) pmaSlideInfos.get(sessionID)).get(slide));
-				}
-				return results;
-			} catch (Exception e) {
-				e.printStackTrace();
-				if (PMA.logger != null) {
-					StringWriter sw = new StringWriter();
-					e.printStackTrace(new PrintWriter(sw));
-					PMA.logger.severe(sw.toString());
-				}
-				return null;
-			}
+		Map<String, SlideInfo> infos = getTypedSlidesInfo(slideRefs, sessionID);
+		if (infos == null) {
+			return null;
 		}
-		// if for all the slides, the image info data has been already stored on
-		// pmaSlideInfos
 		Map<String, Map<String, Object>> results = new HashMap<String, Map<String, Object>>();
-		for (String slide : slideRefs) {
-			results.put(slide, (Map<String, Object>) ((Map<String, Object>) pmaSlideInfos.get(sessionID)).get(slide));
+		for (Map.Entry<String, SlideInfo> entry : infos.entrySet()) {
+			results.put(entry.getKey(), entry.getValue() == null ? null : entry.getValue().toMap());
 		}
 		return results;
 	}
 
 	/**
-	 * This method is used to determine the maximum zoom level that still represents
-	 * an optical magnification
+	 * This method is used to get information about several slides at once, see
+	 * getTypedSlideInfo()
+	 * 
+	 * @param slideRefs List of slides' path or UID
+	 * @param varargs   Array of optional arguments
+	 *                  <p>
+	 *                  sessionID : First optional argument(String), default
+	 *                  value(null), session's ID
+	 *                  </p>
+	 * @return Information per slide (null for the slides that couldn't be found),
+	 *         null if the information can't be retrieved
+	 */
+	public static Map<String, SlideInfo> getTypedSlidesInfo(List<String> slideRefs, String... varargs) {
+		// setting the default value when arguments' value is omitted
+		String sessionID = varargs.length > 0 ? varargs[0] : null;
+		SlideInfoBatch batch = fetchSlidesInfo(slideRefs, sessionID);
+		if (batch.getInfos().isEmpty() && !batch.getErrors().isEmpty()) {
+			return null;
+		}
+		Map<String, SlideInfo> results = new HashMap<>();
+		for (String slide : slideRefs) {
+			results.put(slide, batch.getInfos().get(slide));
+		}
+		return results;
+	}
+
+	/**
+	 * This method is used to get information about several slides at once,
+	 * reporting the slides that couldn't be retrieved. The slides that aren't
+	 * cached yet are requested in chunks (see setSlidesInfoBatchSize()), several
+	 * chunks at the same time, and every response is parsed as it's received
+	 * 
+	 * @param slideRefs List of slides' path or UID
+	 * @param varargs   Array of optional arguments
+	 *                  <p>
+	 *                  sessionID : First optional argument(String), default
+	 *                  value(null), session's ID
+	 *                  </p>
+	 * @return Information found, slides not found and slides whose chunk failed
+	 */
+	public static SlideInfoBatch fetchSlidesInfo(List<String> slideRefs, String... varargs) {
+		// setting the default value when arguments' value is omitted
+		String sessionID = varargs.length > 0 ? varargs[0] : null;
+		sessionID = sessionId(sessionID);
+		final String session = sessionID;
+		SlideInfoCache cache = slideInfos(sessionID);
+		Map<String, SlideInfo> infos = new HashMap<>();
+		Set<String> uncached = new LinkedHashSet<>();
+		for (String slide : slideRefs) {
+			String slideRef = slide.startsWith("/") ? slide.substring(1) : slide;
+			SlideInfo info = cache.getIfPresent(slideRef);
+			if (info == null) {
+				uncached.add(slideRef);
+			} else {
+				infos.put(slide, info);
+			}
+		}
+		List<List<String>> chunks = new ArrayList<>();
+		int batchSize = slidesInfoBatchSize;
+		List<String> chunk = null;
+		for (String slideRef : uncached) {
+			if (chunk == null || chunk.size() == batchSize) {
+				chunk = new ArrayList<>(Math.min(batchSize, uncached.size()));
+				chunks.add(chunk);
+			}
+			chunk.add(slideRef);
+		}
+		List<CompletableFuture<List<SlideInfo>>> futures = new ArrayList<>();
+		for (List<String> c : chunks) {
+			futures.add(dispatch(session, () -> postSlidesInfo(c, session)));
+		}
+		Map<String, SlideInfo> found = new HashMap<>();
+		Map<String, Exception> failed = new HashMap<>();
+		int failedChunks = 0;
+		for (int i = 0; i < chunks.size(); i++) {
+			try {
+				for (SlideInfo info : futures.get(i).get()) {
+					cache.put(info);
+					found.put(info.getFilename(), info);
+					if (info.getUid() != null) {
+						found.put(info.getUid(), info);
+					}
+				}
+			} catch (Exception e) {
+				if (e instanceof InterruptedException) {
+					Thread.currentThread().interrupt();
+				}
+				Exception cause = e instanceof ExecutionException && e.getCause() instanceof Exception
+						? (Exception) e.getCause()
+						: e;
+				failedChunks++;
+				for (String slideRef : chunks.get(i)) {
+					failed.put(slideRef, cause);
+				}
+				if (PMA.logger != null) {
+					StringWriter sw = new StringWriter();
+					cause.printStackTrace(new PrintWriter(sw));
+					PMA.logger.severe(sw.toString());
+				}
+			}
+		}
+		List<String> missing = new ArrayList<>();
+		Map<String, Exception> errors = new LinkedHashMap<>();
+		for (String slide : slideRefs) {
+			if (infos.containsKey(slide)) {
+				continue;
+			}
+			String slideRef = slide.startsWith("/") ? slide.substring(1) : slide;
+			if (failed.containsKey(slideRef)) {
+				errors.put(slide, failed.get(slideRef));
+			} else if (found.containsKey(slideRef)) {
+				infos.put(slide, found.get(slideRef));
+			} else {
+				missing.add(slide);
+			}
+		}
+		return new SlideInfoBatch(infos, missing, errors, chunks.size(), failedChunks);
+	}
+
+	/**
+	 * This method sends a single GetImagesInfo request and parses the response
+	 * while it's being received
+	 * 
+	 * @param slideRefs Slides' path or UID
+	 * @param sessionID session's ID
+	 * @return Information returned by the server
+	 * @throws Exception if the request fails or the server returned an error
+	 */
+	private static List<SlideInfo> postSlidesInfo(List<String> slideRefs, String sessionID) throws Exception {
+		String url = apiUrl(sessionID, false) + "GetImagesInfo";
+		ByteArrayOutputStream input = new ByteArrayOutputStream(64 + 64 * slideRefs.size());
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(input)) {
+			generator.writeStartObject();
+			generator.writeStringField("sessionID", sessionID);
+			generator.writeArrayFieldStart("pathOrUids");
+			for (String slideRef : slideRefs) {
+				generator.writeString(slideRef);
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		}
+		HttpPost request = new HttpPost(url);
+		request.setEntity(new ByteArrayEntity(input.toByteArray(), ContentType.APPLICATION_JSON));
+		String description = "ImageInfos to " + slideRefs.size() + " slides (" + slideRefs.get(0) + "...)";
+		try (CloseableHttpResponse response = transport(sessionID).execute(request)) {
+			HttpEntity entity = response.getEntity();
+			if (entity == null) {
+				throw new Exception(description + " returned an empty response (HTTP "
+						+ response.getStatusLine().getStatusCode() + ")");
+			}
+			try (CountingInputStream in = new CountingInputStream(entity.getContent());
+					JsonParser parser = objectMapper.getFactory().createParser(in)) {
+				List<SlideInfo> infos = readSlideInfos(parser, description);
+				addDataDownloaded(sessionID, in.getByteCount());
+				if (infos == null) {
+					throw new Exception(description + " returned an invalid response (HTTP "
+							+ response.getStatusLine().getStatusCode() + ")");
+				}
+				return infos;
+			}
+		}
+	}
+
+	/**
+	 * This method is used to drop the cached information (and tile fingerprint) of
+	 * a slide, e.g. after it was changed on the server
+	 * 
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments
+	 *                 <p>
+	 *                 sessionID : First optional argument(String), default
+	 *                 value(null), session's ID
+	 *                 </p>
+	 */
+	public static void invalidateSlideInfo(String slideRef, String... varargs) {
+		String sessionID = varargs.length > 0 ? varargs[0] : null;
+		sessionID = sessionId(sessionID);
+		if (slideRef.startsWith("/")) {
+			slideRef = slideRef.substring(1);
+		}
+		PmaCoreClient client = client(sessionID);
+		if (client != null) {
+			invalidate(client, slideRef, false);
+		}
+	}
+
+	/**
+	 * This method is used to drop the cached information (and tile fingerprints)
+	 * of all slides in a directory and its sub-directories
+	 * 
+	 * @param directory Directory path
+	 * @param varargs   Array of optional arguments
+	 *                  <p>
+	 *                  sessionID : First optional argument(String), default
+	 *                  value(null), session's ID
+	 *                  </p>
+	 */
+	public static void invalidateSlideInfoDirectory(String directory, String... varargs) {
+		String sessionID = varargs.length > 0 ? varargs[0] : null;
+		sessionID = sessionId(sessionID);
+		if (directory.startsWith("/")) {
+			directory = directory.substring(1);
+		}
+		PmaCoreClient client = client(sessionID);
+		if (client != null) {
+			invalidate(client, directory, true);
+		}
+	}
+
+	/**
+	 * This method drops what's cached about a slide or directory that changed on
+	 * the server, for every session connected to that server
+	 * 
+	 * @param sessionID session's ID the change was made with
+	 * @param path      Path of the slide or directory
+	 * @param directory Whether path is a directory
+	 */
+	static void slideChanged(String sessionID, String path, boolean directory) {
+		if (path.startsWith("/")) {
+			path = path.substring(1);
+		}
+		PmaCoreClient changedBy = client(sessionID);
+		for (PmaCoreClient client : pmaClients.values()) {
+			if (changedBy == null || client.getUrl().equals(changedBy.getUrl())) {
+				invalidate(client, path, directory);
+			}
+		}
+	}
+
+	private static void invalidate(PmaCoreClient client, String path, boolean directory) {
+		if (directory) {
+			client.getSlideInfoCache().invalidateDirectory(path);
+		} else {
+			client.getSlideInfoCache().invalidate(path);
+		}
+		String prefix = path.endsWith("/") ? path : path + "/";
+		TileCache cache = client.getTileCache();
+		Iterator<Map.Entry<String, PmaCoreClient.Fingerprint>> it = client.getFingerprints().entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, PmaCoreClient.Fingerprint> entry = it.next();
+			if (entry.getKey().equals(path) || (directory && entry.getKey().startsWith(prefix))) {
+				it.remove();
+				if (cache != null) {
+					cache.invalidate(entry.getValue().getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method parses a GetImageInfo or GetImagesInfo response in a single
+	 * streaming pass. Both plain responses and responses wrapped in a "d" property
+	 * are supported
+	 * 
+	 * @param jsonString Response
+	 * @param request    Description of the request, for the error messages
+	 * @return Slide information found in the response, null if the response isn't
+	 *         JSON
+	 * @throws Exception if the server returned an error
+	 */
+	static List<SlideInfo> readSlideInfos(String jsonString, String request) throws Exception {
+		try (JsonParser parser = objectMapper.getFactory().createParser(jsonString)) {
+			return readSlideInfos(parser, request);
+		}
+	}
+
+	/**
+	 * This method parses a GetImageInfo or GetImagesInfo response from a parser
+	 * (e.g. over the response's stream), see readSlideInfos(String, String)
+	 * 
+	 * @param parser  Parser, positioned before the first token
+	 * @param request Description of the request, for the error messages
+	 * @return Slide information found in the response, null if the response isn't
+	 *         JSON
+	 * @throws Exception if the server returned an error or the response can't be
+	 *                   read
+	 */
+	private static List<SlideInfo> readSlideInfos(JsonParser parser, String request) throws Exception {
+		List<SlideInfo> infos = new ArrayList<>();
+		try {
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.START_OBJECT && parser.nextToken() == JsonToken.FIELD_NAME
+					&& "d".equals(parser.getCurrentName())) {
+				// wrapped response, continue with the value of "d"
+				token = parser.nextToken();
+			}
+			if (token == JsonToken.START_ARRAY) {
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					infos.add(SlideInfo.read(parser, slideInfoValueReader));
+				}
+			} else if (token == JsonToken.START_OBJECT) {
+				infos.add(SlideInfo.read(parser, slideInfoValueReader));
+			} else {
+				return null;
+			}
+		} catch (JsonProcessingException e) {
+			// not JSON (e.g. an HTML error page)
+			return null;
+		}
+		for (SlideInfo info : infos) {
+			if (info.getProperty("Code") != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe(request + " resulted in: " + info.getProperty("Message")
+							+ " (keep in mind that slideRef is case sensitive!)");
+				}
+				throw new Exception(request + " resulted in: " + info.getProperty("Message")
+						+ " (keep in mind that slideRef is case sensitive!)");
+			}
+		}
+		return infos;
+	}
+
+	/**
+	 * This method is used to determine the maximum zoom level that still represents
+	 * an optical magnification
 	 * 
 	 * @param slideRef slide's path
 	 * @param varargs  Array of optional arguments
@@ -1914,42 +2277,18 @@ public class Core {
 		String sessionID = varargs.length > 0 ? varargs[0] : null;
 		// Determine the maximum zoomlevel that still represents an optical
 		// magnification
-		Map<String, Object> info = getSlideInfo(slideRef, sessionID);
+		SlideInfo info = getTypedSlideInfo(slideRef, sessionID);
 		if (info == null) {
 			System.out.print("Unable to get information for " + slideRef + " from " + sessionID);
 			return 0;
-		} else if (info.containsKey("MaxZoomLevel")) {
-			try {
-				return Integer.parseInt(info.get("MaxZoomLevel").toString());
-			} catch (Exception e) {
-				System.out.print("Something went wrong consulting the MaxZoomLevel key in info Map; value ="
-						+ info.get("MaxZoomLevel").toString());
-				e.printStackTrace();
-				if (PMA.logger != null) {
-					StringWriter sw = new StringWriter();
-					e.printStackTrace(new PrintWriter(sw));
-					PMA.logger.severe(sw.toString());
-					PMA.logger.severe("Something went wrong consulting the MaxZoomLevel key in info Map; value ="
-							+ info.get("MaxZoomLevel").toString());
-				}
-				return 0;
+		} else if (info.getMaxZoomLevel() < 0) {
+			System.out.print("Something went wrong consulting the MaxZoomLevel of " + slideRef);
+			if (PMA.logger != null) {
+				PMA.logger.severe("Something went wrong consulting the MaxZoomLevel of " + slideRef);
 			}
+			return 0;
 		} else {
-			try {
-				return Integer.parseInt(info.get("NumberOfZoomLevels").toString());
-			} catch (Exception e) {
-				System.out.print("Something went wrong consulting the NumberOfZoomLevels key in info Map; value ="
-						+ info.get("NumberOfZoomLevels").toString());
-				e.printStackTrace();
-				if (PMA.logger != null) {
-					StringWriter sw = new StringWriter();
-					e.printStackTrace(new PrintWriter(sw));
-					PMA.logger.severe(sw.toString());
-					PMA.logger.severe("Something went wrong consulting the NumberOfZoomLevels key in info Map; value ="
-							+ info.get("NumberOfZoomLevels").toString());
-				}
-				return 0;
-			}
+			return info.getMaxZoomLevel();
 		}
 	}
 
@@ -2116,9 +2455,9 @@ public class Core {
 		// (in effect returning the "native" resolution at which the slide was
 		// registered)
 		int maxZoomLevel = getMaxZoomLevel(slideRef, sessionID);
-		Map<String, Object> info = getSlideInfo(slideRef, sessionID);
-		float xppm = (float) info.get("MicrometresPerPixelX");
-		float yppm = (float) info.get("MicrometresPerPixelY");
+		SlideInfo info = getTypedSlideInfo(slideRef, sessionID);
+		float xppm = (float) info.getMicrometresPerPixelX();
+		float yppm = (float) info.getMicrometresPerPixelY();
 		List<Float> result = new ArrayList<>();
 		if ((zoomLevel == null) || (zoomLevel == maxZoomLevel)) {
 			result.add(xppm);
@@ -2173,16 +2512,16 @@ public class Core {
 		}
 		// Get the total dimensions of a slide image at a given zoom level
 		int maxZoomLevel = getMaxZoomLevel(slideRef, sessionID);
-		Map<String, Object> info = getSlideInfo(slideRef, sessionID);
+		SlideInfo info = getTypedSlideInfo(slideRef, sessionID);
 		List<Integer> result = new ArrayList<>();
 		if (zoomLevel == null || zoomLevel == maxZoomLevel) {
-			result.add(Integer.parseInt(info.get("Width").toString()));
-			result.add(Integer.parseInt(info.get("Height").toString()));
+			result.add(info.getWidth());
+			result.add(info.getHeight());
 			return result;
 		} else {
 			double factor = Math.pow(2, zoomLevel - maxZoomLevel);
-			result.add((int) (Integer.parseInt(info.get("Width").toString()) * factor));
-			result.add((int) (Integer.parseInt(info.get("Height").toString()) * factor));
+			result.add((int) (info.getWidth() * factor));
+			result.add((int) (info.getHeight() * factor));
 			return result;
 		}
 	}
@@ -2229,9 +2568,10 @@ public class Core {
 		// Determine the number of tiles needed to reconstitute a slide at a given
 		// zoomlevel
 		List<Integer> pixels = getPixelDimensions(slideRef, zoomLevel, sessionID);
-		List<Integer> sz = getTileSize(sessionID);
-		int xTiles = (int) Math.ceil((double) pixels.get(0) / (double) sz.get(0));
-		int yTiles = (int) Math.ceil((double) pixels.get(1) / (double) sz.get(0));
+		SlideInfo info = getTypedSlideInfo(slideRef, sessionID);
+		int tileSize = info != null && info.getTileSize() > 0 ? info.getTileSize() : getTileSize(sessionID).get(0);
+		int xTiles = (int) Math.ceil((double) pixels.get(0) / (double) tileSize);
+		int yTiles = (int) Math.ceil((double) pixels.get(1) / (double) tileSize);
 		int nTiles = xTiles * yTiles;
 		List<Integer> result = new ArrayList<>();
 		result.add(xTiles);
@@ -2283,9 +2623,7 @@ public class Core {
 		String sessionID = varargs.length > 0 ? varargs[0] : null;
 		// Number of fluorescent channels for a slide (when slide is brightfield, return
 		// is always 1)
-		Map<String, Object> info = getSlideInfo(slideRef, sessionID);
-		return ((List<Object>) ((List<Map<String, Object>>) ((List<Map<String, Object>>) info.get("TimeFrames")).get(0)
-				.get("Layers")).get(0).get("Channels")).size();
+		return getTypedSlideInfo(slideRef, sessionID).getNumberOfChannels();
 	}
 
 	/**
@@ -2303,8 +2641,7 @@ public class Core {
 		// setting the default value when arguments' value is omitted
 		String sessionID = varargs.length > 0 ? varargs[0] : null;
 		// Number of (z-stacked) layers for a slide
-		Map<String, Object> info = getSlideInfo(slideRef, sessionID);
-		return ((List<Object>) ((List<Map<String, Object>>) info.get("TimeFrames")).get(0).get("Layers")).size();
+		return getTypedSlideInfo(slideRef, sessionID).getNumberOfLayers();
 	}
 
 	/**
@@ -2378,7 +2715,7 @@ public class Core {
 		// setting the default value when arguments' value is omitted
 		String sessionID = varargs.length > 0 ? varargs[0] : null;
 		String modificationDate = null;
-		modificationDate = String.valueOf(Core.getSlideInfo(slideRef, sessionID).get("LastModified"));
+		modificationDate = String.valueOf(getTypedSlideInfo(slideRef, sessionID).getLastModified());
 		modificationDate = modificationDate.substring(6, modificationDate.length() - 2);
 		// Convert the time stamp to a date
 		SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
@@ -2487,18 +2824,11 @@ public class Core {
 		String sessionID = varargs.length > 0 ? varargs[0] : null;
 		// Determine the maximum zoomlevel that still represents an optical
 		// magnification
-		Map<String, Object> info = getSlideInfo(slideRef, sessionID);
-		if (info == null) {
+		SlideInfo info = getTypedSlideInfo(slideRef, sessionID);
+		if (info == null || info.getAssociatedImageTypes() == null) {
 			return null;
-		} else if (info.containsKey("AssociatedImageTypes")) {
-			List<String> result = new ArrayList<>();
-			List<String> associatedImageTypes = ((List<String>) info.get("AssociatedImageTypes"));
-			for (String associatedImage : associatedImageTypes) {
-				result.add(associatedImage);
-			}
-			return result;
 		} else {
-			return null;
+			return new ArrayList<>(info.getAssociatedImageTypes());
 		}
 	}
 
@@ -2559,12 +2889,7 @@ public class Core {
 			slideRef = slideRef.substring(1);
 		}
 		try {
-			URL urlResource = new URL(getBarcodeUrl(slideRef, sessionID));
-			URLConnection con = urlResource.openConnection();
-			Image img = ImageIO.read(con.getInputStream());
-			pmaAmountOfDataDownloaded.put(sessionID,
-					pmaAmountOfDataDownloaded.get(sessionID) + con.getInputStream().toString().length());
-			return img;
+			return readImage(getBarcodeUrl(slideRef, sessionID), sessionID);
 		} catch (Exception e) {
 			e.printStackTrace();
 			if (PMA.logger != null) {
@@ -2600,19 +2925,10 @@ public class Core {
 		String url = apiUrl(sessionID, false) + "GetBarcodeText?sessionID=" + PMA.pmaQ(sessionID) + "&pathOrUid="
 				+ PMA.pmaQ(slideRef);
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(sessionID).getString(url, null);
 			if (PMA.isJSONObject(jsonString)) {
 				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+				addDataDownloaded(sessionID, jsonResponse.length());
 				if (jsonResponse.has("Code")) {
 					if (PMA.logger != null) {
 						PMA.logger.severe("get_barcode_text on " + slideRef + " resulted in: "
@@ -2624,8 +2940,7 @@ public class Core {
 					return jsonResponse.getString("d").equals("null") ? null : jsonResponse.getString("d");
 				}
 			} else {
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonString.length());
+				addDataDownloaded(sessionID, jsonString.length());
 				barcode = jsonString.replace("\"", "");
 			}
 		} catch (Exception e) {
@@ -2678,12 +2993,7 @@ public class Core {
 			slideRef = slideRef.substring(1);
 		}
 		try {
-			URL urlResource = new URL(getLabelUrl(slideRef, sessionID));
-			URLConnection con = urlResource.openConnection();
-			Image img = ImageIO.read(con.getInputStream());
-			pmaAmountOfDataDownloaded.put(sessionID,
-					pmaAmountOfDataDownloaded.get(sessionID) + con.getInputStream().toString().length());
-			return img;
+			return readImage(getLabelUrl(slideRef, sessionID), sessionID);
 		} catch (Exception e) {
 			e.printStackTrace();
 			if (PMA.logger != null) {
@@ -2753,12 +3063,8 @@ public class Core {
 		if (slideRef.startsWith("/")) {
 			slideRef = slideRef.substring(1);
 		}
-		String url;
 		try {
-			url = pmaUrl(sessionID) + "thumbnail" + "?SessionID=" + PMA.pmaQ(sessionID) + "&pathOrUid="
-					+ PMA.pmaQ(slideRef) + ((height > 0) ? "&h=" + height.toString() : "")
-					+ ((width > 0) ? "&w=" + width.toString() : "");
-			return url;
+			return thumbnailUrl(pmaUrl(sessionID), sessionID, slideRef, height, width);
 		} catch (Exception e) {
 			e.printStackTrace();
 			if (PMA.logger != null) {
@@ -2828,23 +3134,23 @@ public class Core {
 		if (slideRef.startsWith("/")) {
 			slideRef = slideRef.substring(1);
 		}
-		try {
-			String url = getThumbnailUrl(slideRef, sessionID, height, width);
-			URL urlResource = new URL(url);
-			URLConnection con = urlResource.openConnection();
-			Image img = ImageIO.read(con.getInputStream());
-			pmaAmountOfDataDownloaded.put(sessionID,
-					pmaAmountOfDataDownloaded.get(sessionID) + con.getInputStream().toString().length());
-			return img;
-		} catch (Exception e) {
-			e.printStackTrace();
-			if (PMA.logger != null) {
-				StringWriter sw = new StringWriter();
-				e.printStackTrace(new PrintWriter(sw));
-				PMA.logger.severe(sw.toString());
-			}
-			return null;
-		}
+		PmaCoreClient client = sessionClient(sessionID);
+		return client == null ? null : client.getThumbnailImage(slideRef, height, width);
+	}
+
+	/**
+	 * This method builds the URL of the thumbnail of a slide
+	 *
+	 * @param baseUrl   URL of the PMA.core instance, ending with "/"
+	 * @param sessionID session's ID
+	 * @param slideRef  slide's path or UID, without a leading "/"
+	 * @param height    height of the thumbnail, ignored if 0
+	 * @param width     width of the thumbnail, ignored if 0
+	 * @return URL of the thumbnail
+	 */
+	static String thumbnailUrl(String baseUrl, String sessionID, String slideRef, int height, int width) {
+		return baseUrl + "thumbnail" + "?SessionID=" + PMA.pmaQ(sessionID) + "&pathOrUid=" + PMA.pmaQ(slideRef)
+				+ ((height > 0) ? "&h=" + height : "") + ((width > 0) ? "&w=" + width : "");
 	}
 
 	/**
@@ -2978,12 +3284,7 @@ public class Core {
 			throw new Exception("Unable to determine the PMA.core instance belonging to " + sessionID);
 		}
 		try {
-			url += "tile" + "?SessionID=" + PMA.pmaQ(sessionID) + "&channels=" + PMA.pmaQ("0") + "&layer="
-					+ zStack.toString() + "&timeframe=" + PMA.pmaQ("0") + "&layer=" + PMA.pmaQ("0") + "&pathOrUid="
-					+ PMA.pmaQ(slideRef) + "&x=" + x.toString() + "&y=" + y.toString() + "&z=" + zoomLevel.toString()
-					+ "&format=" + PMA.pmaQ(format) + "&quality=" + PMA.pmaQ(quality.toString()) + "&cache="
-					+ pmaUseCacheWhenRetrievingTiles.toString().toLowerCase();
-			return url;
+			return tileUrl(url, sessionID, slideRef, x, y, zoomLevel, zStack, format, quality);
 		} catch (Exception e) {
 			e.printStackTrace();
 			if (PMA.logger != null) {
@@ -2995,6 +3296,29 @@ public class Core {
 		}
 	}
 
+	/**
+	 * This method builds the URL of a single tile at position (x, y)
+	 *
+	 * @param baseUrl   URL of the PMA.core instance, ending with "/"
+	 * @param sessionID session's ID
+	 * @param slideRef  slide's path or UID, without a leading "/"
+	 * @param x         x position
+	 * @param y         y position
+	 * @param zoomLevel zoom level
+	 * @param zStack    z stack
+	 * @param format    image format
+	 * @param quality   quality
+	 * @return URL of the tile
+	 */
+	static String tileUrl(String baseUrl, String sessionID, String slideRef, int x, int y, int zoomLevel, int zStack,
+			String format, int quality) {
+		return baseUrl + "tile" + "?SessionID=" + PMA.pmaQ(sessionID) + "&channels=" + PMA.pmaQ("0") + "&layer="
+				+ zStack + "&timeframe=" + PMA.pmaQ("0") + "&layer=" + PMA.pmaQ("0") + "&pathOrUid="
+				+ PMA.pmaQ(slideRef) + "&x=" + x + "&y=" + y + "&z=" + zoomLevel + "&format=" + PMA.pmaQ(format)
+				+ "&quality=" + PMA.pmaQ(String.valueOf(quality)) + "&cache="
+				+ pmaUseCacheWhenRetrievingTiles.toString().toLowerCase();
+	}
+
 	/**
 	 * This method is used to get a single tile at position (x, y)
 	 * 
@@ -3033,105 +3357,19 @@ public class Core {
 	 *                   belong to
 	 */
 	public static Image getTile(String slideRef, Object... varargs) throws Exception {
-		// setting the default values when arguments' values are omitted
-		Integer x = 0;
-		Integer y = 0;
-		Integer zoomLevel = null;
-		Integer zStack = 0;
-		String sessionID = null;
-		String format = "jpg";
-		Integer quality = 100;
-		if (varargs.length > 0) {
-			if (!(varargs[0] instanceof Integer) && varargs[0] != null) {
-				if (PMA.logger != null) {
-					PMA.logger.severe("getTile() : Invalid argument");
-				}
-				throw new IllegalArgumentException("...");
-			}
-			x = (Integer) varargs[0];
-		}
-		if (varargs.length > 1) {
-			if (!(varargs[1] instanceof Integer) && varargs[1] != null) {
-				if (PMA.logger != null) {
-					PMA.logger.severe("getTile() : Invalid argument");
-				}
-				throw new IllegalArgumentException("...");
-			}
-			y = (Integer) varargs[1];
-		}
-		if (varargs.length > 2) {
-			if (!(varargs[2] instanceof Integer) && varargs[2] != null) {
-				if (PMA.logger != null) {
-					PMA.logger.severe("getTile() : Invalid argument");
-				}
-				throw new IllegalArgumentException("...");
-			}
-			zoomLevel = (Integer) varargs[2];
-		}
-		if (varargs.length > 3) {
-			if (!(varargs[3] instanceof Integer) && varargs[3] != null) {
-				if (PMA.logger != null) {
-					PMA.logger.severe("getTile() : Invalid argument");
-				}
-				throw new IllegalArgumentException("...");
-			}
-			zStack = (Integer) varargs[3];
-		}
-		if (varargs.length > 4) {
-			if (!(varargs[4] instanceof String) && varargs[4] != null) {
-				if (PMA.logger != null) {
-					PMA.logger.severe("getTile() : Invalid argument");
-				}
-				throw new IllegalArgumentException("...");
-			}
-			sessionID = (String) varargs[4];
-		}
-		if (varargs.length > 5) {
-			if (!(varargs[5] instanceof String) && varargs[5] != null) {
-				if (PMA.logger != null) {
-					PMA.logger.severe("getTile() : Invalid argument");
-				}
-				throw new IllegalArgumentException("...");
+		try {
+			return ImageIO.read(new ByteArrayInputStream(readTile(slideRef, varargs)));
+		} catch (IllegalArgumentException e) {
+			// invalid arguments are reported to the caller
+			throw e;
+		} catch (Exception e) {
+			e.printStackTrace();
+			if (PMA.logger != null) {
+				StringWriter sw = new StringWriter();
+				e.printStackTrace(new PrintWriter(sw));
+				PMA.logger.severe(sw.toString());
 			}
-			format = (String) varargs[5];
-		}
-		if (varargs.length > 6) {
-			if (!(varargs[6] instanceof Integer) && varargs[6] != null) {
-				if (PMA.logger != null) {
-					PMA.logger.severe("getTile() : Invalid argument");
-				}
-				throw new IllegalArgumentException("...");
-			}
-			quality = (Integer) varargs[6];
-		}
-		// Get a single tile at position (x, y)
-		// Format can be 'jpg' or 'png'
-		// Quality is an integer value and varies from 0
-		// (as much compression as possible; not recommended) to 100 (100%, no
-		// compression)
-		sessionID = sessionId(sessionID);
-		if (slideRef.startsWith("/")) {
-			slideRef = slideRef.substring(1);
-		}
-		if (zoomLevel == null) {
-			zoomLevel = 0;
-		}
-		try {
-			String url = getTileUrl(slideRef, x, y, zoomLevel, zStack, sessionID, format, quality);
-			URL urlResource = new URL(url);
-			URLConnection con = urlResource.openConnection();
-			Image img = ImageIO.read(con.getInputStream());
-			pmaAmountOfDataDownloaded.put(sessionID,
-					pmaAmountOfDataDownloaded.get(sessionID) + con.getInputStream().toString().length());
-			return img;
-		} catch (Exception e) {
-			e.printStackTrace();
-			if (PMA.logger != null) {
-				StringWriter sw = new StringWriter();
-				e.printStackTrace(new PrintWriter(sw));
-				PMA.logger.severe(sw.toString());
-			}
-			return null;
+			return null;
 		}
 	}
 
@@ -3139,7 +3377,10 @@ public class Core {
 	 * Gets a region of the slide at the specified scale Format can be 'jpg' or
 	 * 'png' Quality is an integer value and varies from 0 (as much compression as
 	 * possible; not recommended) to 100 (100%, no compression) x,y,width,height is
-	 * the region to get rotation is the rotation in degrees of the slide to get
+	 * the region to get rotation is the rotation in degrees of the slide to get.
+	 * When a tile cache is in use, plain regions (no rotation, flipping or image
+	 * processing) that lie within the slide are assembled from the cached tiles
+	 * instead (see RegionCompositor)
 	 *
 	 * @param slideRef slide's path or UID
 	 * @param varargs  Array of optional arguments
@@ -3230,32 +3471,705 @@ public class Core {
 	 *                 </p>
 	 * @return Gets a region of the slide at the specified scale
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes" })
-	public static Image getRegion(String slideRef, Object... varargs) {
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static Image getRegion(String slideRef, Object... varargs) {
+		String sessionID = null;
+		if (varargs.length > 5) {
+			if (!(varargs[5] instanceof String) && varargs[5] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getRegion() : Invalid argument");
+				}
+				throw new IllegalArgumentException("Invalid sessionID");
+			}
+			sessionID = (String) varargs[5];
+		}
+
+		sessionID = sessionId(sessionID);
+		if (slideRef.startsWith("/")) {
+			slideRef = slideRef.substring(1);
+		}
+
+		try {
+			if (tileCache(sessionID) != null && isPlainRegion(varargs) && isInside(slideRef, varargs, sessionID)) {
+				// the tiles may well be cached already, so assemble the region from them
+				return new RegionCompositor(sessionID).compose(slideRef, (Integer) varargs[0], (Integer) varargs[1],
+						(Integer) varargs[2], (Integer) varargs[3], null,
+						varargs.length > 4 && varargs[4] != null ? (Integer) varargs[4] : 0,
+						varargs.length > 6 && varargs[6] != null ? (String) varargs[6] : "jpg",
+						varargs.length > 7 && varargs[7] != null ? (Integer) varargs[7] : 100);
+			}
+			String url = getRegionUrl(slideRef, varargs);
+			return readImage(url, sessionID);
+		} catch (Exception e) {
+			e.printStackTrace();
+			if (PMA.logger != null) {
+				StringWriter sw = new StringWriter();
+				e.printStackTrace(new PrintWriter(sw));
+				PMA.logger.severe(sw.toString());
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * This method checks whether the arguments of getRegion() ask for a plain
+	 * region, one that can be assembled from tiles: no rotation, flipping, image
+	 * processing or overlays
+	 *
+	 * @param varargs Array of optional arguments of getRegion()
+	 * @return true if the region can be assembled from tiles
+	 */
+	private static boolean isPlainRegion(Object[] varargs) {
+		if (varargs.length < 4) {
+			return false;
+		}
+		for (int i = 0; i < Math.min(5, varargs.length); i++) {
+			if (i < 4 ? !(varargs[i] instanceof Integer) : varargs[i] != null && !(varargs[i] instanceof Integer)) {
+				return false;
+			}
+		}
+		if ((Integer) varargs[2] <= 0 || (Integer) varargs[3] <= 0) {
+			return false;
+		}
+		if (varargs.length > 6 && varargs[6] != null && !(varargs[6] instanceof String)) {
+			return false;
+		}
+		if (varargs.length > 7 && varargs[7] != null && !(varargs[7] instanceof Integer)) {
+			return false;
+		}
+		for (int i = 8; i < varargs.length; i++) {
+			Object arg = varargs[i];
+			if (i == 12 || arg == null) {
+				// the dpi only ends up in the image's metadata
+				continue;
+			}
+			boolean neutral = (i == 8 || i == 16) ? Integer.valueOf(0).equals(arg)
+					: (i == 13 || i == 14 || i == 17 || i == 18) ? Boolean.FALSE.equals(arg)
+							: (i == 19 || i == 20) && arg instanceof List && ((List<?>) arg).isEmpty();
+			if (!neutral) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * This method checks whether the region asked for by the arguments of
+	 * getRegion() lies entirely within the slide. Regions crossing the edge are
+	 * left to the server, the compositor clips them
+	 *
+	 * @param slideRef  slide's path or UID
+	 * @param varargs   Array of optional arguments of getRegion()
+	 * @param sessionID session's ID
+	 * @return true if the region lies within the slide
+	 */
+	private static boolean isInside(String slideRef, Object[] varargs, String sessionID) {
+		List<Integer> dimensions = getPixelDimensions(slideRef, null, sessionID);
+		if (dimensions == null) {
+			return false;
+		}
+		int x = (Integer) varargs[0];
+		int y = (Integer) varargs[1];
+		return x >= 0 && y >= 0 && (long) x + (Integer) varargs[2] <= dimensions.get(0)
+				&& (long) y + (Integer) varargs[3] <= dimensions.get(1);
+	}
+
+	/**
+	 * This method is used to get a single tile at position (x, y) asynchronously.
+	 * The number of requests in flight per session is bounded (see
+	 * setMaxConcurrentRequests()), requests above the limit are queued
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments, same as getTile()
+	 *                 <p>
+	 *                 x : First optional argument(Integer), default value(0), x
+	 *                 position
+	 *                 </p>
+	 *                 <p>
+	 *                 y : Second optional argument(Integer), default value(0), y
+	 *                 position
+	 *                 </p>
+	 *                 <p>
+	 *                 zoomLevel : Third optional argument(Integer), default
+	 *                 value(null), zoom level
+	 *                 </p>
+	 *                 <p>
+	 *                 zStack : Fourth optional argument(Integer), default value(0),
+	 *                 Number of z stacks
+	 *                 </p>
+	 *                 <p>
+	 *                 sessionID : Fifth optional argument(String), default
+	 *                 value(null), session's ID
+	 *                 </p>
+	 *                 <p>
+	 *                 format : Sixth optional argument(String), default value(jpg),
+	 *                 image format
+	 *                 </p>
+	 *                 <p>
+	 *                 quality : Seventh optional argument(Integer), default
+	 *                 value(100), quality
+	 *                 </p>
+	 * @return Future completed with the tile at position (x, y), or exceptionally
+	 *         if the tile can't be retrieved
+	 */
+	public static CompletableFuture<Image> getTileAsync(String slideRef, Object... varargs) {
+		String sessionID = null;
+		if (varargs.length > 4) {
+			if (!(varargs[4] instanceof String) && varargs[4] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTileAsync() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			sessionID = (String) varargs[4];
+		}
+		sessionID = sessionId(sessionID);
+		return dispatch(sessionID, () -> ImageIO.read(new ByteArrayInputStream(readTile(slideRef, varargs))));
+	}
+
+	/**
+	 * This method is used to get a region of the slide asynchronously. The number
+	 * of requests in flight per session is bounded (see
+	 * setMaxConcurrentRequests()), requests above the limit are queued
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments, same as getRegion()
+	 * @return Future completed with the region, or exceptionally if the region
+	 *         can't be retrieved
+	 */
+	public static CompletableFuture<Image> getRegionAsync(String slideRef, Object... varargs) {
+		String sessionID = null;
+		if (varargs.length > 5) {
+			if (!(varargs[5] instanceof String) && varargs[5] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getRegionAsync() : Invalid argument");
+				}
+				throw new IllegalArgumentException("Invalid sessionID");
+			}
+			sessionID = (String) varargs[5];
+		}
+		sessionID = sessionId(sessionID);
+		return submitImageRequest(sessionID, () -> getRegionUrl(slideRef, varargs));
+	}
+
+	/**
+	 * This method submits the retrieval of an image to the request dispatcher
+	 *
+	 * @param sessionID session's ID
+	 * @param url       Builds the URL of the image to retrieve
+	 * @return Future completed with the image
+	 */
+	private static CompletableFuture<Image> submitImageRequest(final String sessionID, final Callable<String> url) {
+		final String imageUrl;
+		try {
+			imageUrl = imageUrl(url);
+		} catch (Exception e) {
+			CompletableFuture<Image> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+		return dispatch(sessionID, () -> readImage(imageUrl, sessionID));
+	}
+
+	/**
+	 * This method retrieves and decodes an image
+	 *
+	 * @param url       URL of the image
+	 * @param sessionID session's ID
+	 * @return Decoded image
+	 * @throws IOException if the image can't be retrieved
+	 */
+	private static Image readImage(String url, String sessionID) throws IOException {
+		return ImageIO.read(new ByteArrayInputStream(readBytes(url, sessionID)));
+	}
+
+	/**
+	 * This method retrieves a single encoded tile, parsing the same optional
+	 * arguments as getTile()
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments, same as getTile()
+	 * @return Encoded tile
+	 * @throws Exception if the tile can't be retrieved
+	 */
+	private static byte[] readTile(String slideRef, Object... varargs) throws Exception {
+		// setting the default values when arguments' values are omitted
+		Integer x = 0;
+		Integer y = 0;
+		Integer zoomLevel = null;
+		Integer zStack = 0;
+		String sessionID = null;
+		String format = "jpg";
+		Integer quality = 100;
+		if (varargs.length > 0) {
+			if (!(varargs[0] instanceof Integer) && varargs[0] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTile() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			x = (Integer) varargs[0];
+		}
+		if (varargs.length > 1) {
+			if (!(varargs[1] instanceof Integer) && varargs[1] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTile() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			y = (Integer) varargs[1];
+		}
+		if (varargs.length > 2) {
+			if (!(varargs[2] instanceof Integer) && varargs[2] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTile() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			zoomLevel = (Integer) varargs[2];
+		}
+		if (varargs.length > 3) {
+			if (!(varargs[3] instanceof Integer) && varargs[3] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTile() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			zStack = (Integer) varargs[3];
+		}
+		if (varargs.length > 4) {
+			if (!(varargs[4] instanceof String) && varargs[4] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTile() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			sessionID = (String) varargs[4];
+		}
+		if (varargs.length > 5) {
+			if (!(varargs[5] instanceof String) && varargs[5] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTile() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			format = (String) varargs[5];
+		}
+		if (varargs.length > 6) {
+			if (!(varargs[6] instanceof Integer) && varargs[6] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTile() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			quality = (Integer) varargs[6];
+		}
+		// Get a single tile at position (x, y)
+		// Format can be 'jpg' or 'png'
+		// Quality is an integer value and varies from 0
+		// (as much compression as possible; not recommended) to 100 (100%, no
+		// compression)
+		sessionID = sessionId(sessionID);
+		if (slideRef.startsWith("/")) {
+			slideRef = slideRef.substring(1);
+		}
+		if (zoomLevel == null) {
+			zoomLevel = 0;
+		}
+		return readTile(slideRef, x, y, zoomLevel, zStack, sessionID, format, quality);
+	}
+
+	/**
+	 * This method retrieves a single encoded tile, from the tile cache if there is
+	 * one and it holds the tile
+	 *
+	 * @param slideRef  slide's path or UID
+	 * @param x         x position
+	 * @param y         y position
+	 * @param zoomLevel zoom level
+	 * @param zStack    z stack
+	 * @param sessionID session's ID
+	 * @param format    image format
+	 * @param quality   quality
+	 * @return Encoded tile
+	 * @throws Exception if the tile can't be retrieved
+	 */
+	private static byte[] readTile(String slideRef, int x, int y, int zoomLevel, int zStack, String sessionID,
+			String format, int quality) throws Exception {
+		return requireClient(sessionID).readTile(slideRef, x, y, zoomLevel, zStack, format, quality);
+	}
+
+	/**
+	 * This method retrieves a single encoded tile asynchronously, from the tile
+	 * cache if there is one and it holds the tile
+	 *
+	 * @param slideRef  slide's path or UID
+	 * @param x         x position
+	 * @param y         y position
+	 * @param zoomLevel zoom level
+	 * @param zStack    z stack
+	 * @param sessionID session's ID
+	 * @param format    image format
+	 * @param quality   quality
+	 * @return Future completed with the encoded tile
+	 */
+	static CompletableFuture<byte[]> readTileAsync(String slideRef, int x, int y, int zoomLevel, int zStack,
+			String sessionID, String format, int quality) {
+		return dispatch(sessionID, () -> readTile(slideRef, x, y, zoomLevel, zStack, sessionID, format, quality));
+	}
+
+	/**
+	 * This method retrieves the raw (encoded) body of an image
+	 *
+	 * @param url       URL of the image
+	 * @param sessionID session's ID
+	 * @return Encoded image
+	 * @throws IOException if the image can't be retrieved
+	 */
+	private static byte[] readBytes(String url, String sessionID) throws IOException {
+		PmaCoreClient client = client(sessionID);
+		return client == null ? HttpTransport.getDefault().getBytes(url) : client.readBytes(url);
+	}
+
+	/**
+	 * This method streams the raw (encoded) body of an image
+	 *
+	 * @param url       URL of the image
+	 * @param sessionID session's ID
+	 * @param out       Stream to write the image to
+	 * @return Number of bytes written
+	 * @throws IOException if the image can't be retrieved
+	 */
+	private static long writeBytes(String url, String sessionID, OutputStream out) throws IOException {
+		long length = transport(sessionID).get(url, out);
+		addDataDownloaded(sessionID, length);
+		return length;
+	}
+
+	/**
+	 * This method builds the URL of an image, failing if it can't be determined
+	 *
+	 * @param url URL builder
+	 * @return URL of the image
+	 * @throws Exception if the URL can't be determined
+	 */
+	private static String imageUrl(Callable<String> url) throws Exception {
+		String imageUrl = url.call();
+		if (imageUrl == null) {
+			throw new Exception("Unable to build the image URL");
+		}
+		return imageUrl;
+	}
+
+	/**
+	 * This method is used to get a single tile at position (x, y) as raw (still encoded, e.g. JPEG) bytes,
+	 * without decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments, same as getTile()
+	 * @return Encoded image, null if it can't be retrieved
+	 */
+	public static byte[] getTileBytes(String slideRef, Object... varargs) {
+		try {
+			return readTile(slideRef, varargs);
+		} catch (IllegalArgumentException e) {
+			// invalid arguments are reported to the caller
+			throw e;
+		} catch (Exception e) {
+			e.printStackTrace();
+			if (PMA.logger != null) {
+				StringWriter sw = new StringWriter();
+				e.printStackTrace(new PrintWriter(sw));
+				PMA.logger.severe(sw.toString());
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to get a single tile at position (x, y) as raw (still encoded, e.g. JPEG) bytes
+	 * wrapped in a ByteBuffer, without decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments, same as getTile()
+	 * @return Encoded image, null if it can't be retrieved
+	 */
+	public static ByteBuffer getTileByteBuffer(String slideRef, Object... varargs) {
+		byte[] data = getTileBytes(slideRef, varargs);
+		return data == null ? null : ByteBuffer.wrap(data);
+	}
+
+	/**
+	 * This method is used to stream a single tile at position (x, y) as raw (still encoded, e.g. JPEG)
+	 * bytes to an output stream, without buffering or decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param out      Stream to write the image to (not closed)
+	 * @param varargs  Array of optional arguments, same as getTile()
+	 * @return Number of bytes written
+	 * @throws Exception if the image can't be retrieved
+	 */
+	public static long writeTile(String slideRef, OutputStream out, Object... varargs) throws Exception {
+		String sessionID = null;
+		if (varargs.length > 4) {
+			if (!(varargs[4] instanceof String) && varargs[4] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("writeTile() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			sessionID = (String) varargs[4];
+		}
+		sessionID = sessionId(sessionID);
+		if (tileCache(sessionID) != null) {
+			byte[] data = readTile(slideRef, varargs);
+			out.write(data);
+			return data.length;
+		}
+		return writeBytes(imageUrl(() -> getTileUrl(slideRef, varargs)), sessionID, out);
+	}
+
+	/**
+	 * This method is used to stream a single tile at position (x, y) as raw (still encoded, e.g. JPEG)
+	 * bytes to a channel, without buffering or decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param channel  Channel to write the image to (not closed)
+	 * @param varargs  Array of optional arguments, same as getTile()
+	 * @return Number of bytes written
+	 * @throws Exception if the image can't be retrieved
+	 */
+	public static long writeTile(String slideRef, WritableByteChannel channel, Object... varargs) throws Exception {
+		return writeTile(slideRef, Channels.newOutputStream(channel), varargs);
+	}
+
+	/**
+	 * This method is used to get a region of the slide as raw (still encoded, e.g. JPEG) bytes,
+	 * without decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments, same as getRegion()
+	 * @return Encoded image, null if it can't be retrieved
+	 */
+	public static byte[] getRegionBytes(String slideRef, Object... varargs) {
+		String sessionID = null;
+		if (varargs.length > 5) {
+			if (!(varargs[5] instanceof String) && varargs[5] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getRegionBytes() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			sessionID = (String) varargs[5];
+		}
+		sessionID = sessionId(sessionID);
+		try {
+			return readBytes(imageUrl(() -> getRegionUrl(slideRef, varargs)), sessionID);
+		} catch (Exception e) {
+			e.printStackTrace();
+			if (PMA.logger != null) {
+				StringWriter sw = new StringWriter();
+				e.printStackTrace(new PrintWriter(sw));
+				PMA.logger.severe(sw.toString());
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to get a region of the slide as raw (still encoded, e.g. JPEG) bytes
+	 * wrapped in a ByteBuffer, without decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments, same as getRegion()
+	 * @return Encoded image, null if it can't be retrieved
+	 */
+	public static ByteBuffer getRegionByteBuffer(String slideRef, Object... varargs) {
+		byte[] data = getRegionBytes(slideRef, varargs);
+		return data == null ? null : ByteBuffer.wrap(data);
+	}
+
+	/**
+	 * This method is used to stream a region of the slide as raw (still encoded, e.g. JPEG)
+	 * bytes to an output stream, without buffering or decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param out      Stream to write the image to (not closed)
+	 * @param varargs  Array of optional arguments, same as getRegion()
+	 * @return Number of bytes written
+	 * @throws Exception if the image can't be retrieved
+	 */
+	public static long writeRegion(String slideRef, OutputStream out, Object... varargs) throws Exception {
+		String sessionID = null;
+		if (varargs.length > 5) {
+			if (!(varargs[5] instanceof String) && varargs[5] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("writeRegion() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			sessionID = (String) varargs[5];
+		}
+		sessionID = sessionId(sessionID);
+		return writeBytes(imageUrl(() -> getRegionUrl(slideRef, varargs)), sessionID, out);
+	}
+
+	/**
+	 * This method is used to stream a region of the slide as raw (still encoded, e.g. JPEG)
+	 * bytes to a channel, without buffering or decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param channel  Channel to write the image to (not closed)
+	 * @param varargs  Array of optional arguments, same as getRegion()
+	 * @return Number of bytes written
+	 * @throws Exception if the image can't be retrieved
+	 */
+	public static long writeRegion(String slideRef, WritableByteChannel channel, Object... varargs) throws Exception {
+		return writeRegion(slideRef, Channels.newOutputStream(channel), varargs);
+	}
+
+	/**
+	 * This method is used to get the thumbnail for a slide as raw (still encoded, e.g. JPEG) bytes,
+	 * without decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments, same as getThumbnailImage()
+	 * @return Encoded image, null if it can't be retrieved
+	 */
+	public static byte[] getThumbnailBytes(String slideRef, Object... varargs) {
 		String sessionID = null;
-		if (varargs.length > 5) {
-			if (!(varargs[5] instanceof String) && varargs[5] != null) {
+		if (varargs.length > 0) {
+			if (!(varargs[0] instanceof String) && varargs[0] != null) {
 				if (PMA.logger != null) {
-					PMA.logger.severe("getRegion() : Invalid argument");
+					PMA.logger.severe("getThumbnailBytes() : Invalid argument");
 				}
-				throw new IllegalArgumentException("Invalid sessionID");
+				throw new IllegalArgumentException("...");
 			}
-			sessionID = (String) varargs[5];
+			sessionID = (String) varargs[0];
+		}
+		sessionID = sessionId(sessionID);
+		try {
+			return readBytes(imageUrl(() -> getThumbnailUrl(slideRef, varargs)), sessionID);
+		} catch (Exception e) {
+			e.printStackTrace();
+			if (PMA.logger != null) {
+				StringWriter sw = new StringWriter();
+				e.printStackTrace(new PrintWriter(sw));
+				PMA.logger.severe(sw.toString());
+			}
+			return null;
 		}
+	}
 
+	/**
+	 * This method is used to stream the thumbnail for a slide as raw (still encoded, e.g. JPEG)
+	 * bytes to an output stream, without buffering or decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param out      Stream to write the image to (not closed)
+	 * @param varargs  Array of optional arguments, same as getThumbnailImage()
+	 * @return Number of bytes written
+	 * @throws Exception if the image can't be retrieved
+	 */
+	public static long writeThumbnail(String slideRef, OutputStream out, Object... varargs) throws Exception {
+		String sessionID = null;
+		if (varargs.length > 0) {
+			if (!(varargs[0] instanceof String) && varargs[0] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("writeThumbnail() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			sessionID = (String) varargs[0];
+		}
 		sessionID = sessionId(sessionID);
-		if (slideRef.startsWith("/")) {
-			slideRef = slideRef.substring(1);
+		return writeBytes(imageUrl(() -> getThumbnailUrl(slideRef, varargs)), sessionID, out);
+	}
+
+	/**
+	 * This method is used to stream the thumbnail for a slide as raw (still encoded, e.g. JPEG)
+	 * bytes to a channel, without buffering or decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param channel  Channel to write the image to (not closed)
+	 * @param varargs  Array of optional arguments, same as getThumbnailImage()
+	 * @return Number of bytes written
+	 * @throws Exception if the image can't be retrieved
+	 */
+	public static long writeThumbnail(String slideRef, WritableByteChannel channel, Object... varargs) throws Exception {
+		return writeThumbnail(slideRef, Channels.newOutputStream(channel), varargs);
+	}
+
+	/**
+	 * This method is used to get the barcode (alias for "label") image for a slide as raw (still encoded, e.g. JPEG) bytes,
+	 * without decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments, same as getBarcodeImage()
+	 * @return Encoded image, null if it can't be retrieved
+	 */
+	public static byte[] getBarcodeBytes(String slideRef, String... varargs) {
+		// setting the default value when argument's value is omitted
+		String sessionID = varargs.length > 0 ? varargs[0] : null;
+		sessionID = sessionId(sessionID);
+		try {
+			return readBytes(imageUrl(() -> getBarcodeUrl(slideRef, varargs)), sessionID);
+		} catch (Exception e) {
+			e.printStackTrace();
+			if (PMA.logger != null) {
+				StringWriter sw = new StringWriter();
+				e.printStackTrace(new PrintWriter(sw));
+				PMA.logger.severe(sw.toString());
+			}
+			return null;
 		}
+	}
+
+	/**
+	 * This method is used to stream the barcode (alias for "label") image for a slide as raw (still encoded, e.g. JPEG)
+	 * bytes to an output stream, without buffering or decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param out      Stream to write the image to (not closed)
+	 * @param varargs  Array of optional arguments, same as getBarcodeImage()
+	 * @return Number of bytes written
+	 * @throws Exception if the image can't be retrieved
+	 */
+	public static long writeBarcode(String slideRef, OutputStream out, String... varargs) throws Exception {
+		// setting the default value when argument's value is omitted
+		String sessionID = varargs.length > 0 ? varargs[0] : null;
+		sessionID = sessionId(sessionID);
+		return writeBytes(imageUrl(() -> getBarcodeUrl(slideRef, varargs)), sessionID, out);
+	}
+
+	/**
+	 * This method is used to stream the barcode (alias for "label") image for a slide as raw (still encoded, e.g. JPEG)
+	 * bytes to a channel, without buffering or decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param channel  Channel to write the image to (not closed)
+	 * @param varargs  Array of optional arguments, same as getBarcodeImage()
+	 * @return Number of bytes written
+	 * @throws Exception if the image can't be retrieved
+	 */
+	public static long writeBarcode(String slideRef, WritableByteChannel channel, String... varargs) throws Exception {
+		return writeBarcode(slideRef, Channels.newOutputStream(channel), varargs);
+	}
 
+	/**
+	 * This method is used to get the label image for a slide as raw (still encoded, e.g. JPEG) bytes,
+	 * without decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments, same as getLabelImage()
+	 * @return Encoded image, null if it can't be retrieved
+	 */
+	public static byte[] getLabelBytes(String slideRef, String... varargs) {
+		// setting the default value when argument's value is omitted
+		String sessionID = varargs.length > 0 ? varargs[0] : null;
+		sessionID = sessionId(sessionID);
 		try {
-			String url = getRegionUrl(slideRef, varargs);
-			URL urlResource = new URL(url);
-			URLConnection con = urlResource.openConnection();
-			Image img = ImageIO.read(con.getInputStream());
-			pmaAmountOfDataDownloaded.put(sessionID,
-					pmaAmountOfDataDownloaded.get(sessionID) + con.getInputStream().toString().length());
-			return img;
+			return readBytes(imageUrl(() -> getLabelUrl(slideRef, varargs)), sessionID);
 		} catch (Exception e) {
 			e.printStackTrace();
 			if (PMA.logger != null) {
@@ -3267,6 +4181,37 @@ public class Core {
 		}
 	}
 
+	/**
+	 * This method is used to stream the label image for a slide as raw (still encoded, e.g. JPEG)
+	 * bytes to an output stream, without buffering or decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param out      Stream to write the image to (not closed)
+	 * @param varargs  Array of optional arguments, same as getLabelImage()
+	 * @return Number of bytes written
+	 * @throws Exception if the image can't be retrieved
+	 */
+	public static long writeLabel(String slideRef, OutputStream out, String... varargs) throws Exception {
+		// setting the default value when argument's value is omitted
+		String sessionID = varargs.length > 0 ? varargs[0] : null;
+		sessionID = sessionId(sessionID);
+		return writeBytes(imageUrl(() -> getLabelUrl(slideRef, varargs)), sessionID, out);
+	}
+
+	/**
+	 * This method is used to stream the label image for a slide as raw (still encoded, e.g. JPEG)
+	 * bytes to a channel, without buffering or decoding it
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param channel  Channel to write the image to (not closed)
+	 * @param varargs  Array of optional arguments, same as getLabelImage()
+	 * @return Number of bytes written
+	 * @throws Exception if the image can't be retrieved
+	 */
+	public static long writeLabel(String slideRef, WritableByteChannel channel, String... varargs) throws Exception {
+		return writeLabel(slideRef, Channels.newOutputStream(channel), varargs);
+	}
+
 	/**
 	 * This method is used to create the url to retrieve a region of the slide at
 	 * the specified scale (x,y,width,height)
@@ -3598,8 +4543,9 @@ public class Core {
 					+ PMA.pmaQ(slideRef) + "&x=" + x.toString() + "&y=" + y.toString() + "&width=" + width.toString()
 					+ "&height=" + height.toString() + "&scale=" + scale.toString() + "&format=" + PMA.pmaQ(format)
 					+ "&quality=" + PMA.pmaQ(quality.toString()) + "&rotation=" + rotation.toString() + "&contrast="
-					+ contrast.toString() + "&brightness=" + brightness.toString() + "&postGamma="
-					+ postGamma.toString() + "&dpi=" + dpi.toString() + "&flipVertical=" + flipVertical.toString()
+					+ (contrast == null ? "" : contrast.toString()) + "&brightness="
+					+ (brightness == null ? "" : brightness.toString()) + "&postGamma="
+					+ (postGamma == null ? "" : postGamma.toString()) + "&dpi=" + dpi.toString() + "&flipVertical=" + flipVertical.toString()
 					+ "&flipHorizontal=" + flipHorizontal.toString() + "&annotationsLayerType="
 					+ PMA.pmaQ(annotationsLayerType) + "&drawFilename=" + drawFilename.toString()
 					+ "&downloadInsteadOfDisplay=" + downloadInsteadOfDisplay.toString() + "&drawScaleBar="
@@ -3613,15 +4559,226 @@ public class Core {
 				e.printStackTrace(new PrintWriter(sw));
 				PMA.logger.severe(sw.toString());
 			}
-			return null;
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to get all tiles with a (fromX, fromY, toX, toY)
+	 * rectangle
+	 * 
+	 * @param slideRef slide's path or UID
+	 * @param varargs  Array of optional arguments
+	 *                 <p>
+	 *                 fromX : First optional argument(Integer), default value(0),
+	 *                 starting x position
+	 *                 </p>
+	 *                 <p>
+	 *                 fromY : Second optional argument(Integer), default value(0),
+	 *                 starting y position
+	 *                 </p>
+	 *                 <p>
+	 *                 toX : Third optional argument(Integer), default value(0),
+	 *                 ending x position
+	 *                 </p>
+	 *                 <p>
+	 *                 toY : Fourth optional argument(Integer), default value(0),
+	 *                 ending y position
+	 *                 </p>
+	 *                 <p>
+	 *                 zoomLevel : Fifth optional argument(Integer), default
+	 *                 value(null), zoom level
+	 *                 </p>
+	 *                 <p>
+	 *                 zStack : Sixth optional argument(Integer), default value(0),
+	 *                 Number of z stacks
+	 *                 </p>
+	 *                 <p>
+	 *                 sessionID : Seventh optional argument(String), default
+	 *                 value(null), session's ID
+	 *                 </p>
+	 *                 <p>
+	 *                 format : Eigth optional argument(String), default value(jpg),
+	 *                 image format
+	 *                 </p>
+	 *                 <p>
+	 *                 quality : Ninth optional argument(Integer), default
+	 *                 value(100), quality
+	 *                 </p>
+	 *                 <p>
+	 *                 traversal : Tenth optional argument(TileTraversal), default
+	 *                 value(COLUMN_MAJOR), order in which the tiles are visited
+	 *                 </p>
+	 * @return All tiles with a (fromX, fromY, toX, toY) rectangle
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static Stream getTiles(String slideRef, Object... varargs) {
+		// setting the default values when arguments' values are omitted
+		Integer fromX = 0;
+		Integer fromY = 0;
+		Integer toX = null;
+		Integer toY = null;
+		Integer zoomLevel = null;
+		Integer zStack = 0;
+		String sessionID = null;
+		String format = "jpg";
+		Integer quality = 100;
+		TileTraversal traversal = TileTraversal.COLUMN_MAJOR;
+		if (varargs.length > 0) {
+			if (!(varargs[0] instanceof Integer) && varargs[0] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTiles() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			fromX = (Integer) varargs[0];
+		}
+		if (varargs.length > 1) {
+			if (!(varargs[1] instanceof Integer) && varargs[1] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTiles() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			fromY = (Integer) varargs[1];
+		}
+		if (varargs.length > 2) {
+			if (!(varargs[2] instanceof Integer) && varargs[2] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTiles() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			toX = (Integer) varargs[2];
+		}
+		if (varargs.length > 3) {
+			if (!(varargs[3] instanceof Integer) && varargs[3] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTiles() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			toY = (Integer) varargs[3];
+		}
+		if (varargs.length > 4) {
+			if (!(varargs[4] instanceof Integer) && varargs[4] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTiles() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			zoomLevel = (Integer) varargs[4];
+		}
+		if (varargs.length > 5) {
+			if (!(varargs[5] instanceof Integer) && varargs[5] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTiles() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			zStack = (Integer) varargs[5];
+		}
+		if (varargs.length > 6) {
+			if (!(varargs[6] instanceof String) && varargs[6] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTiles() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			sessionID = (String) varargs[6];
+		}
+		if (varargs.length > 7) {
+			if (!(varargs[7] instanceof String) && varargs[7] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTiles() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			format = (String) varargs[7];
+		}
+		if (varargs.length > 8) {
+			if (!(varargs[8] instanceof Integer) && varargs[8] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTiles() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			quality = (Integer) varargs[8];
+		}
+		if (varargs.length > 9) {
+			if (!(varargs[9] instanceof TileTraversal) && varargs[9] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTiles() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			if (varargs[9] != null) {
+				traversal = (TileTraversal) varargs[9];
+			}
+		}
+		// Get all tiles with a (fromX, fromY, toX, toY) rectangle, in the order of
+		// the traversal
+		// Format can be 'jpg' or 'png'
+		// Quality is an integer value and varies from 0
+		// (as much compression as possible; not recommended) to 100 (100%, no
+		// compression)
+		sessionID = sessionId(sessionID);
+		if (slideRef.startsWith("/")) {
+			slideRef = slideRef.substring(1);
+		}
+		if (zoomLevel == null) {
+			zoomLevel = 0;
+		}
+		if (toX == null) {
+			toX = getNumberOfTiles(slideRef, zoomLevel, sessionID).get((0)) - 1;
+		}
+		if (toY == null) {
+			toY = getNumberOfTiles(slideRef, zoomLevel, sessionID).get((1)) - 1;
 		}
+		final List<int[]> positions = traversal.positions(fromX, fromY, toX, toY);
+		// we declare final variable to use them in the enclosing scope for new
+		// Supplier()
+		final int varZoomLevel = zoomLevel;
+		final int varZStack = zStack;
+		final String varSessionID = sessionID;
+		final String varSlideRef = slideRef;
+		final String varFormat = format;
+		final Integer varQualty = quality;
+		// we use Stream to simulate the behavior of "yield" in Python
+		return Stream.generate(new Supplier() {
+			int next = 0;
+
+			@Override
+			public Image get() {
+				int[] position = positions.get(next++);
+				try {
+					return getTile(varSlideRef, position[0], position[1], varZoomLevel, varZStack, varSessionID, varFormat, varQualty);
+				} catch (Exception e) {
+					e.printStackTrace();
+					if (PMA.logger != null) {
+						StringWriter sw = new StringWriter();
+						e.printStackTrace(new PrintWriter(sw));
+						PMA.logger.severe(sw.toString());
+					}
+					return null;
+				}
+			}
+		}).limit(positions.size());
 	}
 
 	/**
 	 * This method is used to get all tiles with a (fromX, fromY, toX, toY)
-	 * rectangle
-	 * 
+	 * rectangle, fetched in parallel by a number of workers. As with getTiles(),
+	 * the toX and toY bounds are inclusive and default to the last tile of the zoom
+	 * level. Tiles are swept left to right, top to bottom (row-major) unless
+	 * another traversal is given
+	 *
 	 * @param slideRef slide's path or UID
+	 * @param workers  Number of tiles fetched in parallel
+	 * @param prefetch Maximum number of tiles fetched ahead of the consumer
+	 *                 (backpressure), at least the number of workers
+	 * @param order    Whether tiles are returned in sweep order (ORDERED) or as
+	 *                 soon as they're available (COMPLETION)
 	 * @param varargs  Array of optional arguments
 	 *                 <p>
 	 *                 fromX : First optional argument(Integer), default value(0),
@@ -3632,12 +4789,12 @@ public class Core {
 	 *                 starting y position
 	 *                 </p>
 	 *                 <p>
-	 *                 toX : Third optional argument(Integer), default value(0),
-	 *                 ending x position
+	 *                 toX : Third optional argument(Integer), default value(null),
+	 *                 ending x position (inclusive)
 	 *                 </p>
 	 *                 <p>
-	 *                 toY : Fourth optional argument(Integer), default value(0),
-	 *                 ending y position
+	 *                 toY : Fourth optional argument(Integer), default value(null),
+	 *                 ending y position (inclusive)
 	 *                 </p>
 	 *                 <p>
 	 *                 zoomLevel : Fifth optional argument(Integer), default
@@ -3659,10 +4816,39 @@ public class Core {
 	 *                 quality : Ninth optional argument(Integer), default
 	 *                 value(100), quality
 	 *                 </p>
-	 * @return All tiles with a (fromX, fromY, toX, toY) rectangle
+	 *                 <p>
+	 *                 traversal : Tenth optional argument(TileTraversal), default
+	 *                 value(ROW_MAJOR), order in which the tiles are swept
+	 *                 </p>
+	 * @return Sweep over all tiles of the rectangle, to be closed when not
+	 *         consumed entirely
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes" })
-	public static Stream getTiles(String slideRef, Object... varargs) {
+	public static TileSweep getTilesParallel(String slideRef, int workers, int prefetch, TileSweep.Order order,
+			Object... varargs) {
+		return getTilesParallel(slideRef, null, workers, prefetch, order, varargs);
+	}
+
+	/**
+	 * This method is used to get the tiles with a (fromX, fromY, toX, toY)
+	 * rectangle that intersect tissue, fetched in parallel by a number of workers.
+	 * Tiles that only cover background according to the tissue mask are never
+	 * requested. Otherwise the same as getTilesParallel() without a mask
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param mask     Tissue mask of the slide (see TissueMask.fromSlide()), null
+	 *                 to sweep all tiles
+	 * @param workers  Number of tiles fetched in parallel
+	 * @param prefetch Maximum number of tiles fetched ahead of the consumer
+	 *                 (backpressure), at least the number of workers
+	 * @param order    Whether tiles are returned in sweep order (ORDERED) or as
+	 *                 soon as they're available (COMPLETION)
+	 * @param varargs  Array of optional arguments, the same as for
+	 *                 getTilesParallel() without a mask
+	 * @return Sweep over the tissue tiles of the rectangle, to be closed when not
+	 *         consumed entirely
+	 */
+	public static TileSweep getTilesParallel(String slideRef, TissueMask mask, int workers, int prefetch,
+			TileSweep.Order order, Object... varargs) {
 		// setting the default values when arguments' values are omitted
 		Integer fromX = 0;
 		Integer fromY = 0;
@@ -3673,10 +4859,11 @@ public class Core {
 		String sessionID = null;
 		String format = "jpg";
 		Integer quality = 100;
+		TileTraversal traversal = TileTraversal.ROW_MAJOR;
 		if (varargs.length > 0) {
 			if (!(varargs[0] instanceof Integer) && varargs[0] != null) {
 				if (PMA.logger != null) {
-					PMA.logger.severe("getTiles() : Invalid argument");
+					PMA.logger.severe("getTilesParallel() : Invalid argument");
 				}
 				throw new IllegalArgumentException("...");
 			}
@@ -3685,7 +4872,7 @@ public class Core {
 		if (varargs.length > 1) {
 			if (!(varargs[1] instanceof Integer) && varargs[1] != null) {
 				if (PMA.logger != null) {
-					PMA.logger.severe("getTiles() : Invalid argument");
+					PMA.logger.severe("getTilesParallel() : Invalid argument");
 				}
 				throw new IllegalArgumentException("...");
 			}
@@ -3694,7 +4881,7 @@ public class Core {
 		if (varargs.length > 2) {
 			if (!(varargs[2] instanceof Integer) && varargs[2] != null) {
 				if (PMA.logger != null) {
-					PMA.logger.severe("getTiles() : Invalid argument");
+					PMA.logger.severe("getTilesParallel() : Invalid argument");
 				}
 				throw new IllegalArgumentException("...");
 			}
@@ -3703,7 +4890,7 @@ public class Core {
 		if (varargs.length > 3) {
 			if (!(varargs[3] instanceof Integer) && varargs[3] != null) {
 				if (PMA.logger != null) {
-					PMA.logger.severe("getTiles() : Invalid argument");
+					PMA.logger.severe("getTilesParallel() : Invalid argument");
 				}
 				throw new IllegalArgumentException("...");
 			}
@@ -3712,7 +4899,7 @@ public class Core {
 		if (varargs.length > 4) {
 			if (!(varargs[4] instanceof Integer) && varargs[4] != null) {
 				if (PMA.logger != null) {
-					PMA.logger.severe("getTiles() : Invalid argument");
+					PMA.logger.severe("getTilesParallel() : Invalid argument");
 				}
 				throw new IllegalArgumentException("...");
 			}
@@ -3721,7 +4908,7 @@ public class Core {
 		if (varargs.length > 5) {
 			if (!(varargs[5] instanceof Integer) && varargs[5] != null) {
 				if (PMA.logger != null) {
-					PMA.logger.severe("getTiles() : Invalid argument");
+					PMA.logger.severe("getTilesParallel() : Invalid argument");
 				}
 				throw new IllegalArgumentException("...");
 			}
@@ -3730,7 +4917,7 @@ public class Core {
 		if (varargs.length > 6) {
 			if (!(varargs[6] instanceof String) && varargs[6] != null) {
 				if (PMA.logger != null) {
-					PMA.logger.severe("getTiles() : Invalid argument");
+					PMA.logger.severe("getTilesParallel() : Invalid argument");
 				}
 				throw new IllegalArgumentException("...");
 			}
@@ -3739,7 +4926,7 @@ public class Core {
 		if (varargs.length > 7) {
 			if (!(varargs[7] instanceof String) && varargs[7] != null) {
 				if (PMA.logger != null) {
-					PMA.logger.severe("getTiles() : Invalid argument");
+					PMA.logger.severe("getTilesParallel() : Invalid argument");
 				}
 				throw new IllegalArgumentException("...");
 			}
@@ -3748,18 +4935,23 @@ public class Core {
 		if (varargs.length > 8) {
 			if (!(varargs[8] instanceof Integer) && varargs[8] != null) {
 				if (PMA.logger != null) {
-					PMA.logger.severe("getTiles() : Invalid argument");
+					PMA.logger.severe("getTilesParallel() : Invalid argument");
 				}
 				throw new IllegalArgumentException("...");
 			}
 			quality = (Integer) varargs[8];
 		}
-		// Get all tiles with a (fromX, fromY, toX, toY) rectangle. Navigate left to
-		// right, top to bottom
-		// Format can be 'jpg' or 'png'
-		// Quality is an integer value and varies from 0
-		// (as much compression as possible; not recommended) to 100 (100%, no
-		// compression)
+		if (varargs.length > 9) {
+			if (!(varargs[9] instanceof TileTraversal) && varargs[9] != null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTilesParallel() : Invalid argument");
+				}
+				throw new IllegalArgumentException("...");
+			}
+			if (varargs[9] != null) {
+				traversal = (TileTraversal) varargs[9];
+			}
+		}
 		sessionID = sessionId(sessionID);
 		if (slideRef.startsWith("/")) {
 			slideRef = slideRef.substring(1);
@@ -3767,52 +4959,45 @@ public class Core {
 		if (zoomLevel == null) {
 			zoomLevel = 0;
 		}
-		if (toX == null) {
-			toX = getNumberOfTiles(slideRef, zoomLevel, sessionID).get((0));
+		if (toX == null || toY == null) {
+			List<Integer> numberOfTiles = getNumberOfTiles(slideRef, zoomLevel, sessionID);
+			if (toX == null) {
+				toX = numberOfTiles.get(0) - 1;
+			}
+			if (toY == null) {
+				toY = numberOfTiles.get(1) - 1;
+			}
 		}
-		if (toY == null) {
-			toY = getNumberOfTiles(slideRef, zoomLevel, sessionID).get((1));
+		boolean[][] tissue = null;
+		if (mask != null) {
+			SlideInfo info = getTypedSlideInfo(slideRef, sessionID);
+			List<Integer> dimensions = getPixelDimensions(slideRef, zoomLevel, sessionID);
+			if (info == null || info.getTileSize() <= 0 || dimensions == null) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("getTilesParallel() : Unable to get information for " + slideRef);
+				}
+				throw new IllegalArgumentException("Unable to get information for " + slideRef);
+			}
+			tissue = mask.getTileGrid(dimensions.get(0), dimensions.get(1), info.getTileSize());
 		}
-		// we declare final variable to use them in the enclosing scope for new
-		// Supplier()
-		final int varFromX = fromX;
-		final int varToX = toX;
-		final int varFromY = fromY;
-		final int varToY = toY;
+		List<int[]> positions = new ArrayList<>();
+		for (int[] position : traversal.positions(fromX, fromY, toX, toY)) {
+			int x = position[0];
+			int y = position[1];
+			if (tissue == null || (y >= 0 && y < tissue.length && x >= 0 && x < tissue[y].length && tissue[y][x])) {
+				positions.add(position);
+			}
+		}
+		final String varSlideRef = slideRef;
 		final int varZoomLevel = zoomLevel;
 		final int varZStack = zStack;
 		final String varSessionID = sessionID;
-		final String varSlideRef = slideRef;
 		final String varFormat = format;
-		final Integer varQualty = quality;
-		// we use Stream to simulate the behavior of "yield" in Python
-		return Stream.generate(new Supplier() {
-			int x = varFromX;
-			int y = varFromY - 1;
-
-			@Override
-			public Image get() {
-				if (x <= varToX) {
-					if (y < varToY) {
-						y++;
-					} else {
-						y = varFromY - 1;
-						x++;
-					}
-				}
-				try {
-					return getTile(varSlideRef, x, y, varZoomLevel, varZStack, varSessionID, varFormat, varQualty);
-				} catch (Exception e) {
-					e.printStackTrace();
-					if (PMA.logger != null) {
-						StringWriter sw = new StringWriter();
-						e.printStackTrace(new PrintWriter(sw));
-						PMA.logger.severe(sw.toString());
-					}
-					return null;
-				}
-			}
-		}).limit((varToX - varFromX + 1) * (varToY - varFromY + 1));
+		final Integer varQuality = quality;
+		return new TileSweep(positions, zoomLevel, zStack,
+				(x, y) -> ImageIO.read(new ByteArrayInputStream(
+						readTile(varSlideRef, x, y, varZoomLevel, varZStack, varSessionID, varFormat, varQuality))),
+				workers, prefetch, order);
 	}
 
 	/**
@@ -3840,20 +5025,11 @@ public class Core {
 		Map<String, String> forms = new HashMap<>();
 		Map<String, String> allForms = getAvailableForms(slideRef, sessionID);
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(sessionID).getString(url, null);
 			if (jsonString != null && jsonString.length() > 0) {
 				if (PMA.isJSONObject(jsonString)) {
 					JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+					addDataDownloaded(sessionID, jsonResponse.length());
 					if (jsonResponse.has("Code")) {
 						if (PMA.logger != null) {
 							PMA.logger.severe("getSubmittedForms on  " + slideRef + " resulted in: "
@@ -3866,8 +5042,7 @@ public class Core {
 					}
 				} else {
 					JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+					addDataDownloaded(sessionID, jsonResponse.length());
 					for (int i = 0; i < jsonResponse.length(); i++) {
 						if (!forms.containsKey(jsonResponse.optJSONObject(i).get("FormID").toString())
 								&& allForms != null) {
@@ -3917,20 +5092,11 @@ public class Core {
 		String url = apiUrl(sessionID, false) + "GetFormSubmissions?sessionID=" + PMA.pmaQ(sessionID) + "&pathOrUids="
 				+ PMA.pmaQ(slideRef);
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(sessionID).getString(url, null);
 			if (jsonString != null && jsonString.length() > 0) {
 				if (PMA.isJSONObject(jsonString)) {
 					JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+					addDataDownloaded(sessionID, jsonResponse.length());
 					if (jsonResponse.has("Code")) {
 						if (PMA.logger != null) {
 							PMA.logger.severe("getSubmittedFormData on  " + slideRef + " resulted in: "
@@ -3943,8 +5109,7 @@ public class Core {
 					}
 				} else {
 					JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+					addDataDownloaded(sessionID, jsonResponse.length());
 					data = jsonResponse;
 				}
 				// should probably do some post-processing here, but unsure what that would
@@ -3989,20 +5154,11 @@ public class Core {
 		Map<String, String> formDef = new HashMap<>();
 		String url = apiUrl(sessionID, false) + "GetFormDefinitions?sessionID=" + PMA.pmaQ(sessionID);
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(sessionID).getString(url, null);
 			if (jsonString != null && jsonString.length() > 0) {
 				if (PMA.isJSONObject(jsonString)) {
 					JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+					addDataDownloaded(sessionID, jsonResponse.length());
 					if (jsonResponse.has("Code")) {
 						if (PMA.logger != null) {
 							PMA.logger.severe("" + jsonResponse.get("Message") + "");
@@ -4013,8 +5169,7 @@ public class Core {
 					}
 				} else {
 					JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+					addDataDownloaded(sessionID, jsonResponse.length());
 					for (int i = 0; i < jsonResponse.length(); i++) {
 						if ((jsonResponse.optJSONObject(i).get("FormID").toString().equals(formID))
 								|| (jsonResponse.optJSONObject(i).get("FormName").toString().equals(formID))) {
@@ -4078,20 +5233,11 @@ public class Core {
 			url = apiUrl(sessionID, false) + "GetForms?sessionID=" + PMA.pmaQ(sessionID);
 		}
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(sessionID).getString(url, null);
 			if (jsonString != null && jsonString.length() > 0) {
 				if (PMA.isJSONObject(jsonString)) {
 					JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+					addDataDownloaded(sessionID, jsonResponse.length());
 					if (jsonResponse.has("Code")) {
 						if (PMA.logger != null) {
 							PMA.logger.severe("getAvailableForms on  " + slideRef + " resulted in: "
@@ -4104,8 +5250,7 @@ public class Core {
 					}
 				} else {
 					JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+					addDataDownloaded(sessionID, jsonResponse.length());
 					for (int i = 0; i < jsonResponse.length(); i++) {
 						forms.put(jsonResponse.optJSONObject(i).get("Key").toString(),
 								jsonResponse.optJSONObject(i).getString("Value"));
@@ -4170,7 +5315,6 @@ public class Core {
 			}
 		}
 		urlS = pmaUrl(sessionID) + "api/json/AddAnnotation";
-		URL url = new URL(urlS);
 		data.put("sessionID", sessionID);
 		data.put("pathOrUid", pathOrUid);
 		data.put("classification", classification);
@@ -4179,24 +5323,7 @@ public class Core {
 		data.put("geometry", geometry);
 		data.put("color", color);
 
-		URLConnection con = url.openConnection();
-		HttpURLConnection http = (HttpURLConnection) con;
-		http.setRequestMethod("POST"); // PUT is another valid option
-		http.setDoOutput(true);
-		out.println(con);
-		out.println(http);
-
-		byte[] out = data.toString().getBytes(StandardCharsets.UTF_8);
-		int length = out.length;
-		System.out.println(length);
-
-		http.setFixedLengthStreamingMode(length);
-		http.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-		http.connect();
-		try (OutputStream os = http.getOutputStream()) {
-			os.write(out);
-			System.out.println(os);
-		}
+		transport(sessionID).postString(urlS, "application/json; charset=UTF-8", data.toString(), null);
 		return null;
 	}
 
@@ -4225,20 +5352,11 @@ public class Core {
 		String url = apiUrl(sessionID, false) + "GetAnnotations?sessionID=" + PMA.pmaQ(sessionID) + "&pathOrUid="
 				+ PMA.pmaQ(slideRef);
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(sessionID).getString(url, null);
 			if (jsonString != null && jsonString.length() > 0) {
 				if (PMA.isJSONObject(jsonString)) {
 					JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+					addDataDownloaded(sessionID, jsonResponse.length());
 					if (jsonResponse.has("Code")) {
 						if (PMA.logger != null) {
 							PMA.logger.severe("getAnnotations() on  " + slideRef + " resulted in: "
@@ -4251,8 +5369,7 @@ public class Core {
 					}
 				} else {
 					JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
-					pmaAmountOfDataDownloaded.put(sessionID,
-							pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+					addDataDownloaded(sessionID, jsonResponse.length());
 					data = jsonResponse;
 				}
 			} else {
@@ -4281,7 +5398,6 @@ public class Core {
 		sessionID = sessionId(sessionID);
 		JSONObject data = new JSONObject();
 		String urlS = pmaUrl(sessionID) + "api/json/DeleteAnnotations";
-		URL url = new URL(urlS);
 		if (sessionID == pmaCoreLiteSessionID) {
 			if (isLite()) {
 				throw new Exception("PMA.core.lite found running, but doesn't support adding annotations.");
@@ -4294,24 +5410,7 @@ public class Core {
 		data.put("pathOrUid", slideRef);
 		data.put("layerID", layerID);
 
-		URLConnection con = url.openConnection();
-		HttpURLConnection http = (HttpURLConnection) con;
-		http.setRequestMethod("POST"); // PUT is another valid option
-		http.setDoOutput(true);
-		out.println(con);
-		out.println(http);
-
-		byte[] out = data.toString().getBytes(StandardCharsets.UTF_8);
-		int length = out.length;
-		System.out.println(length);
-
-		http.setFixedLengthStreamingMode(length);
-		http.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-		http.connect();
-		try (OutputStream os = http.getOutputStream()) {
-			os.write(out);
-			System.out.println(os);
-		}
+		transport(sessionID).postString(urlS, "application/json; charset=UTF-8", data.toString(), null);
 		return true;
 	}
 
@@ -4406,20 +5505,11 @@ public class Core {
 					+ PMA.pmaQ(slideRef);
 		}
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(sessionID).getString(url, null);
 			JSONArray resultsArray;
 			if (PMA.isJSONObject(jsonString)) {
 				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+				addDataDownloaded(sessionID, jsonResponse.length());
 				if (jsonResponse.has("Code")) {
 					if (PMA.logger != null) {
 						PMA.logger.severe("getFilesForSlide on " + slideRef + " resulted in: "
@@ -4434,8 +5524,7 @@ public class Core {
 				}
 			} else {
 				resultsArray = PMA.getJSONArrayResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + resultsArray.length());
+				addDataDownloaded(sessionID, resultsArray.length());
 			}
 			Map<String, Map<String, String>> result = new HashMap<>();
 			for (int i = 0; i < resultsArray.length(); i++) {
@@ -4493,19 +5582,10 @@ public class Core {
 		String url = apiUrl(sessionID, false) + "EnumerateAllFilesForSlide?sessionID=" + PMA.pmaQ(sessionID)
 				+ "&pathOrUid=" + PMA.pmaQ(slideRef);
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(sessionID).getString(url, null);
 			if (PMA.isJSONObject(jsonString)) {
 				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+				addDataDownloaded(sessionID, jsonResponse.length());
 				if (jsonResponse.has("Code")) {
 					if (PMA.logger != null) {
 						PMA.logger.severe("enumerateFilesForSlide on " + slideRef + " resulted in: "
@@ -4525,8 +5605,7 @@ public class Core {
 				}
 			} else {
 				JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+				addDataDownloaded(sessionID, jsonResponse.length());
 				List<String> files = new ArrayList<>();
 				for (int i = 0; i < jsonResponse.length(); i++) {
 					files.add(jsonResponse.optString(i));
@@ -4570,19 +5649,10 @@ public class Core {
 		String url = apiUrl(sessionID, false) + "GetFilenames?sessionID=" + PMA.pmaQ(sessionID) + "&pathOrUid="
 				+ PMA.pmaQ(slideRef);
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(sessionID).getString(url, null);
 			if (PMA.isJSONArray(jsonString)) {
 				JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+				addDataDownloaded(sessionID, jsonResponse.length());
 				List<Map<String, String>> result = new ArrayList<>();
 				for (int i = 0; i < jsonResponse.length(); i++) {
 					final int finalI = i;
@@ -4648,20 +5718,11 @@ public class Core {
 			System.out.println("url = " + url);
 		}
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(sessionID).getString(url, null);
 			List<String> files = null;
 			if (PMA.isJSONObject(jsonString)) {
 				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+				addDataDownloaded(sessionID, jsonResponse.length());
 				if (jsonResponse.has("Code")) {
 					if (PMA.logger != null) {
 						PMA.logger.severe("searchSlides on " + pattern + " in " + startDir + "resulted in: "
@@ -4680,8 +5741,7 @@ public class Core {
 				}
 			} else {
 				JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
-				pmaAmountOfDataDownloaded.put(sessionID,
-						pmaAmountOfDataDownloaded.get(sessionID) + jsonResponse.length());
+				addDataDownloaded(sessionID, jsonResponse.length());
 				files = new ArrayList<>();
 				for (int i = 0; i < jsonResponse.length(); i++) {
 					files.add(jsonResponse.optString(i));
@@ -4701,6 +5761,8 @@ public class Core {
 
 	/**
 	 * * This method downloads single slide and multipart slide.<br>
+	 * The files (and ranges of large files) are downloaded in parallel, and an
+	 * interrupted download resumes where it stopped (see SlideDownloader).<br>
 	 * <br>
 	 * 		param varargs: <p>
 	 * 					0: mainSlideFile is full path of the slide. Is a required income parameter!<br>
@@ -4743,121 +5805,30 @@ public class Core {
 		if (Objects.equals(sessionID, "") || sessionID == null || !ping(sessionID)) {
 			throw new NullPointerException("sessionID is null");
 		}
-		saveDirectory = (saveDirectory.endsWith("\\") ? saveDirectory : saveDirectory + "\\");
-		if (new File(saveDirectory + Core.getSlideFileName(mainSlideFile)).exists()) {
-			throw new Exception(" A file with the same name: " + Core.getSlideFileName(mainSlideFile) + " already exists in the selected folder.");
-		}
-		else {
-			DataInputStream inputStreamToRequestBody = null;
-			OutputStream outputStreamToLogFile = null;
-			HttpURLConnection con = null;
-			sessionID = sessionId(sessionID);
-			String server = pmaUrl(sessionID);
-			File downloadFile = null;
-			long size = 0;
-			String mainFile = null;
-			String rootPath;
-			boolean relPathAndSizeChecked = false;
-			List<Map<String, String>> slideRelatedFiles = Core.enumerateFilesForSlidePMACore(mainSlideFile, sessionID);
-			for (Map<String, String> element : slideRelatedFiles) {
-				String relativePath = varargs.length > 4 ? (String) varargs[4] : null;
-				mainFile = slideRelatedFiles.get(slideRelatedFiles.size() - 1).get("Path").toString();
-				rootPath = mainFile.substring(0, mainFile.lastIndexOf("/") + 1);
-				if (relativePath == null) {
-					relativePath = element.get("Path").replace(rootPath, "");
-					if (relativePath.contains("/")) {
-						String relativePathFrBnTillLtSlash = relativePath.substring(relativePath.indexOf(""), relativePath.lastIndexOf("/"));
-						String[] folderToCreate = relativePathFrBnTillLtSlash.split("/");
-						new File(saveDirectory + folderToCreate[0]).mkdir();
-						for (int i = 0; i < folderToCreate.length; i++) {
-							if (!folderToCreate[i].contains(folderToCreate[0])) {
-								new File(saveDirectory + folderToCreate[0] + "/" + folderToCreate[i]).mkdir();
-							}
-						}
-					}
-					size = Long.parseLong(element.get("Size"));
-					downloadFile = new File(saveDirectory + relativePath);
-				} else if (!relPathAndSizeChecked) {
-					for (Map<String, String> pathAndSize : slideRelatedFiles) {
-						if (pathAndSize.get("Path").equals(rootPath + relativePath)) {
-							size = Long.parseLong(pathAndSize.get("Size"));
-							downloadFile = new File(saveDirectory);
-							relPathAndSizeChecked = true;
-						}
-					}
-				}
-				try {
-					String url = server + "transfer/Download" + "?sessionId="
-							+ sessionID + "&image=" + PMA.pmaQ(mainSlideFile) + "&path=" + PMA.pmaQ(relativePath);
-					URL urlResource = new URL(url);
-					if (url.startsWith("https")) {
-						con = (HttpsURLConnection) urlResource.openConnection();
-					} else {
-						con = (HttpURLConnection) urlResource.openConnection();
-					}
-
-					con.setConnectTimeout(0); // infinite timeout
-					con.setReadTimeout(0); // infinite timeout
-					con.setRequestMethod("GET");
-					con.setRequestProperty("Connection", "Keep-Alive");
-					con.setRequestProperty("Cache-Control", "no-cache");
-					con.setDoOutput(true);
-					con.setUseCaches(false);
-					con.connect();
-					if (con.getResponseCode() == 303) {
-						url = con.getHeaderField("Location");
-						urlResource = new URL(url);
-						con.disconnect();
-						con = null;
-						if (url.startsWith("https")) {
-							con = (HttpsURLConnection) urlResource.openConnection();
-						} else {
-							con = (HttpURLConnection) urlResource.openConnection();
-						}
-						con.setConnectTimeout(0); // infinite timeout
-						con.setReadTimeout(0); // infinite timeout
-						con.setRequestMethod("GET");
-						con.setRequestProperty("Connection", "Keep-Alive");
-						con.setRequestProperty("Cache-Control", "no-cache");
-						con.setDoOutput(true);
-						con.setUseCaches(false);
-						con.connect();
-					}
-					inputStreamToRequestBody = new DataInputStream(con.getInputStream());
-					outputStreamToLogFile = new FileOutputStream(downloadFile);
-					outputStreamToLogFile = progressCallback != null
-							? new ProgressHttpEntityWrapper.ProgressFilterOutputStream(
-							outputStreamToLogFile, progressCallback, size, relativePath)
-							: outputStreamToLogFile;
-					byte[] buffer = new byte[4 * 1024];
-					int bytesRead = -1;
-					long totalBytesRead = 0;
-					while ((bytesRead = inputStreamToRequestBody.read(buffer)) != -1) {
-						bytes.put((long) bytesRead);
-						System.out.println(relativePath + " " + totalBytesRead);
-						outputStreamToLogFile.write(buffer, 0, bytesRead);
-						totalBytesRead += bytesRead;
-					}
-				} catch (Exception e) {
-					e.printStackTrace();
-					if (inputStreamToRequestBody != null) {
-						inputStreamToRequestBody.close();
-					}
-					if (outputStreamToLogFile != null) {
-						outputStreamToLogFile.flush();
-						outputStreamToLogFile.close();
-					}
-					con.getResponseCode();
-					return false;
-				}
-				if (relPathAndSizeChecked) {
-					break;
+		String relativePath = varargs.length > 4 ? (String) varargs[4] : null;
+		sessionID = sessionId(sessionID);
+		SlideDownloader downloader = new SlideDownloader(sessionID);
+		try {
+			if (relativePath != null) {
+				// saveDirectory is the full path of the file to write
+				downloader.downloadFile(mainSlideFile, relativePath,
+						new File(saveDirectory.replaceAll("[\\\\/]+$", "")), progressCallback);
+			} else {
+				File directory = new File(saveDirectory);
+				if (new File(directory, Core.getSlideFileName(mainSlideFile)).exists()) {
+					throw new Exception(" A file with the same name: " + Core.getSlideFileName(mainSlideFile)
+							+ " already exists in the selected folder.");
 				}
+				downloader.download(mainSlideFile, directory, progressCallback);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			if (PMA.logger != null) {
+				StringWriter sw = new StringWriter();
+				e.printStackTrace(new PrintWriter(sw));
+				PMA.logger.severe(sw.toString());
 			}
-			inputStreamToRequestBody.close();
-			outputStreamToLogFile.flush();
-			outputStreamToLogFile.close();
-			con.getResponseCode();
+			return false;
 		}
 		return true;
 	}
@@ -4920,165 +5891,7 @@ public class Core {
 			targetFolder = targetFolder.substring(1);
 		}
 		if (varargs == null) {
-			for (String slide : Core.getSlides(targetFolder, sessionID)) {
-				if (slide.equals(targetFolder + Core.getSlideFileName(localSourceSlide))) {
-					throw new Exception("The file: ===" +  Core.getSlideFileName(localSourceSlide) +"=== with the same name and extension already exists in the target folder: " + targetFolder);
-				}
-			}
-
-			Map<String, Map<String, String>> files = Core.getFilesForSlide(localSourceSlide, pmaCoreLiteSessionID);
-
-			String mainDirectory = "";
-			for (Map.Entry<String, Map<String, String>> entry : files.entrySet()) {
-				String key = entry.getKey();
-				Map<String, String> value = entry.getValue();
-				File file = new File(key);
-				String md = file.getParent();
-
-				if (mainDirectory.length() == 0 || md.length() < mainDirectory.length()) {
-					mainDirectory = md;
-				}
-			}
-
-			mainDirectory = mainDirectory.replace("\\", "/");
-
-			List<HashMap<String, String>> uploadFiles = new ArrayList<HashMap<String, String>>();
-			for (Map.Entry<String, Map<String, String>> entry : files.entrySet()) {
-				String key = entry.getKey();
-				Map<String, String> value = entry.getValue();
-				long s = (new File(key)).length();
-				if (s <= 0) {
-					continue;
-				}
-				String path = key.replace(mainDirectory, "").replaceAll("^\\+|\\+$/g", "")
-						.replaceAll("^/+|/+$/g", "");
-				HashMap<String, String> fileObj = new HashMap<String, String>();
-				fileObj.put("Path", path);
-				fileObj.put("Length", Long.toString(s));
-				fileObj.put("IsMain", Boolean.toString(path.equals(Core.getSlideFileName(localSourceSlide))));
-				fileObj.put("FullPath", key);
-				uploadFiles.add(fileObj);
-			}
-			JSONObject data = new JSONObject();
-			data.put("Path", targetFolder);
-			data.put("Files", new JSONArray(uploadFiles));
-			String url = pmaUrl(sessionID) + "transfer/Upload?sessionID=" + PMA.pmaQ((sessionID));
-
-			URL urlResource = new URL(url);
-			URLConnection con = urlResource.openConnection();
-			HttpURLConnection http = (HttpURLConnection) con;
-			http.setRequestMethod("POST");
-			http.setDoOutput(true);
-
-			byte[] out = data.toString().getBytes(StandardCharsets.UTF_8);
-			int length = out.length;
-
-			http.setFixedLengthStreamingMode(length);
-			http.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-			http.connect();
-			try (OutputStream os = http.getOutputStream()) {
-				os.write(out);
-			}
-
-			int rCode = http.getResponseCode();
-			if (rCode != HttpURLConnection.HTTP_OK) {
-				throw new Exception("Error uploading file to PMA.core");
-			}
-
-			String jsonString = PMA.getJSONAsStringBuffer(http).toString();
-			if (!PMA.isJSONObject(jsonString)) {
-				throw new Exception("Error uploading " + localSourceSlide + " to PMA.core");
-			}
-
-			JSONObject uploadHeader = PMA.getJSONObjectResponse(jsonString);
-			int i = 0;
-			String uploadUrl;
-			JSONArray jsonarray;
-			for (HashMap<String, String> entry : uploadFiles) {
-				File file = new File(entry.get("FullPath"));
-				String fileName = FilenameUtils.getName(entry.get("Path"));
-
-				List<FormBodyPart> list = new ArrayList<FormBodyPart>();
-				list.add(new FormBodyPart(fileName, new FileBody(file)));
-				HttpCustomMultipart form = new HttpCustomMultipart("form-data", null, "----", list);
-				HttpEntity entity = new MultipartCustomEntity(form, "", form.getTotalLength());
-
-				uploadUrl = pmaUrl(sessionID) + "transfer/Upload/" + uploadHeader.get("Id").toString()
-						+ "?sessionID="
-						+ PMA.pmaQ((sessionID)) + "&path=" +
-						PMA.pmaQ(entry.get("Path"));
-				HttpRequestBase request = null;
-				if (uploadHeader.getInt("UploadType") == 1) {
-					// Amazon upload
-					jsonarray = uploadHeader.getJSONArray("Urls");
-					uploadUrl = jsonarray.getString(i);
-					request = (HttpRequestBase) new HttpPut(uploadUrl);
-					request.setHeader("Content-Type", "multipart/form-data");
-					if (progressCallback == null) {
-						((HttpPut) request).setEntity(entity);
-					} else {
-						((HttpPut) request).setEntity(new ProgressHttpEntityWrapper(entity, entry.get("Path").toString(), progressCallback));
-					}
-				} else if (uploadHeader.getInt("UploadType") == 2) {
-					// Azure upload
-					jsonarray = uploadHeader.getJSONArray("Urls");
-					uploadUrl = jsonarray.getString(i);
-					request = (HttpRequestBase) new HttpPut(uploadUrl);
-					if (progressCallback == null) {
-						((HttpPut) request).setEntity(entity);
-					} else {
-						((HttpPut) request).setEntity(new ProgressHttpEntityWrapper(entity, entry.get("Path").toString(), progressCallback));
-					}
-					request.setHeader("x-ms-blob-type", "BlockBlob");
-					request.setHeader("Content-Type", "multipart/form-data");
-				} else {
-					entity = MultipartEntityBuilder.create()
-							.setMode(HttpMultipartMode.STRICT)
-							.addPart(fileName, new FileBody(file))
-							.build();
-					request = (HttpRequestBase) new HttpPost(uploadUrl);
-					if (progressCallback == null) {
-						((HttpPost) request).setEntity(entity);
-					} else {
-						((HttpPost) request).setEntity(new ProgressHttpEntityWrapper(entity, entry.get("Path").toString(), progressCallback));
-					}
-				}
-
-				HttpRequestInterceptor requestInterceptor = new HttpRequestInterceptor() {
-					@Override
-					public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
-						if (uploadHeader.getInt("UploadType") == 0){
-							return;
-						}
-
-						if (request.containsHeader("Content-Length")) {
-							request.removeHeaders("Content-Length");
-						}
-
-						request.addHeader("Content-Length", entry.get("Length").toString());
-					}
-				};
-
-				HttpClient client = HttpClientBuilder.create()
-						.addInterceptorLast(requestInterceptor)
-						.disableContentCompression()
-						.setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE).disableAutomaticRetries().build();
-
-				HttpResponse response = client.execute(request);
-
-				String uploadResult = IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8);
-				i++;
-			}
-			String finalizeUrl = pmaUrl(sessionID) + "transfer/Upload/" + uploadHeader.get("Id").toString() + "?sessionID="
-					+ PMA.pmaQ(sessionID);
-			HttpGet finalizeRequest = new HttpGet(finalizeUrl);
-			HttpClient client = HttpClientBuilder.create().setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE).build();
-			HttpResponse response = client.execute(finalizeRequest);
-			int responseCode = response.getStatusLine().getStatusCode();
-			if (responseCode < 200 || responseCode >= 300) {
-				String result = IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8);
-				throw new Exception("Error uploading" + result);
-			}
+			new SlideUploader(sessionID).upload(localSourceSlide, targetFolder, progressCallback);
 			return true;
 		}
 		else {
@@ -5108,7 +5921,7 @@ public class Core {
 			String boundary = "*****";
 			String crlf = "\r\n";
 			String twoHyphens = "--";
-			int BUFFER_SIZE = 4 * 1024;
+			int BUFFER_SIZE = FileChannelEntity.DEFAULT_CHUNK_SIZE;
 			byte[] buffer = new byte[BUFFER_SIZE];
 			int bytesRead = -1;
 			long totalBytesRead = 0;
@@ -5148,7 +5961,6 @@ public class Core {
 						bytes.put((long) bytesRead);
 						outputStreamToRequestBody.write(buffer, 0, bytesRead);
 						totalBytesRead += bytesRead;
-						System.out.println(relativePath + " " + totalBytesRead);
 					}
 					if (relativePath.contains(".ini")) {
 						((DataOutputStream) outputStreamToRequestBody).writeBytes(crlf);
@@ -5208,7 +6020,6 @@ public class Core {
 						bytes.put((long) bytesRead);
 						outputStreamToRequestBody.write(buffer, 0, bytesRead);
 						totalBytesRead += bytesRead;
-						System.out.println(relativePath + " " + totalBytesRead);
 					}
 					outputStreamToRequestBody.flush();
 					outputStreamToRequestBody.close();
@@ -5259,7 +6070,6 @@ public class Core {
 						bytes.put((long) bytesRead);
 						outputStreamToRequestBody.write(buffer, 0, bytesRead);
 						totalBytesRead += bytesRead;
-						System.out.println(relativePath + " " + totalBytesRead);
 					}
 					outputStreamToRequestBody.flush();
 					outputStreamToRequestBody.close();
@@ -5285,6 +6095,57 @@ public class Core {
 		return true;
 	}
 
+	/**
+	 * This method is used to upload all files of a local slide to PMA.core while
+	 * journaling the state of the upload to disk. If the upload is interrupted,
+	 * even by a JVM restart, resumeUpload() continues it from the journal
+	 *
+	 * @param localSourceSlide this is the full path of the slide including the extension.
+	 * @param targetFolder this is the full path to the remote folder to a PMA.core server.
+	 * @param sessionID is a required income parameter!
+	 * @param journal file the state of the upload is written to; it's deleted once the upload is done
+	 * @param progressCallback optional parameter, it must be null if not needed.
+	 * @return true if upload is done
+	 * @throws Exception if a file can't be uploaded; the journal is kept
+	 */
+	public static boolean uploadResumable(String localSourceSlide, String targetFolder, String sessionID, File journal,
+			ProgressHttpEntityWrapper.ProgressCallback progressCallback) throws Exception {
+		sessionID = sessionId(sessionID);
+		if (!pmaIsLite()) {
+			throw new RuntimeException("No PMA.start found on localhost. Are you sure it is running?");
+		} else if (localSourceSlide == null) {
+			throw new RuntimeException("Slide name is empty");
+		} else if (targetFolder == null) {
+			throw new RuntimeException("Target destination  cannot be empty");
+		} else if (journal == null) {
+			throw new RuntimeException("Journal file cannot be empty");
+		}
+		SlideUploader uploader = new SlideUploader(sessionID);
+		uploader.setJournal(journal);
+		uploader.upload(localSourceSlide, targetFolder, progressCallback);
+		return true;
+	}
+
+	/**
+	 * This method is used to continue an upload started with uploadResumable().
+	 * Only the files the server doesn't have yet are sent again
+	 *
+	 * @param journal journal of the upload
+	 * @param sessionID session's ID, it must be a session of the server the upload was started on
+	 * @param progressCallback optional parameter, it must be null if not needed.
+	 * @return true if upload is done
+	 * @throws Exception if the journal can't be read or a file can't be uploaded; the journal is kept
+	 */
+	public static boolean resumeUpload(File journal, String sessionID,
+			ProgressHttpEntityWrapper.ProgressCallback progressCallback) throws Exception {
+		sessionID = sessionId(sessionID);
+		if (journal == null || !journal.isFile()) {
+			throw new RuntimeException("Journal file not found: " + journal);
+		}
+		new SlideUploader(sessionID).resumeUpload(journal, progressCallback);
+		return true;
+	}
+
 	/**
 	 *
 	 * This method will check the remote folder for a slide with the same name
@@ -5307,6 +6168,17 @@ public class Core {
 				}
 			}
 		}
+		return filesToUpload(localSourceSlide);
+	}
+
+	/**
+	 * This method is used to list the local files of a slide to upload, largest
+	 * first, with their path relative to the slide's main directory
+	 *
+	 * @param localSourceSlide slide's local path
+	 * @return uploadFiles
+	 */
+	static List<HashMap<String, String>> filesToUpload(String localSourceSlide) {
 		Map<String, Map<String, String>> files = Core.getFilesForSlide(localSourceSlide, pmaCoreLiteSessionID);
 
 		String mainDirectory = "";
@@ -5380,19 +6252,10 @@ public class Core {
 	 * @param relativePath
 	 * @return
 	 */
-	private static boolean _pma_checkUploadedFile(String sessionID, String uploadID, String relativePath) {
+	static boolean _pma_checkUploadedFile(String sessionID, String uploadID, String relativePath) {
 		try {
 			String url = (pmaUrl(sessionID).endsWith("/") ? pmaUrl(sessionID) : pmaUrl(sessionID) + "/") + "transfer/Upload/" + uploadID + "?sessionID=" + sessionID;
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("GET");
-			con.setRequestProperty("Accept", "application/json");
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = transport(sessionID).getString(url, "application/json");
 			if (PMA.isJSONObject(jsonString)) {
 				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
 				JSONArray jsonArray = jsonResponse.optJSONArray("Files");
@@ -5421,24 +6284,7 @@ public class Core {
 		String json = String.valueOf(jsonResponse);
 		try {
 			String url = (pmaUrl(sessionID).endsWith("/") ? pmaUrl(sessionID) : pmaUrl(sessionID) + "/") + "transfer/Upload?sessionID=" + sessionID;
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestProperty("Content-Length", String.valueOf(json.getBytes("UTF-8")));
-			con.setRequestMethod("POST");
-			con.setRequestProperty("Accept", "application/json");
-			con.setRequestProperty("Content-Type", "application/json");
-			con.setUseCaches(false);
-			con.setDoOutput(true);
-			// we set the json string as the request body
-			OutputStream os = con.getOutputStream();
-			os.write(json.getBytes("UTF-8"));
-			os.close();
-			return PMA.getJSONAsStringBuffer(con).toString();
+			return transport(sessionID).postString(url, "application/json", json, "application/json");
 		} catch (Exception e) {
 			e.printStackTrace();
 			return null;
@@ -5454,9 +6300,7 @@ public class Core {
 	 * @return boolean
 	 */
 	public static Boolean addServer(String sessionId, String url, int length) {
-		pmaSessions.put(sessionId, url);
-		pmaSlideInfos.put(sessionId, new HashMap<String, Object>());
-		pmaAmountOfDataDownloaded.put(sessionId, length);
+		registerSession(sessionId, url, null, length);
 
 		return true;
 	}
@@ -2,14 +2,11 @@ package com.pathomation;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
-import javax.net.ssl.HttpsURLConnection;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.*;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
 import java.util.List;
 import java.util.stream.Collectors;
 import static com.pathomation.Core.pmaUrl;
@@ -143,31 +140,32 @@ public class CoreAdmin {
 	 * @return Data returned following a request to a specific URL
 	 */
 	public static String httpPost(String url, String data) {
+		return httpPost(null, url, data);
+	}
+
+	/**
+	 * This method is used to post to a URL on behalf of a session, through the
+	 * HTTP transport of the session's client
+	 *
+	 * @param sessionID session's ID, null to use the default transport
+	 * @param url       URL to request
+	 * @param data      JSON input
+	 * @return Data returned following a request to a specific URL
+	 */
+	private static String httpPost(String sessionID, String url, String data) {
 		if (PMA.debug) {
 			System.out.println("Posting to " + url);
 			System.out.println("with paylod " + data);
 		}
 		try {
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("POST");
-			con.setRequestProperty("Content-Type", "application/json");
-			con.setRequestProperty("Accept", "application/json");
-			con.setUseCaches(true);
-			con.setDoOutput(true);
-			OutputStream os = con.getOutputStream();
-			os.write(data.getBytes("UTF-8"));
-			os.close();
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = Core.transport(sessionID).postString(url, "application/json", data, "application/json");
 			if (PMA.debug && jsonString.contains("Code")) {
 				System.out.println(jsonString);
 			} else {
-				PMA.clearURLCache();
+				// only the responses of this server can be affected
+				int admin = url.indexOf("/admin/");
+				Core.invalidateURLCache(sessionID,
+						admin >= 0 ? url.substring(0, admin + 1) : url.substring(0, url.lastIndexOf('/') + 1));
 			}
 			return jsonString;
 		} catch (Exception e) {
@@ -223,12 +221,7 @@ public class CoreAdmin {
 				JSONObject loginResult = PMA.getJSONObjectResponse(jsonString);
 				if (loginResult.get("Success").toString().toLowerCase().equals("true")) {
 					admSessionID = loginResult.getString("SessionId");
-					Core.getPmaSessions().put(admSessionID, pmaCoreURL);
-					Core.getPmaUsernames().put(admSessionID, pmaCoreAdmUsername);
-					if (!Core.getPmaSlideInfos().containsKey(admSessionID)) {
-						Core.getPmaSlideInfos().put(admSessionID, new HashMap<String, Object>());
-					}
-					Core.getPmaAmountOfDataDownloaded().put(admSessionID, loginResult.length());
+					Core.registerSession(admSessionID, pmaCoreURL, pmaCoreAdmUsername, loginResult.length());
 				} else {
 					admSessionID = null;
 				}
@@ -292,7 +285,7 @@ public class CoreAdmin {
 			String url = adminUrl(admSessionID, false) + "EmailPassword";
 			String reminderParams = "{\"username\": \"" + login + "\", \"subject\": \"" + subject
 					+ "\",\"messageTemplate\": \"\"" + "}";
-			String reminderResponse = httpPost(url, reminderParams);
+			String reminderResponse = httpPost(admSessionID, url, reminderParams);
 			return reminderResponse;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -337,7 +330,7 @@ public class CoreAdmin {
 					+ isAdmin + "," + "\"isSuspended\": " + isSuspended + "," + "\"CanAnnotate\": " + canAnnotate + "}"
 					+ "}";
 
-			String jsonString = httpPost(url, input);
+			String jsonString = httpPost(admSessionID, url, input);
 			if (PMA.isJSONObject(jsonString) && PMA.getJSONObjectResponse(jsonString).has("Code")) {
 				if (PMA.debug) {
 					System.out.println(jsonString);
@@ -385,7 +378,7 @@ public class CoreAdmin {
 		String url = adminUrl(admSessionID, false) + "SearchUsers?source=Local" + "&SessionID=" + PMA.pmaQ(admSessionID)
 				+ "&query=" + PMA.pmaQ(query);
 		try {
-			String jsonString = PMA.httpGet(url, "application/json");
+			String jsonString = Core.httpGet(admSessionID, url, "application/json");
 			if (PMA.isJSONArray(jsonString)) {
 				JSONArray results = PMA.getJSONArrayResponse(jsonString);
 				for (int i = 0; i < results.length(); i++) {
@@ -420,7 +413,7 @@ public class CoreAdmin {
 		String url = adminUrl(sessionID, false) + "ResetPassword?sessionID=" + sessionID + "&username=" + username
 				+ "&newPassword=" + newPassword;
 		try {
-			String jsonString = PMA.httpGet(url, "application/json");
+			String jsonString = Core.httpGet(sessionID, url, "application/json");
 			if (PMA.isJSONObject(jsonString) && PMA.getJSONObjectResponse(jsonString).has("Code")) {
 				if (PMA.debug) {
 					System.out.println(jsonString);
@@ -457,45 +450,7 @@ public class CoreAdmin {
 		out.println(urlS + "   urlS");
 		String data = "{ \"sessionID\": \"" + sessionID + "\", \"path\": \"" + path + "\" }";
 		out.println(data + "   data");
-		String jsonString = httpPost(urlS, data);
-
-		URL url = null;
-		try {
-			url = new URL(urlS);
-		} catch (MalformedURLException e) {
-			throw new RuntimeException(e);
-		}
-		URLConnection con = null;
-		try {
-			con = url.openConnection();
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
-		HttpURLConnection http = (HttpURLConnection) con;
-		try {
-			http.setRequestMethod("POST"); // PUT is another valid option
-		} catch (ProtocolException e) {
-			throw new RuntimeException(e);
-		}
-		http.setDoOutput(true);
-		out.println(con);
-		out.println(http);
-
-		byte[] out = data.toString().getBytes(StandardCharsets.UTF_8);
-		int length = out.length;
-		System.out.println(length);
-
-		http.setFixedLengthStreamingMode(length);
-		http.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-		try {
-			http.connect();
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
-		try (OutputStream os = http.getOutputStream()) {
-			os.write(out);
-			System.out.println(os);
-		}
+		httpPost(sessionID, urlS, data);
 		return true;
 	}
 
@@ -516,13 +471,14 @@ public class CoreAdmin {
 			String url = adminUrl(admSessionID, false) + "RenameDirectory";
 			String payload = "{ \"sessionID\": \"" + admSessionID + "\", \"path\": \"" + originalPath
 					+ "\", \"newName\":\"" + newName + "\" }";
-			String jsonString = httpPost(url, payload);
+			String jsonString = httpPost(admSessionID, url, payload);
 			if (PMA.isJSONObject(jsonString) && PMA.getJSONObjectResponse(jsonString).has("Code")) {
 				if (PMA.debug) {
 					System.out.println(jsonString);
 				}
 				return false;
 			}
+			Core.slideChanged(admSessionID, originalPath, true);
 			// Sanity check : no slides should be found anymore in the original directory
 			if (Core.getSlides(originalPath, admSessionID) == null) {
 				// This means the original directory is no longer available. So that's GOOD :-)
@@ -556,14 +512,15 @@ public class CoreAdmin {
 			}
 			String url = adminUrl(admSessionID, false) + "DeleteDirectory";
 			String payload = "{ \"sessionID\": \"" + admSessionID + "\", \"path\": \"" + path + "\" }";
-			httpPost(url, payload);
-			String jsonString = httpPost(url, payload);
+			httpPost(admSessionID, url, payload);
+			String jsonString = httpPost(admSessionID, url, payload);
 			if (PMA.isJSONObject(jsonString) && PMA.getJSONObjectResponse(jsonString).has("Code")) {
 				if (PMA.debug) {
 					System.out.println(jsonString);
 				}
 				return false;
 			}
+			Core.slideChanged(admSessionID, path, true);
 			// Sanity check : no slides should be found anymore in the original directory
 			if (Core.getSlides(path, admSessionID) == null) {
 				// This means the original directory is no longer available. So that's GOOD :-)
@@ -607,7 +564,7 @@ public class CoreAdmin {
 			if (PMA.debug) {
 				System.out.print(url);
 			}
-			String jsonString = PMA.httpGet(url, "application/json");
+			String jsonString = Core.httpGet(admSessionID, url, "application/json");
 			if (PMA.isJSONObject(jsonString) && PMA.getJSONObjectResponse(jsonString).has("Code")) {
 				if (PMA.debug) {
 					System.out.println(jsonString);
@@ -653,7 +610,7 @@ public class CoreAdmin {
 			if (PMA.debug) {
 				System.out.print(url);
 			}
-			String jsonString = PMA.httpGet(url, "application/json");
+			String jsonString = Core.httpGet(admSessionID, url, "application/json");
 			if (PMA.isJSONObject(jsonString) && PMA.getJSONObjectResponse(jsonString).has("Code")) {
 				if (PMA.debug) {
 					System.out.println(jsonString);
@@ -691,13 +648,14 @@ public class CoreAdmin {
 			String url = adminUrl(admSessionID, false) + "RenameSlide";
 			String payload = "{ \"sessionID\": \"" + admSessionID + "\", \"path\": \"" + originalPath
 					+ "\", \"newName\":\"" + newName + "\" }";
-			String jsonString = httpPost(url, payload);
+			String jsonString = httpPost(admSessionID, url, payload);
 			if (PMA.isJSONObject(jsonString) && PMA.getJSONObjectResponse(jsonString).has("Code")) {
 				if (PMA.debug) {
 					System.out.println(jsonString);
 				}
 				return false;
 			} else if (jsonString.equals("true")) {
+				Core.slideChanged(admSessionID, originalPath, false);
 				return true;
 			} else {
 				return false;
@@ -728,13 +686,14 @@ public class CoreAdmin {
 			}
 			String url = adminUrl(admSessionID, false) + "DeleteSlide";
 			String payload = "{ \"sessionID\": \"" + admSessionID + "\", \"path\": \"" + path + "\" }";
-			String jsonString = httpPost(url, payload);
+			String jsonString = httpPost(admSessionID, url, payload);
 			if (PMA.isJSONObject(jsonString) && PMA.getJSONObjectResponse(jsonString).has("Code")) {
 				if (PMA.debug) {
 					System.out.println(jsonString);
 				}
 				return false;
 			}
+			Core.slideChanged(admSessionID, path, false);
 			return true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -834,17 +793,6 @@ public class CoreAdmin {
 		try {
 			String url = adminUrl(admSessionID, false) + "CreateRootDirectory";
 			System.out.println(url);
-			URL urlResource = new URL(url);
-			HttpURLConnection con;
-			if (url.startsWith("https")) {
-				con = (HttpsURLConnection) urlResource.openConnection();
-			} else {
-				con = (HttpURLConnection) urlResource.openConnection();
-			}
-			con.setRequestMethod("POST");
-			con.setRequestProperty("Content-Type", "application/json");
-			con.setUseCaches(true);
-			con.setDoOutput(true);
 			String input = "{" + "\"sessionID\": \"" + admSessionID + "\"," + "\"rootDirectory\": {" + "\"Alias\": \""
 					+ alias + "\"," + "\"Description\": \"" + description + "\"," + "\"Offline\": " + isOffline + ","
 					+ "\"Public\": " + isPublic;
@@ -860,10 +808,7 @@ public class CoreAdmin {
 				input += ", \"FileSystemMountingPoints\" :" + fileSystemMountingPointsForJson;
 			}
 			input += "}" + "}";
-			OutputStream os = con.getOutputStream();
-			os.write(input.getBytes("UTF-8"));
-			os.close();
-			String jsonString = PMA.getJSONAsStringBuffer(con).toString();
+			String jsonString = Core.transport(admSessionID).postString(url, "application/json", input, null);
 			return jsonString;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -0,0 +1,511 @@
+package com.pathomation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent tile cache. Tiles are appended to memory-mapped segment files of a
+ * fixed size in a directory, and looked up through an in-memory index that is
+ * rebuilt from the segments when the cache is opened, so the cache survives
+ * restarts of the JVM. When the directory grows beyond its size limit, the
+ * oldest segment is dropped as a whole.
+ * <p>
+ * Tiles are keyed by the fingerprint of their slide. As the cache outlives the
+ * process, the last modification date of each slide is stored along with its
+ * tiles, and tiles looked up for a slide whose date has changed since are
+ * dropped. Dropping the tiles of a slide (invalidate()) is recorded in the
+ * segments as well, so they don't come back when the cache is reopened; the
+ * space itself is reclaimed when their segment ages out
+ * </p>
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class DiskTileCache implements TileCache, Closeable {
+
+	/**
+	 * Default size of a segment file (64 MB)
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private static final String SEGMENT_EXTENSION = ".seg";
+	// record types: a tile, the modification date of a slide, and dropped tiles
+	private static final int MAGIC = 0x504D4154;
+	private static final int SLIDE_MAGIC = 0x504D4153;
+	private static final int TOMBSTONE_MAGIC = 0x504D4158;
+	// magic, key length, data length, crc
+	private static final int HEADER_SIZE = 16;
+
+	private final File directory;
+	private final long maxBytes;
+	private final int segmentSize;
+	private final Map<TileKey, Location> index = new ConcurrentHashMap<>();
+	// slides with tiles in the cache, by fingerprint
+	private final Map<String, Slide> slides = new ConcurrentHashMap<>();
+	private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+	private Segment active = null;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder puts = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Opens (or creates) a cache with the default segment size
+	 *
+	 * @param directory Directory to store the segment files in
+	 * @param maxBytes  Maximum size (in bytes) of the segment files together
+	 * @throws IOException if the directory or its segments can't be opened
+	 */
+	public DiskTileCache(File directory, long maxBytes) throws IOException {
+		this(directory, maxBytes, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Opens (or creates) a cache
+	 *
+	 * @param directory   Directory to store the segment files in
+	 * @param maxBytes    Maximum size (in bytes) of the segment files together
+	 * @param segmentSize Size (in bytes) of a segment file
+	 * @throws IOException if the directory or its segments can't be opened
+	 */
+	public DiskTileCache(File directory, long maxBytes, int segmentSize) throws IOException {
+		if (segmentSize <= HEADER_SIZE) {
+			throw new IllegalArgumentException("segmentSize is too small");
+		}
+		if (maxBytes < segmentSize) {
+			throw new IllegalArgumentException("maxBytes must be at least one segment");
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create tile cache directory " + directory);
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.segmentSize = segmentSize;
+		open();
+	}
+
+	/**
+	 * @return the directory the segment files are stored in
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the maximum size (in bytes) of the segment files together
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	private void open() throws IOException {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_EXTENSION));
+		List<Long> ids = new ArrayList<>();
+		if (files != null) {
+			for (File file : files) {
+				try {
+					String name = file.getName();
+					ids.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_EXTENSION.length())));
+				} catch (NumberFormatException e) {
+					// not one of ours
+				}
+			}
+		}
+		Long[] sorted = ids.toArray(new Long[0]);
+		Arrays.sort(sorted);
+		for (Long id : sorted) {
+			Segment segment = new Segment(segmentFile(id));
+			segments.put(id, segment);
+			scan(segment);
+			active = segment;
+		}
+		evict();
+	}
+
+	/**
+	 * This method rebuilds the index entries of a segment. Records are only
+	 * considered once their header is written (after their content), so a record
+	 * that was being written when the JVM stopped is ignored
+	 */
+	private void scan(Segment segment) {
+		ByteBuffer buffer = segment.buffer.duplicate();
+		int position = 0;
+		while (position + HEADER_SIZE <= buffer.limit()) {
+			buffer.position(position);
+			int magic = buffer.getInt();
+			if (magic != MAGIC && magic != SLIDE_MAGIC && magic != TOMBSTONE_MAGIC) {
+				break;
+			}
+			int keyLength = buffer.getInt();
+			int dataLength = buffer.getInt();
+			int crc = buffer.getInt();
+			int recordLength = HEADER_SIZE + keyLength + dataLength;
+			if (keyLength <= 0 || dataLength < 0 || position + recordLength > buffer.limit()) {
+				break;
+			}
+			byte[] record = new byte[keyLength + dataLength];
+			buffer.get(record);
+			CRC32 checksum = new CRC32();
+			checksum.update(record);
+			if ((int) checksum.getValue() != crc) {
+				break;
+			}
+			try {
+				if (magic == MAGIC) {
+					TileKey key = readKey(Arrays.copyOf(record, keyLength));
+					index.put(key, new Location(segment, position + HEADER_SIZE + keyLength, dataLength));
+					slides.putIfAbsent(key.getFingerprint(), new Slide(null, null));
+				} else {
+					String fingerprint = new DataInputStream(new ByteArrayInputStream(record, 0, keyLength)).readUTF();
+					if (magic == SLIDE_MAGIC) {
+						String lastModified = new String(record, keyLength, dataLength, StandardCharsets.UTF_8);
+						slides.put(fingerprint, new Slide(lastModified, segment));
+					} else {
+						// only drops the tiles recorded before it
+						drop(fingerprint);
+					}
+				}
+			} catch (IOException e) {
+				break;
+			}
+			position += recordLength;
+		}
+		segment.position = position;
+	}
+
+	private File segmentFile(long id) {
+		return new File(directory, String.format("%012d", id) + SEGMENT_EXTENSION);
+	}
+
+	@Override
+	public byte[] get(TileKey key) {
+		Location location = index.get(key);
+		if (location != null && location.segment.evicted) {
+			index.remove(key, location);
+			location = null;
+		}
+		if (location == null) {
+			misses.increment();
+			return null;
+		}
+		ByteBuffer buffer = location.segment.buffer.duplicate();
+		buffer.position(location.offset);
+		byte[] data = new byte[location.length];
+		buffer.get(data);
+		hits.increment();
+		return data;
+	}
+
+	/**
+	 * This method is used to look up a tile, dropping all tiles of its slide when
+	 * they were stored for another modification date of the slide (or for an
+	 * unknown one)
+	 *
+	 * @param key          Tile key
+	 * @param lastModified Last modification date of the slide, null to skip the
+	 *                     check
+	 * @return Encoded tile, null if the tile isn't cached
+	 */
+	@Override
+	public byte[] get(TileKey key, String lastModified) {
+		if (lastModified != null) {
+			Slide slide = slides.get(key.getFingerprint());
+			if (slide != null && !lastModified.equals(slide.lastModified)) {
+				invalidate(key.getFingerprint());
+				misses.increment();
+				return null;
+			}
+		}
+		return get(key);
+	}
+
+	@Override
+	public void put(TileKey key, byte[] data) {
+		put(key, data, null);
+	}
+
+	/**
+	 * This method is used to store a tile, recording the modification date of its
+	 * slide the first time (or when it changed)
+	 *
+	 * @param key          Tile key
+	 * @param data         Encoded tile
+	 * @param lastModified Last modification date of the slide, null if unknown
+	 */
+	@Override
+	public void put(TileKey key, byte[] data, String lastModified) {
+		if (data == null) {
+			return;
+		}
+		try {
+			byte[] keyBytes = writeKey(key);
+			if (HEADER_SIZE + keyBytes.length + data.length > segmentSize) {
+				return;
+			}
+			synchronized (this) {
+				String fingerprint = key.getFingerprint();
+				Slide slide = slides.get(fingerprint);
+				if (lastModified != null && (slide == null || !lastModified.equals(slide.lastModified))) {
+					if (slide != null) {
+						// tiles stored for another version of the slide
+						invalidate(fingerprint);
+					}
+					writeSlide(fingerprint, lastModified);
+				} else if (slide == null) {
+					slides.put(fingerprint, new Slide(null, null));
+				}
+				index.put(key, append(MAGIC, keyBytes, data));
+			}
+			puts.increment();
+		} catch (IOException e) {
+			e.printStackTrace();
+			if (PMA.logger != null) {
+				StringWriter sw = new StringWriter();
+				e.printStackTrace(new PrintWriter(sw));
+				PMA.logger.severe(sw.toString());
+			}
+		}
+	}
+
+	/**
+	 * This method appends a record to the active segment
+	 *
+	 * @return Location of the record's data
+	 */
+	private synchronized Location append(int magic, byte[] keyBytes, byte[] data) throws IOException {
+		int recordLength = HEADER_SIZE + keyBytes.length + data.length;
+		CRC32 checksum = new CRC32();
+		checksum.update(keyBytes);
+		checksum.update(data);
+		if (active == null || active.position + recordLength > active.buffer.limit()) {
+			roll();
+		}
+		ByteBuffer buffer = active.buffer.duplicate();
+		int position = active.position;
+		// content first, header last: a record only exists once it's complete
+		buffer.position(position + HEADER_SIZE);
+		buffer.put(keyBytes);
+		buffer.put(data);
+		buffer.position(position + 4);
+		buffer.putInt(keyBytes.length);
+		buffer.putInt(data.length);
+		buffer.putInt((int) checksum.getValue());
+		buffer.putInt(position, magic);
+		active.position = position + recordLength;
+		return new Location(active, position + HEADER_SIZE + keyBytes.length, data.length);
+	}
+
+	private synchronized void writeSlide(String fingerprint, String lastModified) throws IOException {
+		Location location = append(SLIDE_MAGIC, writeFingerprint(fingerprint),
+				lastModified.getBytes(StandardCharsets.UTF_8));
+		slides.put(fingerprint, new Slide(lastModified, location.segment));
+	}
+
+	/**
+	 * This method starts a new segment, and drops the oldest ones when the cache
+	 * grows beyond its size limit
+	 */
+	private void roll() throws IOException {
+		if (active != null) {
+			active.buffer.force();
+		}
+		long id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+		Segment segment = new Segment(segmentFile(id));
+		segments.put(id, segment);
+		active = segment;
+		evict();
+	}
+
+	private synchronized void evict() throws IOException {
+		while (segments.size() > 1 && (long) segments.size() * segmentSize > maxBytes) {
+			Map.Entry<Long, Segment> oldest = segments.pollFirstEntry();
+			Segment segment = oldest.getValue();
+			segment.evicted = true;
+			Set<String> remaining = new HashSet<>();
+			Iterator<Map.Entry<TileKey, Location>> it = index.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<TileKey, Location> entry = it.next();
+				if (entry.getValue().segment == segment) {
+					it.remove();
+					evictions.increment();
+				} else {
+					remaining.add(entry.getKey().getFingerprint());
+				}
+			}
+			// the mapping itself is released by the garbage collector
+			if (!segment.file.delete()) {
+				segment.file.deleteOnExit();
+			}
+			Iterator<Map.Entry<String, Slide>> slideIt = slides.entrySet().iterator();
+			while (slideIt.hasNext()) {
+				Map.Entry<String, Slide> entry = slideIt.next();
+				if (!remaining.contains(entry.getKey())) {
+					slideIt.remove();
+				} else if (entry.getValue().segment == segment) {
+					// the slide still has tiles, record its modification date again
+					writeSlide(entry.getKey(), entry.getValue().lastModified);
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method is used to drop all tiles of a slide. A record is written, so
+	 * they stay dropped when the cache is reopened
+	 *
+	 * @param fingerprint Fingerprint of the slide
+	 */
+	@Override
+	public synchronized void invalidate(String fingerprint) {
+		if (slides.containsKey(fingerprint)) {
+			try {
+				append(TOMBSTONE_MAGIC, writeFingerprint(fingerprint), new byte[0]);
+			} catch (IOException e) {
+				e.printStackTrace();
+				if (PMA.logger != null) {
+					StringWriter sw = new StringWriter();
+					e.printStackTrace(new PrintWriter(sw));
+					PMA.logger.severe(sw.toString());
+				}
+			}
+		}
+		drop(fingerprint);
+	}
+
+	private void drop(String fingerprint) {
+		slides.remove(fingerprint);
+		index.keySet().removeIf(key -> key.getFingerprint().equals(fingerprint));
+	}
+
+	@Override
+	public synchronized void clear() {
+		index.clear();
+		slides.clear();
+		for (Segment segment : segments.values()) {
+			segment.evicted = true;
+			if (!segment.file.delete()) {
+				segment.file.deleteOnExit();
+			}
+		}
+		segments.clear();
+		active = null;
+	}
+
+	@Override
+	public Stats getStats() {
+		long bytes = 0;
+		for (Segment segment : segments.values()) {
+			bytes += segment.position;
+		}
+		return new Stats(hits.sum(), misses.sum(), puts.sum(), evictions.sum(), index.size(), bytes);
+	}
+
+	/**
+	 * This method flushes the segments to disk
+	 */
+	@Override
+	public synchronized void close() {
+		for (Segment segment : segments.values()) {
+			segment.buffer.force();
+		}
+	}
+
+	private static byte[] writeKey(TileKey key) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(96);
+		DataOutputStream out = new DataOutputStream(bos);
+		out.writeUTF(key.getFingerprint());
+		out.writeInt(key.getX());
+		out.writeInt(key.getY());
+		out.writeInt(key.getZoomLevel());
+		out.writeInt(key.getZStack());
+		out.writeUTF(key.getFormat());
+		out.writeInt(key.getQuality());
+		out.flush();
+		return bos.toByteArray();
+	}
+
+	private static byte[] writeFingerprint(String fingerprint) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bos);
+		out.writeUTF(fingerprint);
+		out.flush();
+		return bos.toByteArray();
+	}
+
+	private static TileKey readKey(byte[] bytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		String fingerprint = in.readUTF();
+		int x = in.readInt();
+		int y = in.readInt();
+		int zoomLevel = in.readInt();
+		int zStack = in.readInt();
+		String format = in.readUTF();
+		int quality = in.readInt();
+		return new TileKey(fingerprint, x, y, zoomLevel, zStack, format, quality);
+	}
+
+	private class Segment {
+		private final File file;
+		private final MappedByteBuffer buffer;
+		private int position = 0;
+		private volatile boolean evicted = false;
+
+		Segment(File file) throws IOException {
+			this.file = file;
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				if (raf.length() < segmentSize) {
+					raf.setLength(segmentSize);
+				}
+				// the mapping stays valid once the channel is closed
+				buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+			}
+		}
+	}
+
+	private static class Slide {
+		// null if unknown, e.g. for tiles stored without it
+		private final String lastModified;
+		// segment the modification date is recorded in
+		private final Segment segment;
+
+		Slide(String lastModified, Segment segment) {
+			this.lastModified = lastModified;
+			this.segment = segment;
+		}
+	}
+
+	private static class Location {
+		private final Segment segment;
+		private final int offset;
+		private final int length;
+
+		Location(Segment segment, int offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
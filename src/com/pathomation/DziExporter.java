@@ -0,0 +1,417 @@
+package com.pathomation;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.imageio.ImageIO;
+
+/**
+ * Exports slides as DeepZoom (DZI) tile pyramids, ready to be served as static
+ * files (e.g. from a CDN) to viewers like OpenSeadragon. A slide "name" is
+ * written as "name.dzi" and a "name_files" directory with one sub-directory of
+ * "column_row.format" tiles per level.
+ * <p>
+ * The tiles of every zoom level of PMA.core are fetched in parallel (within
+ * the session's limit of concurrent requests, see
+ * Core.setMaxConcurrentRequests()) and stored as they are. The smallest
+ * DeepZoom levels, below PMA.core's zoom level 0, are scaled down from it.
+ * </p>
+ * <p>
+ * Exports are resumable: tiles are written under a temporary name and renamed
+ * once complete, and tiles that already exist are skipped, so running an
+ * interrupted export again only fetches what's missing. The .dzi manifest is
+ * written last
+ * </p>
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class DziExporter {
+
+	/**
+	 * Default maximum number of tiles fetched ahead of being written
+	 */
+	public static final int DEFAULT_PREFETCH = 64;
+
+	private final String sessionID;
+	private String format = "jpg";
+	private int quality = 100;
+	private int zStack = 0;
+	private int prefetch = DEFAULT_PREFETCH;
+
+	/**
+	 * Creates an exporter
+	 *
+	 * @param sessionID session's ID, null for the default session
+	 */
+	public DziExporter(String sessionID) {
+		this.sessionID = sessionID;
+	}
+
+	/**
+	 * This method is used to set the format of the tiles
+	 *
+	 * @param format "jpg" (default) or "png"
+	 */
+	public void setFormat(String format) {
+		if (!"jpg".equals(format) && !"png".equals(format)) {
+			throw new IllegalArgumentException("format must be jpg or png");
+		}
+		this.format = format;
+	}
+
+	/**
+	 * This method is used to set the quality the tiles are requested with
+	 *
+	 * @param quality Quality, from 0 to 100 (default 100)
+	 */
+	public void setQuality(int quality) {
+		if (quality < 0 || quality > 100) {
+			throw new IllegalArgumentException("quality must be between 0 and 100");
+		}
+		this.quality = quality;
+	}
+
+	/**
+	 * This method is used to set the z stack to export
+	 *
+	 * @param zStack Z stack (default 0)
+	 */
+	public void setZStack(int zStack) {
+		this.zStack = zStack;
+	}
+
+	/**
+	 * This method is used to set the maximum number of tiles fetched ahead of
+	 * being written, which bounds the memory used
+	 *
+	 * @param prefetch Number of tiles (default 64)
+	 */
+	public void setPrefetch(int prefetch) {
+		if (prefetch < 1) {
+			throw new IllegalArgumentException("prefetch must be at least 1");
+		}
+		this.prefetch = prefetch;
+	}
+
+	/**
+	 * This method is used to export several slides to a directory, one after the
+	 * other, each named after its file name (without extension). A slide that
+	 * fails doesn't stop the others
+	 *
+	 * @param slideRefs slides' paths
+	 * @param directory Directory to write the pyramids to
+	 * @return Statistics of the exports, with the slides that failed
+	 */
+	public Result exportAll(List<String> slideRefs, File directory) {
+		Result result = new Result();
+		for (String slideRef : slideRefs) {
+			try {
+				export(slideRef, directory, name(slideRef), result);
+			} catch (IOException | RuntimeException e) {
+				result.errors.put(slideRef, e);
+				if (PMA.logger != null) {
+					PMA.logger.warning("Export of " + slideRef + " failed: " + e.getMessage());
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * This method is used to export a slide, named after its file name (without
+	 * extension)
+	 *
+	 * @param slideRef  slide's path or UID
+	 * @param directory Directory to write the pyramid to
+	 * @return Statistics of the export
+	 * @throws IOException If the slide's information or a tile can't be
+	 *                     retrieved, or a file can't be written
+	 */
+	public Result export(String slideRef, File directory) throws IOException {
+		return export(slideRef, directory, name(slideRef));
+	}
+
+	/**
+	 * This method is used to export a slide
+	 *
+	 * @param slideRef  slide's path or UID
+	 * @param directory Directory to write the pyramid to
+	 * @param name      Name of the pyramid ("name.dzi" and "name_files")
+	 * @return Statistics of the export
+	 * @throws IOException If the slide's information or a tile can't be
+	 *                     retrieved, or a file can't be written
+	 */
+	public Result export(String slideRef, File directory, String name) throws IOException {
+		Result result = new Result();
+		export(slideRef, directory, name, result);
+		return result;
+	}
+
+	private void export(String slideRef, File directory, String name, Result result) throws IOException {
+		String sid = Core.sessionId(sessionID);
+		if (slideRef.startsWith("/")) {
+			slideRef = slideRef.substring(1);
+		}
+		SlideInfo info = Core.getTypedSlideInfo(slideRef, sid);
+		if (info == null || info.getTileSize() <= 0 || info.getMaxZoomLevel() < 0) {
+			throw new IOException("Unable to get information for " + slideRef);
+		}
+		int tileSize = info.getTileSize();
+		int maxZoomLevel = info.getMaxZoomLevel();
+		// DeepZoom levels go down to a single pixel
+		int maxLevel = (int) Math.ceil(Math.log(Math.max(info.getWidth(), info.getHeight())) / Math.log(2));
+		File files = new File(directory, name + "_files");
+
+		Semaphore window = new Semaphore(prefetch);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		final String ref = slideRef;
+		for (int zoom : Core.getZoomLevelsList(slideRef, sid)) {
+			int level = maxLevel - (maxZoomLevel - zoom);
+			if (level < 0) {
+				continue;
+			}
+			List<Integer> dimensions = Core.getPixelDimensions(slideRef, zoom, sid);
+			int tilesX = (dimensions.get(0) + tileSize - 1) / tileSize;
+			int tilesY = (dimensions.get(1) + tileSize - 1) / tileSize;
+			File levelDirectory = new File(files, Integer.toString(level));
+			levelDirectory.mkdirs();
+			for (int ty = 0; ty < tilesY && failure.get() == null; ty++) {
+				for (int tx = 0; tx < tilesX && failure.get() == null; tx++) {
+					File tile = new File(levelDirectory, tx + "_" + ty + "." + format);
+					if (tile.length() > 0) {
+						result.skipped.incrementAndGet();
+						continue;
+					}
+					try {
+						window.acquire();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						failure.compareAndSet(null, new InterruptedIOException("Export of " + ref + " interrupted"));
+						break;
+					}
+					Core.readTileAsync(ref, tx, ty, zoom, zStack, sid, format, quality).whenComplete((data, e) -> {
+						try {
+							if (e != null) {
+								failure.compareAndSet(null, e);
+							} else {
+								write(tile, data);
+								result.tiles.incrementAndGet();
+								result.bytes.addAndGet(data.length);
+							}
+						} catch (Throwable t) {
+							failure.compareAndSet(null, t);
+						} finally {
+							window.release();
+						}
+					});
+				}
+			}
+		}
+		// wait for the tiles in flight
+		window.acquireUninterruptibly(prefetch);
+		Throwable t = failure.get();
+		if (t != null) {
+			throw t instanceof IOException ? (IOException) t : new IOException("Export of " + ref + " failed", t);
+		}
+
+		int lowestLevel = maxLevel - maxZoomLevel;
+		if (lowestLevel > 0) {
+			writeSmallLevels(slideRef, sid, files, lowestLevel, tileSize, result);
+		}
+
+		StringBuilder dzi = new StringBuilder();
+		dzi.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		dzi.append("<Image xmlns=\"http://schemas.microsoft.com/deepzoom/2008\" TileSize=\"").append(tileSize)
+				.append("\" Overlap=\"0\" Format=\"").append(format).append("\">\n");
+		dzi.append("\t<Size Width=\"").append(info.getWidth()).append("\" Height=\"").append(info.getHeight())
+				.append("\"/>\n");
+		dzi.append("</Image>\n");
+		write(new File(directory, name + ".dzi"), dzi.toString().getBytes(StandardCharsets.UTF_8));
+		result.slides.incrementAndGet();
+	}
+
+	/**
+	 * This method is used to write the DeepZoom levels below PMA.core's zoom
+	 * level 0, by scaling down the tiles of zoom level 0 that were just written.
+	 * The upper of these levels can still be larger than a tile, so every level
+	 * is sliced into as many tiles as its size requires
+	 */
+	private void writeSmallLevels(String slideRef, String sid, File files, int lowestLevel, int tileSize,
+			Result result) throws IOException {
+		List<Integer> dimensions = Core.getPixelDimensions(slideRef, 0, sid);
+		if (dimensions == null) {
+			throw new IOException("Unable to get the dimensions of " + slideRef + " at zoom level 0");
+		}
+		int width = Math.max(1, dimensions.get(0));
+		int height = Math.max(1, dimensions.get(1));
+		BufferedImage image = null;
+		int imageLevel = lowestLevel;
+		for (int level = lowestLevel - 1; level >= 0; level--) {
+			// same rounding as half(), so the sizes match the scaled images
+			width = (width + 1) / 2;
+			height = (height + 1) / 2;
+			int columns = (width + tileSize - 1) / tileSize;
+			int rows = (height + tileSize - 1) / tileSize;
+			File levelDirectory = new File(files, Integer.toString(level));
+			for (int ty = 0; ty < rows; ty++) {
+				for (int tx = 0; tx < columns; tx++) {
+					File tile = new File(levelDirectory, tx + "_" + ty + "." + format);
+					if (tile.length() > 0) {
+						result.skipped.incrementAndGet();
+						continue;
+					}
+					if (image == null) {
+						image = readLevel(files, lowestLevel, dimensions, tileSize);
+					}
+					while (imageLevel > level) {
+						image = half(image);
+						imageLevel--;
+					}
+					if (image.getWidth() != width || image.getHeight() != height) {
+						throw new IOException("Level " + level + " of " + slideRef + " is " + image.getWidth() + "x"
+								+ image.getHeight() + " instead of " + width + "x" + height);
+					}
+					levelDirectory.mkdirs();
+					int x = tx * tileSize;
+					int y = ty * tileSize;
+					BufferedImage tileImage = image.getSubimage(x, y, Math.min(tileSize, width - x),
+							Math.min(tileSize, height - y));
+					File tmp = new File(tile.getPath() + ".tmp");
+					if (!ImageIO.write(tileImage, "jpg".equals(format) ? "jpeg" : format, tmp)) {
+						throw new IOException("No image writer for " + format);
+					}
+					move(tmp, tile);
+					result.tiles.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method is used to put the tiles of a DeepZoom level that were written
+	 * back together into a single image
+	 */
+	private BufferedImage readLevel(File files, int level, List<Integer> dimensions, int tileSize)
+			throws IOException {
+		BufferedImage image = new BufferedImage(Math.max(1, dimensions.get(0)), Math.max(1, dimensions.get(1)),
+				"png".equals(format) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			File[] tiles = new File(files, Integer.toString(level)).listFiles();
+			for (File tile : tiles == null ? new File[0] : tiles) {
+				String tileName = tile.getName();
+				if (!tileName.endsWith("." + format)) {
+					continue;
+				}
+				String[] position = tileName.substring(0, tileName.indexOf('.')).split("_");
+				BufferedImage tileImage = position.length == 2 ? ImageIO.read(tile) : null;
+				if (tileImage != null) {
+					g.drawImage(tileImage, Integer.parseInt(position[0]) * tileSize,
+							Integer.parseInt(position[1]) * tileSize, null);
+				}
+			}
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	private static BufferedImage half(BufferedImage image) {
+		BufferedImage half = new BufferedImage(Math.max(1, (image.getWidth() + 1) / 2),
+				Math.max(1, (image.getHeight() + 1) / 2), image.getType());
+		Graphics2D g = half.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(image, 0, 0, half.getWidth(), half.getHeight(), null);
+		} finally {
+			g.dispose();
+		}
+		return half;
+	}
+
+	private static void write(File file, byte[] data) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		Files.write(tmp.toPath(), data);
+		move(tmp, file);
+	}
+
+	private static void move(File from, File to) throws IOException {
+		try {
+			Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static String name(String slideRef) {
+		String name = slideRef.substring(slideRef.lastIndexOf('/') + 1);
+		int dot = name.lastIndexOf('.');
+		return dot > 0 ? name.substring(0, dot) : name;
+	}
+
+	/**
+	 * Statistics of one or more exports
+	 */
+	public static class Result {
+		private final AtomicLong slides = new AtomicLong();
+		private final AtomicLong tiles = new AtomicLong();
+		private final AtomicLong skipped = new AtomicLong();
+		private final AtomicLong bytes = new AtomicLong();
+		private final Map<String, Exception> errors = new LinkedHashMap<>();
+
+		/**
+		 * @return the number of slides exported completely
+		 */
+		public long getSlides() {
+			return slides.get();
+		}
+
+		/**
+		 * @return the number of tiles written
+		 */
+		public long getTiles() {
+			return tiles.get();
+		}
+
+		/**
+		 * @return the number of tiles skipped because they already existed
+		 */
+		public long getSkippedTiles() {
+			return skipped.get();
+		}
+
+		/**
+		 * @return the number of bytes of tiles fetched from the server
+		 */
+		public long getBytes() {
+			return bytes.get();
+		}
+
+		/**
+		 * @return the slides that couldn't be exported, with the reason why
+		 */
+		public Map<String, Exception> getErrors() {
+			return errors;
+		}
+
+		@Override
+		public String toString() {
+			return "slides=" + slides + ", tiles=" + tiles + ", skipped=" + skipped + ", bytes=" + bytes + ", errors="
+					+ errors.size();
+		}
+	}
+}
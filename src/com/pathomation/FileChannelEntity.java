@@ -0,0 +1,162 @@
+package com.pathomation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.content.FileBody;
+
+/**
+ * Request entity that streams a file from a FileChannel. The file is sent in
+ * large chunks through a single reusable buffer, so memory use doesn't depend
+ * on the size of the file, and output streams that report progress per write
+ * (ProgressHttpEntityWrapper) are only called once per chunk instead of every
+ * few kilobytes.
+ * <p>
+ * Body does the same for a file part of a multipart request
+ * </p>
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class FileChannelEntity extends AbstractHttpEntity {
+
+	/**
+	 * Default size of the chunks the file is sent in (1 MB)
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	private final File file;
+	private final int chunkSize;
+
+	/**
+	 * Creates an entity for a file
+	 *
+	 * @param file        File to send
+	 * @param contentType Content type, can be null
+	 */
+	public FileChannelEntity(File file, ContentType contentType) {
+		this(file, contentType, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates an entity for a file
+	 *
+	 * @param file        File to send
+	 * @param contentType Content type, can be null
+	 * @param chunkSize   Size of the chunks the file is sent in
+	 */
+	public FileChannelEntity(File file, ContentType contentType, int chunkSize) {
+		if (file == null) {
+			throw new IllegalArgumentException("file can't be null");
+		}
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be positive");
+		}
+		this.file = file;
+		this.chunkSize = chunkSize;
+		if (contentType != null) {
+			setContentType(contentType.toString());
+		}
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	@Override
+	public long getContentLength() {
+		return file.length();
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		return Channels.newInputStream(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws IOException {
+		copy(file, out, chunkSize);
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return false;
+	}
+
+	/**
+	 * This method is used to copy a file to an output stream in chunks
+	 *
+	 * @param file      File to copy
+	 * @param out       Stream to write to
+	 * @param chunkSize Size of the chunks
+	 * @return Number of bytes written
+	 * @throws IOException If the file can't be read or the stream written
+	 */
+	static long copy(File file, OutputStream out, int chunkSize) throws IOException {
+		long written = 0;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(1, Math.min(chunkSize, channel.size())));
+			while (true) {
+				buffer.clear();
+				// fill the buffer, so every write is a full chunk
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer) < 0) {
+						break;
+					}
+				}
+				if (buffer.position() == 0) {
+					break;
+				}
+				out.write(buffer.array(), 0, buffer.position());
+				written += buffer.position();
+			}
+		}
+		out.flush();
+		return written;
+	}
+
+	/**
+	 * File part of a multipart request, streamed from a FileChannel in large
+	 * chunks
+	 */
+	public static class Body extends FileBody {
+
+		private final int chunkSize;
+
+		/**
+		 * Creates a multipart body for a file
+		 *
+		 * @param file File to send
+		 */
+		public Body(File file) {
+			this(file, DEFAULT_CHUNK_SIZE);
+		}
+
+		/**
+		 * Creates a multipart body for a file
+		 *
+		 * @param file      File to send
+		 * @param chunkSize Size of the chunks the file is sent in
+		 */
+		public Body(File file, int chunkSize) {
+			super(file);
+			if (chunkSize < 1) {
+				throw new IllegalArgumentException("chunkSize must be positive");
+			}
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException {
+			copy(getFile(), out, chunkSize);
+		}
+	}
+}
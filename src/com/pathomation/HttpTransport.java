@@ -0,0 +1,376 @@
+package com.pathomation;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Pooled, keep-alive HTTP transport shared by the Core, Control and CoreAdmin
+ * classes. Connections (and their TLS sessions) are kept in a pool and reused
+ * across calls, so consecutive requests to the same PMA.core instance (e.g. a
+ * tile sweep) don't pay for a new TCP/TLS handshake every time
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class HttpTransport implements Closeable {
+
+	/**
+	 * Default maximum number of pooled connections (all hosts together)
+	 */
+	public static final int DEFAULT_MAX_TOTAL = 64;
+	/**
+	 * Default maximum number of pooled connections per host
+	 */
+	public static final int DEFAULT_MAX_PER_ROUTE = 16;
+	/**
+	 * Default connect timeout in milliseconds
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 30000;
+	/**
+	 * Default socket (read) timeout in milliseconds, 0 means infinite
+	 */
+	public static final int DEFAULT_SOCKET_TIMEOUT = 0;
+	/**
+	 * Default amount of time (ms) an idle connection is kept alive when the server
+	 * doesn't specify it
+	 */
+	public static final long DEFAULT_KEEP_ALIVE = 60000;
+
+	private static volatile HttpTransport defaultTransport = null;
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient client;
+	private final int connectTimeout;
+	private final int socketTimeout;
+
+	/**
+	 * Creates a transport with the default pool limits and timeouts
+	 */
+	public HttpTransport() {
+		this(DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE, DEFAULT_CONNECT_TIMEOUT, DEFAULT_SOCKET_TIMEOUT,
+				DEFAULT_KEEP_ALIVE);
+	}
+
+	/**
+	 * Creates a transport
+	 *
+	 * @param maxTotal       Maximum number of pooled connections (all hosts)
+	 * @param maxPerRoute    Maximum number of pooled connections per host
+	 * @param connectTimeout Connect timeout in milliseconds
+	 * @param socketTimeout  Socket (read) timeout in milliseconds, 0 means
+	 *                       infinite
+	 * @param keepAlive      Amount of time (ms) an idle connection is kept alive
+	 *                       when the server doesn't specify it
+	 */
+	public HttpTransport(int maxTotal, int maxPerRoute, int connectTimeout, int socketTimeout, final long keepAlive) {
+		this.connectTimeout = connectTimeout;
+		this.socketTimeout = socketTimeout;
+		// the system socket factory relies on the default SSLContext, which caches TLS
+		// sessions so that new pooled connections to the same host can resume them
+		Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", SSLConnectionSocketFactory.getSystemSocketFactory()).build();
+		connectionManager = new PoolingHttpClientConnectionManager(registry);
+		connectionManager.setMaxTotal(maxTotal);
+		connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+		connectionManager.setValidateAfterInactivity(2000);
+		ConnectionKeepAliveStrategy keepAliveStrategy = new ConnectionKeepAliveStrategy() {
+			@Override
+			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+				// honour the server's "Keep-Alive: timeout=n" header if there is one
+				HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+				while (it.hasNext()) {
+					HeaderElement he = it.nextElement();
+					if (he.getValue() != null && he.getName().equalsIgnoreCase("timeout")) {
+						try {
+							return Long.parseLong(he.getValue()) * 1000;
+						} catch (NumberFormatException ignore) {
+						}
+					}
+				}
+				return keepAlive;
+			}
+		};
+		RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(connectTimeout)
+				.setConnectionRequestTimeout(connectTimeout).setSocketTimeout(socketTimeout).build();
+		client = HttpClients.custom().setConnectionManager(connectionManager).setKeepAliveStrategy(keepAliveStrategy)
+				.setDefaultRequestConfig(requestConfig).evictExpiredConnections()
+				.evictIdleConnections(keepAlive, java.util.concurrent.TimeUnit.MILLISECONDS).build();
+	}
+
+	/**
+	 * This method is used to get the transport used by default by the SDK
+	 *
+	 * @return The default transport (created on first use)
+	 */
+	public static HttpTransport getDefault() {
+		HttpTransport transport = defaultTransport;
+		if (transport == null) {
+			synchronized (HttpTransport.class) {
+				if (defaultTransport == null) {
+					defaultTransport = new HttpTransport();
+				}
+				transport = defaultTransport;
+			}
+		}
+		return transport;
+	}
+
+	/**
+	 * This method is used to replace the transport used by default by the SDK. The
+	 * previous default transport is closed
+	 *
+	 * @param transport New default transport
+	 */
+	public static void setDefault(HttpTransport transport) {
+		HttpTransport previous;
+		synchronized (HttpTransport.class) {
+			previous = defaultTransport;
+			defaultTransport = transport;
+		}
+		if (previous != null && previous != transport) {
+			try {
+				previous.close();
+			} catch (IOException e) {
+				if (PMA.logger != null) {
+					PMA.logger.warning("Unable to close previous HTTP transport: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method is used to limit the number of pooled connections to a specific
+	 * host
+	 *
+	 * @param url         Any URL on the host (e.g. a PMA.core URL)
+	 * @param maxPerRoute Maximum number of connections to this host
+	 */
+	public void setMaxPerHost(String url, int maxPerRoute) {
+		HttpHost host = hostOf(url);
+		// https requests are planned on a secure route, which is a different route
+		connectionManager.setMaxPerRoute(
+				new HttpRoute(host, null, "https".equalsIgnoreCase(host.getSchemeName())), maxPerRoute);
+	}
+
+	/**
+	 * @return the underlying (shared) http client
+	 */
+	public CloseableHttpClient getClient() {
+		return client;
+	}
+
+	/**
+	 * @return the connect timeout in milliseconds
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * @return the socket timeout in milliseconds
+	 */
+	public int getSocketTimeout() {
+		return socketTimeout;
+	}
+
+	/**
+	 * This method is used to execute a request through the pool. The caller must
+	 * close the response (which releases the connection back to the pool)
+	 *
+	 * @param request Request to execute
+	 * @return Response
+	 * @throws IOException If the request fails
+	 */
+	public CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+		return client.execute(request);
+	}
+
+	/**
+	 * This method is used to GET the body of a URL as a string. Just like
+	 * PMA.getJSONAsStringBuffer(), the body of non 2xx responses is returned as
+	 * well, and line breaks are dropped
+	 *
+	 * @param url    URL to request
+	 * @param accept Accept header value, can be null
+	 * @return Body of the response
+	 * @throws IOException If the request fails
+	 */
+	public String getString(String url, String accept) throws IOException {
+		HttpGet request = new HttpGet(url);
+		if (accept != null) {
+			request.setHeader("Accept", accept);
+		}
+		try (CloseableHttpResponse response = client.execute(request)) {
+			return readBody(response);
+		}
+	}
+
+	/**
+	 * This method is used to POST a payload to a URL and get the body of the
+	 * response as a string
+	 *
+	 * @param url         URL to post to
+	 * @param contentType Content type of the payload
+	 * @param data        Payload
+	 * @param accept      Accept header value, can be null
+	 * @return Body of the response
+	 * @throws IOException If the request fails
+	 */
+	public String postString(String url, String contentType, String data, String accept) throws IOException {
+		HttpPost request = new HttpPost(url);
+		if (accept != null) {
+			request.setHeader("Accept", accept);
+		}
+		request.setEntity(new ByteArrayEntity(data.getBytes(StandardCharsets.UTF_8), ContentType.create(contentType)));
+		try (CloseableHttpResponse response = client.execute(request)) {
+			return readBody(response);
+		}
+	}
+
+	/**
+	 * This method is used to GET the raw body of a URL
+	 *
+	 * @param url URL to request
+	 * @return Body of the response
+	 * @throws IOException If the request fails or the server answers with an
+	 *                     error
+	 */
+	public byte[] getBytes(String url) throws IOException {
+		try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+			HttpEntity entity = checkStatus(url, response);
+			return entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+		}
+	}
+
+	/**
+	 * This method is used to GET the body of a URL and stream it to an output
+	 * stream, without buffering it in memory
+	 *
+	 * @param url URL to request
+	 * @param out Stream to write the body to (not closed)
+	 * @return Number of bytes written
+	 * @throws IOException If the request fails or the server answers with an
+	 *                     error
+	 */
+	public long get(String url, OutputStream out) throws IOException {
+		try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+			HttpEntity entity = checkStatus(url, response);
+			if (entity == null) {
+				return 0;
+			}
+			CountingOutputStream counter = new CountingOutputStream(out);
+			entity.writeTo(counter);
+			counter.flush();
+			return counter.getByteCount();
+		}
+	}
+
+	/**
+	 * This method checks the status of a response and returns its entity
+	 *
+	 * @param url      Requested URL (used in the error message)
+	 * @param response Response to check
+	 * @return Entity of the response
+	 * @throws IOException If the server answered with an error
+	 */
+	static HttpEntity checkStatus(String url, HttpResponse response) throws IOException {
+		int status = response.getStatusLine().getStatusCode();
+		if (status < 200 || status >= 300) {
+			EntityUtils.consumeQuietly(response.getEntity());
+			throw new IOException("HTTP " + status + " " + response.getStatusLine().getReasonPhrase() + " for " + url);
+		}
+		return response.getEntity();
+	}
+
+	/**
+	 * This method reads the body of a response into a string, line breaks are
+	 * dropped
+	 *
+	 * @param response Response to read
+	 * @return Body of the response
+	 * @throws IOException If reading fails
+	 */
+	static String readBody(HttpResponse response) throws IOException {
+		HttpEntity entity = response.getEntity();
+		if (entity == null) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder();
+		try (InputStream in = entity.getContent();
+				BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				sb.append(line);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * This method reads a stream fully
+	 *
+	 * @param in Stream to read
+	 * @return Content of the stream
+	 * @throws IOException If reading fails
+	 */
+	static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(64 * 1024);
+		byte[] buffer = new byte[64 * 1024];
+		int n;
+		while ((n = in.read(buffer)) != -1) {
+			bos.write(buffer, 0, n);
+		}
+		return bos.toByteArray();
+	}
+
+	private static HttpHost hostOf(String url) {
+		java.net.URI uri = java.net.URI.create(url);
+		int port = uri.getPort();
+		if (port < 0) {
+			port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+		}
+		return new HttpHost(uri.getHost(), port, uri.getScheme());
+	}
+
+	/**
+	 * This method closes the pool and all its connections
+	 */
+	@Override
+	public void close() throws IOException {
+		client.close();
+	}
+}
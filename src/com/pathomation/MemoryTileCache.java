@@ -0,0 +1,109 @@
+package com.pathomation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory tile cache bounded by the total size (in bytes) of the tiles it
+ * holds. When full, the least recently used tiles are evicted first
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class MemoryTileCache implements TileCache {
+
+	private final long maxBytes;
+	// access ordered, so iteration starts with the least recently used tile
+	private final LinkedHashMap<TileKey, byte[]> tiles = new LinkedHashMap<>(1024, 0.75f, true);
+	private long bytes = 0;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder puts = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a cache
+	 *
+	 * @param maxBytes Maximum total size (in bytes) of the cached tiles
+	 */
+	public MemoryTileCache(long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes must be positive");
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return the maximum total size (in bytes) of the cached tiles
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	@Override
+	public byte[] get(TileKey key) {
+		byte[] data;
+		synchronized (this) {
+			data = tiles.get(key);
+		}
+		if (data == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return data;
+	}
+
+	@Override
+	public void put(TileKey key, byte[] data) {
+		if (data == null || data.length > maxBytes) {
+			return;
+		}
+		puts.increment();
+		synchronized (this) {
+			byte[] previous = tiles.put(key, data);
+			if (previous != null) {
+				bytes -= previous.length;
+			}
+			bytes += data.length;
+			Iterator<Map.Entry<TileKey, byte[]>> it = tiles.entrySet().iterator();
+			while (bytes > maxBytes && it.hasNext()) {
+				Map.Entry<TileKey, byte[]> eldest = it.next();
+				bytes -= eldest.getValue().length;
+				it.remove();
+				evictions.increment();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void invalidate(String fingerprint) {
+		Iterator<Map.Entry<TileKey, byte[]>> it = tiles.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<TileKey, byte[]> entry = it.next();
+			if (entry.getKey().getFingerprint().equals(fingerprint)) {
+				bytes -= entry.getValue().length;
+				it.remove();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		tiles.clear();
+		bytes = 0;
+	}
+
+	@Override
+	public Stats getStats() {
+		long entries;
+		long size;
+		synchronized (this) {
+			entries = tiles.size();
+			size = bytes;
+		}
+		return new Stats(hits.sum(), misses.sum(), puts.sum(), evictions.sum(), entries, size);
+	}
+}
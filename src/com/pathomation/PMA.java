@@ -2,27 +2,24 @@ package com.pathomation;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.net.URLConnection;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
-import javax.net.ssl.HttpsURLConnection;
 import javax.swing.filechooser.FileSystemView;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import org.apache.commons.io.IOUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -39,13 +36,16 @@ import org.xml.sax.InputSource;
  */
 public class PMA {
 
-	private static Map<String, String> urlContent = new HashMap<>();
+	/**
+	 * Cache of the responses of httpGet()
+	 */
+	private static volatile ResponseCache urlContent = new ResponseCache();
 	/**
 	 * Cache mechanism to store the disk names on end user's side (To interact with
 	 * PMA.start, paths should include the disk names if they are modified from
 	 * their default value by end users)
 	 */
-	private static Map<String, String> diskLabels = new HashMap<String, String>();
+	private static Map<String, String> diskLabels = new ConcurrentHashMap<String, String>();
 	public static boolean debug = false;
 	/**
 	 * for logging purposes
@@ -106,39 +106,57 @@ public class PMA {
 	 * @return Data returned following a request to a specific URL
 	 */
 	public static String httpGet(String url, String property) {
-		if (!urlContent.containsKey(url)) {
-			if (debug) {
-				System.out.println("Retrieving " + url);
-			}
-			try {
-				URL urlResource = new URL(url);
-				HttpURLConnection con;
-				if (url.startsWith("https")) {
-					con = (HttpsURLConnection) urlResource.openConnection();
-				} else {
-					con = (HttpURLConnection) urlResource.openConnection();
-				}
-				con.setRequestMethod("GET");
-				con.setRequestProperty("Accept", property);
-				urlContent.put(url, getJSONAsStringBuffer(con).toString());
-			} catch (Exception e) {
-				e.printStackTrace();
-				if (PMA.logger != null) {
-					StringWriter sw = new StringWriter();
-					e.printStackTrace(new PrintWriter(sw));
-					PMA.logger.severe(sw.toString());
-				}
-				return null;
+		if (debug) {
+			System.out.println("Retrieving " + url);
+		}
+		try {
+			return urlContent.get(HttpTransport.getDefault(), url, property);
+		} catch (Exception e) {
+			e.printStackTrace();
+			if (PMA.logger != null) {
+				StringWriter sw = new StringWriter();
+				e.printStackTrace(new PrintWriter(sw));
+				PMA.logger.severe(sw.toString());
 			}
+			return null;
 		}
-		return urlContent.get(url).toString();
 	}
 
 	/**
 	 * This method is used to clear the URLs cache
 	 */
 	public static void clearURLCache() {
-		urlContent = new HashMap<>();
+		urlContent.clear();
+	}
+
+	/**
+	 * This method is used to drop the cached responses of the URLs starting with a
+	 * prefix (e.g. after a write operation on a server)
+	 * 
+	 * @param prefix URL prefix
+	 */
+	public static void invalidateURLCache(String prefix) {
+		urlContent.invalidatePrefix(prefix);
+	}
+
+	/**
+	 * @return the cache of the responses of httpGet()
+	 */
+	public static ResponseCache getURLCache() {
+		return urlContent;
+	}
+
+	/**
+	 * This method is used to replace the cache of the responses of httpGet() (e.g.
+	 * with other limits or TTLs)
+	 * 
+	 * @param cache Response cache
+	 */
+	public static void setURLCache(ResponseCache cache) {
+		if (cache == null) {
+			throw new IllegalArgumentException("cache can't be null");
+		}
+		urlContent = cache;
 	}
 
 	/**
@@ -169,12 +187,7 @@ public class PMA {
 	 */
 	public static String urlReader(String url) {
 		try {
-			URL urlResource = new URL(url);
-			URLConnection con = urlResource.openConnection();
-			InputStream in = con.getInputStream();
-			String encoding = con.getContentEncoding();
-			encoding = encoding == null ? "UTF-8" : encoding;
-			return IOUtils.toString(in, encoding);
+			return new String(HttpTransport.getDefault().getBytes(url), StandardCharsets.UTF_8);
 		} catch (Exception e) {
 			e.printStackTrace();
 			if (PMA.logger != null) {
@@ -0,0 +1,823 @@
+package com.pathomation;
+
+import java.awt.Image;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * A connection to a PMA.core instance. Each client owns its own server URL,
+ * session, HTTP transport, caches and metrics, so independent workloads (e.g.
+ * several tenants or servers in the same JVM) don't share state and can be
+ * tuned separately. The static methods of Core delegate to the client of the
+ * session they're called with, or to the default client when no session is
+ * given (see Core.setDefaultSession())
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class PmaCoreClient implements AutoCloseable {
+
+	/**
+	 * Default time (in milliseconds) a slide's fingerprint is trusted before it's
+	 * checked again with the server (1 minute)
+	 */
+	public static final long DEFAULT_FINGERPRINT_TTL = 60 * 1000L;
+
+	private static final AtomicLong sequence = new AtomicLong();
+
+	private final String url;
+	private final String sessionID;
+	private final String username;
+	private final long order = sequence.incrementAndGet();
+	private volatile HttpTransport transport = null;
+	private volatile ResponseCache responseCache = null;
+	private volatile TileCache tileCache = null;
+	private volatile SlideInfoCache slideInfoCache = new SlideInfoCache();
+	private final Map<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+	private volatile long fingerprintTtl = DEFAULT_FINGERPRINT_TTL;
+	private final LongAdder amountOfDataDownloaded = new LongAdder();
+	private final RequestDispatcher dispatcher;
+	private final RequestDispatcher.Queue requests;
+
+	PmaCoreClient(String url, String sessionID, String username, RequestDispatcher dispatcher) {
+		this.url = url.endsWith("/") ? url : url + "/";
+		this.sessionID = sessionID;
+		this.username = username;
+		this.dispatcher = dispatcher;
+		this.requests = dispatcher.newQueue();
+	}
+
+	/**
+	 * This method is used to connect to a PMA.core instance
+	 *
+	 * @param pmaCoreURL      URL of the PMA.core instance
+	 * @param pmaCoreUsername username
+	 * @param pmaCorePassword password
+	 * @return Client for the new session, null if the session couldn't be created
+	 */
+	public static PmaCoreClient connect(String pmaCoreURL, String pmaCoreUsername, String pmaCorePassword) {
+		String sessionID = Core.connect(pmaCoreURL, pmaCoreUsername, pmaCorePassword);
+		return sessionID == null ? null : Core.getClient(sessionID);
+	}
+
+	/**
+	 * This method is used to connect to a PMA.core instance through a dedicated
+	 * HTTP transport
+	 *
+	 * @param pmaCoreURL      URL of the PMA.core instance
+	 * @param pmaCoreUsername username
+	 * @param pmaCorePassword password
+	 * @param transport       HTTP transport used by this client only
+	 * @return Client for the new session, null if the session couldn't be created
+	 */
+	public static PmaCoreClient connect(String pmaCoreURL, String pmaCoreUsername, String pmaCorePassword,
+			HttpTransport transport) {
+		PmaCoreClient client = connect(pmaCoreURL, pmaCoreUsername, pmaCorePassword);
+		if (client != null) {
+			client.setTransport(transport);
+		}
+		return client;
+	}
+
+	/**
+	 * @return the URL of the PMA.core instance (ending with a "/")
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * @return the session's ID
+	 */
+	public String getSessionId() {
+		return sessionID;
+	}
+
+	/**
+	 * @return the username, null if unknown
+	 */
+	public String getUsername() {
+		return username;
+	}
+
+	/**
+	 * @return the HTTP transport used by this client (the default transport unless
+	 *         a dedicated one was set)
+	 */
+	public HttpTransport getTransport() {
+		HttpTransport t = transport;
+		return t == null ? HttpTransport.getDefault() : t;
+	}
+
+	/**
+	 * This method is used to give this client a dedicated HTTP transport (e.g. with
+	 * its own connection pool and timeouts)
+	 *
+	 * @param transport HTTP transport, null to use the default transport
+	 */
+	public void setTransport(HttpTransport transport) {
+		this.transport = transport;
+	}
+
+	/**
+	 * @return the cache of GET responses used by this client (the one of
+	 *         PMA.getURLCache() unless a dedicated one was set)
+	 */
+	public ResponseCache getResponseCache() {
+		ResponseCache cache = responseCache;
+		return cache == null ? PMA.getURLCache() : cache;
+	}
+
+	/**
+	 * This method is used to give this client a dedicated cache of GET responses
+	 *
+	 * @param responseCache Response cache, null to use the one of
+	 *                      PMA.getURLCache()
+	 */
+	public void setResponseCache(ResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+
+	/**
+	 * @return the tile cache used by this client (the one set through
+	 *         Core.setTileCache() unless a dedicated one was set), null if tiles
+	 *         aren't cached
+	 */
+	public TileCache getTileCache() {
+		TileCache cache = tileCache;
+		return cache == null ? Core.getTileCache() : cache;
+	}
+
+	/**
+	 * This method is used to give this client a dedicated tile cache
+	 *
+	 * @param tileCache Tile cache, null to use the one set through
+	 *                  Core.setTileCache()
+	 */
+	public void setTileCache(TileCache tileCache) {
+		this.tileCache = tileCache;
+		fingerprints.clear();
+	}
+
+	/**
+	 * @return the time (in milliseconds) a slide's fingerprint is trusted before
+	 *         it's checked again with the server
+	 */
+	public long getFingerprintTtl() {
+		return fingerprintTtl;
+	}
+
+	/**
+	 * This method is used to set how long (in milliseconds) a slide's fingerprint
+	 * is trusted before it's checked again with the server. Cached tiles are keyed
+	 * by the fingerprint, so this is how long tiles of a slide that changed on the
+	 * server can still be served from the tile cache (unless the change is made
+	 * through this library or the slide is invalidated, see
+	 * Core.invalidateSlideInfo())
+	 *
+	 * @param fingerprintTtl Time in milliseconds, 0 to check the fingerprint before
+	 *                       every tile that isn't cached yet
+	 */
+	public void setFingerprintTtl(long fingerprintTtl) {
+		if (fingerprintTtl < 0) {
+			throw new IllegalArgumentException("fingerprintTtl can't be negative");
+		}
+		this.fingerprintTtl = fingerprintTtl;
+	}
+
+	/**
+	 * @return the cache of slide information of this client
+	 */
+	public SlideInfoCache getSlideInfoCache() {
+		return slideInfoCache;
+	}
+
+	/**
+	 * This method is used to replace the cache of slide information of this client
+	 * (e.g. with other limits)
+	 *
+	 * @param slideInfoCache Slide information cache
+	 */
+	public void setSlideInfoCache(SlideInfoCache slideInfoCache) {
+		if (slideInfoCache == null) {
+			throw new IllegalArgumentException("slideInfoCache can't be null");
+		}
+		this.slideInfoCache = slideInfoCache;
+	}
+
+	/**
+	 * @return the maximum number of asynchronous requests in flight for this
+	 *         client
+	 */
+	public int getMaxConcurrentRequests() {
+		return requests.limit();
+	}
+
+	/**
+	 * This method is used to set the maximum number of asynchronous requests in
+	 * flight for this client
+	 *
+	 * @param maxConcurrentRequests Maximum number of requests in flight, 0 to use
+	 *                              the default (see
+	 *                              Core.setMaxConcurrentRequests())
+	 */
+	public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		requests.setLimit(maxConcurrentRequests);
+	}
+
+	/**
+	 * @return the number of asynchronous requests of this client in flight
+	 */
+	public int getConcurrentRequests() {
+		return requests.inFlight();
+	}
+
+	/**
+	 * @return the amount of data downloaded through this client
+	 */
+	public long getAmountOfDataDownloaded() {
+		return amountOfDataDownloaded.sum();
+	}
+
+	/**
+	 * @return whether this client's session is still registered (i.e. not
+	 *         disconnected)
+	 */
+	public boolean isConnected() {
+		return Core.getClient(sessionID) == this;
+	}
+
+	/**
+	 * This method is used to make this client the one used by Core when no session
+	 * is specified
+	 */
+	public void makeDefault() {
+		Core.setDefaultSession(sessionID);
+	}
+
+	/**
+	 * This method is used to disconnect from the PMA.core instance
+	 *
+	 * @return true if the session was closed, false otherwise
+	 */
+	public boolean disconnect() {
+		if (!Core.unregister(this)) {
+			return false;
+		}
+		String contents = httpGet(apiUrl() + "DeAuthenticate?sessionID=" + PMA.pmaQ(sessionID), "application/json");
+		if (contents != null) {
+			amountOfDataDownloaded.add(contents.length());
+		}
+		return true;
+	}
+
+	/**
+	 * This method disconnects from the PMA.core instance
+	 */
+	@Override
+	public void close() {
+		disconnect();
+	}
+
+	/**
+	 * This method is used to get the root-directories available to this client
+	 *
+	 * @return Array of root-directories, null if they can't be retrieved
+	 */
+	public List<String> getRootDirectories() {
+		try {
+			String url = apiUrl() + "GetRootDirectories?sessionID=" + PMA.pmaQ(sessionID);
+			String jsonString = httpGet(url, "application/json");
+			List<String> rootDirs;
+			if (PMA.isJSONArray(jsonString)) {
+				JSONArray jsonResponse = PMA.getJSONArrayResponse(jsonString);
+				amountOfDataDownloaded.add(jsonResponse.length());
+				rootDirs = new ArrayList<>();
+				for (int i = 0; i < jsonResponse.length(); i++) {
+					rootDirs.add(jsonResponse.optString(i));
+				}
+			} else {
+				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
+				amountOfDataDownloaded.add(jsonResponse.length());
+				if (jsonResponse.has("Code")) {
+					if (PMA.logger != null) {
+						PMA.logger.severe("getrootdirectories() failed with error " + jsonResponse.get("Message"));
+					}
+				}
+				return null;
+			}
+			return rootDirs;
+		} catch (Exception e) {
+			log(e);
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to get the sub-directories of a directory
+	 *
+	 * @param startDir Start directory
+	 * @return Sub-directories of the start directory, null if they can't be
+	 *         retrieved
+	 */
+	public List<String> getDirectories(String startDir) {
+		try {
+			return listDirectories(startDir);
+		} catch (Exception e) {
+			log(e);
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to get the slides of a directory
+	 *
+	 * @param startDir Start directory
+	 * @return Slides in the start directory, null if they can't be retrieved
+	 */
+	public List<String> getSlides(String startDir) {
+		try {
+			return listSlides(startDir);
+		} catch (Exception e) {
+			log(e);
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to enumerate the slides of a directory tree lazily (see
+	 * Core.streamSlides())
+	 *
+	 * @param startDir Start directory
+	 * @return Stream of the slides in the start directory and its sub-directories,
+	 *         to be closed when no longer needed
+	 */
+	public Stream<SlidePath> streamSlides(String startDir) {
+		SlideCrawler crawler = new SlideCrawler(sessionID, SlideCrawler.DEFAULT_PARALLELISM,
+				SlideCrawler.UNLIMITED_DEPTH);
+		return new SlideIterator(crawler, startDir, SlideIterator.DEFAULT_BUFFER_SIZE).stream();
+	}
+
+	/**
+	 * This method is used to get information about a slide
+	 *
+	 * @param slideRef slide's path or UID
+	 * @return Information about the slide
+	 */
+	public Map<String, Object> getSlideInfo(String slideRef) {
+		SlideInfo info = getTypedSlideInfo(slideRef);
+		return info == null ? null : info.toMap();
+	}
+
+	/**
+	 * This method is used to get information about a slide as a typed object
+	 *
+	 * @param slideRef slide's path or UID
+	 * @return Information about the slide, null if it can't be retrieved
+	 */
+	public SlideInfo getTypedSlideInfo(String slideRef) {
+		try {
+			return slideInfoCache.get(path(slideRef), this::loadSlideInfo);
+		} catch (Exception e) {
+			log(e);
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to get the UID of a slide
+	 *
+	 * @param slideRef slide's path
+	 * @return UID of the slide, null if it can't be retrieved
+	 * @throws Exception if the client is the one of PMA.core.lite, which doesn't
+	 *                   support UIDs
+	 */
+	public String getUid(String slideRef) throws Exception {
+		if (Core.isLiteSession(sessionID)) {
+			String message = Core.isLite()
+					? "PMA.core.lite found running, but doesn't support UID generation. For advanced anonymization, please upgrade to PMA.core."
+					: "PMA.core.lite not found, and besides; it doesn't support UID generation. For advanced anonymization, please upgrade to PMA.core.";
+			if (PMA.logger != null) {
+				PMA.logger.severe(message);
+			}
+			throw new Exception(message);
+		}
+		String url = apiUrl() + "GetUID?sessionID=" + PMA.pmaQ(sessionID) + "&path=" + PMA.pmaQ(slideRef);
+		try {
+			String jsonString = httpGet(url, "application/json");
+			amountOfDataDownloaded.add(jsonString.length());
+			if (PMA.isJSONObject(jsonString)) {
+				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
+				if (jsonResponse.has("Code")) {
+					if (PMA.logger != null) {
+						PMA.logger.severe("getUid() on  " + slideRef + " resulted in: " + jsonResponse.get("Message"));
+					}
+				}
+				return null;
+			} else {
+				return jsonString;
+			}
+		} catch (Exception e) {
+			// this happens when NO instance of PMA.core is detected
+			log(e);
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to get the fingerprint of a slide
+	 *
+	 * @param slideRef slide's path
+	 * @return Fingerprint of the slide, null if it can't be retrieved
+	 */
+	public String getFingerPrint(String slideRef) {
+		String url = apiUrl() + "GetFingerprint?sessionID=" + PMA.pmaQ(sessionID) + "&pathOrUid="
+				+ PMA.pmaQ(slideRef);
+		try {
+			String jsonString = getTransport().getString(url, null);
+			if (PMA.isJSONObject(jsonString)) {
+				JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
+				amountOfDataDownloaded.add(jsonResponse.length());
+				if (jsonResponse.has("Code")) {
+					if (PMA.logger != null) {
+						PMA.logger.severe("get_fingerprint on " + slideRef + " resulted in: "
+								+ jsonResponse.get("Message") + " (keep in mind that slideRef is case sensitive!)");
+					}
+					throw new Exception("get_fingerprint on " + slideRef + " resulted in: "
+							+ jsonResponse.get("Message") + " (keep in mind that slideRef is case sensitive!)");
+				} else {
+					return jsonResponse.getString("d");
+				}
+			} else {
+				amountOfDataDownloaded.add(jsonString.length());
+				return jsonString.replace("\"", "");
+			}
+		} catch (Exception e) {
+			log(e);
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to get a single tile
+	 *
+	 * @param slideRef  slide's path or UID
+	 * @param x         x position
+	 * @param y         y position
+	 * @param zoomLevel zoom level
+	 * @return Tile at position (x, y), null if it can't be retrieved
+	 * @throws Exception if the session is invalid
+	 */
+	public Image getTile(String slideRef, int x, int y, int zoomLevel) throws Exception {
+		try {
+			return ImageIO.read(new ByteArrayInputStream(readTile(path(slideRef), x, y, zoomLevel, 0, "jpg", 100)));
+		} catch (Exception e) {
+			log(e);
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to get a single tile asynchronously
+	 *
+	 * @param slideRef  slide's path or UID
+	 * @param x         x position
+	 * @param y         y position
+	 * @param zoomLevel zoom level
+	 * @return Future completed with the tile at position (x, y)
+	 */
+	public CompletableFuture<Image> getTileAsync(String slideRef, int x, int y, int zoomLevel) {
+		String ref = path(slideRef);
+		return submit(() -> ImageIO.read(new ByteArrayInputStream(readTile(ref, x, y, zoomLevel, 0, "jpg", 100))));
+	}
+
+	/**
+	 * This method is used to get a single tile as raw (still encoded) bytes
+	 *
+	 * @param slideRef  slide's path or UID
+	 * @param x         x position
+	 * @param y         y position
+	 * @param zoomLevel zoom level
+	 * @return Encoded tile, null if it can't be retrieved
+	 */
+	public byte[] getTileBytes(String slideRef, int x, int y, int zoomLevel) {
+		try {
+			return readTile(path(slideRef), x, y, zoomLevel, 0, "jpg", 100);
+		} catch (Exception e) {
+			log(e);
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to get the thumbnail of a slide
+	 *
+	 * @param slideRef slide's path or UID
+	 * @return Thumbnail of the slide
+	 */
+	public Image getThumbnailImage(String slideRef) {
+		return getThumbnailImage(slideRef, 0, 0);
+	}
+
+	/**
+	 * This method is used to get the thumbnail of a slide
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param height   height of the thumbnail, ignored if 0
+	 * @param width    width of the thumbnail, ignored if 0
+	 * @return Thumbnail of the slide, null if it can't be retrieved
+	 */
+	public Image getThumbnailImage(String slideRef, int height, int width) {
+		try {
+			return ImageIO.read(
+					new ByteArrayInputStream(readBytes(Core.thumbnailUrl(url, sessionID, path(slideRef), height, width))));
+		} catch (Exception e) {
+			log(e);
+			return null;
+		}
+	}
+
+	/**
+	 * This method is used to drop the cached tiles of a slide (e.g. after it was
+	 * replaced on the server)
+	 *
+	 * @param slideRef slide's path or UID
+	 */
+	public void invalidateTileCache(String slideRef) {
+		Fingerprint fingerprint = fingerprints.remove(path(slideRef));
+		TileCache cache = getTileCache();
+		if (cache != null && fingerprint != null) {
+			cache.invalidate(fingerprint.getValue());
+		}
+	}
+
+	// requests used by Core
+
+	String apiUrl() {
+		return PMA.join(url, "api/json/");
+	}
+
+	/**
+	 * This method is used to list the sub-directories of a single directory
+	 *
+	 * @param startDir Directory to list
+	 * @return Sub-directories, null if the server's response can't be understood
+	 * @throws Exception if the server returns an error (e.g. unknown directory)
+	 */
+	List<String> listDirectories(String startDir) throws Exception {
+		String url = apiUrl() + "GetDirectories?sessionID=" + PMA.pmaQ(sessionID) + "&path=" + PMA.pmaQ(startDir);
+		if (PMA.debug) {
+			System.out.println(url);
+		}
+		return readList(getTransport().getString(url, null), "get_directories to " + startDir);
+	}
+
+	/**
+	 * This method is used to list the slides of a single directory
+	 *
+	 * @param startDir Directory to list
+	 * @return Slides, null if the server's response can't be understood
+	 * @throws Exception if the server returns an error (e.g. unknown directory)
+	 */
+	List<String> listSlides(String startDir) throws Exception {
+		startDir = path(startDir);
+		String url = apiUrl() + "GetFiles?sessionID=" + PMA.pmaQ(sessionID) + "&path=" + PMA.pmaQ(startDir);
+		return readList(getTransport().getString(url, null), "get_slides from " + startDir);
+	}
+
+	/**
+	 * This method parses the list of directories or slides of a directory
+	 *
+	 * @param jsonString Response
+	 * @param request    Description of the request, for the error messages
+	 * @return Directories or slides, null if the response can't be understood
+	 * @throws Exception if the server returned an error
+	 */
+	private List<String> readList(String jsonString, String request) throws Exception {
+		JSONArray array;
+		if (PMA.isJSONObject(jsonString)) {
+			JSONObject jsonResponse = PMA.getJSONObjectResponse(jsonString);
+			amountOfDataDownloaded.add(jsonResponse.length());
+			if (jsonResponse.has("Code")) {
+				if (PMA.logger != null) {
+					PMA.logger.severe(request + " resulted in: " + jsonResponse.get("Message")
+							+ " (keep in mind that startDir is case sensitive!)");
+				}
+				throw new Exception(request + " resulted in: " + jsonResponse.get("Message")
+						+ " (keep in mind that startDir is case sensitive!)");
+			} else if (jsonResponse.has("d")) {
+				array = jsonResponse.getJSONArray("d");
+			} else {
+				return null;
+			}
+		} else {
+			array = PMA.getJSONArrayResponse(jsonString);
+			amountOfDataDownloaded.add(array.length());
+		}
+		List<String> list = new ArrayList<>();
+		for (int i = 0; i < array.length(); i++) {
+			list.add(array.optString(i));
+		}
+		return list;
+	}
+
+	/**
+	 * This method retrieves the information of a slide from the server
+	 *
+	 * @param slideRef slide's path or UID
+	 * @return Information about the slide, null if the response isn't JSON
+	 * @throws Exception if the server returned an error
+	 */
+	private SlideInfo loadSlideInfo(String slideRef) throws Exception {
+		String url = apiUrl() + "GetImageInfo?SessionID=" + PMA.pmaQ(sessionID) + "&pathOrUid=" + PMA.pmaQ(slideRef);
+		if (PMA.debug) {
+			System.out.println(url);
+		}
+		String jsonString = getTransport().getString(url, null);
+		amountOfDataDownloaded.add(jsonString.length());
+		List<SlideInfo> infos = Core.readSlideInfos(jsonString, "ImageInfo to " + slideRef);
+		return infos == null || infos.isEmpty() ? null : infos.get(0);
+	}
+
+	/**
+	 * This method retrieves a single encoded tile, from the tile cache if there is
+	 * one and it holds the tile
+	 *
+	 * @param slideRef  slide's path or UID, without a leading "/"
+	 * @param x         x position
+	 * @param y         y position
+	 * @param zoomLevel zoom level
+	 * @param zStack    z stack
+	 * @param format    image format
+	 * @param quality   quality
+	 * @return Encoded tile
+	 * @throws Exception if the tile can't be retrieved
+	 */
+	byte[] readTile(String slideRef, int x, int y, int zoomLevel, int zStack, String format, int quality)
+			throws Exception {
+		String tileUrl = Core.tileUrl(url, sessionID, slideRef, x, y, zoomLevel, zStack, format, quality);
+		TileCache cache = getTileCache();
+		String fingerprint = cache == null ? null : getCachedFingerPrint(slideRef);
+		if (fingerprint == null) {
+			return readBytes(tileUrl);
+		}
+		TileKey key = new TileKey(fingerprint, x, y, zoomLevel, zStack, format, quality);
+		// persistent caches check their tiles against the slide's modification date
+		SlideInfo info = getTypedSlideInfo(slideRef);
+		String lastModified = info == null ? null : info.getLastModified();
+		byte[] data = cache.get(key, lastModified);
+		if (data == null) {
+			data = readBytes(tileUrl);
+			cache.put(key, data, lastModified);
+		}
+		return data;
+	}
+
+	/**
+	 * This method gets the fingerprint of a slide, retrieving it again once it's
+	 * older than the fingerprint TTL. When the slide turns out to have changed, the
+	 * tiles cached for its previous fingerprint are dropped
+	 *
+	 * @param slideRef slide's path or UID
+	 * @return Fingerprint of the slide, null if it can't be determined
+	 */
+	private String getCachedFingerPrint(String slideRef) {
+		Fingerprint cached = fingerprints.get(slideRef);
+		if (cached != null && !cached.isExpired(fingerprintTtl)) {
+			return cached.getValue();
+		}
+		String fingerprint = getFingerPrint(slideRef);
+		if (fingerprint != null) {
+			fingerprints.put(slideRef, new Fingerprint(fingerprint));
+			TileCache cache = getTileCache();
+			if (cached != null && cache != null && !cached.getValue().equals(fingerprint)) {
+				cache.invalidate(cached.getValue());
+			}
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * This method retrieves the raw (encoded) body of an image
+	 *
+	 * @param url URL of the image
+	 * @return Encoded image
+	 * @throws IOException if the image can't be retrieved
+	 */
+	byte[] readBytes(String url) throws IOException {
+		byte[] data = getTransport().getBytes(url);
+		amountOfDataDownloaded.add(data.length);
+		return data;
+	}
+
+	/**
+	 * This method is used to run a request asynchronously, within this client's
+	 * limit of requests in flight
+	 *
+	 * @param task Request to run
+	 * @return Future completed with the result of the request
+	 */
+	<T> CompletableFuture<T> submit(Callable<T> task) {
+		return dispatcher.submit(requests, task);
+	}
+
+	private static String path(String slideRef) {
+		return slideRef.startsWith("/") ? slideRef.substring(1) : slideRef;
+	}
+
+	private static void log(Exception e) {
+		e.printStackTrace();
+		if (PMA.logger != null) {
+			StringWriter sw = new StringWriter();
+			e.printStackTrace(new PrintWriter(sw));
+			PMA.logger.severe(sw.toString());
+		}
+	}
+
+	// state used by Core
+
+	void copySettings(PmaCoreClient other) {
+		transport = other.transport;
+		responseCache = other.responseCache;
+		tileCache = other.tileCache;
+		slideInfoCache = other.slideInfoCache;
+		fingerprintTtl = other.fingerprintTtl;
+		requests.setLimit(other.requests.getLimit());
+	}
+
+	/**
+	 * This method is used to retrieve a URL through this client's transport and
+	 * response cache
+	 *
+	 * @param url    URL to retrieve
+	 * @param accept Accept header, null for none
+	 * @return Body of the response, null if it can't be retrieved
+	 */
+	String httpGet(String url, String accept) {
+		if (PMA.debug) {
+			System.out.println("Retrieving " + url);
+		}
+		try {
+			return getResponseCache().get(getTransport(), url, accept);
+		} catch (Exception e) {
+			e.printStackTrace();
+			if (PMA.logger != null) {
+				StringWriter sw = new StringWriter();
+				e.printStackTrace(new PrintWriter(sw));
+				PMA.logger.severe(sw.toString());
+			}
+			return null;
+		}
+	}
+
+	long getOrder() {
+		return order;
+	}
+
+	Map<String, Fingerprint> getFingerprints() {
+		return fingerprints;
+	}
+
+	LongAdder getDataDownloaded() {
+		return amountOfDataDownloaded;
+	}
+
+	@Override
+	public String toString() {
+		return "PmaCoreClient(" + url + ", " + sessionID + ")";
+	}
+
+	/**
+	 * Fingerprint of a slide, with the time it was retrieved
+	 */
+	static class Fingerprint {
+		private final String value;
+		private final long retrieved = System.currentTimeMillis();
+
+		Fingerprint(String value) {
+			this.value = value;
+		}
+
+		String getValue() {
+			return value;
+		}
+
+		boolean isExpired(long ttl) {
+			return System.currentTimeMillis() - retrieved >= ttl;
+		}
+	}
+}
@@ -61,13 +61,8 @@ public class ProgressHttpEntityWrapper extends HttpEntityWrapper {
         @Override
         public void write(final int b) throws IOException {
             out.write(b);
-            Core core = new Core();
-            try {
-                Core.getBytes().put((long) b);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
             this.transferred++;
+            this.bytesRead = 1;
             this.progressCallback.progress(this.bytesRead, this.transferred, this.totalBytes, this.filename);
         }
 
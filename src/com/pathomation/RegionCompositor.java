@@ -0,0 +1,145 @@
+package com.pathomation;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import javax.imageio.ImageIO;
+
+/**
+ * Assembles a region of a slide client-side from the tiles that cover it,
+ * instead of having PMA.core render it. Tiles already in the tile cache (see
+ * Core.setTileCache()) are used as they are; only the missing ones are
+ * requested, in parallel (within the session's limit of concurrent requests,
+ * see Core.setMaxConcurrentRequests()).
+ * <p>
+ * Only plain regions can be assembled this way: rotated, flipped or otherwise
+ * processed regions (gamma, contrast, ...) are rendered by the server. Core
+ * .getRegion() assembles plain regions that lie within the slide from tiles by
+ * itself when a tile cache is in use
+ * </p>
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class RegionCompositor {
+
+	private final String sessionID;
+
+	/**
+	 * Creates a compositor
+	 *
+	 * @param sessionID session's ID, null for the default session
+	 */
+	public RegionCompositor(String sessionID) {
+		this.sessionID = sessionID;
+	}
+
+	/**
+	 * This method is used to assemble a region at the slide's full resolution
+	 * (the same coordinates as Core.getRegion())
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param x        x position of the region
+	 * @param y        y position of the region
+	 * @param width    width of the region
+	 * @param height   height of the region
+	 * @return Region, clipped to the slide's dimensions
+	 * @throws IOException If the slide's information or a tile can't be
+	 *                     retrieved
+	 */
+	public BufferedImage compose(String slideRef, int x, int y, int width, int height) throws IOException {
+		return compose(slideRef, x, y, width, height, null, 0, "jpg", 100);
+	}
+
+	/**
+	 * This method is used to assemble a region at a zoom level
+	 *
+	 * @param slideRef  slide's path or UID
+	 * @param x         x position of the region, in pixels of the zoom level
+	 * @param y         y position of the region, in pixels of the zoom level
+	 * @param width     width of the region
+	 * @param height    height of the region
+	 * @param zoomLevel zoom level, null for the slide's full resolution
+	 * @param zStack    z stack
+	 * @param format    tile format, "jpg" or "png"
+	 * @param quality   tile quality
+	 * @return Region, clipped to the dimensions of the zoom level
+	 * @throws IOException If the slide's information or a tile can't be
+	 *                     retrieved
+	 */
+	public BufferedImage compose(String slideRef, int x, int y, int width, int height, Integer zoomLevel, int zStack,
+			String format, int quality) throws IOException {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("width and height must be positive");
+		}
+		String sid = Core.sessionId(sessionID);
+		if (slideRef.startsWith("/")) {
+			slideRef = slideRef.substring(1);
+		}
+		SlideInfo info = Core.getTypedSlideInfo(slideRef, sid);
+		if (info == null || info.getTileSize() <= 0 || info.getMaxZoomLevel() < 0) {
+			throw new IOException("Unable to get information for " + slideRef);
+		}
+		int zoom = zoomLevel == null ? info.getMaxZoomLevel() : zoomLevel;
+		List<Integer> dimensions = Core.getPixelDimensions(slideRef, zoom, sid);
+		// clip the region to the zoom level
+		int fromX = Math.max(x, 0);
+		int fromY = Math.max(y, 0);
+		int toX = Math.min(x + width, dimensions.get(0));
+		int toY = Math.min(y + height, dimensions.get(1));
+		if (fromX >= toX || fromY >= toY) {
+			throw new IllegalArgumentException("The region lies outside of the slide");
+		}
+		int tileSize = info.getTileSize();
+		BufferedImage region = new BufferedImage(toX - fromX, toY - fromY,
+				"png".equalsIgnoreCase(format) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = region.createGraphics();
+		try {
+			List<CompletableFuture<Void>> futures = new ArrayList<>();
+			for (int ty = fromY / tileSize; ty <= (toY - 1) / tileSize; ty++) {
+				for (int tx = fromX / tileSize; tx <= (toX - 1) / tileSize; tx++) {
+					final int left = tx * tileSize - fromX;
+					final int top = ty * tileSize - fromY;
+					futures.add(Core.readTileAsync(slideRef, tx, ty, zoom, zStack, sid, format, quality)
+							.thenAccept(data -> {
+								BufferedImage tile;
+								try {
+									tile = ImageIO.read(new ByteArrayInputStream(data));
+								} catch (IOException e) {
+									throw new RuntimeException(e);
+								}
+								if (tile != null) {
+									synchronized (g) {
+										g.drawImage(tile, left, top, null);
+									}
+								}
+							}));
+				}
+			}
+			try {
+				CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (CompletableFuture<Void> future : futures) {
+					future.cancel(true);
+				}
+				throw new InterruptedIOException("Assembling a region of " + slideRef + " interrupted");
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException && cause.getCause() instanceof IOException) {
+					cause = cause.getCause();
+				}
+				throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+			}
+		} finally {
+			g.dispose();
+		}
+		return region;
+	}
+}
@@ -0,0 +1,173 @@
+package com.pathomation;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs requests asynchronously while limiting the number of requests in flight
+ * per client. Each client has its own queue (see newQueue()): requests above
+ * its limit are queued (without blocking the caller) and started as soon as a
+ * running request of the same client completes
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+class RequestDispatcher {
+
+	private static final AtomicInteger threadCounter = new AtomicInteger();
+
+	private final ExecutorService executor;
+	private volatile int maxInFlight;
+
+	/**
+	 * Creates a dispatcher
+	 *
+	 * @param maxInFlight Maximum number of requests in flight per client, unless
+	 *                    its queue has its own limit
+	 */
+	RequestDispatcher(int maxInFlight) {
+		setMaxInFlight(maxInFlight);
+		// threads are only created for requests that are allowed to run, so the pool
+		// never grows beyond (number of clients) x maxInFlight
+		executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "pma-java-request-" + threadCounter.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	void setMaxInFlight(int maxInFlight) {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("maxInFlight must be at least 1");
+		}
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * This method is used to create the queue of a client
+	 *
+	 * @return Empty queue, limited to the dispatcher's maximum number of requests
+	 *         in flight
+	 */
+	Queue newQueue() {
+		return new Queue();
+	}
+
+	/**
+	 * This method is used to submit a request
+	 *
+	 * @param queue Queue of the client the request is counted against
+	 * @param task  Request to run
+	 * @return Future completed with the result of the request, or exceptionally if
+	 *         the request fails
+	 */
+	<T> CompletableFuture<T> submit(Queue queue, final Callable<T> task) {
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		queue.enqueue(new Runnable() {
+			@Override
+			public void run() {
+				// skip requests that were cancelled while waiting in the queue
+				if (future.isDone()) {
+					return;
+				}
+				try {
+					future.complete(task.call());
+				} catch (Throwable t) {
+					future.completeExceptionally(t);
+				}
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Requests of a single client
+	 */
+	class Queue {
+		private final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+		private int running = 0;
+		private volatile int limit = 0;
+
+		/**
+		 * @return the maximum number of requests in flight set for this queue, 0 if
+		 *         it uses the dispatcher's
+		 */
+		int getLimit() {
+			return limit;
+		}
+
+		/**
+		 * This method is used to override the maximum number of requests in flight
+		 * for this queue
+		 *
+		 * @param limit Maximum number of requests in flight, 0 to fall back to the
+		 *              dispatcher's
+		 */
+		void setLimit(int limit) {
+			if (limit < 0) {
+				throw new IllegalArgumentException("maxInFlight can't be negative");
+			}
+			this.limit = limit;
+		}
+
+		int limit() {
+			int l = limit;
+			return l > 0 ? l : maxInFlight;
+		}
+
+		synchronized int inFlight() {
+			return running;
+		}
+
+		void enqueue(Runnable task) {
+			synchronized (this) {
+				if (running >= limit()) {
+					pending.add(task);
+					return;
+				}
+				running++;
+			}
+			start(task);
+		}
+
+		private void start(final Runnable task) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run();
+					} finally {
+						completed();
+					}
+				}
+			});
+		}
+
+		private void completed() {
+			Runnable next;
+			synchronized (this) {
+				next = running > limit() ? null : pending.poll();
+				if (next == null) {
+					running--;
+					return;
+				}
+			}
+			start(next);
+		}
+	}
+}
@@ -0,0 +1,373 @@
+package com.pathomation;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Cache of the bodies of GET requests, used by PMA.httpGet(). Responses expire
+ * after a time that depends on the endpoint (the last segment of the URL's
+ * path, e.g. "GetUID"), and the cache is bounded by the total size of the
+ * bodies it holds (least recently used first). When an expired response came
+ * with an ETag or Last-Modified header, it's revalidated with a conditional
+ * request instead of being downloaded again.
+ * <p>
+ * Only successful (2xx) responses are cached
+ * </p>
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class ResponseCache {
+
+	/**
+	 * Default maximum total size of the cached responses (8 MB)
+	 */
+	public static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024L;
+
+	/**
+	 * Default time (in milliseconds) a response is cached for (1 minute)
+	 */
+	public static final long DEFAULT_TTL = 60 * 1000L;
+
+	// per entry bookkeeping, on top of the url and the body
+	private static final int ENTRY_OVERHEAD = 96;
+
+	private final long maxBytes;
+	private volatile long defaultTtl;
+	private final Map<String, Long> ttls = new ConcurrentHashMap<>();
+	// access ordered, so iteration starts with the least recently used response
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+	private long bytes = 0;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder revalidations = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a cache with the default limits
+	 */
+	public ResponseCache() {
+		this(DEFAULT_MAX_BYTES, DEFAULT_TTL);
+	}
+
+	/**
+	 * Creates a cache
+	 *
+	 * @param maxBytes   Maximum total size (in bytes) of the cached responses
+	 * @param defaultTtl Time (in milliseconds) a response is cached for, unless
+	 *                   set otherwise for its endpoint
+	 */
+	public ResponseCache(long maxBytes, long defaultTtl) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes must be positive");
+		}
+		this.maxBytes = maxBytes;
+		setDefaultTtl(defaultTtl);
+		// logging out must always reach the server
+		setTtl("Authenticate", 0);
+		setTtl("DeAuthenticate", 0);
+		// these hardly ever change
+		setTtl("GetUID", 60 * 60 * 1000L);
+		setTtl("version", 60 * 60 * 1000L);
+		setTtl("GetVersionInfo", 60 * 60 * 1000L);
+		setTtl("ReverseUID", 10 * 60 * 1000L);
+		setTtl("ReverseRootDirectory", 10 * 60 * 1000L);
+	}
+
+	/**
+	 * @return the maximum total size (in bytes) of the cached responses
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @return the time (in milliseconds) a response is cached for, unless set
+	 *         otherwise for its endpoint
+	 */
+	public long getDefaultTtl() {
+		return defaultTtl;
+	}
+
+	/**
+	 * This method is used to set the time a response is cached for
+	 *
+	 * @param defaultTtl Time (in milliseconds), 0 to not cache responses
+	 */
+	public void setDefaultTtl(long defaultTtl) {
+		if (defaultTtl < 0) {
+			throw new IllegalArgumentException("defaultTtl can't be negative");
+		}
+		this.defaultTtl = defaultTtl;
+	}
+
+	/**
+	 * This method is used to set the time the responses of an endpoint are cached
+	 * for
+	 *
+	 * @param endpoint Last segment of the URL's path (e.g. "GetUID"), case
+	 *                 insensitive
+	 * @param ttl      Time (in milliseconds), 0 to not cache the responses of this
+	 *                 endpoint
+	 */
+	public void setTtl(String endpoint, long ttl) {
+		if (ttl < 0) {
+			throw new IllegalArgumentException("ttl can't be negative");
+		}
+		ttls.put(endpoint.toLowerCase(Locale.ROOT), ttl);
+	}
+
+	/**
+	 * This method is used to get the time the response of a URL is cached for
+	 *
+	 * @param url URL
+	 * @return Time (in milliseconds), 0 if the response isn't cached
+	 */
+	public long getTtl(String url) {
+		Long ttl = ttls.get(endpoint(url));
+		return ttl != null ? ttl : defaultTtl;
+	}
+
+	/**
+	 * This method is used to GET the body of a URL, from the cache when possible.
+	 * Just like HttpTransport.getString(), the body of non 2xx responses is
+	 * returned as well (but not cached)
+	 *
+	 * @param transport Transport to send the request with
+	 * @param url       URL to request
+	 * @param accept    Accept header value, can be null
+	 * @return Body of the response
+	 * @throws IOException If the request fails
+	 */
+	public String get(HttpTransport transport, String url, String accept) throws IOException {
+		long ttl = getTtl(url);
+		Entry cached;
+		synchronized (this) {
+			cached = entries.get(url);
+		}
+		long now = System.currentTimeMillis();
+		if (cached != null && now < cached.expires) {
+			hits.increment();
+			return cached.body;
+		}
+		misses.increment();
+		HttpGet request = new HttpGet(url);
+		if (accept != null) {
+			request.setHeader("Accept", accept);
+		}
+		if (cached != null) {
+			if (cached.etag != null) {
+				request.setHeader("If-None-Match", cached.etag);
+			}
+			if (cached.lastModified != null) {
+				request.setHeader("If-Modified-Since", cached.lastModified);
+			}
+		}
+		try (CloseableHttpResponse response = transport.execute(request)) {
+			int status = response.getStatusLine().getStatusCode();
+			if (status == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+				EntityUtils.consumeQuietly(response.getEntity());
+				revalidations.increment();
+				store(url, new Entry(cached.body, cached.etag, cached.lastModified,
+						System.currentTimeMillis() + ttl), ttl);
+				return cached.body;
+			}
+			String body = HttpTransport.readBody(response);
+			if (status >= 200 && status < 300) {
+				store(url, new Entry(body, headerValue(response.getFirstHeader("ETag")),
+						headerValue(response.getFirstHeader("Last-Modified")), System.currentTimeMillis() + ttl), ttl);
+			} else if (cached != null) {
+				invalidate(url);
+			}
+			return body;
+		}
+	}
+
+	/**
+	 * This method is used to drop the cached response of a URL
+	 *
+	 * @param url URL
+	 */
+	public synchronized void invalidate(String url) {
+		Entry entry = entries.remove(url);
+		if (entry != null) {
+			bytes -= weight(url, entry);
+		}
+	}
+
+	/**
+	 * This method is used to drop the cached responses of all URLs starting with a
+	 * prefix (e.g. all responses of a server)
+	 *
+	 * @param prefix URL prefix
+	 */
+	public synchronized void invalidatePrefix(String prefix) {
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Entry> entry = it.next();
+			if (entry.getKey().startsWith(prefix)) {
+				bytes -= weight(entry.getKey(), entry.getValue());
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * This method is used to drop all cached responses
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * @return a snapshot of the cache statistics
+	 */
+	public Stats getStats() {
+		long count;
+		long size;
+		synchronized (this) {
+			count = entries.size();
+			size = bytes;
+		}
+		return new Stats(hits.sum(), misses.sum(), revalidations.sum(), evictions.sum(), count, size);
+	}
+
+	private void store(String url, Entry entry, long ttl) {
+		// responses without validators are useless once expired
+		boolean keep = ttl > 0 || entry.etag != null || entry.lastModified != null;
+		long weight = weight(url, entry);
+		synchronized (this) {
+			Entry previous = entries.remove(url);
+			if (previous != null) {
+				bytes -= weight(url, previous);
+			}
+			if (!keep || weight > maxBytes) {
+				return;
+			}
+			entries.put(url, entry);
+			bytes += weight;
+			Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+			while (bytes > maxBytes && it.hasNext()) {
+				Map.Entry<String, Entry> eldest = it.next();
+				bytes -= weight(eldest.getKey(), eldest.getValue());
+				it.remove();
+				evictions.increment();
+			}
+		}
+	}
+
+	private static long weight(String url, Entry entry) {
+		return 2L * (url.length() + entry.body.length()) + ENTRY_OVERHEAD;
+	}
+
+	private static String headerValue(Header header) {
+		return header == null ? null : header.getValue();
+	}
+
+	private static String endpoint(String url) {
+		int end = url.indexOf('?');
+		if (end < 0) {
+			end = url.length();
+		}
+		while (end > 0 && url.charAt(end - 1) == '/') {
+			end--;
+		}
+		int start = url.lastIndexOf('/', end - 1) + 1;
+		return url.substring(start, end).toLowerCase(Locale.ROOT);
+	}
+
+	private static class Entry {
+		private final String body;
+		private final String etag;
+		private final String lastModified;
+		private final long expires;
+
+		Entry(String body, String etag, String lastModified, long expires) {
+			this.body = body;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.expires = expires;
+		}
+	}
+
+	/**
+	 * Snapshot of the statistics of a response cache
+	 */
+	public static class Stats {
+		private final long hits;
+		private final long misses;
+		private final long revalidations;
+		private final long evictions;
+		private final long entries;
+		private final long bytes;
+
+		public Stats(long hits, long misses, long revalidations, long evictions, long entries, long bytes) {
+			this.hits = hits;
+			this.misses = misses;
+			this.revalidations = revalidations;
+			this.evictions = evictions;
+			this.entries = entries;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * @return the number of requests answered from the cache
+		 */
+		public long getHits() {
+			return hits;
+		}
+
+		/**
+		 * @return the number of requests sent to the server (revalidations
+		 *         included)
+		 */
+		public long getMisses() {
+			return misses;
+		}
+
+		/**
+		 * @return the number of expired responses the server confirmed as unchanged
+		 */
+		public long getRevalidations() {
+			return revalidations;
+		}
+
+		/**
+		 * @return the number of responses evicted to stay within the size limit
+		 */
+		public long getEvictions() {
+			return evictions;
+		}
+
+		/**
+		 * @return the number of responses currently cached
+		 */
+		public long getEntries() {
+			return entries;
+		}
+
+		/**
+		 * @return the (estimated) size in bytes of the responses currently cached
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		@Override
+		public String toString() {
+			return "hits=" + hits + ", misses=" + misses + ", revalidations=" + revalidations + ", evictions="
+					+ evictions + ", entries=" + entries + ", bytes=" + bytes;
+		}
+	}
+}
@@ -0,0 +1,689 @@
+package com.pathomation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Local, persistent catalogue of the slides of a PMA.core instance: path, UID,
+ * fingerprint, total size and last modification date of each slide (the last
+ * two from GetFilenames). Once synchronised, it can be queried without any
+ * connection to the server.
+ * <p>
+ * Synchronisation is incremental: the directory tree is listed again and every
+ * slide's files are compared (total size, number of files and latest
+ * modification date) with the catalogue. Only new or changed slides have their
+ * UID and fingerprint requested, and slides no longer listed are removed.
+ * </p>
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class SlideCatalogue {
+
+	private static final int FORMAT_VERSION = 1;
+	private static final Pattern MS_DATE = Pattern.compile("/Date\\((-?\\d+)([+-]\\d{4})?\\)/");
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	private final File file;
+	private final TreeMap<String, Entry> entries = new TreeMap<>();
+	private String url;
+	private int parallelism = SlideCrawler.DEFAULT_PARALLELISM;
+	private boolean verifyFingerprints = false;
+
+	/**
+	 * Creates an empty catalogue that's only kept in memory
+	 */
+	public SlideCatalogue() {
+		this.file = null;
+	}
+
+	/**
+	 * Opens a catalogue stored in a file. The file is read if it exists, and
+	 * written after every synchronisation
+	 *
+	 * @param file File the catalogue is stored in
+	 * @throws IOException If the file exists but can't be read
+	 */
+	public SlideCatalogue(File file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("file can't be null");
+		}
+		this.file = file;
+		if (file.isFile()) {
+			load();
+		}
+	}
+
+	/**
+	 * @return the file the catalogue is stored in, null if it's only kept in
+	 *         memory
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the URL of the PMA.core instance the catalogue describes, null if it
+	 *         was never synchronised
+	 */
+	public synchronized String getUrl() {
+		return url;
+	}
+
+	/**
+	 * This method is used to set the number of requests sent at the same time
+	 * while synchronising
+	 *
+	 * @param parallelism Number of requests (default 8)
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * This method is used to choose whether the fingerprint of every slide is
+	 * requested while synchronising, even when its files look unchanged. That's
+	 * slower, but catches changes that keep the same size and date, and is the
+	 * only way to detect changes on PMA.start, which reports neither
+	 *
+	 * @param verifyFingerprints Whether all fingerprints are verified (default
+	 *                           false)
+	 */
+	public void setVerifyFingerprints(boolean verifyFingerprints) {
+		this.verifyFingerprints = verifyFingerprints;
+	}
+
+	/**
+	 * This method is used to synchronise a directory tree with the server
+	 *
+	 * @param startDir  Start directory ("/" or "" for all root directories)
+	 * @param sessionID session's ID, null for the default session
+	 * @return What changed
+	 * @throws IOException If the catalogue can't be saved
+	 */
+	public SyncResult sync(String startDir, String sessionID) throws IOException {
+		PmaCoreClient client = Core.getClient(sessionID);
+		String session = client == null ? sessionID : client.getSessionId();
+		String serverUrl = client == null ? null : client.getUrl();
+		synchronized (this) {
+			if (url != null && serverUrl != null && !url.equals(serverUrl)) {
+				if (PMA.logger != null) {
+					PMA.logger.severe("sync() : catalogue of " + url + " can't be synchronised with " + serverUrl);
+				}
+				throw new IllegalArgumentException(
+						"Catalogue of " + url + " can't be synchronised with " + serverUrl);
+			}
+		}
+		String dir = normalize(startDir);
+
+		SlideCrawler crawler = new SlideCrawler(session, parallelism, SlideCrawler.UNLIMITED_DEPTH);
+		crawler.setIncludeDirectories(false);
+		SlideCrawler.Result crawl = crawler.crawl(dir.isEmpty() ? "/" : dir);
+		Map<String, Exception> errors = new LinkedHashMap<>(crawl.getErrors());
+
+		List<String> slides = crawl.getSlides().stream().map(SlideCatalogue::normalize).collect(Collectors.toList());
+		Map<String, Entry> known = new HashMap<>();
+		synchronized (this) {
+			for (String slide : slides) {
+				Entry entry = entries.get(slide);
+				if (entry != null) {
+					known.put(slide, entry);
+				}
+			}
+		}
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		List<Object> checked;
+		try {
+			checked = pool.submit(() -> slides.parallelStream()
+					.map(slide -> check(slide, known.get(slide), session)).collect(Collectors.toList())).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Synchronisation interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Synchronisation failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		List<Entry> added = new ArrayList<>();
+		List<Entry> changed = new ArrayList<>();
+		List<Entry> removed = new ArrayList<>();
+		int unchanged = 0;
+		synchronized (this) {
+			for (int i = 0; i < checked.size(); i++) {
+				Object o = checked.get(i);
+				String slide = slides.get(i);
+				if (o instanceof Exception) {
+					errors.put(slide, (Exception) o);
+				} else if (o == known.get(slide)) {
+					unchanged++;
+				} else if (entries.put(slide, (Entry) o) == null) {
+					added.add((Entry) o);
+				} else {
+					changed.add((Entry) o);
+				}
+			}
+			// slides that are no longer listed, unless their directory couldn't be listed
+			Set<String> listed = new HashSet<>(slides);
+			for (Entry entry : new ArrayList<>(under(dir).values())) {
+				if (!listed.contains(entry.path) && !errors.containsKey(entry.path)
+						&& !failedAbove(entry.path, crawl.getErrors())) {
+					entries.remove(entry.path);
+					removed.add(entry);
+				}
+			}
+			if (serverUrl != null) {
+				url = serverUrl;
+			}
+		}
+		if (file != null) {
+			save();
+		}
+		return new SyncResult(added, changed, removed, unchanged, errors);
+	}
+
+	private Object check(String slide, Entry known, String session) {
+		try {
+			Map<String, Map<String, String>> files = Core.getFilesForSlide(slide, session);
+			if (files == null) {
+				throw new Exception("Unable to get the files of " + slide);
+			}
+			long size = 0;
+			long lastModifiedMillis = -1;
+			String lastModified = null;
+			for (Map<String, String> f : files.values()) {
+				if (f.get("Size") != null) {
+					size += Long.parseLong(f.get("Size"));
+				}
+				long millis = parseDate(f.get("LastModified"));
+				if (millis >= lastModifiedMillis && f.get("LastModified") != null) {
+					lastModifiedMillis = millis;
+					lastModified = f.get("LastModified");
+				}
+			}
+			String fingerprint = null;
+			if (known != null && known.size == size && known.fileCount == files.size()
+					&& known.lastModifiedMillis == lastModifiedMillis) {
+				if (!verifyFingerprints) {
+					return known;
+				}
+				fingerprint = Core.getFingerPrint(slide, session);
+				if (fingerprint != null && fingerprint.equals(known.fingerprint)) {
+					return known;
+				}
+			}
+			if (fingerprint == null) {
+				fingerprint = Core.getFingerPrint(slide, session);
+			}
+			String uid = null;
+			if (!Core.isLiteSession(session)) {
+				uid = Core.getUid(slide, session);
+			}
+			return new Entry(slide, uid, fingerprint, size, files.size(), lastModified, lastModifiedMillis,
+					System.currentTimeMillis());
+		} catch (Exception e) {
+			if (PMA.logger != null) {
+				PMA.logger.severe("sync() : unable to check " + slide + ": " + e.getMessage());
+			}
+			return e;
+		}
+	}
+
+	private static boolean failedAbove(String path, Map<String, Exception> failedDirectories) {
+		for (String failed : failedDirectories.keySet()) {
+			String dir = normalize(failed);
+			if (dir.isEmpty() || path.startsWith(dir + "/")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String normalize(String dir) {
+		if (dir == null) {
+			return "";
+		}
+		int start = 0;
+		int end = dir.length();
+		while (start < end && dir.charAt(start) == '/') {
+			start++;
+		}
+		while (end > start && dir.charAt(end - 1) == '/') {
+			end--;
+		}
+		return dir.substring(start, end);
+	}
+
+	private NavigableMap<String, Entry> under(String dir) {
+		if (dir.isEmpty()) {
+			return entries;
+		}
+		// every path starting with dir + "/" sorts between these two keys
+		return entries.subMap(dir + "/", true, dir + "0", false);
+	}
+
+	/**
+	 * This method is used to parse a LastModified value as sent by the server
+	 *
+	 * @param date "/Date(1572946520000)/" or an ISO-8601 date
+	 * @return Milliseconds since the epoch, -1 if the date can't be parsed
+	 */
+	static long parseDate(String date) {
+		if (date == null) {
+			return -1;
+		}
+		Matcher m = MS_DATE.matcher(date);
+		if (m.matches()) {
+			return Long.parseLong(m.group(1));
+		}
+		try {
+			return OffsetDateTime.parse(date).toInstant().toEpochMilli();
+		} catch (DateTimeParseException e) {
+			try {
+				return LocalDateTime.parse(date).toInstant(ZoneOffset.UTC).toEpochMilli();
+			} catch (DateTimeParseException e2) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * @param path slide's path
+	 * @return the slide's entry, null if it's not in the catalogue
+	 */
+	public synchronized Entry get(String path) {
+		return entries.get(normalize(path));
+	}
+
+	/**
+	 * @param uid slide's UID
+	 * @return the entry of the slide with this UID, null if there's none
+	 */
+	public synchronized Entry getByUid(String uid) {
+		for (Entry entry : entries.values()) {
+			if (uid.equals(entry.uid)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the number of slides in the catalogue
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return all entries, sorted by path
+	 */
+	public synchronized List<Entry> getEntries() {
+		return new ArrayList<>(entries.values());
+	}
+
+	/**
+	 * This method is used to get the slides of a directory and its
+	 * sub-directories
+	 *
+	 * @param dir Directory ("/" or "" for all slides)
+	 * @return Entries, sorted by path
+	 */
+	public synchronized List<Entry> findByPrefix(String dir) {
+		return new ArrayList<>(under(normalize(dir)).values());
+	}
+
+	/**
+	 * This method is used to get the slides with a file extension
+	 *
+	 * @param extension File extension, with or without the dot (case insensitive)
+	 * @return Entries, sorted by path
+	 */
+	public List<Entry> findByExtension(String extension) {
+		String ext = extension.startsWith(".") ? extension.substring(1) : extension;
+		return find(entry -> entry.getExtension().equalsIgnoreCase(ext));
+	}
+
+	/**
+	 * This method is used to get the slides modified at or after a date
+	 *
+	 * @param millis Milliseconds since the epoch
+	 * @return Entries, sorted by path
+	 */
+	public List<Entry> findModifiedSince(long millis) {
+		return find(entry -> entry.lastModifiedMillis >= millis);
+	}
+
+	/**
+	 * This method is used to get the slides that match a condition
+	 *
+	 * @param filter Condition
+	 * @return Entries, sorted by path
+	 */
+	public synchronized List<Entry> find(Predicate<Entry> filter) {
+		return entries.values().stream().filter(filter).collect(Collectors.toList());
+	}
+
+	/**
+	 * This method is used to remove all slides from the catalogue
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		url = null;
+	}
+
+	/**
+	 * This method is used to write the catalogue to its file. The file is replaced
+	 * atomically, so a failed save leaves the previous version intact
+	 *
+	 * @throws IOException If the file can't be written
+	 */
+	public void save() throws IOException {
+		if (file == null) {
+			throw new IllegalStateException("This catalogue isn't stored in a file");
+		}
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		File tmp = new File(parent, file.getName() + ".tmp");
+		synchronized (this) {
+			try (JsonGenerator g = jsonFactory.createGenerator(tmp, JsonEncoding.UTF8)) {
+				g.writeStartObject();
+				g.writeNumberField("version", FORMAT_VERSION);
+				g.writeStringField("url", url);
+				g.writeArrayFieldStart("slides");
+				for (Entry e : entries.values()) {
+					g.writeStartObject();
+					g.writeStringField("path", e.path);
+					g.writeStringField("uid", e.uid);
+					g.writeStringField("fingerprint", e.fingerprint);
+					g.writeNumberField("size", e.size);
+					g.writeNumberField("files", e.fileCount);
+					g.writeStringField("lastModified", e.lastModified);
+					g.writeNumberField("lastModifiedMillis", e.lastModifiedMillis);
+					g.writeNumberField("synced", e.synced);
+					g.writeEndObject();
+				}
+				g.writeEndArray();
+				g.writeEndObject();
+			}
+		}
+		try {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private synchronized void load() throws IOException {
+		try (JsonParser p = jsonFactory.createParser(file)) {
+			if (p.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException(file + " isn't a slide catalogue");
+			}
+			while (p.nextToken() == JsonToken.FIELD_NAME) {
+				String name = p.getCurrentName();
+				p.nextToken();
+				if (name.equals("version")) {
+					if (p.getIntValue() != FORMAT_VERSION) {
+						throw new IOException(file + " has an unsupported version: " + p.getIntValue());
+					}
+				} else if (name.equals("url")) {
+					url = p.getValueAsString();
+				} else if (name.equals("slides")) {
+					while (p.nextToken() == JsonToken.START_OBJECT) {
+						Entry e = readEntry(p);
+						entries.put(e.path, e);
+					}
+				} else {
+					p.skipChildren();
+				}
+			}
+		}
+	}
+
+	private static Entry readEntry(JsonParser p) throws IOException {
+		String path = null, uid = null, fingerprint = null, lastModified = null;
+		long size = 0, lastModifiedMillis = -1, synced = 0;
+		int files = 0;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String name = p.getCurrentName();
+			p.nextToken();
+			switch (name) {
+			case "path":
+				path = p.getValueAsString();
+				break;
+			case "uid":
+				uid = p.getValueAsString();
+				break;
+			case "fingerprint":
+				fingerprint = p.getValueAsString();
+				break;
+			case "lastModified":
+				lastModified = p.getValueAsString();
+				break;
+			case "size":
+				size = p.getLongValue();
+				break;
+			case "files":
+				files = p.getIntValue();
+				break;
+			case "lastModifiedMillis":
+				lastModifiedMillis = p.getLongValue();
+				break;
+			case "synced":
+				synced = p.getLongValue();
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		if (path == null) {
+			throw new IOException("Catalogue entry without a path");
+		}
+		return new Entry(path, uid, fingerprint, size, files, lastModified, lastModifiedMillis, synced);
+	}
+
+	/**
+	 * A slide in the catalogue
+	 */
+	public static final class Entry {
+		private final String path;
+		private final String uid;
+		private final String fingerprint;
+		private final long size;
+		private final int fileCount;
+		private final String lastModified;
+		private final long lastModifiedMillis;
+		private final long synced;
+
+		Entry(String path, String uid, String fingerprint, long size, int fileCount, String lastModified,
+				long lastModifiedMillis, long synced) {
+			this.path = path;
+			this.uid = uid;
+			this.fingerprint = fingerprint;
+			this.size = size;
+			this.fileCount = fileCount;
+			this.lastModified = lastModified;
+			this.lastModifiedMillis = lastModifiedMillis;
+			this.synced = synced;
+		}
+
+		/**
+		 * @return the slide's path
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * @return the directory the slide is in
+		 */
+		public String getDirectory() {
+			int i = path.lastIndexOf('/');
+			return i < 0 ? "" : path.substring(0, i);
+		}
+
+		/**
+		 * @return the slide's file extension (without the dot), in lower case
+		 */
+		public String getExtension() {
+			String name = path.substring(path.lastIndexOf('/') + 1);
+			int i = name.lastIndexOf('.');
+			return i < 0 ? "" : name.substring(i + 1).toLowerCase(Locale.ROOT);
+		}
+
+		/**
+		 * @return the slide's UID, null if unknown (e.g. PMA.start)
+		 */
+		public String getUid() {
+			return uid;
+		}
+
+		/**
+		 * @return the slide's fingerprint, null if unknown
+		 */
+		public String getFingerprint() {
+			return fingerprint;
+		}
+
+		/**
+		 * @return the total size (in bytes) of the slide's files
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return the number of files the slide consists of
+		 */
+		public int getFileCount() {
+			return fileCount;
+		}
+
+		/**
+		 * @return the latest modification date of the slide's files, as sent by the
+		 *         server, null if unknown
+		 */
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * @return the latest modification date of the slide's files in milliseconds
+		 *         since the epoch, -1 if unknown
+		 */
+		public long getLastModifiedMillis() {
+			return lastModifiedMillis;
+		}
+
+		/**
+		 * @return when (in milliseconds since the epoch) the entry was last
+		 *         refreshed from the server
+		 */
+		public long getSynced() {
+			return synced;
+		}
+
+		@Override
+		public String toString() {
+			return path + " (" + size + " bytes, " + fileCount + " files, " + lastModified + ")";
+		}
+	}
+
+	/**
+	 * Outcome of a synchronisation
+	 */
+	public static class SyncResult {
+		private final List<Entry> added;
+		private final List<Entry> changed;
+		private final List<Entry> removed;
+		private final int unchanged;
+		private final Map<String, Exception> errors;
+
+		SyncResult(List<Entry> added, List<Entry> changed, List<Entry> removed, int unchanged,
+				Map<String, Exception> errors) {
+			this.added = Collections.unmodifiableList(added);
+			this.changed = Collections.unmodifiableList(changed);
+			this.removed = Collections.unmodifiableList(removed);
+			this.unchanged = unchanged;
+			this.errors = Collections.unmodifiableMap(errors);
+		}
+
+		/**
+		 * @return the slides that weren't in the catalogue yet
+		 */
+		public List<Entry> getAdded() {
+			return added;
+		}
+
+		/**
+		 * @return the slides whose files changed (new entries)
+		 */
+		public List<Entry> getChanged() {
+			return changed;
+		}
+
+		/**
+		 * @return the slides that are no longer listed by the server (old entries)
+		 */
+		public List<Entry> getRemoved() {
+			return removed;
+		}
+
+		/**
+		 * @return the number of slides that didn't change
+		 */
+		public int getUnchanged() {
+			return unchanged;
+		}
+
+		/**
+		 * @return the directories and slides that couldn't be checked, with the
+		 *         reason why; their entries were left as they were
+		 */
+		public Map<String, Exception> getErrors() {
+			return errors;
+		}
+
+		@Override
+		public String toString() {
+			return "added=" + added.size() + ", changed=" + changed.size() + ", removed=" + removed.size()
+					+ ", unchanged=" + unchanged + ", errors=" + errors.size();
+		}
+	}
+}
@@ -0,0 +1,471 @@
+package com.pathomation;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Walks a directory tree of a PMA.core instance, listing the sub-directories and
+ * slides of several directories at the same time. Every directory is listed
+ * only once, and directories and slides are passed to a listener as soon as
+ * they're discovered.
+ * <p>
+ * The number of directories listed at the same time (and so the number of
+ * requests in flight to the server) is bounded by the parallelism of the
+ * crawler. The requests block, so the underlying ForkJoinPool may start extra
+ * threads while tasks wait for them, but every request first takes one of
+ * parallelism permits, so these threads never send more requests
+ * </p>
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class SlideCrawler {
+
+	/**
+	 * Default number of directories listed at the same time
+	 */
+	public static final int DEFAULT_PARALLELISM = 8;
+
+	/**
+	 * Depth limit meaning the whole tree is crawled
+	 */
+	public static final int UNLIMITED_DEPTH = -1;
+
+	/**
+	 * Receives the directories and slides as they're discovered. Its methods are
+	 * called from several threads at the same time
+	 */
+	public interface Listener {
+		/**
+		 * @param path  Path of the directory
+		 * @param depth Depth of the directory (1 for the sub-directories of the start
+		 *              directory)
+		 */
+		void onDirectory(String path, int depth);
+
+		/**
+		 * @param path  Path of the slide
+		 * @param depth Depth of the directory the slide is in (0 for the start
+		 *              directory)
+		 */
+		void onSlide(String path, int depth);
+
+		/**
+		 * @param path Path of the directory that couldn't be listed
+		 * @param e    Error
+		 */
+		default void onError(String path, Exception e) {
+		}
+	}
+
+	private final String sessionID;
+	private final int parallelism;
+	private final int maxDepth;
+	// bounds the requests in flight, whatever the number of threads of the pool
+	private final Semaphore requests;
+	private boolean includeDirectories = true;
+	private boolean includeSlides = true;
+	private boolean collectResults = true;
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Creates a crawler that walks the whole tree with the default parallelism
+	 *
+	 * @param sessionID session's ID, null for the default session
+	 */
+	public SlideCrawler(String sessionID) {
+		this(sessionID, DEFAULT_PARALLELISM, UNLIMITED_DEPTH);
+	}
+
+	/**
+	 * Creates a crawler
+	 *
+	 * @param sessionID   session's ID, null for the default session
+	 * @param parallelism Maximum number of directories listed at the same time
+	 * @param maxDepth    Depth of the deepest directories whose slides are listed
+	 *                    (0 for the start directory only), UNLIMITED_DEPTH for the
+	 *                    whole tree. Directories are listed one level deeper, just
+	 *                    like getDirectories() does
+	 */
+	public SlideCrawler(String sessionID, int parallelism, int maxDepth) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		if (maxDepth < UNLIMITED_DEPTH) {
+			throw new IllegalArgumentException("maxDepth must be UNLIMITED_DEPTH or at least 0");
+		}
+		this.sessionID = sessionID;
+		this.parallelism = parallelism;
+		this.maxDepth = maxDepth;
+		this.requests = new Semaphore(parallelism);
+	}
+
+	/**
+	 * @return the maximum number of directories listed at the same time
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @return the depth of the deepest directories whose slides are listed,
+	 *         UNLIMITED_DEPTH for the whole tree
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * This method is used to choose whether directories are reported. When they
+	 * aren't, the directories at the maximum depth aren't listed at all
+	 *
+	 * @param includeDirectories Whether directories are reported (default true)
+	 */
+	public void setIncludeDirectories(boolean includeDirectories) {
+		this.includeDirectories = includeDirectories;
+	}
+
+	/**
+	 * This method is used to choose whether slides are reported. When they aren't,
+	 * no slides are listed at all
+	 *
+	 * @param includeSlides Whether slides are reported (default true)
+	 */
+	public void setIncludeSlides(boolean includeSlides) {
+		this.includeSlides = includeSlides;
+	}
+
+	/**
+	 * This method is used to choose whether the directories and slides found are
+	 * kept for the Result. Crawls that only use a listener can turn it off, so
+	 * they don't hold the whole tree in memory
+	 *
+	 * @param collectResults Whether Result.getDirectories() and
+	 *                       Result.getSlides() are filled in (default true)
+	 */
+	public void setCollectResults(boolean collectResults) {
+		this.collectResults = collectResults;
+	}
+
+	/**
+	 * This method is used to stop the crawls of this crawler. Directories already
+	 * being listed are finished, but no new ones are started; crawl() then returns
+	 * what was found so far. A cancelled crawler can't be used again
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return true if cancel() was called
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * This method is used to crawl a directory tree
+	 *
+	 * @param startDir Start directory ("/" or "" for all root directories)
+	 * @return Directories and slides found
+	 */
+	public Result crawl(String startDir) {
+		return crawl(startDir, null);
+	}
+
+	/**
+	 * This method is used to crawl a directory tree. It returns once the whole
+	 * tree was crawled
+	 *
+	 * @param startDir Start directory ("/" or "" for all root directories)
+	 * @param listener Listener to pass the directories and slides to as they're
+	 *                 discovered, can be null
+	 * @return Directories and slides found
+	 */
+	public Result crawl(String startDir, Listener listener) {
+		PmaCoreClient client = Core.getClient(sessionID);
+		Result result = new Result();
+		if (client == null) {
+			failed(result, listener, startDir == null ? "/" : startDir,
+					new Exception("Invalid sessionID:" + sessionID));
+			result.directories = Collections.emptyList();
+			result.slides = Collections.emptyList();
+			return result;
+		}
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			Node root;
+			if (startDir == null || startDir.isEmpty() || startDir.equals("/")) {
+				root = pool.invoke(new RootTask(client, listener, result));
+			} else {
+				root = pool.invoke(new DirectoryTask(client, startDir, 0, listener, result));
+			}
+			result.directories = Collections.unmodifiableList(root.directories);
+			result.slides = Collections.unmodifiableList(root.slides);
+			return result;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private boolean listSubDirectories(int depth) {
+		return maxDepth == UNLIMITED_DEPTH || depth < maxDepth || (includeDirectories && depth == maxDepth);
+	}
+
+	private boolean recurse(int depth) {
+		return maxDepth == UNLIMITED_DEPTH || depth < maxDepth;
+	}
+
+	private void failed(Result result, Listener listener, String path, Exception e) {
+		synchronized (result.errors) {
+			result.errors.put(path, e);
+		}
+		if (listener != null) {
+			listener.onError(path, e);
+		}
+		if (PMA.logger != null) {
+			StringWriter sw = new StringWriter();
+			e.printStackTrace(new PrintWriter(sw));
+			PMA.logger.severe(sw.toString());
+		}
+	}
+
+	/**
+	 * This method is used to send a request to the server from a task of the
+	 * pool. The request waits for a permit, and the pool is told that the task
+	 * blocks, so it can keep the other tasks going meanwhile
+	 *
+	 * @param call Request
+	 * @return Result of the request
+	 * @throws Exception if the request failed or was interrupted
+	 */
+	private <T> T request(Callable<T> call) throws Exception {
+		Request<T> request = new Request<>(call);
+		try {
+			ForkJoinPool.managedBlock(request);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw e;
+		}
+		if (request.failure != null) {
+			throw request.failure;
+		}
+		return request.value;
+	}
+
+	private class Request<T> implements ForkJoinPool.ManagedBlocker {
+		private final Callable<T> call;
+		private T value;
+		private Exception failure;
+		private boolean done;
+
+		Request(Callable<T> call) {
+			this.call = call;
+		}
+
+		@Override
+		public boolean block() throws InterruptedException {
+			requests.acquire();
+			try {
+				value = call.call();
+			} catch (Exception e) {
+				failure = e;
+			} finally {
+				requests.release();
+				done = true;
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable() {
+			return done;
+		}
+	}
+
+	private class RootTask extends RecursiveTask<Node> {
+		private static final long serialVersionUID = 1L;
+		private final PmaCoreClient client;
+		private final Listener listener;
+		private final Result result;
+
+		RootTask(PmaCoreClient client, Listener listener, Result result) {
+			this.client = client;
+			this.listener = listener;
+			this.result = result;
+		}
+
+		@Override
+		protected Node compute() {
+			Node node = new Node();
+			List<String> roots;
+			try {
+				roots = request(client::getRootDirectories);
+			} catch (Exception e) {
+				failed(result, listener, "/", e);
+				return node;
+			}
+			if (roots == null) {
+				failed(result, listener, "/", new Exception("Unable to get the root directories"));
+				return node;
+			}
+			result.listed.incrementAndGet();
+			// the root directories are the sub-directories of a virtual start directory
+			List<DirectoryTask> tasks = new ArrayList<>();
+			for (String root : roots) {
+				if (includeDirectories) {
+					if (collectResults) {
+						node.directories.add(root);
+					}
+					if (listener != null) {
+						listener.onDirectory(root, 1);
+					}
+				}
+				if (recurse(0)) {
+					DirectoryTask task = new DirectoryTask(client, root, 1, listener, result);
+					task.fork();
+					tasks.add(task);
+				}
+			}
+			for (DirectoryTask task : tasks) {
+				node.add(task.join());
+			}
+			return node;
+		}
+	}
+
+	private class DirectoryTask extends RecursiveTask<Node> {
+		private static final long serialVersionUID = 1L;
+		private final PmaCoreClient client;
+		private final String path;
+		private final int depth;
+		private final Listener listener;
+		private final Result result;
+
+		DirectoryTask(PmaCoreClient client, String path, int depth, Listener listener, Result result) {
+			this.client = client;
+			this.path = path;
+			this.depth = depth;
+			this.listener = listener;
+			this.result = result;
+		}
+
+		@Override
+		protected Node compute() {
+			Node node = new Node();
+			if (cancelled) {
+				return node;
+			}
+			List<String> subDirectories = Collections.emptyList();
+			try {
+				if (includeSlides) {
+					List<String> slides = request(() -> client.listSlides(path));
+					if (slides != null) {
+						if (collectResults) {
+							node.slides.addAll(slides);
+						}
+						if (listener != null) {
+							for (String slide : slides) {
+								listener.onSlide(slide, depth);
+							}
+						}
+					}
+				}
+				if (listSubDirectories(depth)) {
+					List<String> dirs = request(() -> client.listDirectories(path));
+					if (dirs != null) {
+						subDirectories = dirs;
+					}
+				}
+			} catch (Exception e) {
+				failed(result, listener, path, e);
+				return node;
+			}
+			result.listed.incrementAndGet();
+			if (includeDirectories) {
+				if (collectResults) {
+					node.directories.addAll(subDirectories);
+				}
+				if (listener != null) {
+					for (String dir : subDirectories) {
+						listener.onDirectory(dir, depth + 1);
+					}
+				}
+			}
+			if (recurse(depth) && !cancelled) {
+				List<DirectoryTask> tasks = new ArrayList<>();
+				for (String dir : subDirectories) {
+					DirectoryTask task = new DirectoryTask(client, dir, depth + 1, listener, result);
+					task.fork();
+					tasks.add(task);
+				}
+				// joining in order keeps the results in the same order as a serial walk
+				for (DirectoryTask task : tasks) {
+					node.add(task.join());
+				}
+			}
+			return node;
+		}
+	}
+
+	private static class Node {
+		private final List<String> directories = new ArrayList<>();
+		private final List<String> slides = new ArrayList<>();
+
+		void add(Node child) {
+			directories.addAll(child.directories);
+			slides.addAll(child.slides);
+		}
+	}
+
+	/**
+	 * Directories and slides found by a crawl, in the same order as a serial,
+	 * depth first walk would find them
+	 */
+	public static class Result {
+		private List<String> directories;
+		private List<String> slides;
+		private final Map<String, Exception> errors = new LinkedHashMap<>();
+		private final AtomicInteger listed = new AtomicInteger();
+
+		/**
+		 * @return the directories found
+		 */
+		public List<String> getDirectories() {
+			return directories;
+		}
+
+		/**
+		 * @return the slides found
+		 */
+		public List<String> getSlides() {
+			return slides;
+		}
+
+		/**
+		 * @return the directories that couldn't be listed, with the reason why
+		 */
+		public Map<String, Exception> getErrors() {
+			synchronized (errors) {
+				return new LinkedHashMap<>(errors);
+			}
+		}
+
+		/**
+		 * @return the number of directories that were listed successfully
+		 */
+		public int getDirectoriesListed() {
+			return listed.get();
+		}
+	}
+}
@@ -0,0 +1,620 @@
+package com.pathomation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+
+/**
+ * Downloads the files of a slide (all files of multi-file formats like MRXS or
+ * VSI) from PMA.core. Several files, and several byte ranges of large files,
+ * are downloaded at the same time, each written at its own position of the
+ * target file through a FileChannel. Files can be extended to their final size
+ * up front (see setPreallocate()). Response bodies are read in large chunks
+ * into a reused array, and every chunk is written with a single positional
+ * write, so the disk sees few large writes instead of many small ones.
+ * <p>
+ * Downloads are resumable: a file is first written as "name.part", next to a
+ * "name.part.progress" file that records which bytes of every range were
+ * written. When a download is interrupted (failure, crash, cancellation),
+ * downloading the same slide again to the same directory continues where it
+ * stopped, as long as the file didn't change on the server
+ * </p>
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class SlideDownloader {
+
+	/**
+	 * Default number of files or ranges downloaded at the same time
+	 */
+	public static final int DEFAULT_PARALLELISM = 4;
+
+	/**
+	 * Default size of the ranges large files are split into (32 MB)
+	 */
+	public static final long DEFAULT_RANGE_SIZE = 32 * 1024 * 1024L;
+
+	/**
+	 * Default size of the buffer used to copy the data to disk (1 MB)
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * Default number of times a failed range is retried
+	 */
+	public static final int DEFAULT_RETRIES = 3;
+
+	static final String PART_SUFFIX = ".part";
+	static final String PROGRESS_SUFFIX = ".part.progress";
+
+	// the progress file is rewritten every time a range wrote this many bytes
+	private static final long CHECKPOINT = 8 * 1024 * 1024L;
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	private final String sessionID;
+	private int parallelism = DEFAULT_PARALLELISM;
+	private long rangeSize = DEFAULT_RANGE_SIZE;
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+	private int retries = DEFAULT_RETRIES;
+	private boolean directBuffers = true;
+	private boolean preallocate = false;
+	// one array and one direct buffer per download thread, reused for all its ranges
+	private final ThreadLocal<byte[]> heapBuffer = new ThreadLocal<>();
+	private final ThreadLocal<ByteBuffer> directBuffer = new ThreadLocal<>();
+
+	/**
+	 * Creates a downloader
+	 *
+	 * @param sessionID session's ID, null for the default session
+	 */
+	public SlideDownloader(String sessionID) {
+		this.sessionID = sessionID;
+	}
+
+	/**
+	 * This method is used to set the number of files or ranges downloaded at the
+	 * same time
+	 *
+	 * @param parallelism Number of parallel downloads (default 4)
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * This method is used to set the size of the ranges large files are split
+	 * into. A file is only split when the server supports range requests
+	 *
+	 * @param rangeSize Size in bytes (default 32 MB)
+	 */
+	public void setRangeSize(long rangeSize) {
+		if (rangeSize < 1) {
+			throw new IllegalArgumentException("rangeSize must be positive");
+		}
+		this.rangeSize = rangeSize;
+	}
+
+	/**
+	 * This method is used to set the size of the buffer the data is copied
+	 * through
+	 *
+	 * @param bufferSize Size in bytes (default 1 MB)
+	 */
+	public void setBufferSize(int bufferSize) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("bufferSize must be positive");
+		}
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * This method is used to set the number of times a failed range is retried.
+	 * Retries continue from the last byte written
+	 *
+	 * @param retries Number of retries (default 3)
+	 */
+	public void setRetries(int retries) {
+		if (retries < 0) {
+			throw new IllegalArgumentException("retries can't be negative");
+		}
+		this.retries = retries;
+	}
+
+	/**
+	 * This method is used to choose how the data is copied to disk. The response
+	 * is always read into a heap array first, and the system call needs an
+	 * off-heap buffer, so every chunk is copied once more either way. With direct
+	 * buffers (the default), it's copied into a direct buffer reused by the
+	 * download thread; with heap buffers, the JDK copies it into one of its
+	 * temporary direct buffers
+	 *
+	 * @param directBuffers Whether direct buffers are used (default true)
+	 */
+	public void setDirectBuffers(boolean directBuffers) {
+		this.directBuffers = directBuffers;
+	}
+
+	/**
+	 * This method is used to choose whether every file is extended to its final
+	 * size (as reported by GetFilenames) before any data is downloaded, so the
+	 * ranges are written inside the file instead of growing it. Keep in mind that
+	 * on most file systems (ext4, XFS, NTFS, APFS) this creates a sparse file: no
+	 * disk space is reserved, so a lack of space still only shows up while the
+	 * data is written
+	 *
+	 * @param preallocate Whether files are extended up front (default false)
+	 */
+	public void setPreallocate(boolean preallocate) {
+		this.preallocate = preallocate;
+	}
+
+	/**
+	 * This method is used to download all files of a slide into a directory,
+	 * keeping their layout relative to the slide's main file
+	 *
+	 * @param slideRef         slide's path
+	 * @param saveDirectory    Directory to save the files in
+	 * @param progressCallback Callback to report the progress to, can be null
+	 * @return Files written
+	 * @throws IOException If a file can't be downloaded
+	 */
+	public List<File> download(String slideRef, File saveDirectory,
+			ProgressHttpEntityWrapper.ProgressCallback progressCallback) throws IOException {
+		return download(slideRef, saveDirectory, null, null, progressCallback);
+	}
+
+	/**
+	 * This method is used to download a single file of a slide
+	 *
+	 * @param slideRef         slide's path
+	 * @param relativePath     Path of the file, relative to the slide's main file
+	 * @param target           File to write
+	 * @param progressCallback Callback to report the progress to, can be null
+	 * @return File written
+	 * @throws IOException If the file can't be downloaded
+	 */
+	public File downloadFile(String slideRef, String relativePath, File target,
+			ProgressHttpEntityWrapper.ProgressCallback progressCallback) throws IOException {
+		return download(slideRef, null, relativePath, target, progressCallback).get(0);
+	}
+
+	private List<File> download(String slideRef, File saveDirectory, String onlyPath, File onlyTarget,
+			ProgressHttpEntityWrapper.ProgressCallback progressCallback) throws IOException {
+		PmaCoreClient client = Core.getClient(sessionID);
+		if (client == null) {
+			throw new IOException("Invalid sessionID: " + sessionID);
+		}
+		List<Map<String, String>> files = Core.enumerateFilesForSlidePMACore(slideRef, client.getSessionId());
+		if (files == null || files.isEmpty()) {
+			throw new IOException("Unable to get the files of " + slideRef);
+		}
+		String mainFile = files.get(files.size() - 1).get("Path");
+		String rootPath = mainFile.substring(0, mainFile.lastIndexOf("/") + 1);
+		List<FileJob> jobs = new ArrayList<>();
+		for (Map<String, String> file : files) {
+			String relativePath = file.get("Path").replace(rootPath, "");
+			if (onlyPath != null && !onlyPath.equals(relativePath)) {
+				continue;
+			}
+			File target = onlyTarget != null ? onlyTarget : new File(saveDirectory, relativePath);
+			long size = file.get("Size") == null ? -1 : Long.parseLong(file.get("Size"));
+			String url = client.getUrl() + "transfer/Download?sessionId=" + PMA.pmaQ(client.getSessionId()) + "&image="
+					+ PMA.pmaQ(slideRef) + "&path=" + PMA.pmaQ(relativePath);
+			jobs.add(new FileJob(url, relativePath, target, size, file.get("LastModified"), progressCallback));
+		}
+		if (jobs.isEmpty()) {
+			throw new IOException(onlyPath + " isn't a file of " + slideRef);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+			Thread t = new Thread(r, "pma-java-download-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			List<FileJob> futureJobs = new ArrayList<>();
+			for (FileJob job : jobs) {
+				job.prepare();
+				for (Range range : job.ranges) {
+					if (!range.isComplete()) {
+						futures.add(executor.submit(() -> {
+							job.fetch(client, range);
+							return null;
+						}));
+						futureJobs.add(job);
+					}
+				}
+			}
+			IOException failure = null;
+			List<FileJob> unranged = new ArrayList<>();
+			for (int i = 0; i < futures.size(); i++) {
+				Future<?> future = futures.get(i);
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					executor.shutdownNow();
+					failure = new InterruptedIOException("Download of " + slideRef + " interrupted");
+					break;
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RangeNotSupportedException) {
+						FileJob job = futureJobs.get(i);
+						if (!unranged.contains(job)) {
+							unranged.add(job);
+						}
+					} else if (failure == null) {
+						failure = e.getCause() instanceof IOException ? (IOException) e.getCause()
+								: new IOException(e.getCause());
+					}
+				}
+			}
+			// servers that ignore range requests get the files one by one, from the start
+			for (FileJob job : unranged) {
+				if (failure != null) {
+					break;
+				}
+				try {
+					job.restart();
+					job.fetch(client, job.ranges.get(0));
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			List<File> written = new ArrayList<>();
+			for (FileJob job : jobs) {
+				job.close();
+				if (failure == null) {
+					job.complete();
+					written.add(job.target);
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return written;
+		} finally {
+			executor.shutdownNow();
+			for (FileJob job : jobs) {
+				job.close();
+			}
+		}
+	}
+
+	/**
+	 * This method is used to copy a response body to a position of a file
+	 *
+	 * @param in      Response body
+	 * @param channel File to write
+	 * @param range   Range being written (its done count is updated)
+	 * @param job     File the range belongs to, for progress reporting
+	 * @throws IOException If the body can't be read or the file written
+	 */
+	private void copy(InputStream in, FileChannel channel, Range range, FileJob job) throws IOException {
+		byte[] array = array();
+		ByteBuffer direct = directBuffers ? directBuffer() : null;
+		long sinceCheckpoint = 0;
+		boolean eof = false;
+		while (!eof && !range.isComplete()) {
+			int limit = array.length;
+			if (range.end >= 0 && range.remaining() < limit) {
+				limit = (int) range.remaining();
+			}
+			// fill the array, so every write to disk is a large one
+			int read = 0;
+			while (read < limit) {
+				int n = in.read(array, read, limit - read);
+				if (n < 0) {
+					eof = true;
+					break;
+				}
+				read += n;
+			}
+			ByteBuffer buffer;
+			if (direct != null) {
+				direct.clear();
+				direct.put(array, 0, read);
+				direct.flip();
+				buffer = direct;
+			} else {
+				buffer = ByteBuffer.wrap(array, 0, read);
+			}
+			long position = range.start + range.done;
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+			range.done += read;
+			job.transferred(read);
+			sinceCheckpoint += read;
+			if (sinceCheckpoint >= CHECKPOINT) {
+				job.saveProgress();
+				sinceCheckpoint = 0;
+			}
+		}
+	}
+
+	private byte[] array() {
+		byte[] array = heapBuffer.get();
+		if (array == null || array.length != bufferSize) {
+			array = new byte[bufferSize];
+			heapBuffer.set(array);
+		}
+		return array;
+	}
+
+	private ByteBuffer directBuffer() {
+		ByteBuffer buffer = directBuffer.get();
+		if (buffer == null || buffer.capacity() != bufferSize) {
+			buffer = ByteBuffer.allocateDirect(bufferSize);
+			directBuffer.set(buffer);
+		}
+		return buffer;
+	}
+
+	private static class RangeNotSupportedException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		RangeNotSupportedException(String relativePath) {
+			super("The server doesn't support range requests for " + relativePath);
+		}
+	}
+
+	private static class Range {
+		private final long start;
+		// inclusive, -1 when the file's size is unknown
+		private final long end;
+		private volatile long done;
+
+		Range(long start, long end, long done) {
+			this.start = start;
+			this.end = end;
+			this.done = done;
+		}
+
+		long remaining() {
+			return end - start + 1 - done;
+		}
+
+		boolean isComplete() {
+			return end >= 0 && remaining() <= 0;
+		}
+	}
+
+	private class FileJob {
+		private final String url;
+		private final String relativePath;
+		private final File target;
+		private final File part;
+		private final File progress;
+		private final long size;
+		private final String lastModified;
+		private final ProgressHttpEntityWrapper.ProgressCallback progressCallback;
+		private List<Range> ranges;
+		// size of the ranges the file is split into
+		private long split = rangeSize;
+		private FileChannel channel;
+		private long transferred;
+
+		FileJob(String url, String relativePath, File target, long size, String lastModified,
+				ProgressHttpEntityWrapper.ProgressCallback progressCallback) {
+			this.url = url;
+			this.relativePath = relativePath;
+			this.target = target;
+			this.part = new File(target.getPath() + PART_SUFFIX);
+			this.progress = new File(target.getPath() + PROGRESS_SUFFIX);
+			this.size = size;
+			this.lastModified = lastModified;
+			this.progressCallback = progressCallback;
+		}
+
+		void prepare() throws IOException {
+			File parent = target.getAbsoluteFile().getParentFile();
+			if (parent != null) {
+				parent.mkdirs();
+			}
+			ranges = size >= 0 ? loadProgress() : null;
+			if (ranges == null) {
+				ranges = new ArrayList<>();
+				if (size < 0) {
+					ranges.add(new Range(0, -1, 0));
+				} else if (size == 0) {
+					ranges.add(new Range(0, -1, 0));
+				} else {
+					for (long start = 0; start < size; start += split) {
+						ranges.add(new Range(start, Math.min(start + split, size) - 1, 0));
+					}
+				}
+				Files.deleteIfExists(part.toPath());
+			}
+			channel = FileChannel.open(part.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			if (preallocate && size > 0 && channel.size() < size) {
+				allocate();
+			}
+			for (Range range : ranges) {
+				transferred += range.done;
+			}
+			saveProgress();
+		}
+
+		void fetch(PmaCoreClient client, Range range) throws IOException {
+			IOException failure = null;
+			for (int attempt = 0; attempt <= retries; attempt++) {
+				if (attempt > 0) {
+					try {
+						Thread.sleep(1000L << Math.min(attempt - 1, 5));
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Download of " + relativePath + " interrupted");
+					}
+				}
+				if (range.end < 0 && range.done > 0) {
+					// no Range header can be sent, so the body starts at the beginning again
+					discard(range);
+				}
+				HttpGet request = new HttpGet(url);
+				request.setHeader("Cache-Control", "no-cache");
+				boolean ranged = range.end >= 0 && (range.start + range.done > 0 || range.end < size - 1);
+				if (ranged) {
+					request.setHeader("Range", "bytes=" + (range.start + range.done) + "-" + range.end);
+				}
+				try (CloseableHttpResponse response = client.getTransport().execute(request)) {
+					int status = response.getStatusLine().getStatusCode();
+					HttpEntity entity = response.getEntity();
+					if (status == HttpStatus.SC_OK && ranged) {
+						// the server ignored the range, start over with a single range
+						throw new RangeNotSupportedException(relativePath);
+					} else if (status != HttpStatus.SC_OK && status != HttpStatus.SC_PARTIAL_CONTENT) {
+						throw new IOException("Download of " + relativePath + " failed: " + response.getStatusLine());
+					}
+					if (entity != null) {
+						try (InputStream in = entity.getContent()) {
+							copy(in, channel, range, this);
+						}
+					}
+					if (range.end >= 0 && !range.isComplete()) {
+						throw new IOException("Download of " + relativePath + " ended after "
+								+ (range.start + range.done) + " of " + size + " bytes");
+					}
+					saveProgress();
+					return;
+				} catch (InterruptedIOException | RangeNotSupportedException e) {
+					saveProgress();
+					throw e;
+				} catch (IOException e) {
+					saveProgress();
+					failure = e;
+					if (PMA.logger != null) {
+						PMA.logger.warning("Download of " + relativePath + " failed (attempt " + (attempt + 1) + "): "
+								+ e.getMessage());
+					}
+				}
+			}
+			throw failure;
+		}
+
+		synchronized void restart() throws IOException {
+			split = Math.max(size, 1);
+			ranges = new ArrayList<>();
+			ranges.add(new Range(0, size > 0 ? size - 1 : -1, 0));
+			channel.truncate(0);
+			if (preallocate && size > 0) {
+				allocate();
+			}
+			transferred = 0;
+			saveProgress();
+		}
+
+		/**
+		 * This method extends the file to its final size by writing its last byte
+		 * (FileChannel has no setLength()), which leaves a sparse file on most file
+		 * systems
+		 */
+		private void allocate() throws IOException {
+			if (channel.size() < size) {
+				ByteBuffer last = ByteBuffer.allocate(1);
+				while (last.hasRemaining()) {
+					channel.write(last, size - 1);
+				}
+			}
+		}
+
+		/**
+		 * This method starts a range over, for ranges that can't be resumed because
+		 * the file's size is unknown (the server then sends the whole file)
+		 */
+		synchronized void discard(Range range) throws IOException {
+			transferred -= range.done;
+			range.done = 0;
+			channel.truncate(range.start);
+		}
+
+		synchronized void transferred(long amount) {
+			transferred += amount;
+			if (progressCallback != null) {
+				progressCallback.progress(amount, transferred, size, relativePath);
+			}
+		}
+
+		private List<Range> loadProgress() {
+			if (!part.isFile() || !progress.isFile()) {
+				return null;
+			}
+			try {
+				List<String> lines = Files.readAllLines(progress.toPath(), StandardCharsets.UTF_8);
+				if (lines.size() < 3 || !lines.get(0).equals(size + " " + lastModified)) {
+					// the file changed on the server
+					return null;
+				}
+				split = Long.parseLong(lines.get(1).trim());
+				String[] done = lines.get(2).split(",");
+				List<Range> loaded = new ArrayList<>();
+				int i = 0;
+				for (long start = 0; start < size; start += split) {
+					long end = Math.min(start + split, size) - 1;
+					loaded.add(new Range(start, end, Math.min(Long.parseLong(done[i++].trim()), end - start + 1)));
+				}
+				return loaded;
+			} catch (IOException | RuntimeException e) {
+				return null;
+			}
+		}
+
+		synchronized void saveProgress() throws IOException {
+			if (size <= 0) {
+				return;
+			}
+			if (channel != null && channel.isOpen()) {
+				// the progress file must never claim bytes that aren't on disk yet
+				channel.force(false);
+			}
+			StringBuilder sb = new StringBuilder();
+			sb.append(size).append(' ').append(lastModified).append('\n');
+			sb.append(split).append('\n');
+			for (int i = 0; i < ranges.size(); i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				sb.append(ranges.get(i).done);
+			}
+			sb.append('\n');
+			File tmp = new File(progress.getPath() + ".tmp");
+			Files.write(tmp.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+			Files.move(tmp.toPath(), progress.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		void close() throws IOException {
+			if (channel != null && channel.isOpen()) {
+				saveProgress();
+				channel.close();
+			}
+		}
+
+		void complete() throws IOException {
+			Files.move(part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			Files.deleteIfExists(progress.toPath());
+		}
+	}
+}
@@ -0,0 +1,359 @@
+package com.pathomation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Immutable information about a slide, as returned by GetImageInfo. The
+ * properties used by the SDK (dimensions, tile size, zoom levels, resolution)
+ * are held in primitive fields; the remaining properties are kept as they were
+ * received, so toMap() still gives the full response
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public final class SlideInfo {
+
+	private static final int UNKNOWN = -1;
+
+	private final String filename;
+	private final String uid;
+	private final String lastModified;
+	private final int width;
+	private final int height;
+	private final int tileSize;
+	private final int maxZoomLevel;
+	private final int numberOfZoomLevels;
+	private final double micrometresPerPixelX;
+	private final double micrometresPerPixelY;
+	private final List<String> associatedImageTypes;
+	private final int numberOfLayers;
+	private final int numberOfChannels;
+	private final Map<String, Object> properties;
+
+	private SlideInfo(Builder b) {
+		filename = b.filename;
+		uid = b.uid;
+		lastModified = b.lastModified;
+		width = b.width;
+		height = b.height;
+		tileSize = b.tileSize;
+		maxZoomLevel = b.maxZoomLevel;
+		numberOfZoomLevels = b.numberOfZoomLevels;
+		micrometresPerPixelX = b.micrometresPerPixelX;
+		micrometresPerPixelY = b.micrometresPerPixelY;
+		associatedImageTypes = b.associatedImageTypes == null ? null
+				: Collections.unmodifiableList(b.associatedImageTypes);
+		properties = b.properties.isEmpty() ? Collections.<String, Object>emptyMap()
+				: Collections.unmodifiableMap(b.properties);
+		int layers = UNKNOWN;
+		int channels = UNKNOWN;
+		try {
+			Object timeFrames = properties.get("TimeFrames");
+			if (timeFrames instanceof List && !((List<?>) timeFrames).isEmpty()) {
+				Object layerList = ((Map<?, ?>) ((List<?>) timeFrames).get(0)).get("Layers");
+				layers = ((List<?>) layerList).size();
+				if (layers > 0) {
+					channels = ((List<?>) ((Map<?, ?>) ((List<?>) layerList).get(0)).get("Channels")).size();
+				}
+			}
+		} catch (ClassCastException | NullPointerException e) {
+			// unexpected structure, leave the counts unknown
+		}
+		numberOfLayers = layers;
+		numberOfChannels = channels;
+	}
+
+	/**
+	 * @return the slide's path
+	 */
+	public String getFilename() {
+		return filename;
+	}
+
+	/**
+	 * @return the slide's UID, null if unknown (e.g. PMA.start)
+	 */
+	public String getUid() {
+		return uid;
+	}
+
+	/**
+	 * @return the last modification date as sent by the server (e.g.
+	 *         "/Date(1572946520000)/"), null if unknown
+	 */
+	public String getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @return the width (in pixels) at the highest zoom level, -1 if unknown
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height (in pixels) at the highest zoom level, -1 if unknown
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the tile size (in pixels), -1 if unknown
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * @return the maximum zoom level that still represents an optical
+	 *         magnification (MaxZoomLevel, or NumberOfZoomLevels for servers that
+	 *         don't send it), -1 if unknown
+	 */
+	public int getMaxZoomLevel() {
+		return maxZoomLevel != UNKNOWN ? maxZoomLevel : numberOfZoomLevels;
+	}
+
+	/**
+	 * @return the number of zoom levels, -1 if unknown
+	 */
+	public int getNumberOfZoomLevels() {
+		return numberOfZoomLevels;
+	}
+
+	/**
+	 * @return the horizontal resolution (in micrometres per pixel) at the highest
+	 *         zoom level, NaN if unknown
+	 */
+	public double getMicrometresPerPixelX() {
+		return micrometresPerPixelX;
+	}
+
+	/**
+	 * @return the vertical resolution (in micrometres per pixel) at the highest
+	 *         zoom level, NaN if unknown
+	 */
+	public double getMicrometresPerPixelY() {
+		return micrometresPerPixelY;
+	}
+
+	/**
+	 * @return the image types associated with the slide (thumbnail, barcode...),
+	 *         null if unknown
+	 */
+	public List<String> getAssociatedImageTypes() {
+		return associatedImageTypes;
+	}
+
+	/**
+	 * @return the number of (z-stacked) layers of the first time frame, -1 if
+	 *         unknown
+	 */
+	public int getNumberOfLayers() {
+		return numberOfLayers;
+	}
+
+	/**
+	 * @return the number of channels of the first layer, -1 if unknown
+	 */
+	public int getNumberOfChannels() {
+		return numberOfChannels;
+	}
+
+	/**
+	 * This method is used to get a property that has no typed accessor (e.g.
+	 * "TimeFrames")
+	 *
+	 * @param name Property name
+	 * @return Property value, as parsed by Jackson (Map, List, Long, Double,
+	 *         String, Boolean), null if not present
+	 */
+	public Object getProperty(String name) {
+		return properties.get(name);
+	}
+
+	/**
+	 * This method is used to get the information in the form of nested maps, as
+	 * returned by Core.getSlideInfo()
+	 *
+	 * @return A new map with all properties of the slide
+	 */
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		putIfKnown(map, "Filename", filename);
+		putIfKnown(map, "UID", uid);
+		putIfKnown(map, "LastModified", lastModified);
+		putIfKnown(map, "Width", width);
+		putIfKnown(map, "Height", height);
+		putIfKnown(map, "TileSize", tileSize);
+		putIfKnown(map, "MaxZoomLevel", maxZoomLevel);
+		putIfKnown(map, "NumberOfZoomLevels", numberOfZoomLevels);
+		if (!Double.isNaN(micrometresPerPixelX)) {
+			map.put("MicrometresPerPixelX", micrometresPerPixelX);
+		}
+		if (!Double.isNaN(micrometresPerPixelY)) {
+			map.put("MicrometresPerPixelY", micrometresPerPixelY);
+		}
+		if (associatedImageTypes != null) {
+			map.put("AssociatedImageTypes", new ArrayList<>(associatedImageTypes));
+		}
+		map.putAll(properties);
+		return map;
+	}
+
+	private static void putIfKnown(Map<String, Object> map, String name, String value) {
+		if (value != null) {
+			map.put(name, value);
+		}
+	}
+
+	private static void putIfKnown(Map<String, Object> map, String name, int value) {
+		if (value != UNKNOWN) {
+			// same type as Jackson's USE_LONG_FOR_INTS
+			map.put(name, (long) value);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SlideInfo(" + filename + ", " + width + "x" + height + ", tileSize=" + tileSize + ", maxZoomLevel="
+				+ getMaxZoomLevel() + ")";
+	}
+
+	/**
+	 * This method binds a slide information object in a single pass over the
+	 * parser. The parser must be positioned on the START_OBJECT token or on the
+	 * first FIELD_NAME token of the object; it's left on the matching END_OBJECT
+	 * token
+	 *
+	 * @param parser      Parser positioned on the object
+	 * @param valueReader Reader (for Object.class) used for the properties without
+	 *                    a typed field
+	 * @return Slide information
+	 * @throws IOException if the JSON can't be parsed
+	 */
+	static SlideInfo read(JsonParser parser, ObjectReader valueReader) throws IOException {
+		JsonToken current = parser.currentToken();
+		if (current == JsonToken.START_OBJECT) {
+			current = parser.nextToken();
+		}
+		if (current != JsonToken.FIELD_NAME && current != JsonToken.END_OBJECT) {
+			throw new IOException("Slide information must be a JSON object");
+		}
+		Builder b = new Builder();
+		for (; current == JsonToken.FIELD_NAME; current = parser.nextToken()) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			boolean bound;
+			switch (name) {
+			case "Filename":
+				bound = token == JsonToken.VALUE_STRING;
+				if (bound) {
+					b.filename = parser.getText();
+				}
+				break;
+			case "UID":
+				bound = token == JsonToken.VALUE_STRING;
+				if (bound) {
+					b.uid = parser.getText();
+				}
+				break;
+			case "LastModified":
+				bound = token == JsonToken.VALUE_STRING;
+				if (bound) {
+					b.lastModified = parser.getText();
+				}
+				break;
+			case "Width":
+				bound = isInt(parser, token);
+				if (bound) {
+					b.width = parser.getIntValue();
+				}
+				break;
+			case "Height":
+				bound = isInt(parser, token);
+				if (bound) {
+					b.height = parser.getIntValue();
+				}
+				break;
+			case "TileSize":
+				bound = isInt(parser, token);
+				if (bound) {
+					b.tileSize = parser.getIntValue();
+				}
+				break;
+			case "MaxZoomLevel":
+				bound = isInt(parser, token);
+				if (bound) {
+					b.maxZoomLevel = parser.getIntValue();
+				}
+				break;
+			case "NumberOfZoomLevels":
+				bound = isInt(parser, token);
+				if (bound) {
+					b.numberOfZoomLevels = parser.getIntValue();
+				}
+				break;
+			case "MicrometresPerPixelX":
+				bound = token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT;
+				if (bound) {
+					b.micrometresPerPixelX = parser.getDoubleValue();
+				}
+				break;
+			case "MicrometresPerPixelY":
+				bound = token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT;
+				if (bound) {
+					b.micrometresPerPixelY = parser.getDoubleValue();
+				}
+				break;
+			case "AssociatedImageTypes":
+				bound = token == JsonToken.START_ARRAY;
+				if (bound) {
+					List<String> types = new ArrayList<>();
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						types.add(parser.getValueAsString());
+						parser.skipChildren();
+					}
+					b.associatedImageTypes = types;
+				}
+				break;
+			default:
+				bound = false;
+			}
+			if (!bound) {
+				b.properties.put(name, valueReader.readValue(parser));
+			}
+		}
+		return new SlideInfo(b);
+	}
+
+	private static boolean isInt(JsonParser parser, JsonToken token) throws IOException {
+		return token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT
+				&& parser.getIntValue() != UNKNOWN;
+	}
+
+	private static class Builder {
+		private String filename;
+		private String uid;
+		private String lastModified;
+		private int width = UNKNOWN;
+		private int height = UNKNOWN;
+		private int tileSize = UNKNOWN;
+		private int maxZoomLevel = UNKNOWN;
+		private int numberOfZoomLevels = UNKNOWN;
+		private double micrometresPerPixelX = Double.NaN;
+		private double micrometresPerPixelY = Double.NaN;
+		private List<String> associatedImageTypes;
+		private final Map<String, Object> properties = new LinkedHashMap<>();
+	}
+}
@@ -0,0 +1,82 @@
+package com.pathomation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk slide information request (Core.fetchSlidesInfo()). The
+ * slides are requested in chunks, and a chunk that fails doesn't affect the
+ * others: its slides are reported in getErrors() while the rest of the
+ * information is still returned
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class SlideInfoBatch {
+
+	private final Map<String, SlideInfo> infos;
+	private final List<String> missing;
+	private final Map<String, Exception> errors;
+	private final int chunks;
+	private final int failedChunks;
+
+	SlideInfoBatch(Map<String, SlideInfo> infos, List<String> missing, Map<String, Exception> errors, int chunks,
+			int failedChunks) {
+		this.infos = Collections.unmodifiableMap(infos);
+		this.missing = Collections.unmodifiableList(missing);
+		this.errors = Collections.unmodifiableMap(errors);
+		this.chunks = chunks;
+		this.failedChunks = failedChunks;
+	}
+
+	/**
+	 * @return the information of the slides that were found, keyed by the
+	 *         references they were requested with
+	 */
+	public Map<String, SlideInfo> getInfos() {
+		return infos;
+	}
+
+	/**
+	 * @return the slides the server returned no information for (e.g. unknown
+	 *         paths)
+	 */
+	public List<String> getMissing() {
+		return missing;
+	}
+
+	/**
+	 * @return the slides whose chunk failed, with the reason why
+	 */
+	public Map<String, Exception> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * @return true if no chunk failed
+	 */
+	public boolean isComplete() {
+		return failedChunks == 0;
+	}
+
+	/**
+	 * @return the number of requests sent to the server
+	 */
+	public int getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * @return the number of requests that failed
+	 */
+	public int getFailedChunks() {
+		return failedChunks;
+	}
+
+	@Override
+	public String toString() {
+		return "found=" + infos.size() + ", missing=" + missing.size() + ", failed=" + errors.size() + ", chunks="
+				+ chunks + ", failedChunks=" + failedChunks;
+	}
+}
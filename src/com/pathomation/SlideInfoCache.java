@@ -0,0 +1,469 @@
+package com.pathomation;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of slide information. Entries are evicted when the cache holds
+ * more than a given number of slides (least recently used first) and expire a
+ * given time after they were loaded. Once an entry is older than the refresh
+ * interval (but not yet expired), it's still returned, and reloaded in the
+ * background.
+ * <p>
+ * An entry is stored by the slide's path, and can be looked up by its UID and
+ * by the reference it was requested with as well
+ * </p>
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class SlideInfoCache {
+
+	/**
+	 * Default maximum number of slides
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	/**
+	 * Default time (in milliseconds) after which an entry expires (30 minutes)
+	 */
+	public static final long DEFAULT_EXPIRE_AFTER_WRITE = 30 * 60 * 1000L;
+
+	/**
+	 * Default time (in milliseconds) after which an entry is refreshed in the
+	 * background (5 minutes)
+	 */
+	public static final long DEFAULT_REFRESH_AFTER_WRITE = 5 * 60 * 1000L;
+
+	private static final AtomicInteger threadCounter = new AtomicInteger();
+
+	// a single thread for all caches, refreshes aren't urgent
+	private static final ExecutorService refresher = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), r -> {
+				Thread t = new Thread(r, "pma-java-refresh-" + threadCounter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+
+	static {
+		((ThreadPoolExecutor) refresher).allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Loads the information of a slide
+	 */
+	public interface Loader {
+		/**
+		 * @param slideRef slide's path or UID
+		 * @return Information about the slide, null if there's none
+		 * @throws Exception if the information can't be retrieved
+		 */
+		SlideInfo load(String slideRef) throws Exception;
+	}
+
+	private final int maxEntries;
+	private final long expireAfterWrite;
+	private final long refreshAfterWrite;
+	// access ordered, so iteration starts with the least recently used slide
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+	// UIDs and requested references to the key of their entry
+	private final Map<String, String> aliases = new LinkedHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadFailures = new LongAdder();
+	private final LongAdder refreshes = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	/**
+	 * Creates a cache with the default limits
+	 */
+	public SlideInfoCache() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_EXPIRE_AFTER_WRITE, DEFAULT_REFRESH_AFTER_WRITE);
+	}
+
+	/**
+	 * Creates a cache
+	 *
+	 * @param maxEntries        Maximum number of slides
+	 * @param expireAfterWrite  Time (in milliseconds) after which an entry
+	 *                          expires, 0 for never
+	 * @param refreshAfterWrite Time (in milliseconds) after which an entry is
+	 *                          refreshed in the background when it's used, 0 for
+	 *                          never
+	 */
+	public SlideInfoCache(int maxEntries, long expireAfterWrite, long refreshAfterWrite) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("maxEntries must be at least 1");
+		}
+		if (expireAfterWrite < 0 || refreshAfterWrite < 0) {
+			throw new IllegalArgumentException("expireAfterWrite and refreshAfterWrite can't be negative");
+		}
+		this.maxEntries = maxEntries;
+		this.expireAfterWrite = expireAfterWrite;
+		this.refreshAfterWrite = refreshAfterWrite;
+	}
+
+	/**
+	 * @return the maximum number of slides
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * @return the time (in milliseconds) after which an entry expires, 0 for never
+	 */
+	public long getExpireAfterWrite() {
+		return expireAfterWrite;
+	}
+
+	/**
+	 * @return the time (in milliseconds) after which an entry is refreshed, 0 for
+	 *         never
+	 */
+	public long getRefreshAfterWrite() {
+		return refreshAfterWrite;
+	}
+
+	/**
+	 * This method is used to get the information of a slide, loading it when it
+	 * isn't cached (or expired), and refreshing it in the background when it's due
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param loader   Loader for the information of the slide
+	 * @return Information about the slide, null if there's none
+	 * @throws Exception if the information isn't cached and can't be loaded
+	 */
+	public SlideInfo get(String slideRef, Loader loader) throws Exception {
+		Entry entry = lookup(slideRef);
+		if (entry != null) {
+			hits.increment();
+			if (refreshAfterWrite > 0 && age(entry) >= refreshAfterWrite && entry.startRefresh()) {
+				refresh(slideRef, entry, loader);
+			}
+			return entry.info;
+		}
+		misses.increment();
+		return load(slideRef, loader);
+	}
+
+	/**
+	 * This method is used to get the information of a slide if it's cached (and
+	 * not expired)
+	 *
+	 * @param slideRef slide's path or UID
+	 * @return Information about the slide, null if it isn't cached
+	 */
+	public SlideInfo getIfPresent(String slideRef) {
+		Entry entry = lookup(slideRef);
+		if (entry == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return entry.info;
+	}
+
+	/**
+	 * This method is used to store the information of a slide
+	 *
+	 * @param info    Information about the slide
+	 * @param aliases Other references (e.g. as requested) the information can be
+	 *                looked up with, besides the slide's path and UID
+	 */
+	public void put(SlideInfo info, String... aliases) {
+		String key = info.getFilename() != null ? info.getFilename()
+				: (aliases.length > 0 ? aliases[0] : info.getUid());
+		if (key == null) {
+			return;
+		}
+		Entry entry = new Entry(info, System.currentTimeMillis());
+		synchronized (this) {
+			Entry previous = entries.put(key, entry);
+			if (previous != null) {
+				entry.aliases.addAll(previous.aliases);
+			}
+			addAlias(entry, key, info.getUid());
+			for (String alias : aliases) {
+				addAlias(entry, key, alias);
+			}
+			Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+			while (entries.size() > maxEntries && it.hasNext()) {
+				Map.Entry<String, Entry> eldest = it.next();
+				it.remove();
+				removeAliases(eldest.getValue());
+				evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * This method is used to drop the information of a slide
+	 *
+	 * @param slideRef slide's path or UID
+	 */
+	public synchronized void invalidate(String slideRef) {
+		String key = aliases.getOrDefault(slideRef, slideRef);
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			removeAliases(entry);
+		}
+		aliases.remove(slideRef);
+	}
+
+	/**
+	 * This method is used to drop the information of all slides in a directory and
+	 * its sub-directories
+	 *
+	 * @param directory Directory path
+	 */
+	public synchronized void invalidateDirectory(String directory) {
+		String prefix = directory.endsWith("/") ? directory : directory + "/";
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Entry> entry = it.next();
+			if (entry.getKey().startsWith(prefix)) {
+				it.remove();
+				removeAliases(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * This method is used to drop all slides
+	 */
+	public synchronized void invalidateAll() {
+		entries.clear();
+		aliases.clear();
+	}
+
+	/**
+	 * @return the number of slides currently cached
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return a snapshot of the cached slides, by path
+	 */
+	public synchronized Map<String, SlideInfo> asMap() {
+		Map<String, SlideInfo> map = new LinkedHashMap<>();
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			map.put(entry.getKey(), entry.getValue().info);
+		}
+		return map;
+	}
+
+	/**
+	 * @return the most recently used slide, null if the cache is empty
+	 */
+	synchronized SlideInfo any() {
+		SlideInfo info = null;
+		for (Entry entry : entries.values()) {
+			info = entry.info;
+		}
+		return info;
+	}
+
+	/**
+	 * @return a snapshot of the cache statistics
+	 */
+	public Stats getStats() {
+		return new Stats(hits.sum(), misses.sum(), loads.sum(), loadFailures.sum(), refreshes.sum(), evictions.sum(),
+				expirations.sum(), size());
+	}
+
+	private synchronized Entry lookup(String slideRef) {
+		String key = aliases.getOrDefault(slideRef, slideRef);
+		Entry entry = entries.get(key);
+		if (entry != null && expireAfterWrite > 0 && age(entry) >= expireAfterWrite) {
+			entries.remove(key);
+			removeAliases(entry);
+			expirations.increment();
+			return null;
+		}
+		return entry;
+	}
+
+	private SlideInfo load(String slideRef, Loader loader) throws Exception {
+		SlideInfo info;
+		try {
+			info = loader.load(slideRef);
+		} catch (Exception e) {
+			loadFailures.increment();
+			throw e;
+		}
+		loads.increment();
+		if (info != null) {
+			put(info, slideRef);
+		}
+		return info;
+	}
+
+	private void refresh(final String slideRef, final Entry entry, final Loader loader) {
+		refresher.execute(() -> {
+			try {
+				SlideInfo info = loader.load(slideRef);
+				refreshes.increment();
+				if (info != null) {
+					put(info, slideRef);
+				} else {
+					invalidate(slideRef);
+				}
+			} catch (Exception e) {
+				// keep serving the current information until it expires
+				loadFailures.increment();
+				entry.refreshing.set(0);
+				if (PMA.logger != null) {
+					StringWriter sw = new StringWriter();
+					e.printStackTrace(new PrintWriter(sw));
+					PMA.logger.severe(sw.toString());
+				}
+			}
+		});
+	}
+
+	private void addAlias(Entry entry, String key, String alias) {
+		if (alias != null && !alias.isEmpty() && !alias.equals(key)) {
+			aliases.put(alias, key);
+			entry.aliases.add(alias);
+		}
+	}
+
+	private void removeAliases(Entry entry) {
+		for (String alias : entry.aliases) {
+			aliases.remove(alias);
+		}
+	}
+
+	private static long age(Entry entry) {
+		return System.currentTimeMillis() - entry.written;
+	}
+
+	private static class Entry {
+		private final SlideInfo info;
+		private final long written;
+		private final Set<String> aliases = new HashSet<>(4);
+		private final AtomicInteger refreshing = new AtomicInteger();
+
+		Entry(SlideInfo info, long written) {
+			this.info = info;
+			this.written = written;
+		}
+
+		boolean startRefresh() {
+			return refreshing.compareAndSet(0, 1);
+		}
+	}
+
+	/**
+	 * Snapshot of the statistics of a slide information cache
+	 */
+	public static class Stats {
+		private final long hits;
+		private final long misses;
+		private final long loads;
+		private final long loadFailures;
+		private final long refreshes;
+		private final long evictions;
+		private final long expirations;
+		private final long entries;
+
+		public Stats(long hits, long misses, long loads, long loadFailures, long refreshes, long evictions,
+				long expirations, long entries) {
+			this.hits = hits;
+			this.misses = misses;
+			this.loads = loads;
+			this.loadFailures = loadFailures;
+			this.refreshes = refreshes;
+			this.evictions = evictions;
+			this.expirations = expirations;
+			this.entries = entries;
+		}
+
+		/**
+		 * @return the number of lookups that found a slide
+		 */
+		public long getHits() {
+			return hits;
+		}
+
+		/**
+		 * @return the number of lookups that didn't find a slide
+		 */
+		public long getMisses() {
+			return misses;
+		}
+
+		/**
+		 * @return the ratio of lookups that found a slide, 0 if there weren't any
+		 */
+		public double getHitRate() {
+			long lookups = hits + misses;
+			return lookups == 0 ? 0 : (double) hits / lookups;
+		}
+
+		/**
+		 * @return the number of slides loaded on a miss
+		 */
+		public long getLoads() {
+			return loads;
+		}
+
+		/**
+		 * @return the number of loads and refreshes that failed
+		 */
+		public long getLoadFailures() {
+			return loadFailures;
+		}
+
+		/**
+		 * @return the number of slides refreshed in the background
+		 */
+		public long getRefreshes() {
+			return refreshes;
+		}
+
+		/**
+		 * @return the number of slides evicted to stay within the size limit
+		 */
+		public long getEvictions() {
+			return evictions;
+		}
+
+		/**
+		 * @return the number of slides dropped because they expired
+		 */
+		public long getExpirations() {
+			return expirations;
+		}
+
+		/**
+		 * @return the number of slides currently cached
+		 */
+		public long getEntries() {
+			return entries;
+		}
+
+		@Override
+		public String toString() {
+			return "hits=" + hits + ", misses=" + misses + ", loads=" + loads + ", loadFailures=" + loadFailures
+					+ ", refreshes=" + refreshes + ", evictions=" + evictions + ", expirations=" + expirations
+					+ ", entries=" + entries;
+		}
+	}
+}
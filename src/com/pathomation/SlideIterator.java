@@ -0,0 +1,177 @@
+package com.pathomation;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy enumeration of the slides of a directory tree. The tree is crawled in
+ * the background (see SlideCrawler) and every slide becomes available as soon
+ * as the response of its directory arrives, so processing overlaps with
+ * listing. At most a bounded number of slides is held ahead of the consumer;
+ * when the consumer falls behind, the crawl waits.
+ * <p>
+ * Slides come in the order their directories were listed, which isn't
+ * necessarily the order of getSlides(). Closing the iterator cancels the
+ * crawl
+ * </p>
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class SlideIterator implements Iterator<SlidePath>, AutoCloseable {
+
+	/**
+	 * Default number of slides held ahead of the consumer
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	// marks the end of the crawl in the queue
+	private static final SlidePath END = new SlidePath("", -1);
+
+	private final SlideCrawler crawler;
+	private final BlockingQueue<SlidePath> queue;
+	private volatile SlideCrawler.Result result;
+	private SlidePath next;
+	private boolean done = false;
+
+	/**
+	 * Starts enumerating the slides of a directory tree
+	 *
+	 * @param crawler    Crawler to list the directories with; its
+	 *                   setIncludeDirectories(), setIncludeSlides() and
+	 *                   setCollectResults() settings are overridden
+	 * @param startDir   Start directory ("/" or "" for all root directories)
+	 * @param bufferSize Maximum number of slides held ahead of the consumer
+	 */
+	public SlideIterator(SlideCrawler crawler, String startDir, int bufferSize) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("bufferSize must be at least 1");
+		}
+		this.crawler = crawler;
+		this.queue = new LinkedBlockingQueue<>(bufferSize);
+		crawler.setIncludeDirectories(false);
+		crawler.setIncludeSlides(true);
+		crawler.setCollectResults(false);
+		Thread thread = new Thread(() -> {
+			try {
+				result = crawler.crawl(startDir, new SlideCrawler.Listener() {
+					@Override
+					public void onDirectory(String path, int depth) {
+					}
+
+					@Override
+					public void onSlide(String path, int depth) {
+						offer(new SlidePath(path, depth));
+					}
+				});
+			} finally {
+				offer(END);
+			}
+		}, "pma-java-crawl-" + threadCount.incrementAndGet());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void offer(SlidePath slide) {
+		try {
+			while (!queue.offer(slide, 100, TimeUnit.MILLISECONDS)) {
+				if (crawler.isCancelled()) {
+					if (slide == END) {
+						// make room, the consumer is gone anyway
+						queue.clear();
+					} else {
+						return;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			crawler.cancel();
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next != null) {
+			return true;
+		}
+		if (done) {
+			return false;
+		}
+		try {
+			SlidePath slide = queue.take();
+			if (slide == END) {
+				done = true;
+				return false;
+			}
+			next = slide;
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			return false;
+		}
+	}
+
+	@Override
+	public SlidePath next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		SlidePath slide = next;
+		next = null;
+		return slide;
+	}
+
+	/**
+	 * This method is used to stop the enumeration. hasNext() returns false from
+	 * then on
+	 */
+	@Override
+	public void close() {
+		crawler.cancel();
+		done = true;
+		next = null;
+		queue.clear();
+	}
+
+	/**
+	 * @return true once all slides were listed (or the crawl was cancelled)
+	 */
+	public boolean isFinished() {
+		return result != null;
+	}
+
+	/**
+	 * @return the directories that couldn't be listed, with the reason why; only
+	 *         complete once isFinished() returns true
+	 */
+	public Map<String, Exception> getErrors() {
+		SlideCrawler.Result r = result;
+		return r == null ? Collections.<String, Exception>emptyMap() : r.getErrors();
+	}
+
+	/**
+	 * This method is used to get the remaining slides as a sequential stream.
+	 * Closing the stream closes the iterator
+	 *
+	 * @return Stream of slides
+	 */
+	public Stream<SlidePath> stream() {
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(this::close);
+	}
+}
@@ -0,0 +1,72 @@
+package com.pathomation;
+
+/**
+ * A slide found while enumerating a directory tree: its path, the directory it
+ * was listed in and the depth of that directory below the start directory
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public final class SlidePath {
+
+	private final String path;
+	private final int depth;
+
+	/**
+	 * Creates a slide path
+	 *
+	 * @param path  Path of the slide
+	 * @param depth Depth of the slide's directory (0 for the start directory)
+	 */
+	public SlidePath(String path, int depth) {
+		if (path == null) {
+			throw new IllegalArgumentException("path can't be null");
+		}
+		this.path = path;
+		this.depth = depth;
+	}
+
+	/**
+	 * @return the slide's path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the path of the directory the slide is in
+	 */
+	public String getDirectory() {
+		int i = path.lastIndexOf('/');
+		return i < 0 ? "" : path.substring(0, i);
+	}
+
+	/**
+	 * @return the slide's file name, without its directory
+	 */
+	public String getName() {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	/**
+	 * @return the depth of the slide's directory (0 for the start directory)
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof SlidePath && ((SlidePath) o).path.equals(path);
+	}
+
+	@Override
+	public int hashCode() {
+		return path.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+}
@@ -0,0 +1,468 @@
+package com.pathomation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.mime.HttpMultipartMode;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Uploads the files of a local slide (all files of multi-file formats like
+ * MRXS or VSI) to PMA.core. Several files are sent at the same time through the
+ * session's pooled connections, whether they go to PMA.core itself or directly
+ * to the S3 or Azure storage behind it.
+ * <p>
+ * A file that fails is retried on its own, with an increasing delay, and a
+ * file the server already reports as complete isn't sent again. The other
+ * files of the slide keep uploading while one is being retried; the upload is
+ * only finalized once all files made it
+ * </p>
+ * <p>
+ * With a journal (setJournal()), the state of the upload is kept on disk: the
+ * upload's ID, its files and which of them are complete. If the upload is
+ * interrupted, even by a JVM restart, resumeUpload() continues it without
+ * sending the completed files again. The journal is deleted once the upload is
+ * finalized
+ * </p>
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class SlideUploader {
+
+	/**
+	 * Default number of files uploaded at the same time
+	 */
+	public static final int DEFAULT_PARALLELISM = 4;
+
+	/**
+	 * Default number of times a failed file is retried
+	 */
+	public static final int DEFAULT_RETRIES = 3;
+
+	/**
+	 * Upload straight to PMA.core
+	 */
+	public static final int UPLOAD_TYPE_PMA_CORE = 0;
+
+	/**
+	 * Upload to Amazon S3 through pre-signed URLs
+	 */
+	public static final int UPLOAD_TYPE_S3 = 1;
+
+	/**
+	 * Upload to Azure blob storage through SAS URLs
+	 */
+	public static final int UPLOAD_TYPE_AZURE = 2;
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	private final String sessionID;
+	private int parallelism = DEFAULT_PARALLELISM;
+	private int retries = DEFAULT_RETRIES;
+	private File journal;
+
+	/**
+	 * Creates an uploader
+	 *
+	 * @param sessionID session's ID, null for the default session
+	 */
+	public SlideUploader(String sessionID) {
+		this.sessionID = sessionID;
+	}
+
+	/**
+	 * This method is used to set the number of files uploaded at the same time
+	 *
+	 * @param parallelism Number of parallel uploads (default 4)
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * This method is used to set the number of times a failed file is retried.
+	 * Before every retry, the server is asked whether the file arrived after all
+	 *
+	 * @param retries Number of retries (default 3)
+	 */
+	public void setRetries(int retries) {
+		if (retries < 0) {
+			throw new IllegalArgumentException("retries can't be negative");
+		}
+		this.retries = retries;
+	}
+
+	/**
+	 * This method is used to set the file the state of the next uploads is
+	 * journaled to, so they can be resumed with resumeUpload()
+	 *
+	 * @param journal Journal file, null to keep the state in memory only
+	 *                (default)
+	 */
+	public void setJournal(File journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * This method is used to upload all files of a local slide to a folder of
+	 * PMA.core. The files are listed through PMA.start
+	 *
+	 * @param localSourceSlide Full local path of the slide's main file
+	 * @param targetFolder     Remote folder to upload the slide to
+	 * @param progressCallback Callback to report the progress to, can be null;
+	 *                         it's called from several threads at the same time
+	 * @return ID of the upload
+	 * @throws IOException If a file can't be uploaded or the upload can't be
+	 *                     finalized
+	 */
+	public String upload(String localSourceSlide, String targetFolder,
+			ProgressHttpEntityWrapper.ProgressCallback progressCallback) throws IOException {
+		PmaCoreClient client = Core.getClient(sessionID);
+		if (client == null) {
+			throw new IOException("Invalid sessionID: " + sessionID);
+		}
+		if (targetFolder.startsWith("/")) {
+			targetFolder = targetFolder.substring(1);
+		}
+		String fileName = Core.getSlideFileName(localSourceSlide);
+		List<String> existing = Core.getSlides(targetFolder, client.getSessionId());
+		if (existing != null && existing.contains(targetFolder + fileName)) {
+			throw new IOException("The file: ===" + fileName
+					+ "=== with the same name and extension already exists in the target folder: " + targetFolder);
+		}
+		List<HashMap<String, String>> files = Core.filesToUpload(localSourceSlide);
+		JSONObject data = new JSONObject();
+		data.put("Path", targetFolder);
+		data.put("Files", new JSONArray(files));
+		String url = client.getUrl() + "transfer/Upload?sessionID=" + PMA.pmaQ(client.getSessionId());
+		String response = client.getTransport().postString(url, "application/json", data.toString(),
+				"application/json");
+		if (!PMA.isJSONObject(response)) {
+			throw new IOException("Error uploading " + localSourceSlide + " to PMA.core: " + response);
+		}
+		JSONObject uploadHeader = PMA.getJSONObjectResponse(response);
+		String uploadID = uploadHeader.get("Id").toString();
+		int uploadType = uploadHeader.optInt("UploadType", UPLOAD_TYPE_PMA_CORE);
+		JSONArray urls = uploadHeader.optJSONArray("Urls");
+
+		List<FileJob> jobs = new ArrayList<>();
+		for (int i = 0; i < files.size(); i++) {
+			Map<String, String> file = files.get(i);
+			String fileUrl = uploadType == UPLOAD_TYPE_PMA_CORE || urls == null ? null : urls.getString(i);
+			jobs.add(new FileJob(uploadID, uploadType, file.get("Path"), new File(file.get("FullPath")), fileUrl));
+		}
+		Journal uploadJournal = null;
+		if (journal != null) {
+			uploadJournal = new Journal(journal, client.getUrl(), localSourceSlide, targetFolder, uploadID, uploadType);
+			for (FileJob job : jobs) {
+				uploadJournal.add(job, false);
+			}
+			uploadJournal.save();
+		}
+		upload(client, uploadID, jobs, false, uploadJournal, progressCallback);
+		return uploadID;
+	}
+
+	/**
+	 * This method is used to continue an upload from its journal. The files the
+	 * journal doesn't list as complete are checked with the server first, and
+	 * only the ones it doesn't have are sent again (from their start, the
+	 * server can't take the rest of a file). S3 and Azure URLs expire, so an old
+	 * journal of such an upload may no longer be resumable
+	 *
+	 * @param journalFile      Journal written by an upload with setJournal()
+	 * @param progressCallback Callback to report the progress to, can be null;
+	 *                         it's called from several threads at the same time
+	 * @return ID of the upload
+	 * @throws IOException If the journal can't be read, a local file changed
+	 *                     since the upload started, a file can't be uploaded or
+	 *                     the upload can't be finalized
+	 */
+	public String resumeUpload(File journalFile, ProgressHttpEntityWrapper.ProgressCallback progressCallback)
+			throws IOException {
+		PmaCoreClient client = Core.getClient(sessionID);
+		if (client == null) {
+			throw new IOException("Invalid sessionID: " + sessionID);
+		}
+		Journal uploadJournal = Journal.load(journalFile);
+		if (!uploadJournal.server.equals(client.getUrl())) {
+			throw new IOException("Upload " + uploadJournal.uploadID + " was started on " + uploadJournal.server
+					+ ", not on " + client.getUrl());
+		}
+		List<FileJob> jobs = new ArrayList<>();
+		for (int i = 0; i < uploadJournal.files.length(); i++) {
+			JSONObject file = uploadJournal.files.getJSONObject(i);
+			if (file.optBoolean("Complete")) {
+				continue;
+			}
+			File local = new File(file.getString("FullPath"));
+			if (local.length() != file.getLong("Length") || local.lastModified() != file.getLong("LastModified")) {
+				throw new IOException(local + " changed since upload " + uploadJournal.uploadID + " started");
+			}
+			jobs.add(new FileJob(uploadJournal.uploadID, uploadJournal.uploadType, file.getString("Path"), local,
+					file.optString("Url", null)));
+		}
+		upload(client, uploadJournal.uploadID, jobs, true, uploadJournal, progressCallback);
+		return uploadJournal.uploadID;
+	}
+
+	/**
+	 * This method is used to upload files of an upload that was already
+	 * registered on the server, then finalize it
+	 *
+	 * @param client           Session to upload to
+	 * @param uploadID         ID of the upload
+	 * @param jobs             Files to upload
+	 * @param verifyFirst      Whether the server is asked if a file is already
+	 *                         complete before it's sent a first time
+	 * @param uploadJournal    Journal to record the complete files in, can be
+	 *                         null; it's deleted once the upload is finalized
+	 * @param progressCallback Callback to report the progress to, can be null
+	 * @throws IOException If a file can't be uploaded or the upload can't be
+	 *                     finalized
+	 */
+	void upload(PmaCoreClient client, String uploadID, List<FileJob> jobs, boolean verifyFirst, Journal uploadJournal,
+			ProgressHttpEntityWrapper.ProgressCallback progressCallback) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+			Thread t = new Thread(r, "pma-java-upload-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		Map<String, Exception> failures = new LinkedHashMap<>();
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (FileJob job : jobs) {
+				futures.add(executor.submit(() -> {
+					job.send(client, verifyFirst, progressCallback);
+					if (uploadJournal != null) {
+						uploadJournal.complete(job.relativePath);
+					}
+					return null;
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					futures.get(i).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Upload " + uploadID + " interrupted");
+				} catch (ExecutionException e) {
+					failures.put(jobs.get(i).relativePath, (Exception) e.getCause());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		if (!failures.isEmpty()) {
+			IOException failure = new IOException(
+					"Upload " + uploadID + " failed for " + failures.size() + " file(s): " + failures.keySet());
+			for (Exception e : failures.values()) {
+				failure.addSuppressed(e);
+			}
+			throw failure;
+		}
+		finalizeUpload(client, uploadID);
+		if (uploadJournal != null) {
+			Files.deleteIfExists(uploadJournal.file.toPath());
+		}
+	}
+
+	private void finalizeUpload(PmaCoreClient client, String uploadID) throws IOException {
+		String url = client.getUrl() + "transfer/Upload/" + uploadID + "?sessionID=" + PMA.pmaQ(client.getSessionId());
+		try (CloseableHttpResponse response = client.getTransport().execute(new HttpGet(url))) {
+			int status = response.getStatusLine().getStatusCode();
+			String result = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity());
+			if (status < 200 || status >= 300) {
+				throw new IOException("Error finalizing upload " + uploadID + ": " + result);
+			}
+		}
+	}
+
+	class FileJob {
+		final String uploadID;
+		final int uploadType;
+		final String relativePath;
+		final File file;
+		// pre-signed URL of S3 and Azure uploads, null for PMA.core
+		final String url;
+
+		FileJob(String uploadID, int uploadType, String relativePath, File file, String url) {
+			this.uploadID = uploadID;
+			this.uploadType = uploadType;
+			this.relativePath = relativePath;
+			this.file = file;
+			this.url = url;
+		}
+
+		void send(PmaCoreClient client, boolean verifyFirst, ProgressHttpEntityWrapper.ProgressCallback progressCallback)
+				throws IOException {
+			if (verifyFirst && Core._pma_checkUploadedFile(client.getSessionId(), uploadID, relativePath)) {
+				return;
+			}
+			IOException failure = null;
+			for (int attempt = 0; attempt <= retries; attempt++) {
+				if (attempt > 0) {
+					try {
+						Thread.sleep(1000L << Math.min(attempt - 1, 5));
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Upload of " + relativePath + " interrupted");
+					}
+					// the failure may have happened after the server got the whole file
+					if (Core._pma_checkUploadedFile(client.getSessionId(), uploadID, relativePath)) {
+						return;
+					}
+				}
+				try (CloseableHttpResponse response = client.getTransport().execute(request(client, progressCallback))) {
+					int status = response.getStatusLine().getStatusCode();
+					String result = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity());
+					if (status < 200 || status >= 300) {
+						throw new IOException("Upload of " + relativePath + " failed: " + response.getStatusLine()
+								+ (result.isEmpty() ? "" : " " + result));
+					}
+					return;
+				} catch (InterruptedIOException e) {
+					throw e;
+				} catch (IOException e) {
+					failure = e;
+					if (PMA.logger != null) {
+						PMA.logger.warning(
+								"Upload of " + relativePath + " failed (attempt " + (attempt + 1) + "): " + e.getMessage());
+					}
+				}
+			}
+			throw failure;
+		}
+
+		private HttpEntityEnclosingRequestBase request(PmaCoreClient client,
+				ProgressHttpEntityWrapper.ProgressCallback progressCallback) {
+			HttpEntityEnclosingRequestBase request;
+			HttpEntity entity;
+			if (uploadType == UPLOAD_TYPE_PMA_CORE) {
+				request = new HttpPost(client.getUrl() + "transfer/Upload/" + uploadID + "?sessionID="
+						+ PMA.pmaQ(client.getSessionId()) + "&path=" + PMA.pmaQ(relativePath));
+				entity = MultipartEntityBuilder.create().setMode(HttpMultipartMode.STRICT)
+						.addPart(file.getName(), new FileChannelEntity.Body(file)).build();
+			} else {
+				// S3 and Azure take the raw content of the file
+				request = new HttpPut(url);
+				request.setHeader("Content-Type", "multipart/form-data");
+				if (uploadType == UPLOAD_TYPE_AZURE) {
+					request.setHeader("x-ms-blob-type", "BlockBlob");
+				}
+				entity = new FileChannelEntity(file, null);
+			}
+			request.setEntity(
+					progressCallback == null ? entity : new ProgressHttpEntityWrapper(entity, relativePath, progressCallback));
+			return request;
+		}
+	}
+
+	/**
+	 * State of an upload, saved as JSON every time a file completes
+	 */
+	static class Journal {
+		final File file;
+		final String server;
+		final String slide;
+		final String targetFolder;
+		final String uploadID;
+		final int uploadType;
+		final JSONArray files = new JSONArray();
+
+		Journal(File file, String server, String slide, String targetFolder, String uploadID, int uploadType) {
+			this.file = file;
+			this.server = server;
+			this.slide = slide;
+			this.targetFolder = targetFolder;
+			this.uploadID = uploadID;
+			this.uploadType = uploadType;
+		}
+
+		static Journal load(File file) throws IOException {
+			String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			if (!PMA.isJSONObject(json)) {
+				throw new IOException(file + " isn't an upload journal");
+			}
+			JSONObject o = PMA.getJSONObjectResponse(json);
+			Journal journal = new Journal(file, o.getString("Server"), o.optString("Slide"), o.optString("TargetFolder"),
+					o.getString("UploadId"), o.getInt("UploadType"));
+			JSONArray files = o.getJSONArray("Files");
+			for (int i = 0; i < files.length(); i++) {
+				journal.files.put(files.getJSONObject(i));
+			}
+			return journal;
+		}
+
+		void add(FileJob job, boolean complete) {
+			JSONObject o = new JSONObject();
+			o.put("Path", job.relativePath);
+			o.put("FullPath", job.file.getAbsolutePath());
+			o.put("Length", job.file.length());
+			o.put("LastModified", job.file.lastModified());
+			if (job.url != null) {
+				o.put("Url", job.url);
+			}
+			o.put("Complete", complete);
+			files.put(o);
+		}
+
+		synchronized void complete(String relativePath) throws IOException {
+			for (int i = 0; i < files.length(); i++) {
+				if (files.getJSONObject(i).getString("Path").equals(relativePath)) {
+					files.getJSONObject(i).put("Complete", true);
+				}
+			}
+			save();
+		}
+
+		synchronized void save() throws IOException {
+			JSONObject o = new JSONObject();
+			o.put("Server", server);
+			o.put("Slide", slide);
+			o.put("TargetFolder", targetFolder);
+			o.put("UploadId", uploadID);
+			o.put("UploadType", uploadType);
+			o.put("Files", files);
+			File parent = file.getAbsoluteFile().getParentFile();
+			if (parent != null) {
+				parent.mkdirs();
+			}
+			File tmp = new File(file.getPath() + ".tmp");
+			Files.write(tmp.toPath(), o.toString(1).getBytes(StandardCharsets.UTF_8));
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.pathomation;
+
+/**
+ * Combines two tile caches, typically a small in-memory cache in front of a
+ * large disk cache. Tiles found in the second level only are promoted to the
+ * first level
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class TieredTileCache implements TileCache {
+
+	private final TileCache first;
+	private final TileCache second;
+
+	/**
+	 * Creates a two-level cache
+	 *
+	 * @param first  First level, looked up first (e.g. a MemoryTileCache)
+	 * @param second Second level (e.g. a DiskTileCache)
+	 */
+	public TieredTileCache(TileCache first, TileCache second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	/**
+	 * @return the first level cache
+	 */
+	public TileCache getFirst() {
+		return first;
+	}
+
+	/**
+	 * @return the second level cache
+	 */
+	public TileCache getSecond() {
+		return second;
+	}
+
+	@Override
+	public byte[] get(TileKey key) {
+		byte[] data = first.get(key);
+		if (data == null) {
+			data = second.get(key);
+			if (data != null) {
+				first.put(key, data);
+			}
+		}
+		return data;
+	}
+
+	@Override
+	public void put(TileKey key, byte[] data) {
+		first.put(key, data);
+		second.put(key, data);
+	}
+
+	@Override
+	public byte[] get(TileKey key, String lastModified) {
+		byte[] data = first.get(key, lastModified);
+		if (data == null) {
+			data = second.get(key, lastModified);
+			if (data != null) {
+				first.put(key, data, lastModified);
+			}
+		}
+		return data;
+	}
+
+	@Override
+	public void put(TileKey key, byte[] data, String lastModified) {
+		first.put(key, data, lastModified);
+		second.put(key, data, lastModified);
+	}
+
+	@Override
+	public void invalidate(String fingerprint) {
+		first.invalidate(fingerprint);
+		second.invalidate(fingerprint);
+	}
+
+	@Override
+	public void clear() {
+		first.clear();
+		second.clear();
+	}
+
+	/**
+	 * @return the combined statistics: hits of both levels, misses of the second
+	 *         level, and the entries and size of the second level
+	 */
+	@Override
+	public Stats getStats() {
+		Stats s1 = first.getStats();
+		Stats s2 = second.getStats();
+		return new Stats(s1.getHits() + s2.getHits(), s2.getMisses(), s2.getPuts(), s1.getEvictions() + s2.getEvictions(),
+				s2.getEntries(), s2.getBytes());
+	}
+}
@@ -0,0 +1,652 @@
+package com.pathomation;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.w3c.dom.NodeList;
+
+/**
+ * Exports a slide to a tiled, pyramidal (Big)TIFF file, one image per zoom
+ * level from the full resolution down. Tiles are fetched in parallel (within
+ * the session's limit of concurrent requests, see
+ * Core.setMaxConcurrentRequests()) and written to the file as soon as they
+ * arrive, each at its own position through a FileChannel, so memory use
+ * depends on the number of tiles in flight, not on the size of the slide. Only
+ * the tile offsets (16 bytes per tile) are kept until the end.
+ * <p>
+ * With JPEG compression (the default), the JPEG tiles of the server are stored
+ * as they are; only tiles that aren't full-size (at the right and bottom
+ * edges) are decoded and re-encoded, padded with white and with the chroma
+ * subsampling of the level's other tiles. Without compression,
+ * every tile is decoded and stored as RGB
+ * </p>
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class TiffExporter {
+
+	/**
+	 * How the tiles are stored in the TIFF file
+	 */
+	public enum Compression {
+		/**
+		 * JPEG tiles, as sent by the server (TIFF compression 7)
+		 */
+		JPEG,
+		/**
+		 * Uncompressed RGB tiles
+		 */
+		NONE
+	}
+
+	/**
+	 * Default maximum number of tiles fetched ahead of being written
+	 */
+	public static final int DEFAULT_PREFETCH = 64;
+
+	private static final short SHORT = 3;
+	private static final short LONG = 4;
+	private static final short RATIONAL = 5;
+	private static final short LONG8 = 16;
+	private static final String JPEG_METADATA = "javax_imageio_jpeg_image_1.0";
+
+	private final String sessionID;
+	private Compression compression = Compression.JPEG;
+	private boolean bigTiff = true;
+	private int quality = 100;
+	private int zStack = 0;
+	private int minZoomLevel = 0;
+	private int prefetch = DEFAULT_PREFETCH;
+
+	/**
+	 * Creates an exporter
+	 *
+	 * @param sessionID session's ID, null for the default session
+	 */
+	public TiffExporter(String sessionID) {
+		this.sessionID = sessionID;
+	}
+
+	/**
+	 * This method is used to set how the tiles are stored
+	 *
+	 * @param compression Compression (default JPEG)
+	 */
+	public void setCompression(Compression compression) {
+		if (compression == null) {
+			throw new IllegalArgumentException("compression can't be null");
+		}
+		this.compression = compression;
+	}
+
+	/**
+	 * This method is used to choose between BigTIFF and classic TIFF. Classic
+	 * TIFF files are read by more software, but can't be larger than 4 GB
+	 *
+	 * @param bigTiff Whether a BigTIFF file is written (default true)
+	 */
+	public void setBigTiff(boolean bigTiff) {
+		this.bigTiff = bigTiff;
+	}
+
+	/**
+	 * This method is used to set the JPEG quality the tiles are requested with
+	 *
+	 * @param quality Quality, from 0 to 100 (default 100)
+	 */
+	public void setQuality(int quality) {
+		if (quality < 0 || quality > 100) {
+			throw new IllegalArgumentException("quality must be between 0 and 100");
+		}
+		this.quality = quality;
+	}
+
+	/**
+	 * This method is used to set the z stack to export
+	 *
+	 * @param zStack Z stack (default 0)
+	 */
+	public void setZStack(int zStack) {
+		this.zStack = zStack;
+	}
+
+	/**
+	 * This method is used to set the lowest zoom level exported
+	 *
+	 * @param minZoomLevel Zoom level (default 0, all levels)
+	 */
+	public void setMinZoomLevel(int minZoomLevel) {
+		if (minZoomLevel < 0) {
+			throw new IllegalArgumentException("minZoomLevel can't be negative");
+		}
+		this.minZoomLevel = minZoomLevel;
+	}
+
+	/**
+	 * This method is used to set the maximum number of tiles fetched ahead of
+	 * being written, which bounds the memory used
+	 *
+	 * @param prefetch Number of tiles (default 64)
+	 */
+	public void setPrefetch(int prefetch) {
+		if (prefetch < 1) {
+			throw new IllegalArgumentException("prefetch must be at least 1");
+		}
+		this.prefetch = prefetch;
+	}
+
+	/**
+	 * This method is used to export a slide. The file is written as
+	 * "name.part" and only renamed once it's complete
+	 *
+	 * @param slideRef slide's path or UID
+	 * @param target   File to write
+	 * @return Statistics of the export
+	 * @throws IOException If the slide's information or a tile can't be
+	 *                     retrieved, or the file can't be written
+	 */
+	public Result export(String slideRef, File target) throws IOException {
+		String sid = Core.sessionId(sessionID);
+		if (slideRef.startsWith("/")) {
+			slideRef = slideRef.substring(1);
+		}
+		SlideInfo info = Core.getTypedSlideInfo(slideRef, sid);
+		if (info == null || info.getTileSize() <= 0 || info.getMaxZoomLevel() < 0) {
+			throw new IOException("Unable to get information for " + slideRef);
+		}
+		int tileSize = info.getTileSize();
+		List<Level> levels = new ArrayList<>();
+		for (int zoom = info.getMaxZoomLevel(); zoom >= minZoomLevel; zoom--) {
+			List<Integer> dimensions = Core.getPixelDimensions(slideRef, zoom, sid);
+			if (dimensions.get(0) > 0 && dimensions.get(1) > 0) {
+				levels.add(new Level(zoom, dimensions.get(0), dimensions.get(1), tileSize));
+			}
+		}
+		if (levels.isEmpty()) {
+			throw new IOException("No zoom level of " + slideRef + " to export");
+		}
+
+		File parent = target.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		File part = new File(target.getPath() + SlideDownloader.PART_SUFFIX);
+		Result result = new Result();
+		boolean done = false;
+		try (FileChannel channel = FileChannel.open(part.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			// tile data goes right after the header, the directories at the end
+			AtomicLong next = new AtomicLong(bigTiff ? 16 : 8);
+			Semaphore window = new Semaphore(prefetch);
+			AtomicReference<Throwable> failure = new AtomicReference<>();
+			final String ref = slideRef;
+			for (Level level : levels) {
+				for (int ty = 0; ty < level.tilesY && failure.get() == null; ty++) {
+					for (int tx = 0; tx < level.tilesX && failure.get() == null; tx++) {
+						final int index = ty * level.tilesX + tx;
+						try {
+							window.acquire();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							failure.compareAndSet(null, new InterruptedIOException("Export of " + ref + " interrupted"));
+							break;
+						}
+						Core.readTileAsync(ref, tx, ty, level.zoomLevel, zStack, sid, "jpg", quality)
+								.whenComplete((data, e) -> {
+									try {
+										if (e != null) {
+											failure.compareAndSet(null, e);
+										} else if (failure.get() == null) {
+											write(channel, next, level, index, data, result);
+										}
+									} catch (Throwable t) {
+										failure.compareAndSet(null, t);
+									} finally {
+										window.release();
+									}
+								});
+					}
+				}
+			}
+			// wait for the tiles in flight
+			window.acquireUninterruptibly(prefetch);
+			Throwable t = failure.get();
+			if (t != null) {
+				throw t instanceof IOException ? (IOException) t : new IOException("Export of " + ref + " failed", t);
+			}
+			for (Level level : levels) {
+				for (Map.Entry<Integer, byte[]> tile : level.undefer().entrySet()) {
+					write(channel, next, level, tile.getKey(), tile.getValue(), result);
+				}
+			}
+			writeDirectories(channel, next.get(), levels, info);
+			channel.force(true);
+			result.bytes = channel.size();
+			done = true;
+		} finally {
+			if (!done) {
+				Files.deleteIfExists(part.toPath());
+			}
+		}
+		Files.move(part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		result.levels = levels.size();
+		return result;
+	}
+
+	private void write(FileChannel channel, AtomicLong next, Level level, int index, byte[] data, Result result)
+			throws IOException {
+		byte[] tile = data;
+		int[] sof = compression == Compression.JPEG ? readJpegFrame(data) : null;
+		boolean full = sof != null && sof[0] == level.tileSize && sof[1] == level.tileSize && sof[2] == 3;
+		// all the tiles of a level share its YCbCrSubsampling tag, so only tiles that
+		// match it are passed through and the others are re-encoded with it
+		int sampling = 0;
+		if (compression == Compression.JPEG) {
+			if (full) {
+				sampling = level.sampling(sof[3]);
+			} else if (level.defer(index, data)) {
+				// written once a full-size tile has decided the level's sampling
+				return;
+			} else {
+				sampling = level.sampling(Level.DEFAULT_SAMPLING);
+			}
+		}
+		if (!full || sof[3] != sampling) {
+			tile = encode(data, level.tileSize, sampling);
+			if (compression == Compression.JPEG) {
+				result.reencoded.incrementAndGet();
+			}
+		}
+		// tile data is kept on even offsets
+		long position = next.getAndAdd(tile.length + (tile.length & 1));
+		ByteBuffer buffer = ByteBuffer.wrap(tile);
+		long p = position;
+		while (buffer.hasRemaining()) {
+			p += channel.write(buffer, p);
+		}
+		level.offsets[index] = position;
+		level.byteCounts[index] = tile.length;
+		result.tiles.incrementAndGet();
+	}
+
+	/**
+	 * This method is used to turn a tile into a full-size tile of the export's
+	 * compression, padded with white. JPEG tiles are encoded with the given luma
+	 * sampling factors (horizontal &lt;&lt; 4 | vertical), so they match the
+	 * level's YCbCrSubsampling tag
+	 */
+	private byte[] encode(byte[] data, int tileSize, int sampling) throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+		if (image == null) {
+			throw new IOException("Unable to decode a tile");
+		}
+		BufferedImage padded = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = padded.createGraphics();
+		try {
+			g.setColor(Color.WHITE);
+			g.fillRect(0, 0, tileSize, tileSize);
+			g.drawImage(image, 0, 0, null);
+		} finally {
+			g.dispose();
+		}
+		if (compression == Compression.NONE) {
+			int[] pixels = padded.getRGB(0, 0, tileSize, tileSize, null, 0, tileSize);
+			byte[] rgb = new byte[pixels.length * 3];
+			for (int i = 0; i < pixels.length; i++) {
+				rgb[3 * i] = (byte) (pixels[i] >> 16);
+				rgb[3 * i + 1] = (byte) (pixels[i] >> 8);
+				rgb[3 * i + 2] = (byte) pixels[i];
+			}
+			return rgb;
+		}
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+			writer.setOutput(stream);
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(quality / 100f);
+			IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(padded), param);
+			IIOMetadataNode tree = (IIOMetadataNode) metadata.getAsTree(JPEG_METADATA);
+			NodeList components = tree.getElementsByTagName("componentSpec");
+			for (int i = 0; i < components.getLength(); i++) {
+				// chroma is stored once per luma block, so the luma factors are the subsampling
+				IIOMetadataNode component = (IIOMetadataNode) components.item(i);
+				component.setAttribute("HsamplingFactor", String.valueOf(i == 0 ? sampling >> 4 : 1));
+				component.setAttribute("VsamplingFactor", String.valueOf(i == 0 ? sampling & 0xf : 1));
+			}
+			metadata.setFromTree(JPEG_METADATA, tree);
+			writer.write(null, new IIOImage(padded, null, metadata), param);
+		} finally {
+			writer.dispose();
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * This method is used to read the frame header of a baseline JPEG stream
+	 *
+	 * @param data JPEG stream
+	 * @return width, height, number of components and luma sampling factors
+	 *         (horizontal &lt;&lt; 4 | vertical), or null if the stream isn't a
+	 *         baseline JPEG
+	 */
+	static int[] readJpegFrame(byte[] data) {
+		if (data.length < 4 || (data[0] & 0xff) != 0xff || (data[1] & 0xff) != 0xd8) {
+			return null;
+		}
+		int i = 2;
+		while (i + 4 <= data.length) {
+			if ((data[i] & 0xff) != 0xff) {
+				return null;
+			}
+			int marker = data[i + 1] & 0xff;
+			int length = (data[i + 2] & 0xff) << 8 | (data[i + 3] & 0xff);
+			if (marker == 0xc0 || marker == 0xc1) {
+				if (i + 12 > data.length) {
+					return null;
+				}
+				int height = (data[i + 5] & 0xff) << 8 | (data[i + 6] & 0xff);
+				int width = (data[i + 7] & 0xff) << 8 | (data[i + 8] & 0xff);
+				return new int[] { width, height, data[i + 9] & 0xff, data[i + 11] & 0xff };
+			} else if (marker >= 0xc2 && marker <= 0xcf && marker != 0xc4 && marker != 0xc8 && marker != 0xcc
+					|| marker == 0xda) {
+				// progressive, lossless or arithmetic coding, or no frame header before the scan
+				return null;
+			}
+			i += 2 + length;
+		}
+		return null;
+	}
+
+	private void writeDirectories(FileChannel channel, long position, List<Level> levels, SlideInfo info)
+			throws IOException {
+		long first = position;
+		for (int l = 0; l < levels.size(); l++) {
+			Level level = levels.get(l);
+			Directory dir = new Directory();
+			dir.add(254, LONG, l == 0 ? 0 : 1);
+			dir.add(256, LONG, level.width);
+			dir.add(257, LONG, level.height);
+			dir.add(258, SHORT, 8, 8, 8);
+			dir.add(259, SHORT, compression == Compression.JPEG ? 7 : 1);
+			dir.add(262, SHORT, compression == Compression.JPEG ? 6 : 2);
+			dir.add(277, SHORT, 3);
+			double mpp = info.getMicrometresPerPixelX() * Math.pow(2, info.getMaxZoomLevel() - level.zoomLevel);
+			if (mpp > 0) {
+				// pixels per centimetre
+				long resolution = Math.round(10000 / mpp * 1000);
+				dir.add(282, RATIONAL, resolution, 1000);
+				dir.add(283, RATIONAL, resolution, 1000);
+			}
+			dir.add(284, SHORT, 1);
+			if (mpp > 0) {
+				dir.add(296, SHORT, 3);
+			}
+			dir.add(322, LONG, level.tileSize);
+			dir.add(323, LONG, level.tileSize);
+			dir.add(324, bigTiff ? LONG8 : LONG, level.offsets);
+			dir.add(325, bigTiff ? LONG8 : LONG, level.byteCounts);
+			if (compression == Compression.JPEG) {
+				int sampling = level.sampling(Level.DEFAULT_SAMPLING);
+				dir.add(530, SHORT, sampling >> 4, sampling & 0xf);
+			}
+			boolean last = l == levels.size() - 1;
+			ByteBuffer buffer = dir.toBytes(position, last);
+			long next = position + buffer.remaining();
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+			position = next;
+		}
+		ByteBuffer header = ByteBuffer.allocate(bigTiff ? 16 : 8).order(ByteOrder.LITTLE_ENDIAN);
+		header.put((byte) 'I').put((byte) 'I');
+		if (bigTiff) {
+			header.putShort((short) 43).putShort((short) 8).putShort((short) 0).putLong(first);
+		} else {
+			checkClassic(first);
+			header.putShort((short) 42).putInt((int) first);
+		}
+		header.flip();
+		long p = 0;
+		while (header.hasRemaining()) {
+			p += channel.write(header, p);
+		}
+	}
+
+	private void checkClassic(long offset) throws IOException {
+		if (offset > 0xffffffffL) {
+			throw new IOException("The export exceeds 4 GB, it can only be written as BigTIFF");
+		}
+	}
+
+	private static class Level {
+		final int zoomLevel;
+		final int width;
+		final int height;
+		final int tileSize;
+		final int tilesX;
+		final int tilesY;
+		final long[] offsets;
+		final long[] byteCounts;
+		// luma sampling factors of ImageIO's JPEG writer, 4:2:0
+		static final int DEFAULT_SAMPLING = 0x22;
+
+		// luma sampling factors of the level's JPEG tiles, decided by the first
+		// full-size tile
+		private int sampling;
+		// partial tiles received before the sampling was decided, by index
+		private final Map<Integer, byte[]> deferred = new HashMap<>();
+
+		Level(int zoomLevel, int width, int height, int tileSize) {
+			this.zoomLevel = zoomLevel;
+			this.width = width;
+			this.height = height;
+			this.tileSize = tileSize;
+			this.tilesX = (width + tileSize - 1) / tileSize;
+			this.tilesY = (height + tileSize - 1) / tileSize;
+			this.offsets = new long[tilesX * tilesY];
+			this.byteCounts = new long[tilesX * tilesY];
+		}
+
+		/**
+		 * This method is used to get the sampling factors of the level, the first
+		 * call decides them
+		 *
+		 * @param proposed sampling factors of the tile being written
+		 * @return Sampling factors every tile of the level must use
+		 */
+		synchronized int sampling(int proposed) {
+			if (sampling == 0) {
+				sampling = proposed;
+			}
+			return sampling;
+		}
+
+		/**
+		 * This method is used to keep a partial tile until the level's sampling is
+		 * decided
+		 *
+		 * @param index index of the tile
+		 * @param data  tile
+		 * @return True if the tile was kept, false if the sampling is already decided
+		 */
+		synchronized boolean defer(int index, byte[] data) {
+			if (sampling != 0) {
+				return false;
+			}
+			deferred.put(index, data);
+			return true;
+		}
+
+		/**
+		 * This method is used to decide the level's sampling, 4:2:0 if no full-size
+		 * tile did, and get the tiles kept until then
+		 *
+		 * @return Partial tiles to write, by index
+		 */
+		synchronized Map<Integer, byte[]> undefer() {
+			sampling(DEFAULT_SAMPLING);
+			Map<Integer, byte[]> tiles = new HashMap<>(deferred);
+			deferred.clear();
+			return tiles;
+		}
+	}
+
+	/**
+	 * An image file directory, with the values that don't fit in their entry
+	 * stored right after it
+	 */
+	private class Directory {
+		private final List<Object[]> entries = new ArrayList<>();
+
+		void add(int tag, short type, long... values) {
+			entries.add(new Object[] { tag, type, values });
+		}
+
+		ByteBuffer toBytes(long position, boolean last) throws IOException {
+			int entrySize = bigTiff ? 20 : 12;
+			int inline = bigTiff ? 8 : 4;
+			int size = (bigTiff ? 8 : 2) + entries.size() * entrySize + (bigTiff ? 8 : 4);
+			int extra = 0;
+			for (Object[] entry : entries) {
+				int length = valueSize((Short) entry[1]) * ((long[]) entry[2]).length;
+				if (length > inline) {
+					extra += length + (length & 1);
+				}
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(size + extra).order(ByteOrder.LITTLE_ENDIAN);
+			if (bigTiff) {
+				buffer.putLong(entries.size());
+			} else {
+				buffer.putShort((short) entries.size());
+			}
+			int extraPosition = size;
+			for (Object[] entry : entries) {
+				short type = (Short) entry[1];
+				long[] values = (long[]) entry[2];
+				int count = type == RATIONAL ? values.length / 2 : values.length;
+				int length = valueSize(type) * values.length;
+				buffer.putShort((short) (int) (Integer) entry[0]).putShort(type);
+				if (bigTiff) {
+					buffer.putLong(count);
+				} else {
+					buffer.putInt(count);
+				}
+				int valuePosition = buffer.position();
+				if (length > inline) {
+					long offset = position + extraPosition;
+					if (bigTiff) {
+						buffer.putLong(offset);
+					} else {
+						checkClassic(offset);
+						buffer.putInt((int) offset);
+					}
+					buffer.position(extraPosition);
+					putValues(buffer, type, values);
+					extraPosition += length + (length & 1);
+				} else {
+					putValues(buffer, type, values);
+				}
+				buffer.position(valuePosition + inline);
+			}
+			long next = last ? 0 : position + size + extra;
+			if (bigTiff) {
+				buffer.putLong(next);
+			} else {
+				checkClassic(next);
+				buffer.putInt((int) next);
+			}
+			buffer.position(0);
+			return buffer;
+		}
+
+		private int valueSize(short type) {
+			return type == SHORT ? 2 : type == LONG8 ? 8 : 4;
+		}
+
+		private void putValues(ByteBuffer buffer, short type, long[] values) throws IOException {
+			for (long value : values) {
+				if (type == SHORT) {
+					buffer.putShort((short) value);
+				} else if (type == LONG8) {
+					buffer.putLong(value);
+				} else {
+					checkClassic(value);
+					buffer.putInt((int) value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Statistics of an export
+	 */
+	public static class Result {
+		private final AtomicLong tiles = new AtomicLong();
+		private final AtomicLong reencoded = new AtomicLong();
+		private int levels;
+		private long bytes;
+
+		/**
+		 * @return the number of tiles written
+		 */
+		public long getTiles() {
+			return tiles.get();
+		}
+
+		/**
+		 * @return the number of JPEG tiles that had to be decoded and re-encoded
+		 *         (edge tiles)
+		 */
+		public long getReencodedTiles() {
+			return reencoded.get();
+		}
+
+		/**
+		 * @return the number of zoom levels written
+		 */
+		public int getLevels() {
+			return levels;
+		}
+
+		/**
+		 * @return the size of the file
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		@Override
+		public String toString() {
+			return "levels=" + levels + ", tiles=" + tiles + ", reencoded=" + reencoded + ", bytes=" + bytes;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.pathomation;
+
+import java.awt.Image;
+
+/**
+ * A tile returned by a tile sweep, along with its position. When the tile
+ * couldn't be retrieved, the image is null and the error is set
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class Tile {
+	private final int x;
+	private final int y;
+	private final int zoomLevel;
+	private final int zStack;
+	private final Image image;
+	private final Exception error;
+
+	Tile(int x, int y, int zoomLevel, int zStack, Image image, Exception error) {
+		this.x = x;
+		this.y = y;
+		this.zoomLevel = zoomLevel;
+		this.zStack = zStack;
+		this.image = image;
+		this.error = error;
+	}
+
+	/**
+	 * @return the x position of the tile
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * @return the y position of the tile
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * @return the zoom level of the tile
+	 */
+	public int getZoomLevel() {
+		return zoomLevel;
+	}
+
+	/**
+	 * @return the z stack of the tile
+	 */
+	public int getZStack() {
+		return zStack;
+	}
+
+	/**
+	 * @return the tile, null if it couldn't be retrieved
+	 */
+	public Image getImage() {
+		return image;
+	}
+
+	/**
+	 * @return the reason why the tile couldn't be retrieved, null otherwise
+	 */
+	public Exception getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return "Tile(" + x + ", " + y + ", z=" + zoomLevel + ", zStack=" + zStack + ")";
+	}
+}
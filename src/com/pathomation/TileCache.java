@@ -0,0 +1,147 @@
+package com.pathomation;
+
+/**
+ * Client-side cache of encoded tiles, plugged into Core through
+ * Core.setTileCache(). Implementations must be thread-safe
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public interface TileCache {
+
+	/**
+	 * This method is used to look up a tile
+	 *
+	 * @param key Tile key
+	 * @return Encoded tile, null if the tile isn't cached
+	 */
+	byte[] get(TileKey key);
+
+	/**
+	 * This method is used to store a tile
+	 *
+	 * @param key  Tile key
+	 * @param data Encoded tile
+	 */
+	void put(TileKey key, byte[] data);
+
+	/**
+	 * This method is used to look up a tile, checking that it was stored for the
+	 * same version of the slide. Caches that outlive the process (see
+	 * DiskTileCache) drop the tiles of a slide whose last modification date
+	 * changed; the others only rely on the fingerprint in the key
+	 *
+	 * @param key          Tile key
+	 * @param lastModified Last modification date of the slide (see
+	 *                     Core.getLastModifiedDate()), null if unknown
+	 * @return Encoded tile, null if the tile isn't cached
+	 */
+	default byte[] get(TileKey key, String lastModified) {
+		return get(key);
+	}
+
+	/**
+	 * This method is used to store a tile along with the version of its slide
+	 *
+	 * @param key          Tile key
+	 * @param data         Encoded tile
+	 * @param lastModified Last modification date of the slide, null if unknown
+	 */
+	default void put(TileKey key, byte[] data, String lastModified) {
+		put(key, data);
+	}
+
+	/**
+	 * This method is used to drop all tiles of a slide
+	 *
+	 * @param fingerprint Fingerprint of the slide
+	 */
+	void invalidate(String fingerprint);
+
+	/**
+	 * This method is used to drop all tiles
+	 */
+	void clear();
+
+	/**
+	 * @return a snapshot of the cache statistics
+	 */
+	Stats getStats();
+
+	/**
+	 * Snapshot of the statistics of a tile cache
+	 */
+	public static class Stats {
+		private final long hits;
+		private final long misses;
+		private final long puts;
+		private final long evictions;
+		private final long entries;
+		private final long bytes;
+
+		public Stats(long hits, long misses, long puts, long evictions, long entries, long bytes) {
+			this.hits = hits;
+			this.misses = misses;
+			this.puts = puts;
+			this.evictions = evictions;
+			this.entries = entries;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * @return the number of lookups that found a tile
+		 */
+		public long getHits() {
+			return hits;
+		}
+
+		/**
+		 * @return the number of lookups that didn't find a tile
+		 */
+		public long getMisses() {
+			return misses;
+		}
+
+		/**
+		 * @return the ratio of lookups that found a tile, 0 if there weren't any
+		 */
+		public double getHitRate() {
+			long lookups = hits + misses;
+			return lookups == 0 ? 0 : (double) hits / lookups;
+		}
+
+		/**
+		 * @return the number of tiles stored
+		 */
+		public long getPuts() {
+			return puts;
+		}
+
+		/**
+		 * @return the number of tiles evicted to stay within the size limit
+		 */
+		public long getEvictions() {
+			return evictions;
+		}
+
+		/**
+		 * @return the number of tiles currently cached
+		 */
+		public long getEntries() {
+			return entries;
+		}
+
+		/**
+		 * @return the size (in bytes) of the tiles currently cached
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		@Override
+		public String toString() {
+			return "hits=" + hits + ", misses=" + misses + ", puts=" + puts + ", evictions=" + evictions + ", entries="
+					+ entries + ", bytes=" + bytes;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.pathomation;
+
+/**
+ * Identifies an encoded tile in a tile cache. Tiles are keyed by the
+ * fingerprint of their slide rather than by its path, so that a tile cached for
+ * a slide isn't returned for another slide that happens to get the same path,
+ * nor once the slide's new fingerprint is known after it changed (see
+ * PmaCoreClient.setFingerprintTtl())
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public final class TileKey {
+	private final String fingerprint;
+	private final int x;
+	private final int y;
+	private final int zoomLevel;
+	private final int zStack;
+	private final String format;
+	private final int quality;
+	private final int hash;
+
+	/**
+	 * Creates a tile key
+	 *
+	 * @param fingerprint Fingerprint of the slide (see Core.getFingerPrint())
+	 * @param x           x position of the tile
+	 * @param y           y position of the tile
+	 * @param zoomLevel   Zoom level of the tile
+	 * @param zStack      Z stack of the tile
+	 * @param format      Image format of the tile
+	 * @param quality     Quality of the tile
+	 */
+	public TileKey(String fingerprint, int x, int y, int zoomLevel, int zStack, String format, int quality) {
+		if (fingerprint == null) {
+			throw new IllegalArgumentException("fingerprint can't be null");
+		}
+		this.fingerprint = fingerprint;
+		this.x = x;
+		this.y = y;
+		this.zoomLevel = zoomLevel;
+		this.zStack = zStack;
+		this.format = format == null ? "jpg" : format.toLowerCase();
+		this.quality = quality;
+		int h = fingerprint.hashCode();
+		h = 31 * h + x;
+		h = 31 * h + y;
+		h = 31 * h + zoomLevel;
+		h = 31 * h + zStack;
+		h = 31 * h + this.format.hashCode();
+		h = 31 * h + quality;
+		hash = h;
+	}
+
+	/**
+	 * @return the fingerprint of the slide
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return the x position of the tile
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * @return the y position of the tile
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * @return the zoom level of the tile
+	 */
+	public int getZoomLevel() {
+		return zoomLevel;
+	}
+
+	/**
+	 * @return the z stack of the tile
+	 */
+	public int getZStack() {
+		return zStack;
+	}
+
+	/**
+	 * @return the image format of the tile
+	 */
+	public String getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return the quality of the tile
+	 */
+	public int getQuality() {
+		return quality;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof TileKey)) {
+			return false;
+		}
+		TileKey other = (TileKey) o;
+		return hash == other.hash && x == other.x && y == other.y && zoomLevel == other.zoomLevel
+				&& zStack == other.zStack && quality == other.quality && format.equals(other.format)
+				&& fingerprint.equals(other.fingerprint);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return fingerprint + "/" + zoomLevel + "/" + x + "_" + y + "_" + zStack + "." + format + "@" + quality;
+	}
+}
@@ -0,0 +1,201 @@
+package com.pathomation;
+
+import java.awt.Image;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over a set of tiles that are fetched in parallel by a fixed number
+ * of workers. At most "prefetch" tiles are fetched ahead of the consumer, so
+ * memory usage stays bounded however large the sweep is. Tiles are returned
+ * either in the order of the sweep or in the order in which they complete.
+ * Close the sweep when it isn't consumed entirely
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class TileSweep implements Iterator<Tile>, AutoCloseable {
+
+	/**
+	 * Order in which the tiles of a sweep are returned
+	 */
+	public enum Order {
+		/**
+		 * Tiles are returned in the order of the sweep, regardless of the order in
+		 * which they complete
+		 */
+		ORDERED,
+		/**
+		 * Tiles are returned as soon as they complete
+		 */
+		COMPLETION
+	}
+
+	/**
+	 * Retrieves a single tile
+	 */
+	interface TileFetcher {
+		Image fetch(int x, int y) throws Exception;
+	}
+
+	private static final AtomicInteger threadCounter = new AtomicInteger();
+
+	private final List<int[]> positions;
+	private final int zoomLevel;
+	private final int zStack;
+	private final TileFetcher fetcher;
+	private final Order order;
+	private final int prefetch;
+	private final ThreadPoolExecutor executor;
+	private final ExecutorCompletionService<Tile> completionService;
+	private final ArrayDeque<Future<Tile>> pending = new ArrayDeque<>();
+	private int submitted = 0;
+	private int returned = 0;
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates a sweep
+	 *
+	 * @param positions (x, y) positions of the tiles, in sweep order
+	 * @param zoomLevel Zoom level of the tiles
+	 * @param zStack    Z stack of the tiles
+	 * @param fetcher   Retrieves a single tile
+	 * @param workers   Number of tiles fetched in parallel
+	 * @param prefetch  Maximum number of tiles fetched ahead of the consumer (at
+	 *                  least the number of workers)
+	 * @param order     Order in which the tiles are returned
+	 */
+	TileSweep(List<int[]> positions, int zoomLevel, int zStack, TileFetcher fetcher, int workers, int prefetch,
+			Order order) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("workers must be at least 1");
+		}
+		this.positions = positions;
+		this.zoomLevel = zoomLevel;
+		this.zStack = zStack;
+		this.fetcher = fetcher;
+		this.order = order == null ? Order.ORDERED : order;
+		this.prefetch = Math.max(workers, prefetch);
+		executor = new ThreadPoolExecutor(workers, workers, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				r -> {
+					Thread t = new Thread(r, "pma-java-tiles-" + threadCounter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		completionService = this.order == Order.COMPLETION ? new ExecutorCompletionService<>(executor) : null;
+		fill();
+	}
+
+	/**
+	 * @return the total number of tiles in the sweep
+	 */
+	public int size() {
+		return positions.size();
+	}
+
+	/**
+	 * @return the order in which tiles are returned
+	 */
+	public Order getOrder() {
+		return order;
+	}
+
+	private void fill() {
+		while (!closed && submitted < positions.size() && submitted - returned < prefetch) {
+			final int[] position = positions.get(submitted++);
+			if (order == Order.ORDERED) {
+				// only the pending queue holds on to the tile, so it's released once returned
+				pending.add(executor.submit(() -> fetch(position[0], position[1])));
+			} else {
+				completionService.submit(() -> fetch(position[0], position[1]));
+			}
+		}
+	}
+
+	private Tile fetch(int x, int y) {
+		try {
+			return new Tile(x, y, zoomLevel, zStack, fetcher.fetch(x, y), null);
+		} catch (Exception e) {
+			if (PMA.debug) {
+				System.out.println("Unable to retrieve tile (" + x + ", " + y + "): " + e.getMessage());
+			}
+			return new Tile(x, y, zoomLevel, zStack, null, e);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return !closed && returned < positions.size();
+	}
+
+	@Override
+	public Tile next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Future<Tile> future;
+		try {
+			future = order == Order.ORDERED ? pending.poll() : completionService.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new CancellationException("Tile sweep interrupted");
+		}
+		Tile tile;
+		try {
+			tile = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new CancellationException("Tile sweep interrupted");
+		} catch (ExecutionException e) {
+			// fetch() never throws, kept for completeness
+			throw new IllegalStateException(e.getCause());
+		}
+		returned++;
+		if (returned == positions.size()) {
+			executor.shutdown();
+		} else {
+			fill();
+		}
+		return tile;
+	}
+
+	/**
+	 * This method is used to consume the sweep as a (sequential) stream. Closing
+	 * the stream closes the sweep
+	 *
+	 * @return Stream of tiles
+	 */
+	public Stream<Tile> stream() {
+		return StreamSupport
+				.stream(Spliterators.spliterator(this, positions.size(), Spliterator.NONNULL | Spliterator.SIZED), false)
+				.onClose(this::close);
+	}
+
+	/**
+	 * This method stops the sweep, tiles that are still being fetched are
+	 * discarded
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		executor.shutdownNow();
+		pending.clear();
+	}
+}
@@ -0,0 +1,167 @@
+package com.pathomation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Order in which the tiles of a rectangle are visited by Core.getTiles() and
+ * Core.getTilesParallel(). Orders that keep consecutive tiles close to each
+ * other in both directions (HILBERT, Z_ORDER, SPIRAL) suit analyses that work
+ * on 2D neighbourhoods of tiles, as the neighbours of a tile are more likely to
+ * still be in PMA.core's tile cache or in the client's (see
+ * Core.setTileCache())
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public enum TileTraversal {
+	/**
+	 * Left to right, top to bottom
+	 */
+	ROW_MAJOR,
+	/**
+	 * Top to bottom, left to right
+	 */
+	COLUMN_MAJOR,
+	/**
+	 * Along a Hilbert curve, quadrant by quadrant like Z_ORDER but without its
+	 * long jumps. Consecutive tiles are adjacent when the rectangle is a square
+	 * whose side is a power of two; otherwise the curve is clipped to the
+	 * rectangle and can jump where it leaves and re-enters it
+	 */
+	HILBERT,
+	/**
+	 * Along a Z-order (Morton) curve, quadrant by quadrant
+	 */
+	Z_ORDER,
+	/**
+	 * Spiralling outwards from the centre of the rectangle, so the centre of the
+	 * slide comes first
+	 */
+	SPIRAL;
+
+	/**
+	 * This method is used to list the positions of the tiles of a rectangle in
+	 * this order
+	 *
+	 * @param fromX starting x position
+	 * @param fromY starting y position
+	 * @param toX   ending x position (inclusive)
+	 * @param toY   ending y position (inclusive)
+	 * @return (x, y) positions of the tiles, in this order
+	 */
+	public List<int[]> positions(int fromX, int fromY, int toX, int toY) {
+		int width = toX - fromX + 1;
+		int height = toY - fromY + 1;
+		List<int[]> positions = new ArrayList<>(Math.max(width, 0) * Math.max(height, 0));
+		if (width <= 0 || height <= 0) {
+			return positions;
+		}
+		switch (this) {
+		case COLUMN_MAJOR:
+			for (int x = fromX; x <= toX; x++) {
+				for (int y = fromY; y <= toY; y++) {
+					positions.add(new int[] { x, y });
+				}
+			}
+			break;
+		case SPIRAL:
+			spiral(positions, fromX, fromY, toX, toY);
+			break;
+		default:
+			for (int y = fromY; y <= toY; y++) {
+				for (int x = fromX; x <= toX; x++) {
+					positions.add(new int[] { x, y });
+				}
+			}
+			if (this == HILBERT || this == Z_ORDER) {
+				// index the rectangle on the smallest power of two square that covers it
+				int side = Integer.highestOneBit(Math.max(width, height) - 1) << 1;
+				final int n = Math.max(side, 1);
+				final boolean hilbert = this == HILBERT;
+				Collections.sort(positions, Comparator.comparingLong(p -> hilbert
+						? hilbertIndex(n, p[0] - fromX, p[1] - fromY)
+						: mortonIndex(p[0] - fromX, p[1] - fromY)));
+			}
+			break;
+		}
+		return positions;
+	}
+
+	/**
+	 * This method is used to compute the distance of a point along the Hilbert
+	 * curve that fills an n x n square
+	 *
+	 * @param n side of the square, a power of two
+	 * @param x x position in the square
+	 * @param y y position in the square
+	 * @return Distance along the curve
+	 */
+	static long hilbertIndex(int n, int x, int y) {
+		long d = 0;
+		for (int s = n / 2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			// rotate the quadrant, so the curve stays continuous
+			if (ry == 0) {
+				if (rx == 1) {
+					x = s - 1 - x;
+					y = s - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * This method is used to compute the Z-order (Morton) index of a point, by
+	 * interleaving the bits of its coordinates
+	 *
+	 * @param x x position
+	 * @param y y position
+	 * @return Z-order index
+	 */
+	static long mortonIndex(int x, int y) {
+		return spread(x) | (spread(y) << 1);
+	}
+
+	private static long spread(int value) {
+		long v = value & 0xffffffffL;
+		v = (v | (v << 16)) & 0x0000ffff0000ffffL;
+		v = (v | (v << 8)) & 0x00ff00ff00ff00ffL;
+		v = (v | (v << 4)) & 0x0f0f0f0f0f0f0f0fL;
+		v = (v | (v << 2)) & 0x3333333333333333L;
+		v = (v | (v << 1)) & 0x5555555555555555L;
+		return v;
+	}
+
+	private static void spiral(List<int[]> positions, int fromX, int fromY, int toX, int toY) {
+		long total = (long) (toX - fromX + 1) * (toY - fromY + 1);
+		int x = (fromX + toX) / 2;
+		int y = (fromY + toY) / 2;
+		// right, down, left, up, with runs of 1, 1, 2, 2, 3, 3, ... tiles
+		int[][] directions = { { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 } };
+		int direction = 0;
+		int run = 1;
+		positions.add(new int[] { x, y });
+		while (positions.size() < total) {
+			for (int leg = 0; leg < 2; leg++) {
+				for (int i = 0; i < run; i++) {
+					x += directions[direction][0];
+					y += directions[direction][1];
+					if (x >= fromX && x <= toX && y >= fromY && y <= toY) {
+						positions.add(new int[] { x, y });
+					}
+				}
+				direction = (direction + 1) % 4;
+			}
+			run++;
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package com.pathomation;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Tissue mask of a slide, computed client-side from its thumbnail. Stained
+ * tissue is saturated while the glass around it is white or grey, so every
+ * thumbnail pixel whose saturation is above a threshold picked with Otsu's
+ * method counts as tissue. The mask is then mapped onto the tile grid of a zoom
+ * level to sweep only the tiles that intersect tissue (see
+ * Core.getTilesParallel())
+ *
+ * @author Yassine Iddaoui
+ *
+ */
+public class TissueMask {
+
+	/**
+	 * Default size of the longest side of the thumbnail the mask is computed from
+	 */
+	public static final int DEFAULT_THUMBNAIL_SIZE = 1024;
+
+	/**
+	 * Lowest saturation (0 - 255) that counts as tissue, whatever Otsu's threshold.
+	 * Keeps slides that are mostly blank from having their background noise split
+	 * in two
+	 */
+	public static final int MIN_THRESHOLD = 20;
+
+	private final boolean[] mask;
+	private final int width;
+	private final int height;
+	private final int threshold;
+	private final int tissuePixels;
+
+	private TissueMask(boolean[] mask, int width, int height, int threshold) {
+		this.mask = mask;
+		this.width = width;
+		this.height = height;
+		this.threshold = threshold;
+		int count = 0;
+		for (boolean tissue : mask) {
+			if (tissue) {
+				count++;
+			}
+		}
+		this.tissuePixels = count;
+	}
+
+	/**
+	 * This method is used to compute the tissue mask of a slide from a thumbnail of
+	 * DEFAULT_THUMBNAIL_SIZE pixels
+	 *
+	 * @param slideRef  slide's path or UID
+	 * @param sessionID session's ID, null for the default session
+	 * @return Tissue mask
+	 * @throws IOException If the thumbnail can't be retrieved
+	 */
+	public static TissueMask fromSlide(String slideRef, String sessionID) throws IOException {
+		return fromSlide(slideRef, sessionID, DEFAULT_THUMBNAIL_SIZE);
+	}
+
+	/**
+	 * This method is used to compute the tissue mask of a slide from its thumbnail
+	 *
+	 * @param slideRef      slide's path or UID
+	 * @param sessionID     session's ID, null for the default session
+	 * @param thumbnailSize size of the longest side of the thumbnail, a larger
+	 *                      thumbnail gives a finer mask
+	 * @return Tissue mask
+	 * @throws IOException If the thumbnail can't be retrieved
+	 */
+	public static TissueMask fromSlide(String slideRef, String sessionID, int thumbnailSize) throws IOException {
+		if (thumbnailSize < 1) {
+			throw new IllegalArgumentException("thumbnailSize must be positive");
+		}
+		String sid = Core.sessionId(sessionID);
+		if (slideRef.startsWith("/")) {
+			slideRef = slideRef.substring(1);
+		}
+		List<Integer> dimensions = Core.getPixelDimensions(slideRef, null, sid);
+		if (dimensions == null) {
+			throw new IOException("Unable to get the dimensions of " + slideRef);
+		}
+		// only constrain the longest side, so the thumbnail keeps the slide's ratio
+		boolean landscape = dimensions.get(0) >= dimensions.get(1);
+		Image thumbnail = Core.getThumbnailImage(slideRef, sid, landscape ? 0 : thumbnailSize,
+				landscape ? thumbnailSize : 0);
+		if (thumbnail == null) {
+			throw new IOException("Unable to get the thumbnail of " + slideRef);
+		}
+		return fromImage(thumbnail);
+	}
+
+	/**
+	 * This method is used to compute a tissue mask from a thumbnail (or any image
+	 * covering the whole slide)
+	 *
+	 * @param thumbnail image of the whole slide
+	 * @return Tissue mask, with one value per pixel of the thumbnail
+	 */
+	public static TissueMask fromImage(Image thumbnail) {
+		BufferedImage image = toRgb(thumbnail);
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
+		int[] saturation = new int[rgb.length];
+		int[] histogram = new int[256];
+		for (int i = 0; i < rgb.length; i++) {
+			int r = (rgb[i] >> 16) & 0xff;
+			int g = (rgb[i] >> 8) & 0xff;
+			int b = rgb[i] & 0xff;
+			int max = Math.max(r, Math.max(g, b));
+			int min = Math.min(r, Math.min(g, b));
+			// HSV saturation, scaled to 0 - 255
+			saturation[i] = max == 0 ? 0 : (max - min) * 255 / max;
+			histogram[saturation[i]]++;
+		}
+		int threshold = Math.max(otsu(histogram, rgb.length), MIN_THRESHOLD);
+		boolean[] mask = new boolean[rgb.length];
+		for (int i = 0; i < rgb.length; i++) {
+			mask[i] = saturation[i] > threshold;
+		}
+		return new TissueMask(mask, width, height, threshold);
+	}
+
+	/**
+	 * This method is used to find the threshold that best splits a histogram in
+	 * two classes (Otsu's method, maximizing the between-class variance)
+	 *
+	 * @param histogram histogram of 256 values
+	 * @param total     number of values in the histogram
+	 * @return Threshold, values above it belong to the upper class
+	 */
+	static int otsu(int[] histogram, int total) {
+		long sum = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			sum += (long) i * histogram[i];
+		}
+		long sumBackground = 0;
+		int weightBackground = 0;
+		double bestVariance = -1;
+		int best = 0;
+		for (int t = 0; t < histogram.length; t++) {
+			weightBackground += histogram[t];
+			if (weightBackground == 0) {
+				continue;
+			}
+			int weightForeground = total - weightBackground;
+			if (weightForeground == 0) {
+				break;
+			}
+			sumBackground += (long) t * histogram[t];
+			double meanBackground = (double) sumBackground / weightBackground;
+			double meanForeground = (double) (sum - sumBackground) / weightForeground;
+			double variance = (double) weightBackground * weightForeground * (meanBackground - meanForeground)
+					* (meanBackground - meanForeground);
+			if (variance > bestVariance) {
+				bestVariance = variance;
+				best = t;
+			}
+		}
+		return best;
+	}
+
+	private static BufferedImage toRgb(Image image) {
+		if (image instanceof BufferedImage && ((BufferedImage) image).getType() == BufferedImage.TYPE_INT_RGB) {
+			return (BufferedImage) image;
+		}
+		int width = image.getWidth(null);
+		int height = image.getHeight(null);
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("The thumbnail is empty");
+		}
+		BufferedImage rgb = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = rgb.createGraphics();
+		try {
+			// transparent pixels count as background
+			g.setColor(Color.WHITE);
+			g.fillRect(0, 0, width, height);
+			g.drawImage(image, 0, 0, null);
+		} finally {
+			g.dispose();
+		}
+		return rgb;
+	}
+
+	/**
+	 * This method is used to map the mask onto the tile grid of a zoom level. A
+	 * tile is marked when any tissue pixel of the mask, or one of its neighbours,
+	 * overlaps it, so tiles on the edge of the tissue aren't missed because of the
+	 * thumbnail's coarse resolution
+	 *
+	 * @param levelWidth  width of the zoom level, in pixels
+	 * @param levelHeight height of the zoom level, in pixels
+	 * @param tileSize    size of the tiles
+	 * @return Marked tiles, indexed [y][x]
+	 */
+	public boolean[][] getTileGrid(int levelWidth, int levelHeight, int tileSize) {
+		if (levelWidth <= 0 || levelHeight <= 0 || tileSize <= 0) {
+			throw new IllegalArgumentException("levelWidth, levelHeight and tileSize must be positive");
+		}
+		int tilesX = (levelWidth + tileSize - 1) / tileSize;
+		int tilesY = (levelHeight + tileSize - 1) / tileSize;
+		boolean[][] grid = new boolean[tilesY][tilesX];
+		double scaleX = (double) levelWidth / width;
+		double scaleY = (double) levelHeight / height;
+		for (int py = 0; py < height; py++) {
+			for (int px = 0; px < width; px++) {
+				if (!mask[py * width + px]) {
+					continue;
+				}
+				// the pixel and its neighbours, in pixels of the zoom level
+				int fromX = (int) Math.floor(Math.max(px - 1, 0) * scaleX) / tileSize;
+				int fromY = (int) Math.floor(Math.max(py - 1, 0) * scaleY) / tileSize;
+				int toX = Math.min((int) Math.ceil(Math.min(px + 2, width) * scaleX) - 1, levelWidth - 1) / tileSize;
+				int toY = Math.min((int) Math.ceil(Math.min(py + 2, height) * scaleY) - 1, levelHeight - 1) / tileSize;
+				for (int ty = fromY; ty <= toY; ty++) {
+					for (int tx = fromX; tx <= toX; tx++) {
+						grid[ty][tx] = true;
+					}
+				}
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * This method is used to check whether a pixel of the mask is tissue
+	 *
+	 * @param x x position, in pixels of the mask
+	 * @param y y position, in pixels of the mask
+	 * @return True if the pixel is tissue
+	 */
+	public boolean isTissue(int x, int y) {
+		return mask[y * width + x];
+	}
+
+	/**
+	 * @return Width of the mask, in pixels of the thumbnail
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return Height of the mask, in pixels of the thumbnail
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return Saturation threshold (0 - 255) above which a pixel is tissue
+	 */
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * @return Fraction of the slide covered by tissue
+	 */
+	public double getTissueFraction() {
+		return (double) tissuePixels / mask.length;
+	}
+
+	@Override
+	public String toString() {
+		return "TissueMask [width=" + width + ", height=" + height + ", threshold=" + threshold + ", tissue="
+				+ String.format("%.1f%%", getTissueFraction() * 100) + "]";
+	}
+}